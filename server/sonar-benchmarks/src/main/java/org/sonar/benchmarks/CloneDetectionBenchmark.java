@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+import org.sonar.duplications.java.JavaStatementBuilder;
+import org.sonar.duplications.java.JavaTokenProducer;
+import org.sonar.duplications.statement.Statement;
+
+/**
+ * Detection of the duplications of the huge file, indexed together with {@code copies} copies of itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CloneDetectionBenchmark {
+
+  /**
+   * Same as the block size used by scanner for Java files
+   */
+  private static final int BLOCK_SIZE = 10;
+
+  @Param({"0", "3"})
+  public int copies;
+
+  private PackedMemoryCloneIndex index;
+  private Collection<Block> fileBlocks;
+
+  @Setup
+  public void setUp() {
+    List<Statement> statements = JavaStatementBuilder.build().chunk(JavaTokenProducer.build().chunk(Fixtures.hugeFileContent()));
+    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+
+    index = new PackedMemoryCloneIndex();
+    for (int i = 0; i <= copies; i++) {
+      for (Block block : blockChunker.chunk("HugeFile" + i, statements)) {
+        index.insert(block);
+      }
+    }
+    fileBlocks = index.getByResourceId("HugeFile0");
+  }
+
+  @Benchmark
+  public List<CloneGroup> detect() {
+    return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+  }
+}
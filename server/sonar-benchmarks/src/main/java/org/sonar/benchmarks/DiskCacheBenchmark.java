@@ -0,0 +1,112 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.util.cache.DiskCache;
+
+/**
+ * Writing then reading all the issues of an analysis through the disk cache of Compute Engine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiskCacheBenchmark {
+
+  @Param({"10000", "100000"})
+  public int issues;
+
+  private File file;
+  private DefaultIssue[] sample;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile("sonar-benchmarks", ".dat").toFile();
+    // a few distinct issues, only keys differ when they are written
+    sample = new DefaultIssue[100];
+    for (int i = 0; i < sample.length; i++) {
+      sample[i] = new DefaultIssue()
+        .setKey("AV" + i)
+        .setRuleKey(RuleKey.of("squid", "S" + (i % 20)))
+        .setComponentUuid("FILE_" + (i % 10))
+        .setComponentKey("project:src/main/java/File" + (i % 10) + ".java")
+        .setProjectUuid("PROJECT")
+        .setProjectKey("project")
+        .setLine(i + 1)
+        .setMessage("Remove this unused private field " + i)
+        .setSeverity(Severity.MAJOR)
+        .setStatus(Issue.STATUS_OPEN)
+        .setChecksum("c7b5db46591806455cf082bb348631e8")
+        .setCreationDate(new Date(1_500_000_000_000L))
+        .setUpdateDate(new Date(1_500_000_000_000L))
+        .setNew(true);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file.toPath());
+  }
+
+  @Benchmark
+  public int writeThenRead() {
+    IssueCache cache = new IssueCache(file, System2.INSTANCE);
+    DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender();
+    for (int i = 0; i < issues; i++) {
+      appender.append(sample[i % sample.length].setKey("AV" + i));
+    }
+    appender.close();
+
+    int count = 0;
+    try (CloseableIterator<DefaultIssue> it = cache.traverse()) {
+      while (it.hasNext()) {
+        it.next();
+        count++;
+      }
+    }
+    return count;
+  }
+}
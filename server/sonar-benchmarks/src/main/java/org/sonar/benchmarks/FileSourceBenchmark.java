@@ -0,0 +1,82 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
+
+/**
+ * Serialization and LZ4 compression of the source of the huge file, as stored in column FILE_SOURCES.BINARY_DATA
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileSourceBenchmark {
+
+  private final FileSourceDto dto = new FileSourceDto();
+  private DbFileSources.Data data;
+  private byte[] binaryData;
+
+  @Setup
+  public void setUp() {
+    List<String> lines = Fixtures.hugeFileLines();
+    DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < lines.size(); i++) {
+      int line = i + 1;
+      builder.addLinesBuilder()
+        .setLine(line)
+        .setSource(lines.get(i))
+        .setScmRevision("rev-" + (line % 50))
+        .setScmAuthor("author" + (line % 7))
+        .setScmDate(1_500_000_000_000L + line % 50)
+        .setHighlighting("0,6,k;7,12,k")
+        .setLineHits(line % 3)
+        .setConditions(line % 4 == 0 ? 2 : 0)
+        .setCoveredConditions(line % 8 == 0 ? 1 : 0);
+    }
+    data = builder.build();
+    binaryData = FileSourceDto.encodeSourceData(data);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return FileSourceDto.encodeSourceData(data);
+  }
+
+  @Benchmark
+  public DbFileSources.Data decode() {
+    return dto.decodeSourceData(binaryData);
+  }
+}
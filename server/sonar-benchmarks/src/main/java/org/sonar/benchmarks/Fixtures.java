@@ -0,0 +1,69 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Access to the projects of tests/projects/performance, which are used as input of benchmarks.
+ * The directory is set by the Gradle task "jmh" through the system property {@link #PROJECTS_DIR_PROPERTY}.
+ */
+public final class Fixtures {
+
+  public static final String PROJECTS_DIR_PROPERTY = "sonar.benchmarks.projectsDir";
+
+  private Fixtures() {
+    // only static methods
+  }
+
+  public static File projectsDir() {
+    String path = System.getProperty(PROJECTS_DIR_PROPERTY, "tests/projects/performance");
+    File dir = new File(path);
+    if (!dir.isDirectory()) {
+      throw new IllegalStateException("Directory of performance projects does not exist: " + dir.getAbsolutePath() +
+        ". Set the system property " + PROJECTS_DIR_PROPERTY);
+    }
+    return dir;
+  }
+
+  /**
+   * The Java file of about 50,000 lines of project huge-file
+   */
+  public static File hugeFile() {
+    return new File(projectsDir(), "huge-file/src/main/java/huge/HugeFile.java");
+  }
+
+  public static List<String> hugeFileLines() {
+    try {
+      return Files.readAllLines(hugeFile().toPath(), UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read " + hugeFile(), e);
+    }
+  }
+
+  public static String hugeFileContent() {
+    return String.join("\n", hugeFileLines());
+  }
+}
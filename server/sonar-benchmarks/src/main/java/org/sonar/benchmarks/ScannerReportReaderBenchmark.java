@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.Constants;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+/**
+ * Parsing of the components, issues, measures and syntax highlighting of a scanner report, as done by Compute Engine.
+ * Each file of the report has the size of the huge file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScannerReportReaderBenchmark {
+
+  private static final int PROJECT_REF = 1;
+  private static final int ISSUES_PER_FILE = 500;
+
+  @Param({"10"})
+  public int files;
+
+  private File reportDir;
+
+  @Setup
+  public void setUp() throws IOException {
+    reportDir = Files.createTempDirectory("sonar-benchmarks").toFile();
+    int lines = Fixtures.hugeFileLines().size();
+    ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("project").setRootComponentRef(PROJECT_REF).build());
+
+    ScannerReport.Component.Builder project = ScannerReport.Component.newBuilder()
+      .setRef(PROJECT_REF)
+      .setKey("project")
+      .setType(ScannerReport.Component.ComponentType.PROJECT);
+    for (int ref = PROJECT_REF + 1; ref <= PROJECT_REF + files; ref++) {
+      project.addChildRef(ref);
+      writer.writeComponent(ScannerReport.Component.newBuilder()
+        .setRef(ref)
+        .setPath("src/main/java/huge/HugeFile" + ref + ".java")
+        .setType(ScannerReport.Component.ComponentType.FILE)
+        .setLanguage("java")
+        .setLines(lines)
+        .build());
+      writer.writeComponentIssues(ref, issues(lines));
+      writer.writeComponentMeasures(ref, measures());
+      writer.writeComponentSyntaxHighlighting(ref, highlighting(lines));
+      FileUtils.copyFile(Fixtures.hugeFile(), writer.getSourceFile(ref));
+    }
+    writer.writeComponent(project.build());
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(reportDir);
+  }
+
+  @Benchmark
+  public void readReport(Blackhole blackhole) {
+    ScannerReportReader reader = new ScannerReportReader(reportDir);
+    ScannerReport.Metadata metadata = reader.readMetadata();
+    ScannerReport.Component project = reader.readComponent(metadata.getRootComponentRef());
+    for (int ref : project.getChildRefList()) {
+      blackhole.consume(reader.readComponent(ref));
+      consume(reader.readComponentIssues(ref), blackhole);
+      consume(reader.readComponentMeasures(ref), blackhole);
+      consume(reader.readComponentSyntaxHighlighting(ref), blackhole);
+    }
+  }
+
+  private static void consume(CloseableIterator<?> iterator, Blackhole blackhole) {
+    try (CloseableIterator<?> it = iterator) {
+      while (it.hasNext()) {
+        blackhole.consume(it.next());
+      }
+    }
+  }
+
+  private static List<ScannerReport.Issue> issues(int lines) {
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    for (int i = 0; i < ISSUES_PER_FILE; i++) {
+      int line = 1 + (i * lines / ISSUES_PER_FILE);
+      issues.add(ScannerReport.Issue.newBuilder()
+        .setRuleRepository("squid")
+        .setRuleKey("S" + (i % 20))
+        .setMsg("Remove this unused private field " + i)
+        .setSeverity(Constants.Severity.MAJOR)
+        .setTextRange(ScannerReport.TextRange.newBuilder().setStartLine(line).setEndLine(line).setStartOffset(0).setEndOffset(10))
+        .build());
+    }
+    return issues;
+  }
+
+  private static List<ScannerReport.Measure> measures() {
+    List<ScannerReport.Measure> measures = new ArrayList<>();
+    for (String metric : new String[] {"lines", "ncloc", "comment_lines", "complexity", "cognitive_complexity", "statements", "functions", "classes"}) {
+      measures.add(ScannerReport.Measure.newBuilder()
+        .setMetricKey(metric)
+        .setIntValue(ScannerReport.Measure.IntValue.newBuilder().setValue(metric.length() * 100))
+        .build());
+    }
+    return measures;
+  }
+
+  private static List<ScannerReport.SyntaxHighlightingRule> highlighting(int lines) {
+    List<ScannerReport.SyntaxHighlightingRule> rules = new ArrayList<>();
+    for (int line = 1; line <= lines; line++) {
+      rules.add(ScannerReport.SyntaxHighlightingRule.newBuilder()
+        .setRange(ScannerReport.TextRange.newBuilder().setStartLine(line).setEndLine(line).setStartOffset(0).setEndOffset(6))
+        .setType(ScannerReport.SyntaxHighlightingRule.HighlightingType.KEYWORD)
+        .build());
+    }
+    return rules;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.BlockHashSequence;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+
+/**
+ * Tracking of the issues of the huge file when lines have been inserted and modified, so that
+ * the detection of code moves is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackerBenchmark {
+
+  private static final RuleKey[] RULES = {RuleKey.of("squid", "S1"), RuleKey.of("squid", "S2"), RuleKey.of("squid", "S3")};
+
+  /**
+   * One issue every {@code issueInterval} lines
+   */
+  @Param({"5", "50"})
+  public int issueInterval;
+
+  private final Tracker<DefaultIssue, DefaultIssue> tracker = new Tracker<>();
+  private IssuesInput baseInput;
+  private IssuesInput rawInput;
+
+  @Setup
+  public void setUp() {
+    List<String> baseLines = Fixtures.hugeFileLines();
+    List<String> rawLines = new ArrayList<>(baseLines.size());
+    // raw line for each base line, or 0 if base line has been modified
+    int[] rawLineOfBaseLine = new int[baseLines.size() + 1];
+    for (int i = 0; i < baseLines.size(); i++) {
+      if (i % 500 == 0) {
+        rawLines.add("// inserted line " + i);
+      }
+      if (i % 1_000 == 999) {
+        rawLines.add(baseLines.get(i) + " // modified");
+      } else {
+        rawLines.add(baseLines.get(i));
+        rawLineOfBaseLine[i + 1] = rawLines.size();
+      }
+    }
+
+    baseInput = new IssuesInput(baseLines);
+    rawInput = new IssuesInput(rawLines);
+    for (int line = 1; line <= baseLines.size(); line += issueInterval) {
+      RuleKey rule = RULES[line % RULES.length];
+      baseInput.addIssue("base" + line, line, rule, "message " + line);
+      int rawLine = rawLineOfBaseLine[line];
+      if (rawLine > 0) {
+        // message changes for one issue out of two
+        rawInput.addIssue("raw" + line, rawLine, rule, line % 2 == 0 ? ("message " + line) : ("new message " + line));
+      }
+    }
+  }
+
+  @Benchmark
+  public Tracking<DefaultIssue, DefaultIssue> track() {
+    return tracker.track(rawInput, baseInput);
+  }
+
+  private static class IssuesInput implements Input<DefaultIssue> {
+    private final LineHashSequence lineHashSequence;
+    private final BlockHashSequence blockHashSequence;
+    private final List<DefaultIssue> issues = new ArrayList<>();
+
+    IssuesInput(List<String> lines) {
+      this.lineHashSequence = LineHashSequence.createForLines(lines);
+      this.blockHashSequence = BlockHashSequence.create(lineHashSequence);
+    }
+
+    void addIssue(String key, int line, RuleKey rule, String message) {
+      issues.add(new DefaultIssue()
+        .setKey(key)
+        .setLine(line)
+        .setRuleKey(rule)
+        .setMessage(message)
+        .setChecksum(lineHashSequence.getHashForLine(line))
+        .setStatus(Issue.STATUS_OPEN));
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashSequence;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashSequence;
+    }
+
+    @Override
+    public Collection<DefaultIssue> getIssues() {
+      return issues;
+    }
+  }
+}
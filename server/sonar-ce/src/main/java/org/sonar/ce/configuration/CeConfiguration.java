@@ -42,6 +42,13 @@ public interface CeConfiguration {
    */
   long getQueuePollingDelay();
 
+  /**
+   * The maximum number of tasks reserved at once by the Compute Engine node when a worker looks for a task to process.
+   * Reserved tasks are then handed to the other workers of the node. {@code 1} means that each worker reserves
+   * its own task.
+   */
+  int getQueueClaimBatchSize();
+
   /**
    * Delay before running job that cleans CE tasks for the first time (in minutes).
    */
@@ -45,11 +45,14 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   // 40 seconds
   private static final int GRACEFUL_STOP_TIMEOUT = 40;
   public static final String SONAR_CE_GRACEFUL_STOP_TIME_OUT_IN_MS = "sonar.ce.gracefulStopTimeOutInMs";
+  private static final int DEFAULT_QUEUE_CLAIM_BATCH_SIZE = 1;
+  public static final String SONAR_CE_QUEUE_CLAIM_BATCH_SIZE = "sonar.ce.queue.claimBatchSize";
 
   @CheckForNull
   private final WorkerCountProvider workerCountProvider;
   private final int workerThreadCount;
   private final int gracefultStopTimeoutInMs;
+  private final int queueClaimBatchSize;
   private int workerCount;
 
   public CeConfigurationImpl(Configuration configuration) {
@@ -57,6 +60,7 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     this.workerThreadCount = DEFAULT_WORKER_THREAD_COUNT;
     this.workerCount = DEFAULT_WORKER_COUNT;
     this.gracefultStopTimeoutInMs = configuration.getInt(SONAR_CE_GRACEFUL_STOP_TIME_OUT_IN_MS).orElse(GRACEFUL_STOP_TIMEOUT);
+    this.queueClaimBatchSize = readQueueClaimBatchSize(configuration);
   }
 
   public CeConfigurationImpl(Configuration configuration, WorkerCountProvider workerCountProvider) {
@@ -64,6 +68,7 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     this.workerThreadCount = MAX_WORKER_THREAD_COUNT;
     this.workerCount = readWorkerCount(workerCountProvider);
     this.gracefultStopTimeoutInMs = configuration.getInt(SONAR_CE_GRACEFUL_STOP_TIME_OUT_IN_MS).orElse(GRACEFUL_STOP_TIMEOUT);
+    this.queueClaimBatchSize = readQueueClaimBatchSize(configuration);
   }
 
   private static int readWorkerCount(WorkerCountProvider workerCountProvider) {
@@ -74,6 +79,15 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return value;
   }
 
+  private static int readQueueClaimBatchSize(Configuration configuration) {
+    int value = configuration.getInt(SONAR_CE_QUEUE_CLAIM_BATCH_SIZE).orElse(DEFAULT_QUEUE_CLAIM_BATCH_SIZE);
+    if (value < 1) {
+      throw MessageException.of(format(
+        "Queue claim batch size '%s' is invalid. It must an integer strictly greater than 0", value));
+    }
+    return value;
+  }
+
   private static MessageException parsingError(int value) {
     return MessageException.of(format(
         "Worker count '%s' is invalid. It must an integer strictly greater than 0 and less or equal to 10",
@@ -112,6 +126,11 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
 
+  @Override
+  public int getQueueClaimBatchSize() {
+    return queueClaimBatchSize;
+  }
+
   @Override
   public long getCleanCeTasksInitialDelay() {
     return CANCEL_WORN_OUTS_INITIAL_DELAY;
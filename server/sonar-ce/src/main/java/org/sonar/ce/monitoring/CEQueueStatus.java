@@ -64,6 +64,18 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds the specified count to the count of tasks which could not be claimed because another worker claimed
+   * them concurrently.
+   *
+   * @return the new count of claim conflicts
+   *
+   * @see #getClaimConflictCount()
+   *
+   * @throws IllegalArgumentException if count is < 0
+   */
+  long addClaimConflicts(long count);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -89,5 +101,10 @@ public interface CEQueueStatus {
    */
   long getProcessingTime();
 
+  /**
+   * Count of tasks which could not be claimed because another worker claimed them concurrently, since instance startup.
+   */
+  long getClaimConflictCount();
+
   boolean areWorkersPaused();
 }
@@ -35,6 +35,7 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final AtomicLong claimConflicts = new AtomicLong(0);
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -64,6 +65,12 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     processingTime.addAndGet(ms);
   }
 
+  @Override
+  public long addClaimConflicts(long count) {
+    checkArgument(count >= 0, "Claim conflict count can not be < 0");
+    return claimConflicts.addAndGet(count);
+  }
+
   @Override
   public long getPendingCount() {
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -98,4 +105,9 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getClaimConflictCount() {
+    return claimConflicts.get();
+  }
 }
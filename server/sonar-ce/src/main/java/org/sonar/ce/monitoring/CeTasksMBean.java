@@ -48,6 +48,11 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Count of tasks which could not be claimed because another worker claimed them concurrently, since instance startup.
+   */
+  long getClaimConflictCount();
+
   /**
    * Configured maximum number of workers.
    */
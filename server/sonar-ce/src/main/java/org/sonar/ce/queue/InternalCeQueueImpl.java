@@ -23,15 +23,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.configuration.CeConfiguration;
 import org.sonar.ce.container.ComputeEngineStatus;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.core.util.UuidFactory;
@@ -40,6 +44,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.ClaimedTasks;
 import org.sonar.server.computation.task.projectanalysis.component.VisitException;
 import org.sonar.server.computation.task.step.TypedException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
@@ -47,6 +52,7 @@ import org.sonar.server.organization.DefaultOrganizationProvider;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
@@ -56,14 +62,21 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
   private final ComputeEngineStatus computeEngineStatus;
+  private final CeConfiguration ceConfiguration;
+  /**
+   * Tasks reserved by a worker of this node with {@link CeQueueDao#claim(DbSession, String, int)} and not yet
+   * handed to a worker. Only used when {@link CeConfiguration#getQueueClaimBatchSize()} is greater than 1.
+   */
+  private final Queue<CeQueueDto> claimedTasks = new ConcurrentLinkedQueue<>();
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
+    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus, CeConfiguration ceConfiguration) {
     super(dbClient, uuidFactory, defaultOrganizationProvider);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
     this.computeEngineStatus = computeEngineStatus;
+    this.ceConfiguration = ceConfiguration;
   }
 
   @Override
@@ -71,15 +84,19 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     requireNonNull(workerUuid, "workerUuid can't be null");
 
     if (computeEngineStatus.getStatus() != ComputeEngineStatus.Status.STARTED || getWorkersPauseStatus() != WorkersPauseStatus.RESUMED) {
+      releaseClaimedTasks();
       return Optional.empty();
     }
     try (DbSession dbSession = dbClient.openSession(false)) {
       CeQueueDao ceQueueDao = dbClient.ceQueueDao();
-      int i = ceQueueDao.resetToPendingForWorker(dbSession, workerUuid);
+      boolean claimMode = ceConfiguration.getQueueClaimBatchSize() > 1;
+      int i = claimMode
+        ? ceQueueDao.resetToPendingForWorker(dbSession, workerUuid, claimedTasks.stream().map(CeQueueDto::getUuid).collect(toList()))
+        : ceQueueDao.resetToPendingForWorker(dbSession, workerUuid);
       if (i > 0) {
         LOG.debug("{} in progress tasks reset for worker uuid {}", i, workerUuid);
       }
-      Optional<CeQueueDto> dto = ceQueueDao.peek(dbSession, workerUuid);
+      Optional<CeQueueDto> dto = claimMode ? claim(dbSession, workerUuid) : ceQueueDao.peek(dbSession, workerUuid);
       CeTask task = null;
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
@@ -89,6 +106,52 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
   }
 
+  /**
+   * Hands to the specified worker a task previously reserved by a worker of this node, if any. Otherwise, reserves
+   * a batch of tasks for the specified worker: the oldest one is processed by it and the other ones are kept for the
+   * next calls.
+   */
+  private Optional<CeQueueDto> claim(DbSession dbSession, String workerUuid) {
+    CeQueueDao ceQueueDao = dbClient.ceQueueDao();
+    CeQueueDto claimedTask;
+    while ((claimedTask = claimedTasks.poll()) != null) {
+      // even when handed to the worker which reserved it, the task is transferred so that its start date is the one of its processing
+      if (ceQueueDao.transferClaimed(dbSession, claimedTask, workerUuid)) {
+        return Optional.of(claimedTask);
+      }
+      // task has been reset (eg. its worker has been considered as dead) and may have been peeked by another node
+      queueStatus.addClaimConflicts(1);
+    }
+
+    ClaimedTasks claimed = ceQueueDao.claim(dbSession, workerUuid, ceConfiguration.getQueueClaimBatchSize());
+    queueStatus.addClaimConflicts(claimed.getConflictCount());
+    List<CeQueueDto> tasks = claimed.getTasks();
+    if (tasks.isEmpty()) {
+      return Optional.empty();
+    }
+    claimedTasks.addAll(tasks.subList(1, tasks.size()));
+    return Optional.of(tasks.get(0));
+  }
+
+  /**
+   * Puts back to PENDING the tasks reserved by workers of this node and not handed to any worker yet, so that
+   * workers can be paused and other nodes can process them.
+   */
+  private void releaseClaimedTasks() {
+    if (claimedTasks.isEmpty()) {
+      return;
+    }
+    List<CeQueueDto> tasks = new ArrayList<>();
+    CeQueueDto claimedTask;
+    while ((claimedTask = claimedTasks.poll()) != null) {
+      tasks.add(claimedTask);
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      int i = dbClient.ceQueueDao().releaseClaimed(dbSession, tasks);
+      LOG.debug("{} claimed tasks released", i);
+    }
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
@@ -99,6 +99,28 @@ public class CeConfigurationImplTest {
       "It must an integer strictly greater than 0 and less or equal to 10");
   }
 
+  @Test
+  public void getQueueClaimBatchSize_returns_1_by_default() {
+    assertThat(new CeConfigurationImpl(EMPTY_CONFIGURATION).getQueueClaimBatchSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void getQueueClaimBatchSize_returns_value_of_property() {
+    MapSettings settings = new MapSettings().setProperty("sonar.ce.queue.claimBatchSize", 5);
+
+    assertThat(new CeConfigurationImpl(settings.asConfig()).getQueueClaimBatchSize()).isEqualTo(5);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_queue_claim_batch_size_is_0() {
+    MapSettings settings = new MapSettings().setProperty("sonar.ce.queue.claimBatchSize", 0);
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Queue claim batch size '0' is invalid. It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings.asConfig());
+  }
+
   @Test
   public void getCleanCeTasksInitialDelay_returns_1() {
     assertThat(new CeConfigurationImpl(EMPTY_CONFIGURATION).getCleanCeTasksInitialDelay())
@@ -31,6 +31,7 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
   private int workerThreadCount = 1;
   private int workerCount = 1;
   private long queuePollingDelay = 2 * 1000L;
+  private int queueClaimBatchSize = 1;
   private long cancelWornOutsInitialDelay = 1L;
   private long cancelWornOutsDelay = 10L;
   private Consumer<CeConfigurationRule> refreshCallHook;
@@ -77,6 +78,17 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     this.queuePollingDelay = queuePollingDelay;
   }
 
+  @Override
+  public int getQueueClaimBatchSize() {
+    return queueClaimBatchSize;
+  }
+
+  public CeConfigurationRule setQueueClaimBatchSize(int queueClaimBatchSize) {
+    checkArgument(queueClaimBatchSize >= 1, "queue claim batch size must be >= 1");
+    this.queueClaimBatchSize = queueClaimBatchSize;
+    return this;
+  }
+
   @Override
   public long getCleanCeTasksInitialDelay() {
     return cancelWornOutsInitialDelay;
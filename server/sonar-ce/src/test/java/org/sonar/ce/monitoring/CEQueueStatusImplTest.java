@@ -134,6 +134,24 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getProcessingTime()).isEqualTo(calls);
   }
 
+  @Test
+  public void addClaimConflicts_throws_IAE_if_count_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Claim conflict count can not be < 0");
+
+    underTest.addClaimConflicts(-1);
+  }
+
+  @Test
+  public void addClaimConflicts_increases_ClaimConflictCount() {
+    underTest.addClaimConflicts(2);
+    underTest.addClaimConflicts(0);
+    underTest.addClaimConflicts(3);
+
+    assertThat(underTest.getClaimConflictCount()).isEqualTo(5);
+    assertThat(underTest.getInProgressCount()).isEqualTo(0);
+  }
+
   @Test
   public void count_Pending_from_database() {
     when(dbClient.ceQueueDao().countByStatus(any(), eq(CeQueueDto.Status.PENDING))).thenReturn(42);
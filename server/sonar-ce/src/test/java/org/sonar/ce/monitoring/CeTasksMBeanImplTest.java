@@ -36,6 +36,7 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long CLAIM_CONFLICT_COUNT = 3;
   private static final int WORKER_MAX_COUNT = 666;
   private static final int WORKER_COUNT = 56;
 
@@ -72,6 +73,7 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getClaimConflictCount()).isEqualTo(CLAIM_CONFLICT_COUNT);
   }
 
   @Test
@@ -88,7 +90,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(8);
+    assertThat(section.getAttributesCount()).isEqualTo(9);
   }
   private static class DumbCEQueueStatus implements CEQueueStatus {
 
@@ -132,6 +134,16 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public long addClaimConflicts(long count) {
+      return methodNotImplemented();
+    }
+
+    @Override
+    public long getClaimConflictCount() {
+      return CLAIM_CONFLICT_COUNT;
+    }
+
     @Override
     public boolean areWorkersPaused() {
       return false;
@@ -164,6 +176,11 @@ public class CeTasksMBeanImplTest {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
 
+    @Override
+    public int getQueueClaimBatchSize() {
+      throw new UnsupportedOperationException("getQueueClaimBatchSize is not implemented");
+    }
+
     @Override
     public long getCleanCeTasksInitialDelay() {
       throw new UnsupportedOperationException("getCleanCeTasksInitialDelay is not implemented");
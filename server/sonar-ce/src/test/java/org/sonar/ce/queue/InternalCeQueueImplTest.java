@@ -31,6 +31,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.AlwaysIncreasingSystem2;
+import org.sonar.ce.configuration.CeConfigurationRule;
 import org.sonar.ce.container.ComputeEngineStatus;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.monitoring.CEQueueStatusImpl;
@@ -67,6 +68,8 @@ public class InternalCeQueueImplTest {
   public ExpectedException expectedException = ExpectedException.none();
   @Rule
   public DbTester db = DbTester.create(system2);
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
 
   private DbSession session = db.getSession();
 
@@ -74,7 +77,8 @@ public class InternalCeQueueImplTest {
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(db.getDbClient());
   private DefaultOrganizationProvider defaultOrganizationProvider = mock(DefaultOrganizationProvider.class);
   private ComputeEngineStatus computeEngineStatus = mock(ComputeEngineStatus.class);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, db.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus);
+  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, db.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus,
+    ceConfiguration);
 
   @Before
   public void setUp() {
@@ -376,6 +380,72 @@ public class InternalCeQueueImplTest {
     verifyUnmodifiedTask(u4);
   }
 
+  @Test
+  public void peek_in_claim_mode_hands_claimed_tasks_to_other_workers() {
+    ceConfiguration.setQueueClaimBatchSize(5);
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    assertThat(underTest.peek(WORKER_UUID_1).get().getUuid()).isEqualTo(task1.getUuid());
+    // task2 has been claimed by worker 1 but not handed to any worker yet
+    CeQueueDto claimed = selectQueueDto(task2.getUuid());
+    assertThat(claimed.getStatus()).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+    assertThat(claimed.getWorkerUuid()).isEqualTo(WORKER_UUID_1);
+
+    assertThat(underTest.peek(WORKER_UUID_2).get().getUuid()).isEqualTo(task2.getUuid());
+    CeQueueDto transferred = selectQueueDto(task2.getUuid());
+    assertThat(transferred.getStatus()).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+    assertThat(transferred.getWorkerUuid()).isEqualTo(WORKER_UUID_2);
+    assertThat(queueStatus.getInProgressCount()).isEqualTo(2);
+
+    assertThat(underTest.peek(WORKER_UUID_2)).isEmpty();
+    assertThat(queueStatus.getClaimConflictCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void peek_in_claim_mode_refreshes_start_date_of_claimed_task_handed_to_the_worker_which_claimed_it() {
+    ceConfiguration.setQueueClaimBatchSize(5);
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    underTest.peek(WORKER_UUID_1);
+    CeQueueDto claimed = selectQueueDto(task2.getUuid());
+
+    assertThat(underTest.peek(WORKER_UUID_1).get().getUuid()).isEqualTo(task2.getUuid());
+
+    CeQueueDto handed = selectQueueDto(task2.getUuid());
+    assertThat(handed.getWorkerUuid()).isEqualTo(WORKER_UUID_1);
+    assertThat(handed.getStartedAt()).isGreaterThan(claimed.getStartedAt());
+    assertThat(handed.getUpdatedAt()).isGreaterThan(claimed.getUpdatedAt());
+  }
+
+  @Test
+  public void peek_in_claim_mode_counts_conflict_when_claimed_task_has_been_reset() {
+    ceConfiguration.setQueueClaimBatchSize(5);
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    submit(CeTaskTypes.REPORT, "PROJECT_2");
+    underTest.peek(WORKER_UUID_1);
+    underTest.resetTasksWithUnknownWorkerUUIDs(ImmutableSet.of(WORKER_UUID_2));
+
+    // task2 can not be transferred anymore, both tasks are pending again and claimed in a new batch
+    assertThat(underTest.peek(WORKER_UUID_2).get().getUuid()).isEqualTo(task1.getUuid());
+    assertThat(queueStatus.getClaimConflictCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void peek_in_claim_mode_releases_claimed_tasks_when_workers_are_paused() {
+    ceConfiguration.setQueueClaimBatchSize(5);
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    underTest.peek(WORKER_UUID_1);
+    underTest.pauseWorkers();
+
+    assertThat(underTest.peek(WORKER_UUID_2)).isEmpty();
+
+    CeQueueDto released = db.getDbClient().ceQueueDao().selectByUuid(session, task2.getUuid()).get();
+    assertThat(released.getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+    assertThat(released.getWorkerUuid()).isNull();
+  }
+
   private void verifyResetTask(CeQueueDto originalDto) {
     CeQueueDto dto = db.getDbClient().ceQueueDao().selectByUuid(session, originalDto.getUuid()).get();
     assertThat(dto.getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
@@ -655,4 +725,10 @@ public class InternalCeQueueImplTest {
     error.printStackTrace(new PrintStream(out));
     return out.toString();
   }
+
+  private CeQueueDto selectQueueDto(String uuid) {
+    // tasks are updated by the sessions of the queue, so the cache of this session is cleared
+    session.commit();
+    return db.getDbClient().ceQueueDao().selectByUuid(session, uuid).get();
+  }
 }
@@ -20,6 +20,9 @@
 package org.sonar.db.ce;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +34,7 @@ import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.Pagination;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
@@ -119,7 +123,15 @@ public class CeQueueDao implements Dao {
    * STATUS='PENDING', STARTED_AT=NULL, UPDATED_AT={now}.
    */
   public int resetToPendingForWorker(DbSession session, String workerUuid) {
-    return mapper(session).resetToPendingForWorker(workerUuid, system2.now());
+    return resetToPendingForWorker(session, workerUuid, emptyList());
+  }
+
+  /**
+   * Same as {@link #resetToPendingForWorker(DbSession, String)} but tasks with the specified uuids are not reset,
+   * for example because they have been reserved with {@link #claim(DbSession, String, int)} and not processed yet.
+   */
+  public int resetToPendingForWorker(DbSession session, String workerUuid, Collection<String> excludedTaskUuids) {
+    return mapper(session).resetToPendingForWorker(workerUuid, excludedTaskUuids, system2.now());
   }
 
   public int countByStatus(DbSession dbSession, CeQueueDto.Status status) {
@@ -175,6 +187,78 @@ public class CeQueueDao implements Dao {
     return Optional.ofNullable(result);
   }
 
+  /**
+   * Reserves for the specified worker up to {@code maxCount} tasks eligible for peek. Contrary to
+   * {@link #peek(DbSession, String)}, the eligible tasks are updated to IN_PROGRESS with a single statement.
+   * <p>
+   * Only the oldest task of a given component is reserved, so that tasks of the same component are never
+   * processed concurrently. Reserved tasks can be handed to other workers with {@link #transferClaimed(DbSession, CeQueueDto, String)}.
+   * </p>
+   */
+  public ClaimedTasks claim(DbSession session, String workerUuid, int maxCount) {
+    checkArgument(maxCount > 0, "Max count must be strictly greater than 0");
+    CeQueueMapper mapper = mapper(session);
+    List<String> eligibles = mapper.selectEligibleForPeek(Pagination.forPage(1).andSize(maxCount));
+    if (eligibles.isEmpty()) {
+      return new ClaimedTasks(emptyList(), 0);
+    }
+
+    long now = system2.now();
+    mapper.claim(eligibles, workerUuid, now);
+    List<CeQueueDto> claimed = mapper.selectInProgressByWorkerUuidAndUuids(workerUuid, eligibles);
+    List<CeQueueDto> tasks = new ArrayList<>(claimed.size());
+    Set<String> componentUuids = new HashSet<>();
+    for (CeQueueDto dto : claimed) {
+      if (dto.getComponentUuid() == null || componentUuids.add(dto.getComponentUuid())) {
+        tasks.add(dto);
+      } else {
+        mapper.updateIf(dto.getUuid(),
+          new UpdateIf.NewProperties(PENDING, null, null, now),
+          new UpdateIf.OldProperties(IN_PROGRESS));
+      }
+    }
+    session.commit();
+    return new ClaimedTasks(tasks, eligibles.size() - claimed.size());
+  }
+
+  /**
+   * Hands a task reserved with {@link #claim(DbSession, String, int)} to the specified worker, which may be the one
+   * which reserved it. The start and update dates of the task are set to now, as it was waiting since its reservation.
+   * The task is updated only if it is still IN_PROGRESS for the worker which reserved it.
+   *
+   * @return {@code true} if the task has been transferred, then the DTO is updated accordingly.
+   */
+  public boolean transferClaimed(DbSession session, CeQueueDto claimedTask, String workerUuid) {
+    long now = system2.now();
+    int touchedRows = mapper(session).updateWorkerOfInProgress(claimedTask.getUuid(), claimedTask.getWorkerUuid(), workerUuid, now);
+    session.commit();
+    if (touchedRows != 1) {
+      return false;
+    }
+    claimedTask
+      .setWorkerUuid(workerUuid)
+      .setStartedAt(now)
+      .setUpdatedAt(now);
+    return true;
+  }
+
+  /**
+   * Puts back to PENDING the tasks reserved with {@link #claim(DbSession, String, int)} which have not been
+   * transferred to a worker. Tasks which are not IN_PROGRESS for the worker which reserved them anymore are ignored.
+   *
+   * @return the number of tasks put back to PENDING
+   */
+  public int releaseClaimed(DbSession session, Collection<CeQueueDto> claimedTasks) {
+    CeQueueMapper mapper = mapper(session);
+    long now = system2.now();
+    int released = 0;
+    for (CeQueueDto claimedTask : claimedTasks) {
+      released += mapper.resetInProgressToPendingForWorker(claimedTask.getUuid(), claimedTask.getWorkerUuid(), now);
+    }
+    session.commit();
+    return released;
+  }
+
   private static CeQueueMapper mapper(DbSession session) {
     return session.getMapper(CeQueueMapper.class);
   }
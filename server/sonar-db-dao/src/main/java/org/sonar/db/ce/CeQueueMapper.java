@@ -19,6 +19,7 @@
  */
 package org.sonar.db.ce;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.CheckForNull;
@@ -63,7 +64,23 @@ public interface CeQueueMapper {
 
   void insert(CeQueueDto dto);
 
-  int resetToPendingForWorker(@Param("workerUuid") String workerUuid, @Param("updatedAt") long updatedAt);
+  int resetToPendingForWorker(@Param("workerUuid") String workerUuid, @Param("excludedUuids") Collection<String> excludedUuids,
+    @Param("updatedAt") long updatedAt);
+
+  /**
+   * Update to IN_PROGRESS, for the specified worker, the tasks which are still PENDING among the specified ones
+   */
+  int claim(@Param("uuids") List<String> uuids, @Param("workerUuid") String workerUuid, @Param("now") long now);
+
+  /**
+   * Ordered by ascending id: oldest to newest
+   */
+  List<CeQueueDto> selectInProgressByWorkerUuidAndUuids(@Param("workerUuid") String workerUuid, @Param("uuids") List<String> uuids);
+
+  int resetInProgressToPendingForWorker(@Param("uuid") String uuid, @Param("workerUuid") String workerUuid, @Param("updatedAt") long updatedAt);
+
+  int updateWorkerOfInProgress(@Param("uuid") String uuid, @Param("oldWorkerUuid") String oldWorkerUuid,
+    @Param("newWorkerUuid") String newWorkerUuid, @Param("now") long now);
 
   int updateIf(@Param("uuid") String uuid,
     @Param("new") UpdateIf.NewProperties newProperties,
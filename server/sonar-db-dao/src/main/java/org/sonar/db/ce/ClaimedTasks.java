@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Result of {@link CeQueueDao#claim(org.sonar.db.DbSession, String, int)}
+ */
+public class ClaimedTasks {
+  private final List<CeQueueDto> tasks;
+  private final int conflictCount;
+
+  ClaimedTasks(List<CeQueueDto> tasks, int conflictCount) {
+    this.tasks = unmodifiableList(tasks);
+    this.conflictCount = conflictCount;
+  }
+
+  /**
+   * The tasks reserved for the worker, ordered by ascending date of submission.
+   */
+  public List<CeQueueDto> getTasks() {
+    return tasks;
+  }
+
+  /**
+   * Number of eligible tasks which have not been reserved because another worker reserved them concurrently.
+   */
+  public int getConflictCount() {
+    return conflictCount;
+  }
+}
@@ -158,6 +158,22 @@ public class ComponentDao implements Dao {
     return mapper(session).selectEnabledFilesFromProject(rootComponentUuid);
   }
 
+  /**
+   * Same as {@link #selectEnabledDescendantFiles(DbSession, String)}, but files are streamed to {@code handler}
+   * instead of being loaded in memory.
+   */
+  public void scrollEnabledDescendantFiles(DbSession session, String rootComponentUuid, ResultHandler<FilePathWithHashDto> handler) {
+    mapper(session).scrollDescendantFiles(rootComponentUuid, Scopes.FILE, true, handler);
+  }
+
+  /**
+   * Same as {@link #selectEnabledFilesFromProject(DbSession, String)}, but files are streamed to {@code handler}
+   * instead of being loaded in memory.
+   */
+  public void scrollEnabledFilesFromProject(DbSession session, String rootComponentUuid, ResultHandler<FilePathWithHashDto> handler) {
+    mapper(session).scrollEnabledFilesFromProject(rootComponentUuid, handler);
+  }
+
   public List<ComponentDto> selectByIds(DbSession session, Collection<Long> ids) {
     return executeLargeInputs(ids, mapper(session)::selectByIds);
   }
@@ -234,6 +250,35 @@ public class ComponentDao implements Dao {
     return mapper(dbSession).selectDescendants(query, componentOpt.get().uuid(), query.getUuidPath(component));
   }
 
+  /**
+   * Same as {@link #selectDescendants(DbSession, ComponentTreeQuery)}, but only a page of the descendants sorted by
+   * a measure is returned. Sort and pagination are done by the database.
+   */
+  public List<ComponentDto> selectDescendantsSortedByMeasure(DbSession dbSession, ComponentTreeQuery query, ComponentTreeMeasureSort sort, int offset, int limit) {
+    Optional<ComponentDto> componentOpt = selectByUuid(dbSession, query.getBaseUuid());
+    if (!componentOpt.isPresent() || isEmpty(query.getQualifiers())) {
+      return emptyList();
+    }
+    ComponentDto component = componentOpt.get();
+    return mapper(dbSession).selectDescendantsSortedByMeasure(query, component.uuid(), query.getUuidPath(component), sort, new RowBounds(offset, limit));
+  }
+
+  /**
+   * Total number of the descendants returned by {@link #selectDescendantsSortedByMeasure(DbSession, ComponentTreeQuery, ComponentTreeMeasureSort, int, int)}.
+   */
+  public int countDescendantsSortedByMeasure(DbSession dbSession, ComponentTreeQuery query, ComponentTreeMeasureSort sort) {
+    Optional<ComponentDto> componentOpt = selectByUuid(dbSession, query.getBaseUuid());
+    if (!componentOpt.isPresent() || isEmpty(query.getQualifiers())) {
+      return 0;
+    }
+    ComponentDto component = componentOpt.get();
+    return mapper(dbSession).countDescendantsSortedByMeasure(query, component.uuid(), query.getUuidPath(component), sort);
+  }
+
+  private static boolean isEmpty(@Nullable Collection<String> qualifiers) {
+    return qualifiers != null && qualifiers.isEmpty();
+  }
+
   public ComponentDto selectOrFailByKey(DbSession session, String key) {
     Optional<ComponentDto> component = selectByKey(session, key);
     if (!component.isPresent()) {
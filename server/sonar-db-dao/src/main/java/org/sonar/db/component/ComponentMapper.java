@@ -75,6 +75,12 @@ public interface ComponentMapper {
 
   List<ComponentDto> selectDescendants(@Param("query") ComponentTreeQuery query, @Param("baseUuid") String baseUuid, @Param("baseUuidPath") String baseUuidPath);
 
+  List<ComponentDto> selectDescendantsSortedByMeasure(@Param("query") ComponentTreeQuery query, @Param("baseUuid") String baseUuid,
+    @Param("baseUuidPath") String baseUuidPath, @Param("sort") ComponentTreeMeasureSort sort, RowBounds rowBounds);
+
+  int countDescendantsSortedByMeasure(@Param("query") ComponentTreeQuery query, @Param("baseUuid") String baseUuid,
+    @Param("baseUuidPath") String baseUuidPath, @Param("sort") ComponentTreeMeasureSort sort);
+
   /**
    * Returns all enabled projects (Scope {@link org.sonar.api.resources.Scopes#PROJECT} and qualifier
    * {@link org.sonar.api.resources.Qualifiers#PROJECT}) no matter if they are ghost project, provisioned projects or
@@ -101,6 +107,11 @@ public interface ComponentMapper {
   List<FilePathWithHashDto> selectDescendantFiles(@Param("moduleUuid") String moduleUuid, @Param(value = "scope") String scope,
     @Param(value = "excludeDisabled") boolean excludeDisabled);
 
+  void scrollEnabledFilesFromProject(@Param("projectUuid") String projectUuid, ResultHandler<FilePathWithHashDto> handler);
+
+  void scrollDescendantFiles(@Param("moduleUuid") String moduleUuid, @Param(value = "scope") String scope,
+    @Param(value = "excludeDisabled") boolean excludeDisabled, ResultHandler<FilePathWithHashDto> handler);
+
   /**
    * Return uuids and project uuids from list of qualifiers
    * <p/>
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sort of the components of a tree by the numerical value, or the variation, of a measure.
+ * Components without value are returned last, then components are sorted by name.
+ *
+ * @see ComponentDao#selectDescendantsSortedByMeasure(org.sonar.db.DbSession, ComponentTreeQuery, ComponentTreeMeasureSort, int, int)
+ */
+public class ComponentTreeMeasureSort {
+
+  private final int metricId;
+  private final boolean onVariation;
+  private final boolean asc;
+  private final boolean withMeasuresOnly;
+  @CheckForNull
+  private final Double bestValue;
+  // SONAR-7681 a public implementation of List must be used in MyBatis - potential concurrency exceptions otherwise
+  private final ArrayList<String> bestValueQualifiers;
+
+  private ComponentTreeMeasureSort(Builder builder) {
+    this.metricId = requireNonNull(builder.metricId, "Metric id must be set");
+    this.onVariation = builder.onVariation;
+    this.asc = builder.asc;
+    this.withMeasuresOnly = builder.withMeasuresOnly;
+    this.bestValue = builder.bestValue;
+    this.bestValueQualifiers = newArrayList(builder.bestValueQualifiers);
+    checkArgument(bestValue == null || !bestValueQualifiers.isEmpty(), "Qualifiers of components having the best value must be set");
+  }
+
+  public int getMetricId() {
+    return metricId;
+  }
+
+  public boolean isOnVariation() {
+    return onVariation;
+  }
+
+  /**
+   * Used by MyBatis mapper
+   */
+  public String getColumn() {
+    return onVariation ? "variation" : "value";
+  }
+
+  public boolean isAsc() {
+    return asc;
+  }
+
+  public boolean isWithMeasuresOnly() {
+    return withMeasuresOnly;
+  }
+
+  /**
+   * Value of components having one of the qualifiers {@link #getBestValueQualifiers()} but no measure
+   */
+  @CheckForNull
+  public Double getBestValue() {
+    return bestValue;
+  }
+
+  public Collection<String> getBestValueQualifiers() {
+    return bestValueQualifiers;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private Integer metricId;
+    private boolean onVariation = false;
+    private boolean asc = true;
+    private boolean withMeasuresOnly = false;
+    @CheckForNull
+    private Double bestValue;
+    private Collection<String> bestValueQualifiers = Collections.emptyList();
+
+    private Builder() {
+      // private constructor
+    }
+
+    public ComponentTreeMeasureSort build() {
+      return new ComponentTreeMeasureSort(this);
+    }
+
+    public Builder setMetricId(int metricId) {
+      this.metricId = metricId;
+      return this;
+    }
+
+    /**
+     * Sort on the variation of the measure instead of its value
+     */
+    public Builder setOnVariation(boolean onVariation) {
+      this.onVariation = onVariation;
+      return this;
+    }
+
+    public Builder setAsc(boolean asc) {
+      this.asc = asc;
+      return this;
+    }
+
+    /**
+     * Filter out the components which don't have a value
+     */
+    public Builder setWithMeasuresOnly(boolean withMeasuresOnly) {
+      this.withMeasuresOnly = withMeasuresOnly;
+      return this;
+    }
+
+    public Builder setBestValue(@Nullable Double bestValue, Collection<String> qualifiers) {
+      this.bestValue = bestValue;
+      this.bestValueQualifiers = requireNonNull(qualifiers);
+      return this;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.issue;
+
+/**
+ * {@link IssueGroupDto} of the issues of a single component, without aggregation of descendants.
+ */
+public class ComponentIssueGroupDto extends IssueGroupDto {
+  private String componentUuid;
+  private String componentUuidPath;
+
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public ComponentIssueGroupDto setComponentUuid(String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
+  public String getComponentUuidPath() {
+    return componentUuidPath;
+  }
+
+  public ComponentIssueGroupDto setComponentUuidPath(String componentUuidPath) {
+    this.componentUuidPath = componentUuidPath;
+    return this;
+  }
+}
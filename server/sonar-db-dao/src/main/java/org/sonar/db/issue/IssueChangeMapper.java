@@ -27,6 +27,11 @@ public interface IssueChangeMapper {
 
   void insert(IssueChangeDto dto);
 
+  /**
+   * @param changes must not be empty, and small enough for the limit of bind parameters of the database
+   */
+  void insertMultiple(@Param("changes") List<IssueChangeDto> changes);
+
   int delete(String key);
 
   int update(IssueChangeDto change);
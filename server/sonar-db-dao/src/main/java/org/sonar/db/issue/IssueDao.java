@@ -19,22 +19,34 @@
  */
 package org.sonar.db.issue;
 
+import com.google.common.base.Splitter;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
 import org.sonar.db.WildcardPosition;
 import org.sonar.db.component.ComponentDto;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.sonar.db.DaoUtils.buildLikeValue;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class IssueDao implements Dao {
 
+  private static final Splitter UUID_PATH_SPLITTER = Splitter.on(ComponentDto.UUID_PATH_SEPARATOR).omitEmptyStrings();
+
   public Optional<IssueDto> selectByKey(DbSession session, String key) {
     return Optional.ofNullable(mapper(session).selectByKey(key));
   }
@@ -61,6 +73,13 @@ public class IssueDao implements Dao {
     return mapper(session).selectComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
 
+  /**
+   * UUIDs of the projects and branches having at least one issue, whatever their status.
+   */
+  public List<String> selectProjectUuidsHavingIssues(DbSession session) {
+    return mapper(session).selectProjectUuidsHavingIssues();
+  }
+
   public List<IssueDto> selectNonClosedByComponentUuidExcludingExternals(DbSession dbSession, String componentUuid) {
     return mapper(dbSession).selectNonClosedByComponentUuidExcludingExternals(componentUuid);
   }
@@ -70,6 +89,31 @@ public class IssueDao implements Dao {
     return mapper(dbSession).selectNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath);
   }
 
+  /**
+   * Same as {@link #selectNonClosedByComponentUuidExcludingExternals(DbSession, String)}, but issues are streamed to
+   * {@code handler} instead of being loaded in memory. Login of assignee is loaded.
+   */
+  public void scrollNonClosedByComponentUuidExcludingExternals(DbSession dbSession, String componentUuid, ResultHandler<IssueDto> handler) {
+    mapper(dbSession).scrollNonClosedByComponentUuidExcludingExternals(componentUuid, handler);
+  }
+
+  /**
+   * Same as {@link #selectNonClosedByModuleOrProjectExcludingExternals(DbSession, ComponentDto)}, but issues are streamed to
+   * {@code handler} instead of being loaded in memory. Login of assignee is loaded.
+   */
+  public void scrollNonClosedByModuleOrProjectExcludingExternals(DbSession dbSession, ComponentDto module, ResultHandler<IssueDto> handler) {
+    String likeModuleUuidPath = buildLikeValue(module.moduleUuidPath(), WildcardPosition.AFTER);
+    mapper(dbSession).scrollNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath, handler);
+  }
+
+  /**
+   * Most recent update date of the issues of a project or branch, whatever their status. Any change on an issue,
+   * including its closing, updates this date. Served by the index on (project_uuid, updated_at).
+   */
+  public Optional<Long> selectMaxUpdatedAt(DbSession dbSession, String projectUuid) {
+    return Optional.ofNullable(mapper(dbSession).selectMaxUpdatedAt(projectUuid));
+  }
+
   public List<ShortBranchIssueDto> selectOpenByComponentUuids(DbSession dbSession, Collection<String> componentUuids) {
     return executeLargeInputs(componentUuids, mapper(dbSession)::selectOpenByComponentUuids);
   }
@@ -78,6 +122,74 @@ public class IssueDao implements Dao {
     return mapper(dbSession).selectIssueGroupsByBaseComponent(baseComponent, leakPeriodBeginningDate);
   }
 
+  /**
+   * Same as {@link #selectIssueGroupsByBaseComponent(DbSession, ComponentDto, long)} but for many components
+   * of the same project. The root component, whose subtree is the whole project, is aggregated by its own query.
+   * For the other components, the groups of the components which are requested, or are descendants of requested
+   * components, are streamed with a query per chunk and aggregated on their requested ancestors.
+   *
+   * @return the groups by uuid of requested component. All the requested components are keys of the map.
+   * @throws IllegalArgumentException if the components do not belong to the same project
+   */
+  public Map<String, Collection<IssueGroupDto>> selectIssueGroupsByBaseComponents(DbSession dbSession, Collection<ComponentDto> baseComponents,
+    long leakPeriodBeginningDate) {
+    Set<String> projectUuids = baseComponents.stream().map(ComponentDto::projectUuid).collect(toSet());
+    checkArgument(projectUuids.size() <= 1, "Components must belong to the same project: %s", projectUuids);
+
+    Map<String, Map<List<Object>, IssueGroupDto>> groupsByBaseComponentUuid = new HashMap<>();
+    baseComponents.forEach(c -> groupsByBaseComponentUuid.put(c.uuid(), new HashMap<>()));
+    if (!projectUuids.isEmpty()) {
+      String projectUuid = projectUuids.iterator().next();
+      // a component requested twice must not be aggregated twice
+      Map<String, ComponentDto> uniqueBaseComponentsByUuid = baseComponents.stream()
+        .collect(toMap(ComponentDto::uuid, Function.identity(), (c1, c2) -> c1));
+      ComponentDto root = uniqueBaseComponentsByUuid.remove(projectUuid);
+      if (root != null) {
+        Map<List<Object>, IssueGroupDto> rootGroups = groupsByBaseComponentUuid.get(projectUuid);
+        selectIssueGroupsByBaseComponent(dbSession, root, leakPeriodBeginningDate).forEach(group -> rootGroups.put(groupKey(group), group));
+      }
+      executeLargeInputsWithoutOutput(uniqueBaseComponentsByUuid.values(), chunk -> {
+        // a component may be a descendant of requested components of different chunks, so it is aggregated
+        // only on the ones of the current chunk
+        Map<String, Map<List<Object>, IssueGroupDto>> groupsOfChunk = new HashMap<>();
+        chunk.forEach(c -> groupsOfChunk.put(c.uuid(), groupsByBaseComponentUuid.get(c.uuid())));
+        mapper(dbSession).scrollIssueGroupsByBaseComponents(projectUuid, chunk, leakPeriodBeginningDate, context -> {
+          ComponentIssueGroupDto group = context.getResultObject();
+          addToBaseComponent(groupsOfChunk, group.getComponentUuid(), group);
+          for (String ancestorUuid : UUID_PATH_SPLITTER.split(group.getComponentUuidPath())) {
+            addToBaseComponent(groupsOfChunk, ancestorUuid, group);
+          }
+        });
+      });
+    }
+
+    Map<String, Collection<IssueGroupDto>> result = new HashMap<>(groupsByBaseComponentUuid.size());
+    groupsByBaseComponentUuid.forEach((uuid, groups) -> result.put(uuid, groups.values()));
+    return result;
+  }
+
+  private static void addToBaseComponent(Map<String, Map<List<Object>, IssueGroupDto>> groupsByBaseComponentUuid, String baseComponentUuid,
+    IssueGroupDto group) {
+    Map<List<Object>, IssueGroupDto> groups = groupsByBaseComponentUuid.get(baseComponentUuid);
+    if (groups == null) {
+      // not requested
+      return;
+    }
+    IssueGroupDto aggregated = groups.computeIfAbsent(groupKey(group), k -> new IssueGroupDto()
+      .setRuleType(group.getRuleType())
+      .setSeverity(group.getSeverity())
+      .setResolution(group.getResolution())
+      .setStatus(group.getStatus())
+      .setInLeak(group.isInLeak()));
+    aggregated
+      .setEffort(aggregated.getEffort() + group.getEffort())
+      .setCount(aggregated.getCount() + group.getCount());
+  }
+
+  private static List<Object> groupKey(IssueGroupDto group) {
+    return Arrays.asList(group.getRuleType(), group.getSeverity(), group.getResolution(), group.getStatus(), group.isInLeak());
+  }
+
   public void insert(DbSession session, IssueDto dto) {
     mapper(session).insert(dto);
   }
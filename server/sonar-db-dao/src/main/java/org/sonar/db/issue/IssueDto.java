@@ -99,6 +99,7 @@ public final class IssueDto implements Serializable {
   private String projectKey;
   private String filePath;
   private String tags;
+  private String assigneeLogin;
 
   /**
    * On batch side, component keys and uuid are useless
@@ -349,6 +350,20 @@ public final class IssueDto implements Serializable {
     return this;
   }
 
+  /**
+   * Login of the assignee, only loaded by {@link IssueDao#scrollNonClosedByModuleOrProjectExcludingExternals(org.sonar.db.DbSession, ComponentDto, org.apache.ibatis.session.ResultHandler)}
+   * and {@link IssueDao#scrollNonClosedByComponentUuidExcludingExternals(org.sonar.db.DbSession, String, org.apache.ibatis.session.ResultHandler)}
+   */
+  @CheckForNull
+  public String getAssigneeLogin() {
+    return assigneeLogin;
+  }
+
+  public IssueDto setAssigneeLogin(@Nullable String assigneeLogin) {
+    this.assigneeLogin = assigneeLogin;
+    return this;
+  }
+
   @CheckForNull
   public String getAuthorLogin() {
     return authorLogin;
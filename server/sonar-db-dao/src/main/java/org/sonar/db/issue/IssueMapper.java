@@ -22,6 +22,7 @@ package org.sonar.db.issue;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.component.ComponentDto;
@@ -32,12 +33,19 @@ public interface IssueMapper {
 
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
+  List<String> selectProjectUuidsHavingIssues();
+
   List<IssueDto> selectByKeys(List<String> keys);
 
   List<ShortBranchIssueDto> selectOpenByComponentUuids(List<String> componentUuids);
 
   void insert(IssueDto issue);
 
+  /**
+   * @param issues must not be empty, and small enough for the limit of bind parameters of the database
+   */
+  void insertMultiple(@Param("issues") List<IssueDto> issues);
+
   int update(IssueDto issue);
 
   int updateIfBeforeSelectedDate(IssueDto issue);
@@ -48,7 +56,21 @@ public interface IssueMapper {
 
   List<IssueDto> selectNonClosedByModuleOrProject(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath);
 
+  void scrollNonClosedByComponentUuidExcludingExternals(@Param("componentUuid") String componentUuid, ResultHandler<IssueDto> handler);
+
+  void scrollNonClosedByModuleOrProject(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath,
+    ResultHandler<IssueDto> handler);
+
+  @CheckForNull
+  Long selectMaxUpdatedAt(@Param("projectUuid") String projectUuid);
+
   Collection<IssueGroupDto> selectIssueGroupsByBaseComponent(
     @Param("baseComponent") ComponentDto baseComponent,
     @Param("leakPeriodBeginningDate") long leakPeriodBeginningDate);
+
+  void scrollIssueGroupsByBaseComponents(
+    @Param("projectUuid") String projectUuid,
+    @Param("baseComponents") List<ComponentDto> baseComponents,
+    @Param("leakPeriodBeginningDate") long leakPeriodBeginningDate,
+    ResultHandler<ComponentIssueGroupDto> handler);
 }
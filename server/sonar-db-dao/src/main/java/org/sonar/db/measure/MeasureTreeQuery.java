@@ -47,11 +47,15 @@ public class MeasureTreeQuery {
   @CheckForNull
   private final Collection<Integer> metricIds;
 
+  @CheckForNull
+  private final Collection<String> componentUuids;
+
   private MeasureTreeQuery(Builder builder) {
     this.nameOrKeyQuery = builder.nameOrKeyQuery;
     this.qualifiers = builder.qualifiers == null ? null : newArrayList(builder.qualifiers);
     this.strategy = requireNonNull(builder.strategy);
     this.metricIds = builder.metricIds;
+    this.componentUuids = builder.componentUuids == null ? null : newArrayList(builder.componentUuids);
   }
 
   @CheckForNull
@@ -81,6 +85,11 @@ public class MeasureTreeQuery {
     return metricIds;
   }
 
+  @CheckForNull
+  public Collection<String> getComponentUuids() {
+    return componentUuids;
+  }
+
   public String getUuidPath(ComponentDto component) {
     switch (strategy) {
       case CHILDREN:
@@ -111,6 +120,9 @@ public class MeasureTreeQuery {
     @CheckForNull
     private Collection<Integer> metricIds;
 
+    @CheckForNull
+    private Collection<String> componentUuids;
+
     private Builder() {
     }
 
@@ -137,6 +149,15 @@ public class MeasureTreeQuery {
       return this;
     }
 
+    /**
+     * Measures of all the descendants are returned if parameter is {@code null}. Measures of the base component are not
+     * restricted by this parameter.
+     */
+    public Builder setComponentUuids(@Nullable Collection<String> componentUuids) {
+      this.componentUuids = componentUuids;
+      return this;
+    }
+
     public MeasureTreeQuery build() {
       return new MeasureTreeQuery(this);
     }
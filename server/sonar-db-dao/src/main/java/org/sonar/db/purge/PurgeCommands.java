@@ -54,29 +54,34 @@ class PurgeCommands {
     return purgeMapper.selectAnalysisIdsAndUuids(query);
   }
 
+  /**
+   * Deletes all the analyses of the root component and their data. Rows are selected by joining on the analyses of the
+   * root component rather than by partitions of analysis uuids.
+   */
   void deleteAnalyses(String rootComponentUuid) {
     profiler.start("deleteAnalyses (events)");
     purgeMapper.deleteEventsByComponentUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
 
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(
-      purgeMapper.selectAnalysisIdsAndUuids(new PurgeSnapshotQuery().setComponentUuid(rootComponentUuid))), MAX_SNAPSHOTS_PER_QUERY);
-
-    deleteAnalysisDuplications(analysisUuidsPartitions);
+    profiler.start("deleteAnalyses (duplications_index)");
+    purgeMapper.deleteAnalysisDuplicationsByRootUuid(rootComponentUuid);
+    session.commit();
+    profiler.stop();
 
     profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
+    purgeMapper.deleteAnalysisMeasuresByRootUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
 
-    profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
+    profiler.start("deleteAnalyses (analysis_properties)");
+    purgeMapper.deleteAnalysisPropertiesByRootUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
 
-    profiler.start("deleteAnalyses (analysis_properties)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisProperties);
+    // last, as previous deletions are joined on snapshots
+    profiler.start("deleteAnalyses (snapshots)");
+    purgeMapper.deleteAnalysesByRootUuid(rootComponentUuid);
     session.commit();
     profiler.stop();
   }
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.purge;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import java.util.Collection;
@@ -27,12 +28,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 import org.sonar.db.component.BranchMapper;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
@@ -44,6 +47,10 @@ import static org.sonar.api.utils.DateUtils.dateToLong;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class PurgeDao implements Dao {
+  /**
+   * Maximum number of groups of tables deleted concurrently when deleting a project or a branch. Default is 1 (no concurrency).
+   */
+  public static final String PARALLELISM_PROPERTY = "sonar.purge.parallelism";
   private static final Logger LOG = Loggers.get(PurgeDao.class);
   private static final String[] UNPROCESSED_STATUS = new String[] {"U"};
   private static final ImmutableSet<String> QUALIFIERS_PROJECT_VIEW = ImmutableSet.of("TRK", "VW");
@@ -52,10 +59,24 @@ public class PurgeDao implements Dao {
 
   private final ComponentDao componentDao;
   private final System2 system2;
+  private final PurgeExecutor executor;
 
-  public PurgeDao(ComponentDao componentDao, System2 system2) {
+  /**
+   * Used when no {@link Configuration} is available, for example in tests of DAOs.
+   */
+  public PurgeDao(ComponentDao componentDao, System2 system2, MyBatis myBatis) {
+    this(componentDao, system2, myBatis, 1);
+  }
+
+  public PurgeDao(ComponentDao componentDao, System2 system2, MyBatis myBatis, Configuration configuration) {
+    this(componentDao, system2, myBatis, configuration.getInt(PARALLELISM_PROPERTY).orElse(1));
+  }
+
+  @VisibleForTesting
+  PurgeDao(ComponentDao componentDao, System2 system2, MyBatis myBatis, int parallelism) {
     this.componentDao = componentDao;
     this.system2 = system2;
+    this.executor = new PurgeExecutor(myBatis, parallelism);
   }
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
@@ -67,10 +88,10 @@ public class PurgeDao implements Dao {
     purgeAnalyses(commands, rootUuid);
     purgeDisabledComponents(session, conf, listener);
     deleteOldClosedIssues(conf, mapper, listener);
-    purgeStaleBranches(commands, conf, mapper, rootUuid);
+    purgeStaleBranches(session, profiler, conf, mapper, rootUuid);
   }
 
-  private static void purgeStaleBranches(PurgeCommands commands, PurgeConfiguration conf, PurgeMapper mapper, String rootUuid) {
+  private void purgeStaleBranches(DbSession session, PurgeProfiler profiler, PurgeConfiguration conf, PurgeMapper mapper, String rootUuid) {
     Optional<Date> maxDate = conf.maxLiveDateOfInactiveShortLivingBranches();
     if (!maxDate.isPresent()) {
       // not available if branch plugin is not installed
@@ -81,7 +102,7 @@ public class PurgeDao implements Dao {
     List<String> branchUuids = mapper.selectStaleShortLivingBranches(rootUuid, dateToLong(maxDate.get()));
 
     for (String branchUuid : branchUuids) {
-      deleteRootComponent(branchUuid, mapper, commands);
+      deleteRootComponent(session, profiler, branchUuid);
     }
   }
 
@@ -166,45 +187,46 @@ public class PurgeDao implements Dao {
   }
 
   public void deleteBranch(DbSession session, String uuid) {
-    PurgeProfiler profiler = new PurgeProfiler();
-    PurgeMapper purgeMapper = mapper(session);
-    PurgeCommands purgeCommands = new PurgeCommands(session, profiler);
-    deleteRootComponent(uuid, purgeMapper, purgeCommands);
+    deleteRootComponent(session, new PurgeProfiler(), uuid);
   }
 
   public void deleteProject(DbSession session, String uuid) {
     PurgeProfiler profiler = new PurgeProfiler();
-    PurgeMapper purgeMapper = mapper(session);
-    PurgeCommands purgeCommands = new PurgeCommands(session, profiler);
 
     session.getMapper(BranchMapper.class).selectByProjectUuid(uuid)
       .stream()
       .filter(branch -> !uuid.equals(branch.getUuid()))
-      .forEach(branch -> deleteRootComponent(branch.getUuid(), purgeMapper, purgeCommands));
+      .forEach(branch -> deleteRootComponent(session, profiler, branch.getUuid()));
 
-    deleteRootComponent(uuid, purgeMapper, purgeCommands);
+    deleteRootComponent(session, profiler, uuid);
   }
 
-  private static void deleteRootComponent(String rootUuid, PurgeMapper mapper, PurgeCommands commands) {
-    List<IdUuidPair> rootAndModulesOrSubviews = mapper.selectRootAndModulesOrSubviewsByProjectUuid(rootUuid);
+  private void deleteRootComponent(DbSession session, PurgeProfiler profiler, String rootUuid) {
+    List<IdUuidPair> rootAndModulesOrSubviews = mapper(session).selectRootAndModulesOrSubviewsByProjectUuid(rootUuid);
     long rootId = rootAndModulesOrSubviews.stream()
       .filter(pair -> pair.getUuid().equals(rootUuid))
       .map(IdUuidPair::getId)
       .findFirst()
       .orElseThrow(() -> new IllegalArgumentException("Couldn't find root component with uuid " + rootUuid));
-    commands.deletePermissions(rootId);
-    commands.deleteLinks(rootUuid);
-    commands.deleteAnalyses(rootUuid);
-    commands.deleteByRootAndModulesOrSubviews(rootAndModulesOrSubviews);
-    commands.deleteComponents(rootUuid);
-    commands.deleteIssues(rootUuid);
-    commands.deleteFileSources(rootUuid);
-    commands.deleteCeActivity(rootUuid);
-    commands.deleteCeQueue(rootUuid);
-    commands.deleteWebhookDeliveries(rootUuid);
-    commands.deleteProjectMappings(rootUuid);
-    commands.deleteBranch(rootUuid);
-    commands.deleteLiveMeasures(rootUuid);
+    // each group deletes rows of tables which are not read by the other groups
+    executor.execute(session, profiler,
+      commands -> {
+        commands.deletePermissions(rootId);
+        commands.deleteLinks(rootUuid);
+        commands.deleteByRootAndModulesOrSubviews(rootAndModulesOrSubviews);
+        commands.deleteWebhookDeliveries(rootUuid);
+        commands.deleteProjectMappings(rootUuid);
+        commands.deleteBranch(rootUuid);
+      },
+      commands -> commands.deleteAnalyses(rootUuid),
+      commands -> commands.deleteComponents(rootUuid),
+      commands -> commands.deleteIssues(rootUuid),
+      commands -> commands.deleteFileSources(rootUuid),
+      commands -> {
+        commands.deleteCeActivity(rootUuid);
+        commands.deleteCeQueue(rootUuid);
+      },
+      commands -> commands.deleteLiveMeasures(rootUuid));
   }
 
   /**
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
+
+/**
+ * Runs groups of purge commands which delete rows of independent tables.
+ * <p>
+ * When parallelism is greater than 1, each group is run concurrently with the others in its own session. Otherwise
+ * groups are run one after the other in the session of the caller.
+ * </p>
+ */
+class PurgeExecutor {
+
+  private final MyBatis myBatis;
+  private final int parallelism;
+
+  PurgeExecutor(MyBatis myBatis, int parallelism) {
+    this.myBatis = myBatis;
+    this.parallelism = parallelism;
+  }
+
+  void execute(DbSession session, PurgeProfiler profiler, Task... tasks) {
+    if (parallelism <= 1 || tasks.length <= 1) {
+      PurgeCommands commands = new PurgeCommands(session, profiler);
+      for (Task task : tasks) {
+        task.run(commands);
+      }
+      return;
+    }
+
+    // changes of the caller must be visible to the other sessions and must not hold locks on rows they delete
+    session.commit();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.length),
+      new ThreadFactoryBuilder().setNameFormat("Purge-%d").setDaemon(true).build());
+    try {
+      List<Future<PurgeProfiler>> futures = new ArrayList<>(tasks.length);
+      for (Task task : tasks) {
+        futures.add(executor.submit(() -> executeInOwnSession(task)));
+      }
+      for (Future<PurgeProfiler> future : futures) {
+        profiler.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Purge has been interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to purge", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private PurgeProfiler executeInOwnSession(Task task) {
+    PurgeProfiler taskProfiler = new PurgeProfiler();
+    try (DbSession taskSession = myBatis.openSession(false)) {
+      task.run(new PurgeCommands(taskSession, taskProfiler));
+      taskSession.commit();
+    }
+    return taskProfiler;
+  }
+
+  @FunctionalInterface
+  interface Task {
+    void run(PurgeCommands commands);
+  }
+}
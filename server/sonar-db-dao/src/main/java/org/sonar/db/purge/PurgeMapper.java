@@ -42,6 +42,14 @@ public interface PurgeMapper {
 
   void deleteAnalysisMeasures(@Param("analysisUuids") List<String> analysisUuids);
 
+  void deleteAnalysisDuplicationsByRootUuid(@Param("rootUuid") String rootUuid);
+
+  void deleteAnalysisMeasuresByRootUuid(@Param("rootUuid") String rootUuid);
+
+  void deleteAnalysisPropertiesByRootUuid(@Param("rootUuid") String rootUuid);
+
+  void deleteAnalysesByRootUuid(@Param("rootUuid") String rootUuid);
+
   void fullDeleteComponentMeasures(@Param("componentUuids") List<String> componentUuids);
 
   void deleteComponentMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("componentUuids") List<String> componentUuids);
@@ -64,6 +64,14 @@ public class PurgeProfiler {
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
+  /**
+   * Adds the durations of another profiler. Durations of tables purged concurrently are summed, so their total can be
+   * greater than the elapsed time.
+   */
+  void add(PurgeProfiler other) {
+    other.durations.forEach((table, duration) -> durations.merge(table, duration, Long::sum));
+  }
+
   public void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
@@ -48,6 +48,15 @@ public class FileSourceDao implements Dao {
     return mapper(session).select(fileUuid, Type.SOURCE);
   }
 
+  /**
+   * Same as {@link #selectSourceByFileUuid(DbSession, String)}, but neither column BINARY_DATA nor column LINE_HASHES
+   * are loaded.
+   */
+  @CheckForNull
+  public FileSourceDto selectSourceWithoutDataByFileUuid(DbSession session, String fileUuid) {
+    return mapper(session).selectWithoutData(fileUuid, Type.SOURCE);
+  }
+
   @CheckForNull
   public FileSourceDto selectTestByFileUuid(DbSession dbSession, String fileUuid) {
     return mapper(dbSession).select(fileUuid, Type.TEST);
@@ -126,6 +135,13 @@ public class FileSourceDao implements Dao {
     mapper(session).update(dto);
   }
 
+  /**
+   * Updates only the inputs hash of the row, when data computed from these inputs did not change.
+   */
+  public void updateInputsHash(DbSession session, long id, String inputsHash) {
+    mapper(session).updateInputsHash(id, inputsHash);
+  }
+
   private static FileSourceMapper mapper(DbSession session) {
     return session.getMapper(FileSourceMapper.class);
   }
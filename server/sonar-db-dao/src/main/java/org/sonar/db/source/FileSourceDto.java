@@ -25,9 +25,12 @@ import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
@@ -47,6 +50,14 @@ public class FileSourceDto {
   private static final Joiner LINE_RETURN_JOINER = Joiner.on('\n');
   public static final Splitter LINES_HASHES_SPLITTER = on('\n');
   public static final int LINE_COUNT_NOT_POPULATED = -1;
+  /**
+   * Number of lines of each chunk of column BINARY_DATA, which are compressed independently.
+   */
+  public static final int LINES_PER_CHUNK = 500;
+  /**
+   * Header of chunked source data. Data written before chunks were introduced is a single LZ4 block, which header is "LZ4Block".
+   */
+  private static final byte[] CHUNKED_DATA_MAGIC = {0, 'S', 'Q', 'C'};
 
   private Long id;
   private String projectUuid;
@@ -72,6 +83,7 @@ public class FileSourceDto {
   private String dataHash;
   private String revision;
   private Integer lineHashesVersion;
+  private String inputsHash;
 
   public Integer getLineHashesVersion() {
     return lineHashesVersion != null ? lineHashesVersion : LineHashVersion.WITHOUT_SIGNIFICANT_CODE.getDbValue();
@@ -124,38 +136,113 @@ public class FileSourceDto {
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
-      return decodeRegularSourceData(binaryData);
+      if (isChunked(binaryData)) {
+        return decodeChunkedSourceData(binaryData);
+      }
+      return decodeRegularSourceData(binaryData, 0, binaryData.length);
     } catch (IOException e) {
-      throw new IllegalStateException(
-        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
-        e);
+      throw failToDecodeSourceData(e);
     }
   }
 
-  private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+  private IllegalStateException failToDecodeSourceData(IOException e) {
+    return new IllegalStateException(
+      format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+      e);
+  }
+
+  private static DbFileSources.Data decodeChunkedSourceData(byte[] binaryData) throws IOException {
+    Chunks chunks = Chunks.read(binaryData);
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < chunks.count(); i++) {
+      data.addAllLines(chunks.decode(binaryData, i).getLinesList());
+    }
+    return data.build();
+  }
+
+  private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
       return DbFileSources.Data.parseFrom(lz4Input);
     } catch (InvalidProtocolBufferException e) {
       if (SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE.equals(e.getMessage())) {
-        return decodeHugeSourceData(binaryData);
+        return decodeHugeSourceData(binaryData, offset, length);
       }
       throw e;
     }
   }
 
-  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
       CodedInputStream input = CodedInputStream.newInstance(lz4Input);
       input.setSizeLimit(Integer.MAX_VALUE);
       return DbFileSources.Data.parseFrom(input);
     }
   }
 
+  /**
+   * Lines of chunks {@code firstChunk} to {@code lastChunk}, chunk {@code i} being made of lines {@code i * LINES_PER_CHUNK + 1}
+   * to {@code (i + 1) * LINES_PER_CHUNK}. Chunks after the end of the file are omitted.
+   * <p>
+   * Only the requested chunks are decompressed and deserialized, unless data has been stored before chunks were introduced.
+   */
+  public List<List<DbFileSources.Line>> getSourceLineChunks(int firstChunk, int lastChunk) {
+    try {
+      if (isChunked(binaryData)) {
+        Chunks chunks = Chunks.read(binaryData);
+        if (chunks.linesPerChunk == LINES_PER_CHUNK) {
+          List<List<DbFileSources.Line>> result = new ArrayList<>();
+          for (int i = firstChunk; i <= lastChunk && i < chunks.count(); i++) {
+            result.add(chunks.decode(binaryData, i).getLinesList());
+          }
+          return result;
+        }
+      }
+    } catch (IOException e) {
+      throw failToDecodeSourceData(e);
+    }
+    List<DbFileSources.Line> lines = getSourceData().getLinesList();
+    List<List<DbFileSources.Line>> result = new ArrayList<>();
+    for (int i = firstChunk; i <= lastChunk && (long) i * LINES_PER_CHUNK < lines.size(); i++) {
+      result.add(lines.subList(i * LINES_PER_CHUNK, Math.min(lines.size(), (i + 1) * LINES_PER_CHUNK)));
+    }
+    return result;
+  }
+
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    * in the column BINARY_DATA.
+   * <p>
+   * Lines are split in chunks of {@link #LINES_PER_CHUNK} lines, which are compressed independently so that a range of
+   * lines can be read without decompressing the whole file.
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    int chunkCount = (lines.size() + LINES_PER_CHUNK - 1) / LINES_PER_CHUNK;
+    List<byte[]> chunks = new ArrayList<>(chunkCount);
+    DbFileSources.Data.Builder chunk = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < chunkCount; i++) {
+      chunk.clear().addAllLines(lines.subList(i * LINES_PER_CHUNK, Math.min(lines.size(), (i + 1) * LINES_PER_CHUNK)));
+      chunks.add(compressSourceData(chunk.build()));
+    }
+
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(byteOutput)) {
+      output.write(CHUNKED_DATA_MAGIC);
+      output.writeInt(LINES_PER_CHUNK);
+      output.writeInt(chunkCount);
+      for (byte[] c : chunks) {
+        output.writeInt(c.length);
+      }
+      for (byte[] c : chunks) {
+        output.write(c);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize and compress source data", e);
+    }
+    return byteOutput.toByteArray();
+  }
+
+  private static byte[] compressSourceData(DbFileSources.Data data) {
     ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
     LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
@@ -169,6 +256,11 @@ public class FileSourceDto {
     }
   }
 
+  private static boolean isChunked(byte[] binaryData) {
+    return binaryData.length >= CHUNKED_DATA_MAGIC.length
+      && Arrays.equals(Arrays.copyOf(binaryData, CHUNKED_DATA_MAGIC.length), CHUNKED_DATA_MAGIC);
+  }
+
   public static List<DbFileSources.Test> decodeTestData(byte[] binaryData) {
     // stream is always closed
     return decodeTestData(new ByteArrayInputStream(binaryData));
@@ -349,6 +441,65 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Hash of the analysis report inputs from which {@link #getBinaryData()} was computed. When it did not change, data
+   * does not have to be computed again.
+   */
+  @CheckForNull
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
+  public FileSourceDto setInputsHash(@Nullable String inputsHash) {
+    this.inputsHash = inputsHash;
+    return this;
+  }
+
+  /**
+   * Position of the chunks of chunked source data.
+   */
+  private static class Chunks {
+    private final int linesPerChunk;
+    private final int[] offsets;
+
+    private Chunks(int linesPerChunk, int[] offsets) {
+      this.linesPerChunk = linesPerChunk;
+      this.offsets = offsets;
+    }
+
+    static Chunks read(byte[] binaryData) throws IOException {
+      try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(binaryData))) {
+        input.skipBytes(CHUNKED_DATA_MAGIC.length);
+        int linesPerChunk = input.readInt();
+        int count = input.readInt();
+        if (count < 0 || count > binaryData.length / 4) {
+          throw new IOException("Invalid number of chunks: " + count);
+        }
+        int[] offsets = new int[count + 1];
+        offsets[0] = CHUNKED_DATA_MAGIC.length + 8 + 4 * count;
+        for (int i = 0; i < count; i++) {
+          int length = input.readInt();
+          if (length < 0 || length > binaryData.length) {
+            throw new IOException("Invalid size of chunk: " + length);
+          }
+          offsets[i + 1] = offsets[i] + length;
+        }
+        if (offsets[count] != binaryData.length) {
+          throw new IOException("Invalid size of chunks");
+        }
+        return new Chunks(linesPerChunk, offsets);
+      }
+    }
+
+    int count() {
+      return offsets.length - 1;
+    }
+
+    DbFileSources.Data decode(byte[] binaryData, int chunk) throws IOException {
+      return decodeRegularSourceData(binaryData, offsets[chunk], offsets[chunk + 1] - offsets[chunk]);
+    }
+  }
+
   public static class Type {
     public static final String SOURCE = "SOURCE";
     public static final String TEST = "TEST";
@@ -32,6 +32,9 @@ public interface FileSourceMapper {
   @CheckForNull
   FileSourceDto select(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
 
+  @CheckForNull
+  FileSourceDto selectWithoutData(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
+
   void scrollLineHashes(@Param("fileKeys") Collection<String> fileKeys, ResultHandler<LineHashesWithKeyDto> rowHandler);
 
   @CheckForNull
@@ -40,4 +43,6 @@ public interface FileSourceMapper {
   void insert(FileSourceDto dto);
 
   void update(FileSourceDto dto);
+
+  void updateInputsHash(@Param("id") long id, @Param("inputsHash") String inputsHash);
 }
@@ -497,6 +497,98 @@ public class CeQueueDaoTest {
     assertThat(underTest.countByStatus(db.getSession(), IN_PROGRESS)).isEqualTo(2);
   }
 
+  @Test
+  public void resetToPendingForWorker_does_not_reset_excluded_tasks() {
+    long startedAt = 2_099_888L;
+    CeQueueDto u1 = insert("u1", CeQueueDto.Status.IN_PROGRESS, WORKER_UUID_1, startedAt);
+    CeQueueDto u2 = insert("u2", CeQueueDto.Status.IN_PROGRESS, WORKER_UUID_1, startedAt);
+    CeQueueDto o1 = insert("o1", CeQueueDto.Status.IN_PROGRESS, WORKER_UUID_2, startedAt);
+
+    underTestAlwaysIncreasingSystem2.resetToPendingForWorker(db.getSession(), WORKER_UUID_1, singletonList("u2"));
+
+    verifyResetToPendingForWorker(u1);
+    verifyUnchangedByResetToPendingForWorker(u2);
+    verifyUnchangedByResetToPendingForWorker(o1);
+  }
+
+  @Test
+  public void claim_none_if_no_pendings() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+
+    ClaimedTasks claimed = underTest.claim(db.getSession(), WORKER_UUID_1, 5);
+
+    assertThat(claimed.getTasks()).isEmpty();
+    assertThat(claimed.getConflictCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void claim_reserves_oldest_pendings_up_to_max_count() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert(TASK_UUID_3, "PROJECT_3", PENDING);
+
+    ClaimedTasks claimed = underTest.claim(db.getSession(), WORKER_UUID_1, 2);
+
+    assertThat(claimed.getTasks()).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1, TASK_UUID_2);
+    assertThat(claimed.getTasks()).extracting(CeQueueDto::getStatus).containsOnly(IN_PROGRESS);
+    assertThat(claimed.getTasks()).extracting(CeQueueDto::getWorkerUuid).containsOnly(WORKER_UUID_1);
+    assertThat(claimed.getConflictCount()).isEqualTo(0);
+    verifyCeQueueStatuses(new String[] {TASK_UUID_1, TASK_UUID_2, TASK_UUID_3}, new CeQueueDto.Status[] {IN_PROGRESS, IN_PROGRESS, PENDING});
+  }
+
+  @Test
+  public void claim_reserves_only_oldest_pending_of_a_component() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+
+    ClaimedTasks claimed = underTest.claim(db.getSession(), WORKER_UUID_1, 5);
+
+    assertThat(claimed.getTasks()).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1);
+    verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_2).get().getWorkerUuid()).isNull();
+  }
+
+  @Test
+  public void transferClaimed_changes_worker_of_claimed_task() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    CeQueueDto claimed = underTest.claim(db.getSession(), WORKER_UUID_1, 1).getTasks().get(0);
+
+    assertThat(underTest.transferClaimed(db.getSession(), claimed, WORKER_UUID_2)).isTrue();
+
+    assertThat(claimed.getWorkerUuid()).isEqualTo(WORKER_UUID_2);
+    CeQueueDto persisted = underTest.selectByUuid(db.getSession(), TASK_UUID_1).get();
+    assertThat(persisted.getStatus()).isEqualTo(IN_PROGRESS);
+    assertThat(persisted.getWorkerUuid()).isEqualTo(WORKER_UUID_2);
+  }
+
+  @Test
+  public void transferClaimed_fails_if_task_is_not_in_progress_for_claiming_worker_anymore() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    CeQueueDto claimed = underTest.claim(db.getSession(), WORKER_UUID_1, 1).getTasks().get(0);
+    underTest.resetTasksWithUnknownWorkerUUIDs(db.getSession(), ImmutableSet.of(WORKER_UUID_2));
+    db.commit();
+
+    assertThat(underTest.transferClaimed(db.getSession(), claimed, WORKER_UUID_2)).isFalse();
+
+    assertThat(claimed.getWorkerUuid()).isEqualTo(WORKER_UUID_1);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getStatus()).isEqualTo(PENDING);
+  }
+
+  @Test
+  public void releaseClaimed_resets_claimed_tasks_to_pending() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    List<CeQueueDto> claimed = underTest.claim(db.getSession(), WORKER_UUID_1, 2).getTasks();
+    underTest.transferClaimed(db.getSession(), claimed.get(1), WORKER_UUID_2);
+
+    assertThat(underTest.releaseClaimed(db.getSession(), newArrayList(claimed.get(0)))).isEqualTo(1);
+
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS);
+  }
+
   private void insert(CeQueueDto dto) {
     underTest.insert(db.getSession(), dto);
     db.commit();
@@ -48,6 +48,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.RowNotFoundException;
+import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.source.FileSourceDto;
 
@@ -566,6 +567,27 @@ public class ComponentDaoTest {
     assertThat(underTest.selectEnabledFilesFromProject(dbSession, "unknown")).isEmpty();
   }
 
+  @Test
+  public void scroll_enabled_files_of_project_or_module() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto fileDirectlyOnModule = db.components().insertComponent(newFileDto(module));
+    db.fileSources().insertFileSource(fileDirectlyOnModule);
+    ComponentDto subModule = db.components().insertComponent(newModuleDto(module));
+    ComponentDto file = db.components().insertComponent(newFileDto(subModule));
+    db.fileSources().insertFileSource(file);
+    ComponentDto removedFile = db.components().insertComponent(newFileDto(subModule).setEnabled(false));
+    db.fileSources().insertFileSource(removedFile);
+
+    List<FilePathWithHashDto> filesOfProject = new ArrayList<>();
+    underTest.scrollEnabledFilesFromProject(dbSession, project.uuid(), context -> filesOfProject.add(context.getResultObject()));
+    assertThat(filesOfProject).extracting(FilePathWithHashDto::getUuid).containsExactlyInAnyOrder(fileDirectlyOnModule.uuid(), file.uuid());
+
+    List<FilePathWithHashDto> filesOfSubModule = new ArrayList<>();
+    underTest.scrollEnabledDescendantFiles(dbSession, subModule.uuid(), context -> filesOfSubModule.add(context.getResultObject()));
+    assertThat(filesOfSubModule).extracting(FilePathWithHashDto::getUuid).containsExactlyInAnyOrder(file.uuid());
+  }
+
   @Test
   public void select_all_components_from_project() {
     ComponentDto project = db.components().insertPrivateProject();
@@ -1784,6 +1806,109 @@ public class ComponentDaoTest {
     assertThat(components).extracting("organizationUuid").containsOnly(organizationDto.getUuid());
   }
 
+  @Test
+  public void select_descendants_sorted_by_measure() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("file1"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("file2"));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setName("file3"));
+    ComponentDto file4 = db.components().insertComponent(newFileDto(project).setName("file4"));
+    MetricDto metric = db.measures().insertMetric();
+    db.measures().insertLiveMeasure(file1, metric, m -> m.setValue(5d).setVariation(1d).setData((String) null));
+    db.measures().insertLiveMeasure(file2, metric, m -> m.setValue(10d).setVariation(null).setData((String) null));
+    db.measures().insertLiveMeasure(file3, metric, m -> m.setValue(5d).setVariation(3d).setData((String) null));
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(LEAVES).build();
+
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, newMeasureSort(metric).setAsc(true).build(), 0, 10))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file1.uuid(), file3.uuid(), file2.uuid(), file4.uuid());
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, newMeasureSort(metric).setAsc(false).build(), 0, 10))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file2.uuid(), file1.uuid(), file3.uuid(), file4.uuid());
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, newMeasureSort(metric).setOnVariation(true).setAsc(false).build(), 0, 10))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file3.uuid(), file1.uuid(), file2.uuid(), file4.uuid());
+    assertThat(underTest.countDescendantsSortedByMeasure(dbSession, query, newMeasureSort(metric).build())).isEqualTo(4);
+  }
+
+  @Test
+  public void select_descendants_sorted_by_measure_with_measures_only() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("file1"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("file2"));
+    db.components().insertComponent(newFileDto(project).setName("file3"));
+    MetricDto metric = db.measures().insertMetric();
+    db.measures().insertLiveMeasure(file1, metric, m -> m.setValue(5d).setVariation(null).setData((String) null));
+    db.measures().insertLiveMeasure(file2, metric, m -> m.setValue(null).setVariation(2d).setData((String) null));
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(LEAVES).build();
+
+    ComponentTreeMeasureSort onValue = newMeasureSort(metric).setWithMeasuresOnly(true).build();
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, onValue, 0, 10))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file1.uuid());
+    assertThat(underTest.countDescendantsSortedByMeasure(dbSession, query, onValue)).isEqualTo(1);
+
+    ComponentTreeMeasureSort onVariation = newMeasureSort(metric).setOnVariation(true).setWithMeasuresOnly(true).build();
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, onVariation, 0, 10))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file2.uuid());
+    assertThat(underTest.countDescendantsSortedByMeasure(dbSession, query, onVariation)).isEqualTo(1);
+  }
+
+  @Test
+  public void select_descendants_sorted_by_measure_uses_best_value_of_files_without_measure() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto directory = db.components().insertComponent(newDirectory(project, "src").setName("dir"));
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project, directory).setName("file1"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project, directory).setName("file2"));
+    MetricDto metric = db.measures().insertMetric();
+    db.measures().insertLiveMeasure(file1, metric, m -> m.setValue(5d).setData((String) null));
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(LEAVES).build();
+
+    ComponentTreeMeasureSort sort = newMeasureSort(metric).setAsc(true).setWithMeasuresOnly(true)
+      .setBestValue(0d, singletonList(Qualifiers.FILE)).build();
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, sort, 0, 10))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file2.uuid(), file1.uuid());
+    assertThat(underTest.countDescendantsSortedByMeasure(dbSession, query, sort)).isEqualTo(2);
+  }
+
+  @Test
+  public void select_descendants_sorted_by_measure_is_paginated() {
+    ComponentDto project = db.components().insertPrivateProject();
+    MetricDto metric = db.measures().insertMetric();
+    List<ComponentDto> files = IntStream.range(0, 9)
+      .mapToObj(i -> {
+        ComponentDto file = db.components().insertComponent(newFileDto(project).setName("file" + i));
+        db.measures().insertLiveMeasure(file, metric, m -> m.setValue((double) i));
+        return file;
+      })
+      .collect(Collectors.toList());
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(LEAVES).build();
+    ComponentTreeMeasureSort sort = newMeasureSort(metric).setAsc(false).build();
+
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, sort, 3, 4))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(files.get(5).uuid(), files.get(4).uuid(), files.get(3).uuid(), files.get(2).uuid());
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, sort, 8, 4))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(files.get(0).uuid());
+    assertThat(underTest.countDescendantsSortedByMeasure(dbSession, query, sort)).isEqualTo(9);
+  }
+
+  @Test
+  public void select_descendants_sorted_by_measure_returns_empty_list_if_base_component_does_not_exist() {
+    MetricDto metric = db.measures().insertMetric();
+    ComponentTreeQuery query = newTreeQuery(PROJECT_UUID).setStrategy(CHILDREN).build();
+
+    assertThat(underTest.selectDescendantsSortedByMeasure(dbSession, query, newMeasureSort(metric).build(), 0, 10)).isEmpty();
+    assertThat(underTest.countDescendantsSortedByMeasure(dbSession, query, newMeasureSort(metric).build())).isZero();
+  }
+
+  private static ComponentTreeMeasureSort.Builder newMeasureSort(MetricDto metric) {
+    return ComponentTreeMeasureSort.builder().setMetricId(metric.getId());
+  }
+
   @Test
   public void select_projects_by_name_ignore_branches() {
     OrganizationDto organizationDto = db.organizations().insert();
@@ -19,10 +19,12 @@
  */
 package org.sonar.db.issue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -40,10 +42,13 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
+import org.sonar.db.user.UserDto;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.rules.ExpectedException.none;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
 
@@ -122,6 +127,20 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsOnly("I1", "I2");
   }
 
+  @Test
+  public void selectProjectUuidsHavingIssues() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    db.components().insertPrivateProject();
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, project, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+    db.issues().insert(rule, branch, branch, i -> i.setStatus("OPEN").setResolution(null));
+
+    assertThat(underTest.selectProjectUuidsHavingIssues(db.getSession())).containsExactlyInAnyOrder(project.uuid(), branch.uuid());
+  }
+
   @Test
   public void scrollNonClosedByComponentUuid() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -175,6 +194,56 @@ public class IssueDaoTest {
     assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternals(db.getSession(), notPersisted)).isEmpty();
   }
 
+  @Test
+  public void scrollNonClosedByModuleOrProjectExcludingExternals_loads_login_of_assignee() {
+    RuleDefinitionDto rule = db.rules().insert();
+    UserDto user = db.users().insertUser();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file = db.components().insertComponent(newFileDto(module));
+    IssueDto assignedIssue = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setAssigneeUuid(user.getUuid()));
+    IssueDto unassignedIssue = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setAssigneeUuid(null));
+    db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+    RuleDefinitionDto external = db.rules().insert(r -> r.setIsExternal(true));
+    db.issues().insert(external, project, file, i -> i.setStatus("OPEN").setResolution(null));
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByModuleOrProjectExcludingExternals(db.getSession(), module, context -> issues.add(context.getResultObject()));
+
+    assertThat(issues)
+      .extracting(IssueDto::getKey, IssueDto::getAssigneeLogin)
+      .containsExactlyInAnyOrder(tuple(assignedIssue.getKey(), user.getLogin()), tuple(unassignedIssue.getKey(), null));
+  }
+
+  @Test
+  public void scrollNonClosedByComponentUuidExcludingExternals() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto openIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+    db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null));
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByComponentUuidExcludingExternals(db.getSession(), file.uuid(), context -> issues.add(context.getResultObject()));
+
+    assertThat(issues).extracting(IssueDto::getKey).containsExactly(openIssueOnFile.getKey());
+  }
+
+  @Test
+  public void selectMaxUpdatedAt() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto anotherProject = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setUpdatedAt(1_000L));
+    db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setUpdatedAt(3_000L));
+    db.issues().insert(rule, anotherProject, anotherProject, i -> i.setUpdatedAt(5_000L));
+
+    assertThat(underTest.selectMaxUpdatedAt(db.getSession(), project.uuid())).contains(3_000L);
+    assertThat(underTest.selectMaxUpdatedAt(db.getSession(), "does_not_exist")).isEmpty();
+  }
+
   @Test
   public void selectOpenByComponentUuid() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -279,6 +348,90 @@ public class IssueDaoTest {
     assertThat(result.stream().filter(g -> !g.isInLeak()).mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(3);
   }
 
+  @Test
+  public void selectIssueGroupsByBaseComponents_aggregates_groups_on_ancestors() {
+    ComponentDto project = db.components().insertPublicProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto directory = db.components().insertComponent(ComponentTesting.newDirectory(module, "src"));
+    ComponentDto file1 = db.components().insertComponent(newFileDto(module, directory));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(module, directory));
+    ComponentDto otherFile = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    db.issues().insert(rule, project, file1,
+      i -> i.setStatus("OPEN").setResolution(null).setSeverity("CRITICAL").setType(RuleType.BUG).setEffort(10L).setIssueCreationTime(1_600L));
+    db.issues().insert(rule, project, file1,
+      i -> i.setStatus("OPEN").setResolution(null).setSeverity("CRITICAL").setType(RuleType.BUG).setEffort(5L).setIssueCreationTime(500L));
+    db.issues().insert(rule, project, file2,
+      i -> i.setStatus("OPEN").setResolution(null).setSeverity("CRITICAL").setType(RuleType.BUG).setEffort(20L).setIssueCreationTime(1_700L));
+    db.issues().insert(rule, project, otherFile,
+      i -> i.setStatus("RESOLVED").setResolution("FALSE-POSITIVE").setSeverity("MAJOR").setType(RuleType.CODE_SMELL).setIssueCreationTime(1_700L));
+    // closed issues are ignored
+    db.issues().insert(rule, project, file2,
+      i -> i.setStatus("CLOSED").setResolution("REMOVED").setSeverity("CRITICAL").setType(RuleType.BUG).setIssueCreationTime(1_700L));
+
+    Map<String, Collection<IssueGroupDto>> result = underTest.selectIssueGroupsByBaseComponents(db.getSession(),
+      asList(project, directory, file1, otherFile), 1_000L);
+
+    assertThat(result.keySet()).containsOnly(project.uuid(), directory.uuid(), file1.uuid(), otherFile.uuid());
+    assertThat(result.get(project.uuid()).stream().mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(4);
+    assertThat(result.get(directory.uuid()).stream().mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(3);
+    assertThat(result.get(directory.uuid()).stream().filter(IssueGroupDto::isInLeak).mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(2);
+    assertThat(result.get(directory.uuid()).stream().mapToDouble(IssueGroupDto::getEffort).sum()).isEqualTo(35.0);
+    assertThat(result.get(file1.uuid()).stream().mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(2);
+    assertThat(result.get(otherFile.uuid())).extracting(IssueGroupDto::getResolution).containsOnly("FALSE-POSITIVE");
+    // same result as the query on a single base component
+    for (ComponentDto component : asList(project, directory, file1, otherFile)) {
+      Collection<IssueGroupDto> expected = underTest.selectIssueGroupsByBaseComponent(db.getSession(), component, 1_000L);
+      assertThat(result.get(component.uuid()).stream().mapToLong(IssueGroupDto::getCount).sum())
+        .isEqualTo(expected.stream().mapToLong(IssueGroupDto::getCount).sum());
+    }
+  }
+
+  @Test
+  public void selectIssueGroupsByBaseComponents_aggregates_groups_of_components_requested_in_different_chunks() {
+    ComponentDto project = db.components().insertPublicProject();
+    List<ComponentDto> files = new ArrayList<>();
+    for (int i = 0; i <= PARTITION_SIZE_FOR_ORACLE; i++) {
+      files.add(db.components().insertComponent(newFileDto(project)));
+    }
+    RuleDefinitionDto rule = db.rules().insert();
+    db.issues().insert(rule, project, files.get(0), i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, files.get(PARTITION_SIZE_FOR_ORACLE), i -> i.setStatus("OPEN").setResolution(null));
+    List<ComponentDto> baseComponents = new ArrayList<>(files);
+    baseComponents.add(project);
+    baseComponents.add(files.get(0));
+
+    Map<String, Collection<IssueGroupDto>> result = underTest.selectIssueGroupsByBaseComponents(db.getSession(), baseComponents, 1_000L);
+
+    assertThat(result).hasSize(PARTITION_SIZE_FOR_ORACLE + 2);
+    assertThat(result.get(project.uuid()).stream().mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(2);
+    assertThat(result.get(files.get(0).uuid()).stream().mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(1);
+    assertThat(result.get(files.get(1).uuid())).isEmpty();
+    assertThat(result.get(files.get(PARTITION_SIZE_FOR_ORACLE).uuid()).stream().mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(1);
+  }
+
+  @Test
+  public void selectIssueGroupsByBaseComponents_returns_empty_groups_if_no_issues() {
+    ComponentDto project = db.components().insertPublicProject();
+    ComponentDto file = db.components().insertComponent(ComponentTesting.newFileDto(project));
+
+    Map<String, Collection<IssueGroupDto>> result = underTest.selectIssueGroupsByBaseComponents(db.getSession(), asList(project, file), 1_000L);
+
+    assertThat(result.get(project.uuid())).isEmpty();
+    assertThat(result.get(file.uuid())).isEmpty();
+  }
+
+  @Test
+  public void selectIssueGroupsByBaseComponents_fails_if_components_belong_to_different_projects() {
+    ComponentDto project1 = db.components().insertPublicProject();
+    ComponentDto project2 = db.components().insertPublicProject();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Components must belong to the same project");
+
+    underTest.selectIssueGroupsByBaseComponents(db.getSession(), asList(project1, project2), 1_000L);
+  }
+
   private static IssueDto newIssueDto(String key) {
     IssueDto dto = new IssueDto();
     dto.setComponent(new ComponentDto().setDbKey("struts:Action").setId(123L).setUuid("component-uuid"));
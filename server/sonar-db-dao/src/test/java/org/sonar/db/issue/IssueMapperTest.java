@@ -31,7 +31,9 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class IssueMapperTest {
 
@@ -90,6 +92,19 @@ public class IssueMapperTest {
     assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
   }
 
+  @Test
+  public void insertMultiple() {
+    underTest.insertMultiple(asList(newIssue(), newIssue().setKee("FGHIJ").setComponentUuid(file2.uuid()), newIssue().setKee("KLMNO")));
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectByKeys(asList("ABCDE", "FGHIJ", "KLMNO")))
+      .extracting(IssueDto::getKey, IssueDto::getComponentUuid, IssueDto::getMessage)
+      .containsOnly(
+        tuple("ABCDE", file.uuid(), "the message"),
+        tuple("FGHIJ", file2.uuid(), "the message"),
+        tuple("KLMNO", file.uuid(), "the message"));
+  }
+
   @Test
   public void update() {
     underTest.insert(newIssue());
@@ -198,6 +198,38 @@ public class PurgeDaoTest {
     assertThat(dbTester.countRowsOfTable("file_sources")).isZero();
   }
 
+  @Test
+  public void delete_project_and_associated_data_concurrently() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteProject.xml");
+    PurgeDao parallelPurgeDao = new PurgeDao(dbClient.componentDao(), system2, dbTester.myBatis(), 4);
+
+    parallelPurgeDao.deleteProject(dbSession, "A");
+    dbSession.commit();
+
+    assertThat(dbTester.countRowsOfTable("projects")).isZero();
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(dbTester.countRowsOfTable("issues")).isZero();
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isZero();
+    assertThat(dbTester.countRowsOfTable("file_sources")).isZero();
+  }
+
+  @Test
+  public void delete_branch_content_concurrently_when_deleting_project() {
+    ComponentDto projectToDelete = dbTester.components().insertMainBranch();
+    ComponentDto branch = dbTester.components().insertProjectBranch(projectToDelete);
+    dbTester.components().insertSnapshot(branch);
+    ComponentDto otherProject = dbTester.components().insertMainBranch();
+    dbTester.components().insertSnapshot(otherProject);
+    PurgeDao parallelPurgeDao = new PurgeDao(dbClient.componentDao(), system2, dbTester.myBatis(), 4);
+
+    parallelPurgeDao.deleteProject(dbSession, projectToDelete.uuid());
+    dbSession.commit();
+
+    assertThat(dbTester.countRowsOfTable("projects")).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable("project_branches")).isEqualTo(1);
+    assertThat(dbTester.countRowsOfTable("snapshots")).isEqualTo(1);
+  }
+
   @Test
   public void delete_branch_and_associated_data() {
     ComponentDto project = dbTester.components().insertMainBranch();
@@ -59,6 +59,28 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void add_durations_of_other_profiler() {
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop();
+
+    MockedClock otherClock = new MockedClock();
+    PurgeProfiler other = new PurgeProfiler(otherClock);
+    other.start("foo");
+    otherClock.sleep(7);
+    other.stop();
+    other.start("bar");
+    otherClock.sleep(5);
+    other.stop();
+
+    profiler.add(other);
+
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 17ms"));
+    verify(logger).info(contains("bar: 5ms"));
+  }
+
   @Test
   public void shouldResetPurgeProfiling() {
     profiler.start("foo");
@@ -78,6 +78,21 @@ public class FileSourceDaoTest {
 
   }
 
+  @Test
+  public void select_without_data() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    FileSourceDto fileSourceDto = underTest.selectSourceWithoutDataByFileUuid(dbSession, "FILE1_UUID");
+
+    assertThat(fileSourceDto.getBinaryData()).isEmpty();
+    assertThat(fileSourceDto.getRawLineHashes()).isNull();
+    assertThat(fileSourceDto.getLineCount()).isEqualTo(3);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("hash");
+    assertThat(fileSourceDto.getFileUuid()).isEqualTo("FILE1_UUID");
+    assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
+    assertThat(underTest.selectSourceWithoutDataByFileUuid(dbSession, "unknown")).isNull();
+  }
+
   @Test
   public void select_line_hashes() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -121,7 +136,8 @@ public class FileSourceDaoTest {
       .setCreatedAt(1500000000000L)
       .setUpdatedAt(1500000000001L)
       .setLineHashesVersion(1)
-      .setRevision("123456789");
+      .setRevision("123456789")
+      .setInputsHash("FILE2_INPUTS_HASH");
     underTest.insert(dbSession, expected);
     dbSession.commit();
 
@@ -138,6 +154,7 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(expected.getCreatedAt());
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(expected.getUpdatedAt());
     assertThat(fileSourceDto.getRevision()).isEqualTo(expected.getRevision());
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo(expected.getInputsHash());
   }
 
   @Test
@@ -393,11 +410,25 @@ public class FileSourceDaoTest {
       .setDataType(Type.SOURCE)
       .setUpdatedAt(1500000000002L)
       .setLineHashesVersion(1)
-      .setRevision("987654321"));
+      .setRevision("987654321")
+      .setInputsHash("NEW_INPUTS_HASH"));
     dbSession.commit();
 
     dbTester.assertDbUnitTable(getClass(), "update-result.xml", "file_sources", "project_uuid", "file_uuid",
-      "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "line_hashes_version");
+      "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "line_hashes_version", "inputs_hash");
+  }
+
+  @Test
+  public void updateInputsHash() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    underTest.updateInputsHash(dbSession, 101L, "NEW_INPUTS_HASH");
+    dbSession.commit();
+
+    FileSourceDto fileSourceDto = underTest.selectSourceByFileUuid(dbSession, "FILE1_UUID");
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo("NEW_INPUTS_HASH");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("hash");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(1500000000000L);
   }
 
   @Test
@@ -20,12 +20,15 @@
 package org.sonar.db.source;
 
 import com.google.common.base.Joiner;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -85,6 +88,54 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void encode_and_decode_source_data_in_chunks() {
+    DbFileSources.Data data = newData(2 * FileSourceDto.LINES_PER_CHUNK + 10);
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+
+    List<List<DbFileSources.Line>> chunks = underTest.getSourceLineChunks(1, 5);
+    assertThat(chunks).hasSize(2);
+    assertThat(chunks.get(0)).hasSize(FileSourceDto.LINES_PER_CHUNK);
+    assertThat(chunks.get(0).get(0).getLine()).isEqualTo(FileSourceDto.LINES_PER_CHUNK + 1);
+    assertThat(chunks.get(1)).extracting(DbFileSources.Line::getLine)
+      .containsExactly(IntStream.rangeClosed(2 * FileSourceDto.LINES_PER_CHUNK + 1, 2 * FileSourceDto.LINES_PER_CHUNK + 10).boxed().toArray(Integer[]::new));
+    assertThat(underTest.getSourceLineChunks(3, 4)).isEmpty();
+  }
+
+  @Test
+  public void encode_and_decode_empty_source_data() {
+    FileSourceDto underTest = new FileSourceDto().setSourceData(DbFileSources.Data.getDefaultInstance());
+
+    assertThat(underTest.getSourceData().getLinesList()).isEmpty();
+    assertThat(underTest.getSourceLineChunks(0, 0)).isEmpty();
+  }
+
+  @Test
+  public void decode_source_data_stored_before_chunks() throws IOException {
+    DbFileSources.Data data = newData(FileSourceDto.LINES_PER_CHUNK + 10);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream output = new LZ4BlockOutputStream(bytes)) {
+      data.writeTo(output);
+    }
+    FileSourceDto underTest = new FileSourceDto().setBinaryData(bytes.toByteArray());
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+    List<List<DbFileSources.Line>> chunks = underTest.getSourceLineChunks(1, 1);
+    assertThat(chunks).hasSize(1);
+    assertThat(chunks.get(0)).extracting(DbFileSources.Line::getLine)
+      .containsExactly(IntStream.rangeClosed(FileSourceDto.LINES_PER_CHUNK + 1, FileSourceDto.LINES_PER_CHUNK + 10).boxed().toArray(Integer[]::new));
+  }
+
+  private static DbFileSources.Data newData(int lines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      dataBuilder.addLinesBuilder().setLine(i).setSource("line " + i);
+    }
+    return dataBuilder.build();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
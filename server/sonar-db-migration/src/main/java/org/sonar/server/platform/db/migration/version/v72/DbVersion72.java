@@ -54,6 +54,9 @@ public class DbVersion72 implements DbVersion {
       .add(2124, "Add FILE_SOURCE.LINE_COUNT", AddFileSourceLineCount.class)
       .add(2125, "Populate FILE_SOURCE.LINE_COUNT", PopulateFileSourceLineCount.class)
       .add(2126, "Make FILE_SOURCE.LINE_COUNT not nullable", MakeFileSourceLineCountNotNullable.class)
+      .add(2127, "Add FILE_SOURCES.INPUTS_HASH", AddInputsHashToFileSources.class)
+      .add(2128, "Add index on ISSUES.PROJECT_UUID and ISSUES.KEE", AddIndexOnProjectUuidAndKeeOfIssues.class)
+      .add(2129, "Add index on ISSUES.PROJECT_UUID and ISSUES.UPDATED_AT", AddIndexOnProjectUuidAndUpdatedAtOfIssues.class)
     ;
   }
 }
@@ -34,7 +34,7 @@ public class DbVersion72Test {
 
   @Test
   public void verify_migration_count() {
-    verifyMigrationCount(underTest, 27);
+    verifyMigrationCount(underTest, 30);
   }
 
 }
@@ -28,6 +28,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.server.authentication.IdentityProvider;
@@ -50,6 +52,7 @@ import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.organization.OrganizationUpdater;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UpdateUser;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -58,6 +61,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.server.authentication.UserIdentityAuthenticatorParameters.UpdateLoginStrategy;
 
@@ -71,15 +75,17 @@ public class UserIdentityAuthenticatorImpl implements UserIdentityAuthenticator
   private final OrganizationFlags organizationFlags;
   private final OrganizationUpdater organizationUpdater;
   private final DefaultGroupFinder defaultGroupFinder;
+  private final PermissionCache permissionCache;
 
   public UserIdentityAuthenticatorImpl(DbClient dbClient, UserUpdater userUpdater, DefaultOrganizationProvider defaultOrganizationProvider, OrganizationFlags organizationFlags,
-    OrganizationUpdater organizationUpdater, DefaultGroupFinder defaultGroupFinder) {
+    OrganizationUpdater organizationUpdater, DefaultGroupFinder defaultGroupFinder, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.userUpdater = userUpdater;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationFlags = organizationFlags;
     this.organizationUpdater = organizationUpdater;
     this.defaultGroupFinder = defaultGroupFinder;
+    this.permissionCache = permissionCache;
   }
 
   @Override
@@ -118,17 +124,33 @@ public class UserIdentityAuthenticatorImpl implements UserIdentityAuthenticator
         authenticatorParameters.getUserIdentity().getProviderId()));
     detectLoginUpdate(dbSession, userDto, update, authenticatorParameters);
     Optional<UserDto> otherUserToIndex = detectEmailUpdate(dbSession, authenticatorParameters);
-    userUpdater.updateAndCommit(dbSession, userDto, update, u -> syncGroups(dbSession, authenticatorParameters.getUserIdentity(), u), toArray(otherUserToIndex));
+    AtomicBoolean groupsUpdated = new AtomicBoolean();
+    userUpdater.updateAndCommit(dbSession, userDto, update, u -> groupsUpdated.set(syncGroups(dbSession, authenticatorParameters.getUserIdentity(), u)),
+      toArray(otherUserToIndex));
+    invalidatePermissionsIfGroupsUpdated(groupsUpdated);
     return userDto;
   }
 
   private UserDto registerNewUser(DbSession dbSession, @Nullable UserDto disabledUser, UserIdentityAuthenticatorParameters authenticatorParameters) {
     Optional<UserDto> otherUserToIndex = detectEmailUpdate(dbSession, authenticatorParameters);
     NewUser newUser = createNewUser(authenticatorParameters);
+    AtomicBoolean groupsUpdated = new AtomicBoolean();
+    Consumer<UserDto> beforeCommit = u -> groupsUpdated.set(syncGroups(dbSession, authenticatorParameters.getUserIdentity(), u));
+    UserDto userDto;
     if (disabledUser == null) {
-      return userUpdater.createAndCommit(dbSession, newUser, u -> syncGroups(dbSession, authenticatorParameters.getUserIdentity(), u), toArray(otherUserToIndex));
+      userDto = userUpdater.createAndCommit(dbSession, newUser, beforeCommit, toArray(otherUserToIndex));
+    } else {
+      userDto = userUpdater.reactivateAndCommit(dbSession, disabledUser, newUser, beforeCommit, toArray(otherUserToIndex));
+    }
+    invalidatePermissionsIfGroupsUpdated(groupsUpdated);
+    return userDto;
+  }
+
+  private void invalidatePermissionsIfGroupsUpdated(AtomicBoolean groupsUpdated) {
+    if (groupsUpdated.get()) {
+      // groups are committed with the user
+      permissionCache.invalidate();
     }
-    return userUpdater.reactivateAndCommit(dbSession, disabledUser, newUser, u -> syncGroups(dbSession, authenticatorParameters.getUserIdentity(), u), toArray(otherUserToIndex));
   }
 
   private Optional<UserDto> detectEmailUpdate(DbSession dbSession, UserIdentityAuthenticatorParameters authenticatorParameters) {
@@ -193,9 +215,12 @@ public class UserIdentityAuthenticatorImpl implements UserIdentityAuthenticator
     }
   }
 
-  private void syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
+  /**
+   * @return true if at least one group was added or removed
+   */
+  private boolean syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
     if (!userIdentity.shouldSyncGroups()) {
-      return;
+      return false;
     }
     String userLogin = userIdentity.getLogin();
     Set<String> userGroups = new HashSet<>(dbClient.groupMembershipDao().selectGroupsByLogins(dbSession, singletonList(userLogin)).get(userLogin));
@@ -211,29 +236,33 @@ public class UserIdentityAuthenticatorImpl implements UserIdentityAuthenticator
       .stream()
       .collect(uniqueIndex(GroupDto::getName));
 
-    addGroups(dbSession, userDto, groupsToAdd, groupsByName);
-    removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
+    boolean added = addGroups(dbSession, userDto, groupsToAdd, groupsByName);
+    boolean removed = removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
+    return added || removed;
   }
 
-  private void addGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToAdd, Map<String, GroupDto> groupsByName) {
-    groupsToAdd.stream().map(groupsByName::get).filter(Objects::nonNull).forEach(
-      groupDto -> {
-        LOGGER.debug("Adding group '{}' to user '{}'", groupDto.getName(), userDto.getLogin());
-        dbClient.userGroupDao().insert(dbSession, new UserGroupDto().setGroupId(groupDto.getId()).setUserId(userDto.getId()));
-      });
+  private boolean addGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToAdd, Map<String, GroupDto> groupsByName) {
+    List<GroupDto> groups = groupsToAdd.stream().map(groupsByName::get).filter(Objects::nonNull).collect(toList());
+    groups.forEach(groupDto -> {
+      LOGGER.debug("Adding group '{}' to user '{}'", groupDto.getName(), userDto.getLogin());
+      dbClient.userGroupDao().insert(dbSession, new UserGroupDto().setGroupId(groupDto.getId()).setUserId(userDto.getId()));
+    });
+    return !groups.isEmpty();
   }
 
-  private void removeGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToRemove, Map<String, GroupDto> groupsByName) {
+  private boolean removeGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToRemove, Map<String, GroupDto> groupsByName) {
     Optional<GroupDto> defaultGroup = getDefaultGroup(dbSession);
-    groupsToRemove.stream().map(groupsByName::get)
+    List<GroupDto> groups = groupsToRemove.stream().map(groupsByName::get)
       .filter(Objects::nonNull)
       // user should be member of default group only when organizations are disabled, as the IdentityProvider API doesn't handle yet
       // organizations
       .filter(group -> !defaultGroup.isPresent() || !group.getId().equals(defaultGroup.get().getId()))
-      .forEach(groupDto -> {
-        LOGGER.debug("Removing group '{}' from user '{}'", groupDto.getName(), userDto.getLogin());
-        dbClient.userGroupDao().delete(dbSession, groupDto.getId(), userDto.getId());
-      });
+      .collect(toList());
+    groups.forEach(groupDto -> {
+      LOGGER.debug("Removing group '{}' from user '{}'", groupDto.getName(), userDto.getLogin());
+      dbClient.userGroupDao().delete(dbSession, groupDto.getId(), userDto.getId());
+    });
+    return !groups.isEmpty();
   }
 
   private Optional<GroupDto> getDefaultGroup(DbSession dbSession) {
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.io.IOException;
+import java.util.Optional;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
+/**
+ * Conditional requests, so that scanners reuse their local copy of the responses which did not change
+ * since their previous call.
+ */
+class ConditionalRequests {
+
+  static final String ETAG_HEADER = "ETag";
+  static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+  private static final Joiner ETAG_PARTS_JOINER = Joiner.on('|').useForNull("");
+  private static final Splitter ETAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final String WEAK_ETAG_PREFIX = "W/";
+
+  private ConditionalRequests() {
+    // only static methods
+  }
+
+  /**
+   * Strong entity tag of the response generated from the given parts
+   */
+  static String etag(Object... parts) {
+    return '"' + DigestUtils.sha1Hex(ETAG_PARTS_JOINER.join(parts)) + '"';
+  }
+
+  /**
+   * Sets the entity tag of the response. If the client already has the response with this tag, the response
+   * is completed with the status 304 and an empty body.
+   *
+   * @return {@code true} if the response is completed, so must not be written
+   */
+  static boolean checkNotModified(Request request, Response response, String etag) {
+    response.setHeader(ETAG_HEADER, etag);
+    Optional<String> ifNoneMatch = request.header(IF_NONE_MATCH_HEADER);
+    if (!ifNoneMatch.isPresent() || !matches(ifNoneMatch.get(), etag)) {
+      return false;
+    }
+    try {
+      response.stream().setStatus(HTTP_NOT_MODIFIED).output().close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write response", e);
+    }
+    return true;
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    for (String candidate : ETAGS_SPLITTER.split(ifNoneMatch)) {
+      if ("*".equals(candidate) || etag.equals(candidate) || (WEAK_ETAG_PREFIX + etag).equals(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -23,10 +23,12 @@ import com.google.common.base.Splitter;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.ws.Request;
@@ -35,8 +37,8 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.issue.IssueDto;
-import org.sonar.db.user.UserDto;
 import org.sonar.scanner.protocol.input.ScannerInput;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.user.UserSession;
@@ -44,11 +46,9 @@ import org.sonarqube.ws.MediaTypes;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Maps.newHashMap;
-import static java.lang.String.format;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.core.util.Protobuf.setNullable;
+import static org.sonar.server.batch.ConditionalRequests.checkNotModified;
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 
@@ -95,40 +95,38 @@ public class IssuesAction implements BatchWsAction {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ComponentDto component = loadComponent(dbSession, request);
       userSession.checkComponentPermission(USER, component);
+      // only projects, modules and files are supported. Other types of components are not allowed.
+      checkArgument(Scopes.PROJECT.equals(component.scope()) || Scopes.FILE.equals(component.scope()), "Component of scope '%s' is not allowed", component.scope());
       Map<String, String> keysByUUid = keysByUUid(dbSession, component);
+      if (checkNotModified(request, response, etag(dbSession, component, keysByUUid))) {
+        return;
+      }
 
       ScannerInput.ServerIssue.Builder responseBuilder = ScannerInput.ServerIssue.newBuilder();
       response.stream().setMediaType(MediaTypes.PROTOBUF);
       OutputStream output = response.stream().output();
 
-      List<IssueDto> issueDtos = new ArrayList<>();
-      switch (component.scope()) {
-        case Scopes.PROJECT:
-          issueDtos.addAll(dbClient.issueDao().selectNonClosedByModuleOrProjectExcludingExternals(dbSession, component));
-          break;
-        case Scopes.FILE:
-          issueDtos.addAll(dbClient.issueDao().selectNonClosedByComponentUuidExcludingExternals(dbSession, component.uuid()));
-          break;
-        default:
-          // only projects, modules and files are supported. Other types of components are not allowed.
-          throw new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
+      // issues are streamed from database to response
+      ResultHandler<IssueDto> handler = context -> handleIssue(context.getResultObject(), responseBuilder, keysByUUid, output);
+      if (Scopes.PROJECT.equals(component.scope())) {
+        dbClient.issueDao().scrollNonClosedByModuleOrProjectExcludingExternals(dbSession, component, handler);
+      } else {
+        dbClient.issueDao().scrollNonClosedByComponentUuidExcludingExternals(dbSession, component.uuid(), handler);
       }
-
-      List<String> usersUuids = issueDtos.stream()
-        .filter(issue -> issue.getAssigneeUuid() != null)
-        .map(IssueDto::getAssigneeUuid)
-        .collect(toList());
-
-      Map<String, String> userLoginsByUserUuids = dbClient.userDao().selectByUuids(dbSession, usersUuids)
-        .stream().collect(toMap(UserDto::getUuid, UserDto::getLogin));
-
-      issueDtos.forEach(issue -> {
-        issue.setAssigneeUuid(userLoginsByUserUuids.get(issue.getAssigneeUuid()));
-        handleIssue(issue, responseBuilder, keysByUUid, output);
-      });
     }
   }
 
+  /**
+   * Any change on issues, including their closing, updates the most recent update date of the issues of the project.
+   * Paths of files and keys of modules can only change during an analysis.
+   */
+  private String etag(DbSession dbSession, ComponentDto component, Map<String, String> keysByUUid) {
+    Optional<Long> lastAnalysisDate = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(dbSession, component.projectUuid())
+      .map(SnapshotDto::getCreatedAt);
+    Optional<Long> lastIssueUpdate = dbClient.issueDao().selectMaxUpdatedAt(dbSession, component.projectUuid());
+    return ConditionalRequests.etag(component.uuid(), new TreeMap<>(keysByUUid), lastAnalysisDate.orElse(null), lastIssueUpdate.orElse(null));
+  }
+
   private static void handleIssue(IssueDto issue, ScannerInput.ServerIssue.Builder issueBuilder, Map<String, String> keysByUUid, OutputStream out) {
     issueBuilder.setKey(issue.getKey());
     String moduleUuid = extractModuleUuid(issue);
@@ -137,7 +135,7 @@ public class IssuesAction implements BatchWsAction {
     issueBuilder.setRuleRepository(issue.getRuleRepo());
     issueBuilder.setRuleKey(issue.getRule());
     setNullable(issue.getChecksum(), issueBuilder::setChecksum);
-    setNullable(issue.getAssigneeUuid(), issueBuilder::setAssigneeLogin);
+    setNullable(issue.getAssigneeLogin(), issueBuilder::setAssigneeLogin);
     setNullable(issue.getLine(), issueBuilder::setLine);
     setNullable(issue.getMessage(), issueBuilder::setMsg);
     issueBuilder.setSeverity(org.sonar.scanner.protocol.Constants.Severity.valueOf(issue.getSeverity()));
@@ -22,6 +22,7 @@ package org.sonar.server.batch;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -31,6 +32,7 @@ import org.sonarqube.ws.Batch.WsProjectResponse;
 import org.sonarqube.ws.Batch.WsProjectResponse.FileData.Builder;
 
 import static org.sonar.core.util.Protobuf.setNullable;
+import static org.sonar.server.batch.ConditionalRequests.checkNotModified;
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
@@ -91,14 +93,19 @@ public class ProjectAction implements BatchWsAction {
 
   @Override
   public void handle(Request wsRequest, Response wsResponse) throws Exception {
-    ProjectRepositories data = projectDataLoader.load(ProjectDataQuery.create()
+    ProjectDataQuery query = ProjectDataQuery.create()
       .setModuleKey(wsRequest.mandatoryParam(PARAM_KEY))
       .setProfileName(wsRequest.param(PARAM_PROFILE))
       .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE))
       .setBranch(wsRequest.param(PARAM_BRANCH))
-      .setPullRequest(wsRequest.param(PARAM_PULL_REQUEST)));
+      .setPullRequest(wsRequest.param(PARAM_PULL_REQUEST));
+    Optional<ProjectRepositories> data = projectDataLoader.load(query, etag -> checkNotModified(wsRequest, wsResponse, etag));
+    if (!data.isPresent()) {
+      // the scanner already has this project repository
+      return;
+    }
 
-    WsProjectResponse projectResponse = buildResponse(data);
+    WsProjectResponse projectResponse = buildResponse(data.get());
     writeProtobuf(projectResponse, wsRequest, wsResponse);
   }
 
@@ -27,8 +27,11 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import javax.annotation.Nullable;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
@@ -37,6 +40,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.permission.OrganizationPermission;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.input.FileData;
@@ -69,37 +73,64 @@ public class ProjectDataLoader {
   public ProjectRepositories load(ProjectDataQuery query) {
     try (DbSession session = dbClient.openSession(false)) {
       ProjectRepositories data = new ProjectRepositories();
-      String moduleKey = query.getModuleKey();
-      String branch = query.getBranch();
-      String pullRequest = query.getPullRequest();
-      ComponentDto mainModule = componentFinder.getByKey(session, moduleKey);
-      checkRequest(isProjectOrModule(mainModule), "Key '%s' belongs to a component which is not a Project", moduleKey);
-      boolean hasScanPerm = userSession.hasComponentPermission(SCAN_EXECUTION, mainModule) ||
-        userSession.hasPermission(OrganizationPermission.SCAN, mainModule.getOrganizationUuid());
-      boolean hasBrowsePerm = userSession.hasComponentPermission(USER, mainModule);
-      checkPermission(query.isIssuesMode(), hasScanPerm, hasBrowsePerm);
-      ComponentDto branchOrMainModule = (branch == null && pullRequest == null) ? mainModule
-        : componentFinder.getByKeyAndOptionalBranchOrPullRequest(session, moduleKey, branch, pullRequest);
-
-      ComponentDto project = getProject(branchOrMainModule, session);
-      if (!project.getKey().equals(branchOrMainModule.getKey())) {
-        addSettings(data, branchOrMainModule.getKey(), getSettingsFromParents(branchOrMainModule, hasScanPerm, session));
-      }
+      Modules modules = loadModulesAndSettings(session, query, data);
+      addFileData(session, data, modules);
+      return data;
+    }
+  }
 
-      List<ComponentDto> modulesTree = dbClient.componentDao().selectEnabledDescendantModules(session, branchOrMainModule.uuid());
-      List<PropertyDto> modulesTreeSettings = dbClient.propertiesDao().selectEnabledDescendantModuleProperties(mainModule.uuid(), session);
-      TreeModuleSettings treeModuleSettings = new TreeModuleSettings(session, modulesTree, modulesTreeSettings);
+  /**
+   * Same as {@link #load(ProjectDataQuery)}, but the files are not loaded if {@code isNotModified} accepts the entity tag
+   * of the project repository. This tag is computed once modules and settings are loaded: files and modules are updated
+   * only by analyses, whereas settings are compared as they can be changed at any time.
+   *
+   * @return the project repository, or empty if it is not modified
+   */
+  public Optional<ProjectRepositories> load(ProjectDataQuery query, Predicate<String> isNotModified) {
+    try (DbSession session = dbClient.openSession(false)) {
+      ProjectRepositories data = new ProjectRepositories();
+      Modules modules = loadModulesAndSettings(session, query, data);
+      if (isNotModified.test(etag(session, data, modules))) {
+        return Optional.empty();
+      }
+      addFileData(session, data, modules);
+      return Optional.of(data);
+    }
+  }
 
-      addSettingsToChildrenModules(data, moduleKey, Maps.newHashMap(), treeModuleSettings, hasScanPerm);
-      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, branchOrMainModule);
-      addFileData(data, modulesTree, files);
+  private String etag(DbSession session, ProjectRepositories data, Modules modules) {
+    Long lastAnalysisDate = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, modules.branchOrMainModule.projectUuid())
+      .map(SnapshotDto::getCreatedAt)
+      .orElse(null);
+    Map<String, Map<String, String>> sortedSettings = new TreeMap<>();
+    data.settings().forEach((moduleKey, settings) -> sortedSettings.put(moduleKey, new TreeMap<>(settings)));
+    return ConditionalRequests.etag(modules.branchOrMainModule.uuid(), lastAnalysisDate, new TreeMap<>(modules.keysByUuid), sortedSettings);
+  }
 
-      // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
-      // ok
-      data.setLastAnalysisDate(new Date());
+  private Modules loadModulesAndSettings(DbSession session, ProjectDataQuery query, ProjectRepositories data) {
+    String moduleKey = query.getModuleKey();
+    String branch = query.getBranch();
+    String pullRequest = query.getPullRequest();
+    ComponentDto mainModule = componentFinder.getByKey(session, moduleKey);
+    checkRequest(isProjectOrModule(mainModule), "Key '%s' belongs to a component which is not a Project", moduleKey);
+    boolean hasScanPerm = userSession.hasComponentPermission(SCAN_EXECUTION, mainModule) ||
+      userSession.hasPermission(OrganizationPermission.SCAN, mainModule.getOrganizationUuid());
+    boolean hasBrowsePerm = userSession.hasComponentPermission(USER, mainModule);
+    checkPermission(query.isIssuesMode(), hasScanPerm, hasBrowsePerm);
+    ComponentDto branchOrMainModule = (branch == null && pullRequest == null) ? mainModule
+      : componentFinder.getByKeyAndOptionalBranchOrPullRequest(session, moduleKey, branch, pullRequest);
 
-      return data;
+    ComponentDto project = getProject(branchOrMainModule, session);
+    if (!project.getKey().equals(branchOrMainModule.getKey())) {
+      addSettings(data, branchOrMainModule.getKey(), getSettingsFromParents(branchOrMainModule, hasScanPerm, session));
     }
+
+    List<ComponentDto> modulesTree = dbClient.componentDao().selectEnabledDescendantModules(session, branchOrMainModule.uuid());
+    List<PropertyDto> modulesTreeSettings = dbClient.propertiesDao().selectEnabledDescendantModuleProperties(mainModule.uuid(), session);
+    TreeModuleSettings treeModuleSettings = new TreeModuleSettings(session, modulesTree, modulesTreeSettings);
+
+    addSettingsToChildrenModules(data, moduleKey, Maps.newHashMap(), treeModuleSettings, hasScanPerm);
+    return new Modules(branchOrMainModule, modulesTree);
   }
 
   private static boolean isProjectOrModule(ComponentDto module) {
@@ -109,14 +140,6 @@ public class ProjectDataLoader {
     return Qualifiers.PROJECT.equals(module.qualifier()) || Qualifiers.MODULE.equals(module.qualifier());
   }
 
-  private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, @Nullable ComponentDto module) {
-    if (module == null) {
-      return Collections.emptyList();
-    }
-    return module.isRootProject() ? dbClient.componentDao().selectEnabledFilesFromProject(session, module.uuid())
-      : dbClient.componentDao().selectEnabledDescendantFiles(session, module.uuid());
-  }
-
   private ComponentDto getProject(ComponentDto module, DbSession session) {
     if (!module.isRootProject()) {
       return dbClient.componentDao().selectOrFailByUuid(session, module.projectUuid());
@@ -183,16 +206,25 @@ public class ProjectDataLoader {
     return !key.contains(".secured") || hasScanPerm;
   }
 
-  private static void addFileData(ProjectRepositories data, List<ComponentDto> moduleChildren, List<FilePathWithHashDto> files) {
-    Map<String, String> moduleKeysByUuid = newHashMap();
-    for (ComponentDto module : moduleChildren) {
-      moduleKeysByUuid.put(module.uuid(), module.getKey());
-    }
-
-    for (FilePathWithHashDto file : files) {
+  /**
+   * Files are streamed from database, so that only the project repository is kept in memory
+   */
+  private void addFileData(DbSession session, ProjectRepositories data, Modules modules) {
+    ResultHandler<FilePathWithHashDto> handler = context -> {
+      FilePathWithHashDto file = context.getResultObject();
       FileData fileData = new FileData(file.getSrcHash(), file.getRevision());
-      data.addFileData(moduleKeysByUuid.get(file.getModuleUuid()), file.getPath(), fileData);
+      data.addFileData(modules.keysByUuid.get(file.getModuleUuid()), file.getPath(), fileData);
+    };
+    ComponentDto module = modules.branchOrMainModule;
+    if (module.isRootProject()) {
+      dbClient.componentDao().scrollEnabledFilesFromProject(session, module.uuid(), handler);
+    } else {
+      dbClient.componentDao().scrollEnabledDescendantFiles(session, module.uuid(), handler);
     }
+
+    // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
+    // ok
+    data.setLastAnalysisDate(new Date());
   }
 
   private static void checkPermission(boolean preview, boolean hasScanPerm, boolean hasBrowsePerm) {
@@ -208,6 +240,16 @@ public class ProjectDataLoader {
     }
   }
 
+  private static class Modules {
+    private final ComponentDto branchOrMainModule;
+    private final Map<String, String> keysByUuid;
+
+    private Modules(ComponentDto branchOrMainModule, List<ComponentDto> modulesTree) {
+      this.branchOrMainModule = branchOrMainModule;
+      this.keysByUuid = modulesTree.stream().collect(uniqueIndex(ComponentDto::uuid, ComponentDto::getKey));
+    }
+  }
+
   private class TreeModuleSettings {
 
     private Map<String, ComponentDto> modulesByKey;
@@ -19,9 +19,11 @@
  */
 package org.sonar.server.computation.task.projectanalysis.batch;
 
+import java.io.InputStream;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
 public interface BatchReportReader {
@@ -64,4 +66,10 @@ public interface BatchReportReader {
   CloseableIterator<ScannerReport.ContextProperty> readContextProperties();
   
   Optional<CloseableIterator<ScannerReport.LineSgnificantCode>> readComponentSignificantCode(int fileRef);
+
+  /**
+   * Reads the data of the specified domain of a component as written by the scanner, without decoding it, for example
+   * to hash it. Returns an absent optional if the report has no such data for this component.
+   */
+  Optional<InputStream> readRawComponentData(FileStructure.Domain domain, int componentRef);
 }
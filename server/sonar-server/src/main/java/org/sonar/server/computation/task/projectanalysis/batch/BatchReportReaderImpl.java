@@ -21,12 +21,19 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Throwables;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
@@ -35,6 +42,8 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.LineSgnificantCode;
 
@@ -42,10 +51,26 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class BatchReportReaderImpl implements BatchReportReader {
 
+  /**
+   * Maximum number of report files kept loaded and indexed. See {@link IndexedMessageFile}.
+   */
+  static final int MAX_LOADED_FILES = 64;
+  /**
+   * Maximum number of report files whose messages are kept decoded
+   */
+  static final int MAX_DECODED_FILES = 32;
+  /**
+   * Files with more messages are never kept decoded, they are parsed when traversed
+   */
+  static final int MAX_DECODED_MESSAGES_PER_FILE = 1_000;
+
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
   private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
   // caching of metadata which are read often
   private ScannerReport.Metadata metadata;
+  // files of messages may be read by several steps, and by several threads
+  private final Map<File, IndexedMessageFile> loadedFiles = Collections.synchronizedMap(new LruMap<>(MAX_LOADED_FILES));
+  private final Map<File, List<?>> decodedMessages = Collections.synchronizedMap(new LruMap<>(MAX_DECODED_FILES));
 
   public BatchReportReaderImpl(BatchReportDirectoryHolder batchReportDirectoryHolder) {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
@@ -90,7 +115,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
     ensureInitialized();
-    return delegate.readComponentMeasures(componentRef);
+    return readMessages(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @Override
@@ -109,43 +134,43 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
     ensureInitialized();
-    return delegate.readComponentIssues(componentRef);
+    return readMessages(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
   
   @Override
   public CloseableIterator<ScannerReport.ExternalIssue> readComponentExternalIssues(int componentRef) {
     ensureInitialized();
-    return delegate.readComponentExternalIssues(componentRef);
+    return readMessages(FileStructure.Domain.EXTERNAL_ISSUES, componentRef, ScannerReport.ExternalIssue.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
     ensureInitialized();
-    return delegate.readComponentDuplications(componentRef);
+    return readMessages(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
     ensureInitialized();
-    return delegate.readCpdTextBlocks(componentRef);
+    return readMessages(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
     ensureInitialized();
-    return delegate.readComponentSymbols(componentRef);
+    return readMessages(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
     ensureInitialized();
-    return delegate.readComponentSyntaxHighlighting(fileRef);
+    return readMessages(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
     ensureInitialized();
-    return delegate.readComponentCoverage(fileRef);
+    return readMessages(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
   @Override
@@ -265,6 +290,63 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public Optional<CloseableIterator<LineSgnificantCode>> readComponentSignificantCode(int fileRef) {
     ensureInitialized();
-    return Optional.ofNullable(delegate.readComponentSignificantCode(fileRef));
+    if (!delegate.hasSignificantCode(fileRef)) {
+      return Optional.empty();
+    }
+    return Optional.of(readMessages(FileStructure.Domain.SGNIFICANT_CODE, fileRef, LineSgnificantCode.parser()));
+  }
+
+  @Override
+  public Optional<InputStream> readRawComponentData(FileStructure.Domain domain, int componentRef) {
+    ensureInitialized();
+    File file = delegate.getFileStructure().fileFor(domain, componentRef);
+    if (!file.isFile()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(FileUtils.openInputStream(file));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read file: " + file, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <M extends Message> CloseableIterator<M> readMessages(FileStructure.Domain domain, int componentRef, Parser<M> parser) {
+    File file = delegate.getFileStructure().fileFor(domain, componentRef);
+    if (!file.isFile()) {
+      return CloseableIterator.emptyCloseableIterator();
+    }
+    List<?> decoded = decodedMessages.get(file);
+    if (decoded != null) {
+      return CloseableIterator.from((Iterator<M>) decoded.iterator());
+    }
+    if (file.length() > IndexedMessageFile.MAX_SIZE) {
+      // too big to be kept in heap
+      return Protobuf.readStream(file, parser);
+    }
+    IndexedMessageFile messageFile = loadedFiles.computeIfAbsent(file, IndexedMessageFile::load);
+    if (messageFile.count() > MAX_DECODED_MESSAGES_PER_FILE) {
+      return messageFile.iterator(parser);
+    }
+    List<M> messages = new ArrayList<>(messageFile.count());
+    for (int i = 0; i < messageFile.count(); i++) {
+      messages.add(messageFile.get(i, parser));
+    }
+    decodedMessages.put(file, Collections.unmodifiableList(messages));
+    return CloseableIterator.from(messages.iterator());
+  }
+
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+    private final int maxSize;
+
+    LruMap(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxSize;
+    }
   }
 }
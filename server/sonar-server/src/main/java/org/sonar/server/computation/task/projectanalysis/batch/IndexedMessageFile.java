@@ -0,0 +1,136 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * File of delimited protobuf messages of the scanner report, as written by
+ * {@link org.sonar.core.util.Protobuf#writeStream(Iterable, File, boolean)}.
+ * <p>
+ * The file is read once into heap and the offsets of its messages are indexed. Messages can then be read
+ * several times, in any order, without I/O. Files are not memory-mapped, so that nothing keeps them
+ * locked once loaded.
+ * <p>
+ * Only files up to {@link #MAX_SIZE} can be loaded. Bigger files must be streamed.
+ */
+class IndexedMessageFile {
+
+  /**
+   * Maximum size of the files that can be loaded, as the whole file is kept in heap
+   */
+  static final long MAX_SIZE = 1024L * 1024L;
+
+  private final File file;
+  private final byte[] bytes;
+  private final int[] offsets;
+  private final int[] sizes;
+
+  private IndexedMessageFile(File file, byte[] bytes, int[] offsets, int[] sizes) {
+    this.file = file;
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.sizes = sizes;
+  }
+
+  static IndexedMessageFile load(File file) {
+    if (file.length() > MAX_SIZE) {
+      throw new IllegalStateException("File is too big to be loaded: " + file);
+    }
+    try {
+      return index(file, Files.readAllBytes(file.toPath()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read file " + file, e);
+    }
+  }
+
+  private static IndexedMessageFile index(File file, byte[] bytes) throws IOException {
+    CodedInputStream input = CodedInputStream.newInstance(bytes);
+    input.setSizeLimit(Integer.MAX_VALUE);
+    int[] offsets = new int[16];
+    int[] sizes = new int[16];
+    int count = 0;
+    while (!input.isAtEnd()) {
+      int size = input.readRawVarint32();
+      if (count == offsets.length) {
+        offsets = Arrays.copyOf(offsets, count * 2);
+        sizes = Arrays.copyOf(sizes, count * 2);
+      }
+      offsets[count] = input.getTotalBytesRead();
+      sizes[count] = size;
+      count++;
+      input.skipRawBytes(size);
+    }
+    return new IndexedMessageFile(file, bytes, Arrays.copyOf(offsets, count), Arrays.copyOf(sizes, count));
+  }
+
+  int count() {
+    return offsets.length;
+  }
+
+  /**
+   * @param index index of message, starting from 0
+   */
+  <M> M get(int index, Parser<M> parser) {
+    // the backing array is never modified, so decoded strings and bytes can safely share it
+    CodedInputStream input = CodedInputStream.newInstance(bytes, offsets[index], sizes[index]);
+    input.enableAliasing(true);
+    try {
+      return parser.parseFrom(input);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Fail to parse message #" + index + " of file " + file, e);
+    }
+  }
+
+  <M> CloseableIterator<M> iterator(Parser<M> parser) {
+    return new MessageIterator<>(parser);
+  }
+
+  private class MessageIterator<M> extends CloseableIterator<M> {
+    private final Parser<M> parser;
+    private int next = 0;
+
+    private MessageIterator(Parser<M> parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    protected M doNext() {
+      if (next >= offsets.length) {
+        return null;
+      }
+      M message = get(next, parser);
+      next++;
+      return message;
+    }
+
+    @Override
+    protected void doClose() {
+      // the loaded bytes are shared by all iterators
+    }
+  }
+}
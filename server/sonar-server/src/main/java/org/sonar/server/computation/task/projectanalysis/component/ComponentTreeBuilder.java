@@ -24,6 +24,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.sonar.db.component.BranchType;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Component.FileStatus;
@@ -60,6 +61,11 @@ public class ComponentTreeBuilder {
   private final Branch branch;
   @Nullable
   private final SnapshotDto baseAnalysis;
+  /**
+   * Files can be carried over only from a previous analysis of the same branch, and never on short-living branches
+   * and pull requests, which are tracked against their target branch.
+   */
+  private final boolean carryOverAllowed;
 
   public ComponentTreeBuilder(
     ComponentKeyGenerator keyGenerator,
@@ -76,6 +82,7 @@ public class ComponentTreeBuilder {
     this.project = project;
     this.branch = branch;
     this.baseAnalysis = baseAnalysis;
+    this.carryOverAllowed = baseAnalysis != null && branch.getType() != BranchType.SHORT && branch.getType() != BranchType.PULL_REQUEST;
   }
 
   public Component buildProject(ScannerReport.Component project, String scmBasePath) {
@@ -216,7 +223,7 @@ public class ComponentTreeBuilder {
   }
 
   @CheckForNull
-  private static FileAttributes createFileAttributes(ScannerReport.Component component) {
+  private FileAttributes createFileAttributes(ScannerReport.Component component) {
     if (component.getType() != ScannerReport.Component.ComponentType.FILE) {
       return null;
     }
@@ -225,7 +232,8 @@ public class ComponentTreeBuilder {
     return new FileAttributes(
       component.getIsTest(),
       trimToNull(component.getLanguage()),
-      component.getLines());
+      component.getLines(),
+      carryOverAllowed && component.getCarriedOver());
   }
 
   private static Component.Type convertDirOrFileType(ScannerReport.Component.ComponentType type) {
@@ -34,12 +34,18 @@ public class FileAttributes {
   @CheckForNull
   private final String languageKey;
   private final int lines;
+  private final boolean carriedOver;
 
   public FileAttributes(boolean unitTest, @Nullable String languageKey, int lines) {
+    this(unitTest, languageKey, lines, false);
+  }
+
+  public FileAttributes(boolean unitTest, @Nullable String languageKey, int lines, boolean carriedOver) {
     this.unitTest = unitTest;
     this.languageKey = languageKey;
     checkArgument(lines > 0, "Number of lines must be greater than zero");
     this.lines = lines;
+    this.carriedOver = carriedOver;
   }
 
   public boolean isUnitTest() {
@@ -58,12 +64,34 @@ public class FileAttributes {
     return lines;
   }
 
+  /**
+   * Whether the file was not analyzed by the scanner because it did not change (incremental analysis). Its source,
+   * measures and issues are those of the previous analysis.
+   */
+  public boolean isCarriedOver() {
+    return carriedOver;
+  }
+
+  /**
+   * Whether the component is a file carried over from the previous analysis.
+   *
+   * @see #isCarriedOver()
+   */
+  public static boolean isCarriedOver(Component component) {
+    if (component.getType() != Component.Type.FILE) {
+      return false;
+    }
+    FileAttributes fileAttributes = component.getFileAttributes();
+    return fileAttributes != null && fileAttributes.isCarriedOver();
+  }
+
   @Override
   public String toString() {
     return "FileAttributes{" +
       "languageKey='" + languageKey + '\'' +
       ", unitTest=" + unitTest +
       ", lines=" + lines +
+      ", carriedOver=" + carriedOver +
       '}';
   }
 }
@@ -32,11 +32,13 @@ import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.ToIntBiFunction;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.formula.Counter;
@@ -83,22 +85,33 @@ public class DuplicationMeasures {
   }
 
   protected DuplicationCounter createCounter() {
-    return new DuplicationCounter(duplicationRepository);
+    return new DuplicationCounter(duplicationRepository, this::getPreviousIntValue);
+  }
+
+  private int getPreviousIntValue(Component file, String metricKey) {
+    Optional<Measure> measure = measureRepository.getBaseMeasure(file, metricRepository.getByKey(metricKey));
+    if (measure.isPresent() && measure.get().getValueType() == Measure.ValueType.INT) {
+      return measure.get().getIntValue();
+    }
+    return 0;
   }
 
   protected static class DuplicationCounter implements Counter<DuplicationCounter> {
     @CheckForNull
     private final DuplicationRepository duplicationRepository;
+    @CheckForNull
+    private final ToIntBiFunction<Component, String> previousMeasureReader;
     protected int fileCount = 0;
     protected int blockCount = 0;
     protected int lineCount = 0;
 
     protected DuplicationCounter() {
-      this(null);
+      this(null, null);
     }
 
-    private DuplicationCounter(@Nullable DuplicationRepository duplicationRepository) {
+    private DuplicationCounter(@Nullable DuplicationRepository duplicationRepository, @Nullable ToIntBiFunction<Component, String> previousMeasureReader) {
       this.duplicationRepository = duplicationRepository;
+      this.previousMeasureReader = previousMeasureReader;
     }
 
     @Override
@@ -119,6 +132,10 @@ public class DuplicationMeasures {
     }
 
     protected void initializeForFile(Component file) {
+      if (FileAttributes.isCarriedOver(file)) {
+        initializeForCarriedOverFile(file);
+        return;
+      }
       Iterable<Duplication> duplications = requireNonNull(this.duplicationRepository, "DuplicationRepository missing")
         .getDuplications(file);
       if (isEmpty(duplications)) {
@@ -142,6 +159,16 @@ public class DuplicationMeasures {
       this.lineCount += duplicatedLineNumbers.size();
     }
 
+    /**
+     * Duplications of a file carried over from the previous analysis are not in the report: measures of the previous analysis are kept.
+     */
+    private void initializeForCarriedOverFile(Component file) {
+      ToIntBiFunction<Component, String> reader = requireNonNull(this.previousMeasureReader, "Reader of previous measures missing");
+      this.fileCount += reader.applyAsInt(file, DUPLICATED_FILES_KEY);
+      this.blockCount += reader.applyAsInt(file, DUPLICATED_BLOCKS_KEY);
+      this.lineCount += reader.applyAsInt(file, DUPLICATED_LINES_KEY);
+    }
+
     private static void addLines(TextBlock textBlock, Set<Integer> duplicatedLineNumbers) {
       for (int i = textBlock.getStart(); i <= textBlock.getEnd(); i++) {
         duplicatedLineNumbers.add(i);
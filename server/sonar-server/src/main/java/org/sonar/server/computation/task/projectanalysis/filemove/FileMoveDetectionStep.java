@@ -27,6 +27,8 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -34,10 +36,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
@@ -68,6 +75,16 @@ public class FileMoveDetectionStep implements ComputationStep {
   private static final Comparator<ScoreMatrix.ScoreFile> SCORE_FILE_COMPARATOR = (o1, o2) -> -1 * Integer.compare(o1.getLineCount(), o2.getLineCount());
   private static final double LOWER_BOUND_RATIO = 0.84;
   private static final double UPPER_BOUND_RATIO = 1.18;
+  /**
+   * Number of threads used to score pairs of files. Pairs are scored by the current thread when value is 1 (default).
+   */
+  public static final String PARALLELISM_PROPERTY = "sonar.filemove.parallelism";
+  private static final int DEFAULT_PARALLELISM = 1;
+  /**
+   * Below this number of pairs of files with compatible line counts, all of them are scored. Above, only the pairs
+   * of files sharing a band of their MinHash signatures are (see {@link SimilarityCandidates}).
+   */
+  private static final long MIN_PAIRS_FOR_CANDIDATES_FILTERING = 10_000;
 
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final TreeRootHolder rootHolder;
@@ -76,10 +93,11 @@ public class FileMoveDetectionStep implements ComputationStep {
   private final MutableMovedFilesRepository movedFilesRepository;
   private final SourceLinesHashRepository sourceLinesHash;
   private final ScoreMatrixDumper scoreMatrixDumper;
+  private final Configuration configuration;
 
   public FileMoveDetectionStep(AnalysisMetadataHolder analysisMetadataHolder, TreeRootHolder rootHolder, DbClient dbClient,
     FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository, SourceLinesHashRepository sourceLinesHash,
-    ScoreMatrixDumper scoreMatrixDumper) {
+    ScoreMatrixDumper scoreMatrixDumper, Configuration configuration) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.rootHolder = rootHolder;
     this.dbClient = dbClient;
@@ -87,6 +105,7 @@ public class FileMoveDetectionStep implements ComputationStep {
     this.movedFilesRepository = movedFilesRepository;
     this.sourceLinesHash = sourceLinesHash;
     this.scoreMatrixDumper = scoreMatrixDumper;
+    this.configuration = configuration;
   }
 
   @Override
@@ -215,28 +234,94 @@ public class FileMoveDetectionStep implements ComputationStep {
     // sort by highest line count first
     Arrays.sort(newFiles, SCORE_FILE_COMPARATOR);
     Arrays.sort(removedFiles, SCORE_FILE_COMPARATOR);
-    int[][] scoreMatrix = new int[removedFiles.length][newFiles.length];
+    ScoreMatrix.Builder scoreMatrix = new ScoreMatrix.Builder(removedFiles, newFiles);
     int lastNewFileIndex = newFiles.length - 1;
 
     Map<String, Integer> removedFilesIndexes = new HashMap<>(removedFileKeys.size());
+    long pairCount = 0;
     for (int removeFileIndex = 0; removeFileIndex < removedFiles.length; removeFileIndex++) {
       ScoreMatrix.ScoreFile removedFile = removedFiles[removeFileIndex];
-      int lowerBound = (int) Math.floor(removedFile.getLineCount() * LOWER_BOUND_RATIO);
-      int upperBound = (int) Math.ceil(removedFile.getLineCount() * UPPER_BOUND_RATIO);
+      int lowerBound = lowerBound(removedFile);
+      int upperBound = upperBound(removedFile);
       // no need to compute score if all files are out of bound, so no need to load line hashes from DB
       if (newFiles[0].getLineCount() <= lowerBound || newFiles[lastNewFileIndex].getLineCount() >= upperBound) {
         continue;
       }
       removedFilesIndexes.put(removedFile.getFileKey(), removeFileIndex);
+      pairCount += Math.max(0, indexOfFirstLineCountBelow(newFiles, lowerBound + 1) - indexOfFirstLineCountBelow(newFiles, upperBound));
     }
 
-    LineHashesWithKeyDtoResultHandler rowHandler = new LineHashesWithKeyDtoResultHandler(removedFilesIndexes, removedFiles,
-      newFiles, newFileSourcesByKey, scoreMatrix);
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      dbClient.fileSourceDao().scrollLineHashes(dbSession, removedFilesIndexes.keySet(), rowHandler);
+    int parallelism = configuration.getInt(PARALLELISM_PROPERTY).orElse(DEFAULT_PARALLELISM);
+    SimilarityCandidates candidates = null;
+    if (pairCount >= MIN_PAIRS_FOR_CANDIDATES_FILTERING || parallelism > 1) {
+      // line hashes of new files are loaded upfront as they can't be loaded concurrently
+      candidates = loadNewFiles(removedFiles, removedFilesIndexes.values(), newFiles, newFileSourcesByKey,
+        pairCount >= MIN_PAIRS_FOR_CANDIDATES_FILTERING);
+    }
+
+    try (PairScorer pairScorer = new PairScorer(parallelism)) {
+      LineHashesWithKeyDtoResultHandler rowHandler = new LineHashesWithKeyDtoResultHandler(removedFilesIndexes, removedFiles,
+        newFiles, newFileSourcesByKey, candidates, pairScorer, scoreMatrix);
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        dbClient.fileSourceDao().scrollLineHashes(dbSession, removedFilesIndexes.keySet(), rowHandler);
+      }
     }
 
-    return new ScoreMatrix(removedFiles, newFiles, scoreMatrix, rowHandler.getMaxScore());
+    return scoreMatrix.build();
+  }
+
+  private static int lowerBound(ScoreMatrix.ScoreFile file) {
+    return (int) Math.floor(file.getLineCount() * LOWER_BOUND_RATIO);
+  }
+
+  private static int upperBound(ScoreMatrix.ScoreFile file) {
+    return (int) Math.ceil(file.getLineCount() * UPPER_BOUND_RATIO);
+  }
+
+  /**
+   * Index of the first file with a line count strictly lower than the specified value, files being sorted by
+   * descending line count.
+   */
+  private static int indexOfFirstLineCountBelow(ScoreMatrix.ScoreFile[] files, int lineCount) {
+    int low = 0;
+    int high = files.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (files[mid].getLineCount() < lineCount) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Loads the line hashes of the new files which can match any of the removed files and, if {@code indexed} is
+   * {@code true}, indexes them by their MinHash signature.
+   */
+  @CheckForNull
+  private static SimilarityCandidates loadNewFiles(ScoreMatrix.ScoreFile[] removedFiles, Collection<Integer> removedFileIndexes,
+    ScoreMatrix.ScoreFile[] newFiles, Map<String, File> newFileSourcesByKey, boolean indexed) {
+    int minLineCount = Integer.MAX_VALUE;
+    int maxLineCount = Integer.MIN_VALUE;
+    for (int removedFileIndex : removedFileIndexes) {
+      minLineCount = Math.min(minLineCount, lowerBound(removedFiles[removedFileIndex]));
+      maxLineCount = Math.max(maxLineCount, upperBound(removedFiles[removedFileIndex]));
+    }
+    SimilarityCandidates candidates = indexed ? new SimilarityCandidates(newFiles.length) : null;
+    for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
+      ScoreMatrix.ScoreFile newFile = newFiles[newFileIndex];
+      if (newFile.getLineCount() <= minLineCount || newFile.getLineCount() >= maxLineCount) {
+        continue;
+      }
+      List<String> lineHashes = newFileSourcesByKey.get(newFile.getFileKey()).getLineHashes();
+      int[] signature = candidates == null ? null : SimilarityCandidates.signature(lineHashes);
+      if (signature != null) {
+        candidates.add(newFileIndex, signature);
+      }
+    }
+    return candidates;
   }
 
   private final class LineHashesWithKeyDtoResultHandler implements ResultHandler<LineHashesWithKeyDto> {
@@ -244,16 +329,20 @@ public class FileMoveDetectionStep implements ComputationStep {
     private final ScoreMatrix.ScoreFile[] removedFiles;
     private final ScoreMatrix.ScoreFile[] newFiles;
     private final Map<String, File> newFileSourcesByKey;
-    private final int[][] scoreMatrix;
-    private int maxScore;
+    @CheckForNull
+    private final SimilarityCandidates candidates;
+    private final PairScorer pairScorer;
+    private final ScoreMatrix.Builder scoreMatrix;
 
     private LineHashesWithKeyDtoResultHandler(Map<String, Integer> removedFilesIndexes, ScoreMatrix.ScoreFile[] removedFiles,
-      ScoreMatrix.ScoreFile[] newFiles, Map<String, File> newFileSourcesByKey,
-      int[][] scoreMatrix) {
+      ScoreMatrix.ScoreFile[] newFiles, Map<String, File> newFileSourcesByKey, @Nullable SimilarityCandidates candidates,
+      PairScorer pairScorer, ScoreMatrix.Builder scoreMatrix) {
       this.removedFilesIndexes = removedFilesIndexes;
       this.removedFiles = removedFiles;
       this.newFiles = newFiles;
       this.newFileSourcesByKey = newFileSourcesByKey;
+      this.candidates = candidates;
+      this.pairScorer = pairScorer;
       this.scoreMatrix = scoreMatrix;
     }
 
@@ -264,31 +353,97 @@ public class FileMoveDetectionStep implements ComputationStep {
         return;
       }
       int removeFileIndex = removedFilesIndexes.get(lineHashesDto.getKey());
+      File fileInDb = new FileImpl(lineHashesDto.getPath(), lineHashesDto.getLineHashes());
+      BitSet candidateIndexes = null;
+      if (candidates != null) {
+        int[] signature = SimilarityCandidates.signature(fileInDb.getLineHashes());
+        if (signature == null) {
+          return;
+        }
+        candidateIndexes = candidates.candidatesOf(signature);
+      }
+      BitSet finalCandidateIndexes = candidateIndexes;
+      pairScorer.submit(() -> score(removeFileIndex, fileInDb, finalCandidateIndexes));
+    }
+
+    private void score(int removeFileIndex, File fileInDb, @Nullable BitSet candidateIndexes) {
       ScoreMatrix.ScoreFile removedFile = removedFiles[removeFileIndex];
-      int lowerBound = (int) Math.floor(removedFile.getLineCount() * LOWER_BOUND_RATIO);
-      int upperBound = (int) Math.ceil(removedFile.getLineCount() * UPPER_BOUND_RATIO);
+      int lowerBound = lowerBound(removedFile);
+      int upperBound = upperBound(removedFile);
 
-      for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
+      for (int newFileIndex = indexOfFirstLineCountBelow(newFiles, upperBound); newFileIndex < newFiles.length; newFileIndex++) {
         ScoreMatrix.ScoreFile newFile = newFiles[newFileIndex];
-        if (newFile.getLineCount() >= upperBound) {
-          continue;
-        }
         if (newFile.getLineCount() <= lowerBound) {
           break;
         }
+        if (candidateIndexes != null && !candidateIndexes.get(newFileIndex)) {
+          continue;
+        }
 
-        File fileInDb = new FileImpl(lineHashesDto.getPath(), lineHashesDto.getLineHashes());
         File unmatchedFile = newFileSourcesByKey.get(newFile.getFileKey());
-        int score = fileSimilarity.score(fileInDb, unmatchedFile);
-        scoreMatrix[removeFileIndex][newFileIndex] = score;
-        if (score > maxScore) {
-          maxScore = score;
+        scoreMatrix.add(removeFileIndex, newFileIndex, fileSimilarity.score(fileInDb, unmatchedFile));
+      }
+    }
+  }
+
+  /**
+   * Runs the scoring of pairs of files either in the current thread or, when parallelism is greater than 1, in a
+   * dedicated pool of threads. In the latter case, the number of pending tasks (hence of line hashes of removed
+   * files held in memory) is bounded: tasks are not referenced once completed, only the first failure is kept.
+   */
+  private static final class PairScorer implements AutoCloseable {
+    @CheckForNull
+    private final ForkJoinPool pool;
+    private final int maxPendingTasks;
+    private final Semaphore pendingTasks;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private PairScorer(int parallelism) {
+      this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+      this.maxPendingTasks = Math.max(1, 2 * parallelism);
+      this.pendingTasks = new Semaphore(maxPendingTasks);
+    }
+
+    void submit(Runnable task) {
+      if (pool == null) {
+        task.run();
+        return;
+      }
+      rethrowFailure();
+      pendingTasks.acquireUninterruptibly();
+      pool.execute(() -> {
+        try {
+          task.run();
+        } catch (RuntimeException | Error e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          pendingTasks.release();
         }
+      });
+    }
+
+    private void rethrowFailure() {
+      Throwable t = failure.get();
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+      if (t != null) {
+        throw (RuntimeException) t;
       }
     }
 
-    int getMaxScore() {
-      return maxScore;
+    @Override
+    public void close() {
+      if (pool == null) {
+        return;
+      }
+      try {
+        // all the permits are available once all the tasks are completed
+        pendingTasks.acquireUninterruptibly(maxPendingTasks);
+        rethrowFailure();
+      } finally {
+        pool.shutdownNow();
+      }
     }
   }
 
@@ -21,26 +21,50 @@ package org.sonar.server.computation.task.projectanalysis.filemove;
 
 import java.util.Arrays;
 
+/**
+ * Scores of similarity between removed files and new files. Only the non-zero scores are stored, pairs of files
+ * which have not been scored (or have a score of 0) are reported with a score of 0.
+ */
 final class ScoreMatrix {
   private final ScoreFile[] removedFiles;
   private final ScoreFile[] newFiles;
-  private final int[][] scores;
+  /**
+   * Scored cells as {@code removedFileIndex << 32 | newFileIndex}, in ascending order
+   */
+  private final long[] cells;
+  private final int[] scores;
   private final int maxScore;
 
   public ScoreMatrix(ScoreFile[] removedFiles, ScoreFile[] newFiles, int[][] scores, int maxScore) {
+    this(removedFiles, newFiles, toBuilder(removedFiles, newFiles, scores), maxScore);
+  }
+
+  private ScoreMatrix(ScoreFile[] removedFiles, ScoreFile[] newFiles, Builder builder, int maxScore) {
     this.removedFiles = removedFiles;
     this.newFiles = newFiles;
-    this.scores = scores;
+    builder.sort();
+    this.cells = Arrays.copyOf(builder.cells, builder.size);
+    this.scores = Arrays.copyOf(builder.scores, builder.size);
     this.maxScore = maxScore;
   }
 
-  public void accept(ScoreMatrixVisitor visitor) {
-    for (int removedFileIndex = 0; removedFileIndex < removedFiles.length; removedFileIndex++) {
-      for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
-        int score = scores[removedFileIndex][newFileIndex];
-        visitor.visit(removedFiles[removedFileIndex], newFiles[newFileIndex], score);
+  private static Builder toBuilder(ScoreFile[] removedFiles, ScoreFile[] newFiles, int[][] scores) {
+    Builder builder = new Builder(removedFiles, newFiles);
+    for (int removedFileIndex = 0; removedFileIndex < scores.length; removedFileIndex++) {
+      for (int newFileIndex = 0; newFileIndex < scores[removedFileIndex].length; newFileIndex++) {
+        builder.add(removedFileIndex, newFileIndex, scores[removedFileIndex][newFileIndex]);
       }
     }
+    return builder;
+  }
+
+  /**
+   * Visits the non-zero scores, ordered by removed file then by new file.
+   */
+  public void accept(ScoreMatrixVisitor visitor) {
+    for (int i = 0; i < cells.length; i++) {
+      visitor.visit(removedFiles[removedFileIndex(cells[i])], newFiles[newFileIndex(cells[i])], scores[i]);
+    }
   }
 
   public String toCsv(char separator) {
@@ -49,18 +73,19 @@ final class ScoreMatrix {
     res.append("newFiles=>").append(separator);
     Arrays.stream(newFiles).forEach(f -> res.append(f.getFileKey()).append('(').append(f.getLineCount()).append(')').append(separator));
     // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private ScoreFile previousRemovedFile = null;
-
-      @Override
-      public void visit(ScoreFile removedFile, ScoreFile newFile, int score) {
-        if (previousRemovedFile != removedFile) {
-          res.append('\n').append(removedFile.getFileKey()).append('(').append(removedFile.getLineCount()).append(')').append(separator);
-          previousRemovedFile = removedFile;
+    int cellIndex = 0;
+    for (int removedFileIndex = 0; removedFileIndex < removedFiles.length; removedFileIndex++) {
+      ScoreFile removedFile = removedFiles[removedFileIndex];
+      res.append('\n').append(removedFile.getFileKey()).append('(').append(removedFile.getLineCount()).append(')').append(separator);
+      for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
+        int score = 0;
+        if (cellIndex < cells.length && cells[cellIndex] == toCell(removedFileIndex, newFileIndex)) {
+          score = scores[cellIndex];
+          cellIndex++;
         }
         res.append(score).append(separator);
       }
-    });
+    }
     return res.toString();
   }
 
@@ -73,6 +98,18 @@ final class ScoreMatrix {
     return maxScore;
   }
 
+  private static long toCell(int removedFileIndex, int newFileIndex) {
+    return ((long) removedFileIndex << 32) | newFileIndex;
+  }
+
+  private static int removedFileIndex(long cell) {
+    return (int) (cell >>> 32);
+  }
+
+  private static int newFileIndex(long cell) {
+    return (int) cell;
+  }
+
   static class ScoreFile {
     private final String fileKey;
     private final int lineCount;
@@ -91,4 +128,53 @@ final class ScoreMatrix {
     }
 
   }
+
+  /**
+   * Collects the scores of pairs of files. Scores can be added concurrently and in any order.
+   */
+  static final class Builder {
+    private final ScoreFile[] removedFiles;
+    private final ScoreFile[] newFiles;
+    private long[] cells = new long[16];
+    private int[] scores = new int[16];
+    private int size = 0;
+    private int maxScore = 0;
+
+    Builder(ScoreFile[] removedFiles, ScoreFile[] newFiles) {
+      this.removedFiles = removedFiles;
+      this.newFiles = newFiles;
+    }
+
+    synchronized Builder add(int removedFileIndex, int newFileIndex, int score) {
+      if (score == 0) {
+        return this;
+      }
+      if (size == cells.length) {
+        cells = Arrays.copyOf(cells, size * 2);
+        scores = Arrays.copyOf(scores, size * 2);
+      }
+      cells[size] = toCell(removedFileIndex, newFileIndex);
+      scores[size] = score;
+      size++;
+      if (score > maxScore) {
+        maxScore = score;
+      }
+      return this;
+    }
+
+    private void sort() {
+      long[] sortedCells = Arrays.copyOf(cells, size);
+      Arrays.sort(sortedCells);
+      int[] sortedScores = new int[size];
+      for (int i = 0; i < size; i++) {
+        sortedScores[Arrays.binarySearch(sortedCells, cells[i])] = scores[i];
+      }
+      this.cells = sortedCells;
+      this.scores = sortedScores;
+    }
+
+    synchronized ScoreMatrix build() {
+      return new ScoreMatrix(removedFiles, newFiles, this, maxScore);
+    }
+  }
 }
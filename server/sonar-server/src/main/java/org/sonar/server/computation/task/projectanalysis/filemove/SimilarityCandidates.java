@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+/**
+ * Index of files by MinHash signature of their set of line hashes, which allows to find the files likely to be
+ * similar to a given file without computing the similarity score of every pair of files.
+ * <p>
+ * Signatures are split into {@link #BANDS} bands of {@link #ROWS} values (Locality Sensitive Hashing). Two files are
+ * candidates as soon as one of their bands is identical, which happens with a probability of
+ * {@code 1 - (1 - s^ROWS)^BANDS} for files whose sets of line hashes have a Jaccard similarity of {@code s}: about
+ * 99.88% for {@code s = 0.7}, which is below the similarity of files with a score of
+ * {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}, but only about 35% for {@code s = 0.3}.
+ * </p>
+ */
+final class SimilarityCandidates {
+  private static final int ROWS = 3;
+  private static final int BANDS = 16;
+  private static final int SIGNATURE_SIZE = ROWS * BANDS;
+  private static final int[] SEEDS = new int[SIGNATURE_SIZE];
+
+  static {
+    int seed = 0x2545F491;
+    for (int i = 0; i < SIGNATURE_SIZE; i++) {
+      // xorshift, for deterministic and well distributed seeds
+      seed ^= seed << 13;
+      seed ^= seed >>> 17;
+      seed ^= seed << 5;
+      SEEDS[i] = seed;
+    }
+  }
+
+  private final Map<Long, List<Integer>> fileIndexesByBand = new HashMap<>();
+  private final int fileCount;
+
+  SimilarityCandidates(int fileCount) {
+    this.fileCount = fileCount;
+  }
+
+  /**
+   * MinHash signature of the specified line hashes, {@code null} if there is no line hash.
+   */
+  @CheckForNull
+  static int[] signature(List<String> lineHashes) {
+    if (lineHashes.isEmpty()) {
+      return null;
+    }
+    int[] signature = new int[SIGNATURE_SIZE];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    for (String lineHash : lineHashes) {
+      int hash = lineHash.hashCode();
+      for (int i = 0; i < SIGNATURE_SIZE; i++) {
+        int value = mix(hash ^ SEEDS[i]);
+        if (value < signature[i]) {
+          signature[i] = value;
+        }
+      }
+    }
+    return signature;
+  }
+
+  /**
+   * Finalization step of MurmurHash3
+   */
+  private static int mix(int h) {
+    int res = h;
+    res ^= res >>> 16;
+    res *= 0x85ebca6b;
+    res ^= res >>> 13;
+    res *= 0xc2b2ae35;
+    res ^= res >>> 16;
+    return res;
+  }
+
+  void add(int fileIndex, int[] signature) {
+    for (int band = 0; band < BANDS; band++) {
+      fileIndexesByBand.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(fileIndex);
+    }
+  }
+
+  /**
+   * Indexes of the files which share at least one band with the specified signature.
+   */
+  BitSet candidatesOf(int[] signature) {
+    BitSet res = new BitSet(fileCount);
+    for (int band = 0; band < BANDS; band++) {
+      List<Integer> fileIndexes = fileIndexesByBand.get(bandKey(signature, band));
+      if (fileIndexes != null) {
+        fileIndexes.forEach(res::set);
+      }
+    }
+    return res;
+  }
+
+  private static long bandKey(int[] signature, int band) {
+    long res = band;
+    for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+      res = res * 0x9E3779B97F4A7C15L + signature[i];
+    }
+    return res;
+  }
+}
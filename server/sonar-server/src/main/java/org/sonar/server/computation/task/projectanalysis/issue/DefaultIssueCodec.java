@@ -0,0 +1,405 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.DiskCacheCodec;
+
+/**
+ * Binary encoding of {@link DefaultIssue} stored in {@link IssueCache}. It replaces Java serialization, which
+ * is slow and verbose because of class descriptors being written for each issue.
+ * <p>
+ * The format is not versioned as the cache lives only during the processing of a single Compute Engine task.
+ * </p>
+ */
+class DefaultIssueCodec implements DiskCacheCodec<DefaultIssue> {
+
+  private static final int NULL_VALUE = 0;
+  private static final int STRING_VALUE = 1;
+  private static final int LONG_VALUE = 2;
+  private static final int SERIALIZED_VALUE = 3;
+  private static final int LOCATIONS_VALUE = 4;
+
+  private static final RuleType[] RULE_TYPES = RuleType.values();
+
+  @Override
+  public void write(DefaultIssue issue, CodedOutputStream output) throws IOException {
+    writeNullableString(output, issue.key());
+    output.writeInt32NoTag(issue.type() == null ? -1 : issue.type().ordinal());
+    writeNullableString(output, issue.componentUuid());
+    writeNullableString(output, issue.componentKey());
+    writeNullableString(output, issue.moduleUuid());
+    writeNullableString(output, issue.moduleUuidPath());
+    writeNullableString(output, issue.projectUuid());
+    writeNullableString(output, issue.projectKey());
+    RuleKey ruleKey = issue.ruleKey();
+    output.writeBoolNoTag(ruleKey != null);
+    if (ruleKey != null) {
+      output.writeStringNoTag(ruleKey.repository());
+      output.writeStringNoTag(ruleKey.rule());
+    }
+    writeNullableString(output, issue.language());
+    writeNullableString(output, issue.severity());
+    output.writeBoolNoTag(issue.manualSeverity());
+    writeNullableString(output, issue.message());
+    Integer line = issue.line();
+    output.writeBoolNoTag(line != null);
+    if (line != null) {
+      output.writeInt32NoTag(line);
+    }
+    Double gap = issue.gap();
+    output.writeBoolNoTag(gap != null);
+    if (gap != null) {
+      output.writeDoubleNoTag(gap);
+    }
+    writeNullableLong(output, issue.effortInMinutes());
+    writeNullableString(output, issue.status());
+    writeNullableString(output, issue.resolution());
+    writeNullableString(output, issue.assignee());
+    writeNullableString(output, issue.checksum());
+    writeStringMap(output, issue.attributes());
+    writeNullableString(output, issue.authorLogin());
+    writeComments(output, issue.defaultIssueComments());
+    writeTags(output, issue.tags());
+    writeValue(output, issue.getLocations());
+    output.writeBoolNoTag(issue.isFromExternalRuleEngine());
+    writeNullableDate(output, issue.creationDate());
+    writeNullableDate(output, issue.updateDate());
+    writeNullableDate(output, issue.closeDate());
+    writeChanges(output, issue);
+    output.writeBoolNoTag(issue.isNew());
+    output.writeBoolNoTag(issue.isCopied());
+    output.writeBoolNoTag(issue.isBeingClosed());
+    output.writeBoolNoTag(issue.isOnDisabledRule());
+    output.writeBoolNoTag(issue.isChanged());
+    output.writeBoolNoTag(issue.mustSendNotifications());
+    writeNullableLong(output, issue.selectedAt());
+  }
+
+  @Override
+  public DefaultIssue read(CodedInputStream input) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readNullableString(input));
+    int type = input.readInt32();
+    issue.setType(type < 0 ? null : RULE_TYPES[type]);
+    issue.setComponentUuid(readNullableString(input));
+    issue.setComponentKey(readNullableString(input));
+    issue.setModuleUuid(readNullableString(input));
+    issue.setModuleUuidPath(readNullableString(input));
+    issue.setProjectUuid(readNullableString(input));
+    issue.setProjectKey(readNullableString(input));
+    if (input.readBool()) {
+      issue.setRuleKey(RuleKey.of(input.readString(), input.readString()));
+    }
+    issue.setLanguage(readNullableString(input));
+    issue.setSeverity(readNullableString(input));
+    issue.setManualSeverity(input.readBool());
+    issue.setMessage(readNullableString(input));
+    if (input.readBool()) {
+      issue.setLine(input.readInt32());
+    }
+    if (input.readBool()) {
+      issue.setGap(input.readDouble());
+    }
+    Long effort = readNullableLong(input);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    String status = readNullableString(input);
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(readNullableString(input));
+    issue.setAssigneeUuid(readNullableString(input));
+    issue.setChecksum(readNullableString(input));
+    issue.setAttributes(readStringMap(input));
+    issue.setAuthorLogin(readNullableString(input));
+    readComments(input, issue);
+    Set<String> tags = readTags(input);
+    if (tags != null) {
+      issue.setTags(tags);
+    }
+    issue.setLocations(readValue(input));
+    issue.setIsFromExternalRuleEngine(input.readBool());
+    issue.setCreationDate(readNullableDate(input));
+    issue.setUpdateDate(readNullableDate(input));
+    issue.setCloseDate(readNullableDate(input));
+    readChanges(input, issue);
+    issue.setNew(input.readBool());
+    issue.setCopied(input.readBool());
+    issue.setBeingClosed(input.readBool());
+    issue.setOnDisabledRule(input.readBool());
+    issue.setChanged(input.readBool());
+    issue.setSendNotifications(input.readBool());
+    issue.setSelectedAt(readNullableLong(input));
+    return issue;
+  }
+
+  /**
+   * The current change is also referenced (possibly several times) by the list of changes. References are
+   * kept by writing the distinct instances first, then the positions of the current change and of the changes
+   * in this table.
+   */
+  private static void writeChanges(CodedOutputStream output, DefaultIssue issue) throws IOException {
+    FieldDiffs currentChange = issue.currentChange();
+    List<FieldDiffs> changes = issue.changes();
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    List<FieldDiffs> distinct = new ArrayList<>();
+    if (currentChange != null) {
+      indexes.put(currentChange, 0);
+      distinct.add(currentChange);
+    }
+    for (FieldDiffs change : changes) {
+      if (!indexes.containsKey(change)) {
+        indexes.put(change, distinct.size());
+        distinct.add(change);
+      }
+    }
+
+    output.writeUInt32NoTag(distinct.size());
+    for (FieldDiffs diffs : distinct) {
+      writeFieldDiffs(output, diffs);
+    }
+    output.writeBoolNoTag(currentChange != null);
+    output.writeUInt32NoTag(changes.size());
+    for (FieldDiffs change : changes) {
+      output.writeUInt32NoTag(indexes.get(change));
+    }
+  }
+
+  private static void readChanges(CodedInputStream input, DefaultIssue issue) throws IOException {
+    int distinctCount = input.readUInt32();
+    List<FieldDiffs> distinct = new ArrayList<>(distinctCount);
+    for (int i = 0; i < distinctCount; i++) {
+      distinct.add(readFieldDiffs(input));
+    }
+    if (input.readBool()) {
+      issue.setCurrentChange(distinct.get(0));
+    }
+    int changesCount = input.readUInt32();
+    if (changesCount > 0) {
+      List<FieldDiffs> changes = new ArrayList<>(changesCount);
+      for (int i = 0; i < changesCount; i++) {
+        changes.add(distinct.get(input.readUInt32()));
+      }
+      // replaces the list initialized by setCurrentChange()
+      issue.setChanges(changes);
+    }
+  }
+
+  private static void writeFieldDiffs(CodedOutputStream output, FieldDiffs diffs) throws IOException {
+    writeNullableString(output, diffs.issueKey());
+    writeNullableString(output, diffs.userUuid());
+    writeNullableDate(output, diffs.creationDate());
+    Map<String, FieldDiffs.Diff> entries = diffs.diffs();
+    output.writeUInt32NoTag(entries.size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : entries.entrySet()) {
+      output.writeStringNoTag(entry.getKey());
+      writeValue(output, entry.getValue().oldValue());
+      writeValue(output, entry.getValue().newValue());
+    }
+  }
+
+  private static FieldDiffs readFieldDiffs(CodedInputStream input) throws IOException {
+    FieldDiffs diffs = new FieldDiffs();
+    diffs.setIssueKey(readNullableString(input));
+    diffs.setUserUuid(readNullableString(input));
+    diffs.setCreationDate(readNullableDate(input));
+    int count = input.readUInt32();
+    for (int i = 0; i < count; i++) {
+      String field = input.readString();
+      Serializable oldValue = (Serializable) readValue(input);
+      Serializable newValue = (Serializable) readValue(input);
+      diffs.setDiff(field, oldValue, newValue);
+    }
+    return diffs;
+  }
+
+  private static void writeComments(CodedOutputStream output, List<DefaultIssueComment> comments) throws IOException {
+    output.writeUInt32NoTag(comments.size());
+    for (DefaultIssueComment comment : comments) {
+      writeNullableString(output, comment.issueKey());
+      writeNullableString(output, comment.key());
+      writeNullableString(output, comment.userUuid());
+      writeNullableString(output, comment.markdownText());
+      writeNullableDate(output, comment.createdAt());
+      writeNullableDate(output, comment.updatedAt());
+      output.writeBoolNoTag(comment.isNew());
+    }
+  }
+
+  private static void readComments(CodedInputStream input, DefaultIssue issue) throws IOException {
+    int count = input.readUInt32();
+    for (int i = 0; i < count; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setIssueKey(readNullableString(input))
+        .setKey(readNullableString(input))
+        .setUserUuid(readNullableString(input))
+        .setMarkdownText(readNullableString(input))
+        .setCreatedAt(readNullableDate(input))
+        .setUpdatedAt(readNullableDate(input))
+        .setNew(input.readBool());
+      issue.addComment(comment);
+    }
+  }
+
+  private static void writeTags(CodedOutputStream output, Set<String> tags) throws IOException {
+    output.writeUInt32NoTag(tags.size());
+    for (String tag : tags) {
+      output.writeStringNoTag(tag);
+    }
+  }
+
+  @CheckForNull
+  private static Set<String> readTags(CodedInputStream input) throws IOException {
+    int count = input.readUInt32();
+    if (count == 0) {
+      return null;
+    }
+    Set<String> tags = new LinkedHashSet<>(count);
+    for (int i = 0; i < count; i++) {
+      tags.add(input.readString());
+    }
+    return tags;
+  }
+
+  private static void writeStringMap(CodedOutputStream output, Map<String, String> map) throws IOException {
+    output.writeUInt32NoTag(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      output.writeStringNoTag(entry.getKey());
+      output.writeStringNoTag(entry.getValue());
+    }
+  }
+
+  @CheckForNull
+  private static Map<String, String> readStringMap(CodedInputStream input) throws IOException {
+    int count = input.readUInt32();
+    if (count == 0) {
+      return null;
+    }
+    Map<String, String> map = new HashMap<>(count);
+    for (int i = 0; i < count; i++) {
+      map.put(input.readString(), input.readString());
+    }
+    return map;
+  }
+
+  private static void writeValue(CodedOutputStream output, @Nullable Object value) throws IOException {
+    if (value == null) {
+      output.writeUInt32NoTag(NULL_VALUE);
+    } else if (value instanceof String) {
+      output.writeUInt32NoTag(STRING_VALUE);
+      output.writeStringNoTag((String) value);
+    } else if (value instanceof Long) {
+      output.writeUInt32NoTag(LONG_VALUE);
+      output.writeInt64NoTag((Long) value);
+    } else if (value instanceof DbIssues.Locations) {
+      output.writeUInt32NoTag(LOCATIONS_VALUE);
+      output.writeBytesNoTag(((DbIssues.Locations) value).toByteString());
+    } else {
+      // unusual type, fallback to Java serialization
+      output.writeUInt32NoTag(SERIALIZED_VALUE);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(value);
+      }
+      output.writeByteArrayNoTag(bytes.toByteArray());
+    }
+  }
+
+  @CheckForNull
+  private static Object readValue(CodedInputStream input) throws IOException {
+    int valueType = input.readUInt32();
+    switch (valueType) {
+      case NULL_VALUE:
+        return null;
+      case STRING_VALUE:
+        return input.readString();
+      case LONG_VALUE:
+        return input.readInt64();
+      case LOCATIONS_VALUE:
+        return DbIssues.Locations.parseFrom(input.readBytes());
+      case SERIALIZED_VALUE:
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(input.readByteArray()))) {
+          return objectInput.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to deserialize value", e);
+        }
+      default:
+        throw new IllegalStateException("Unsupported type of value: " + valueType);
+    }
+  }
+
+  private static void writeNullableString(CodedOutputStream output, @Nullable String s) throws IOException {
+    output.writeBoolNoTag(s != null);
+    if (s != null) {
+      output.writeStringNoTag(s);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullableString(CodedInputStream input) throws IOException {
+    return input.readBool() ? input.readString() : null;
+  }
+
+  private static void writeNullableLong(CodedOutputStream output, @Nullable Long l) throws IOException {
+    output.writeBoolNoTag(l != null);
+    if (l != null) {
+      output.writeInt64NoTag(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readNullableLong(CodedInputStream input) throws IOException {
+    return input.readBool() ? input.readInt64() : null;
+  }
+
+  private static void writeNullableDate(CodedOutputStream output, @Nullable Date date) throws IOException {
+    writeNullableLong(output, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readNullableDate(CodedInputStream input) throws IOException {
+    Long time = readNullableLong(input);
+    return time == null ? null : new Date(time);
+  }
+}
@@ -65,6 +65,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
       fillExistingOpenIssues(component, tracking.issuesToMerge(), cacheAppender);
       closeIssues(component, tracking.issuesToClose(), cacheAppender);
       copyIssues(component, tracking.issuesToCopy(), cacheAppender);
+      keepIssues(component, tracking.issuesToKeep(), cacheAppender);
       issueVisitors.afterComponent(component);
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to process issues of component '%s'", component.getKey()), e);
@@ -110,6 +111,12 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
+  private void keepIssues(Component component, Iterable<DefaultIssue> issues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+    for (DefaultIssue issue : issues) {
+      process(component, issue, cacheAppender);
+    }
+  }
+
   private void closeIssues(Component component, Iterable<DefaultIssue> issues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
     for (DefaultIssue issue : issues) {
       // TODO should replace flag "beingClosed" by express call to transition "automaticClose"
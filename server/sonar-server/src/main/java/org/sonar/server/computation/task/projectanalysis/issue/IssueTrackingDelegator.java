@@ -25,6 +25,7 @@ import org.sonar.db.component.BranchType;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
@@ -44,7 +45,11 @@ public class IssueTrackingDelegator {
   }
 
   public TrackingResult track(Component component) {
-    if (analysisMetadataHolder.isShortLivingBranch() || analysisMetadataHolder.isPullRequest()) {
+    if (FileAttributes.isCarriedOver(component)) {
+      // file was not analyzed, there are no raw issues to track. Checked before any tracker is executed, as trackers
+      // would close all the base issues.
+      return new TrackingResult(emptyMap(), emptyMap(), emptyList(), emptyList(), tracker.loadBaseIssues(component));
+    } else if (analysisMetadataHolder.isShortLivingBranch() || analysisMetadataHolder.isPullRequest()) {
       return standardResult(shortBranchTracker.track(component));
     } else if (isFirstAnalysisSecondaryLongLivingBranch()) {
       Tracking<DefaultIssue, DefaultIssue> tracking = mergeBranchTracker.track(component);
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.Collection;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
@@ -40,4 +41,11 @@ public class TrackerExecution {
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
     return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
   }
+
+  /**
+   * Open issues of the component in the previous analysis, without tracking them against raw issues.
+   */
+  public Collection<DefaultIssue> loadBaseIssues(Component component) {
+    return baseInputFactory.create(component).getIssues();
+  }
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.sonar.core.issue.DefaultIssue;
@@ -28,13 +29,20 @@ public class TrackingResult {
   private final Map<DefaultIssue, DefaultIssue> issuesToMerge;
   private final Iterable<DefaultIssue> issuesToClose;
   private final Iterable<DefaultIssue> newIssues;
+  private final Iterable<DefaultIssue> issuesToKeep;
 
   public TrackingResult(Map<DefaultIssue, DefaultIssue> issuesToCopy, Map<DefaultIssue, DefaultIssue> issuesToMerge,
     Iterable<DefaultIssue> issuesToClose, Iterable<DefaultIssue> newIssues) {
+    this(issuesToCopy, issuesToMerge, issuesToClose, newIssues, Collections.emptyList());
+  }
+
+  public TrackingResult(Map<DefaultIssue, DefaultIssue> issuesToCopy, Map<DefaultIssue, DefaultIssue> issuesToMerge,
+    Iterable<DefaultIssue> issuesToClose, Iterable<DefaultIssue> newIssues, Iterable<DefaultIssue> issuesToKeep) {
     this.issuesToCopy = issuesToCopy;
     this.issuesToMerge = issuesToMerge;
     this.issuesToClose = issuesToClose;
     this.newIssues = newIssues;
+    this.issuesToKeep = issuesToKeep;
   }
 
   public Map<DefaultIssue, DefaultIssue> issuesToCopy() {
@@ -52,4 +60,11 @@ public class TrackingResult {
   public Iterable<DefaultIssue> newIssues() {
     return newIssues;
   }
+
+  /**
+   * Open issues of a file carried over from the previous analysis. They are kept unchanged.
+   */
+  public Iterable<DefaultIssue> issuesToKeep() {
+    return issuesToKeep;
+  }
 }
@@ -0,0 +1,356 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures and is designed to hold the measures of
+ * large projects with as few objects as possible.
+ * <p>
+ * Components are indexed by their {@link Component.ReportAttributes#getRef() report ref} and metrics by a dense id
+ * assigned the first time a measure is stored for them. The measures of a component are stored in arrays ordered by
+ * metric id. Measures with a numeric or boolean value and neither data, developer, variation nor quality gate status,
+ * which are the vast majority of the measures of files, are stored as a primitive {@code long} (the bits of their
+ * {@code double} value) and a {@link Measure} is created for them each time they are read.
+ * </p>
+ * <p>
+ * This class is not thread safe. Intended to be used as a delegate of other MeasureRepository implementations (hence
+ * the final keyword).
+ * </p>
+ */
+public final class ArrayBasedRawMeasureRepository implements MeasureRepository {
+  private static final int INITIAL_COMPONENT_CAPACITY = 1_024;
+
+  private final Map<String, Integer> metricIdsByKey = new HashMap<>();
+  private final List<Metric> metricsById = new ArrayList<>();
+  private ComponentMeasures[] measuresByRef = new ComponentMeasures[INITIAL_COMPONENT_CAPACITY];
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    return Optional.fromNullable(find(component, metric, null));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(component, metric, measure.getDeveloper()) != null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(component, metric, measure.getDeveloper()) == null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+      measure.getValueType(), metric.getType().getValueType());
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+    ComponentMeasures componentMeasures = get(component);
+    Integer metricId = metricIdsByKey.get(metric.getKey());
+    if (componentMeasures == null || metricId == null) {
+      return Collections.emptySet();
+    }
+    int from = componentMeasures.indexOf(metricId);
+    int to = componentMeasures.endOf(from, metricId);
+    if (to - from == 1) {
+      return Collections.singleton(componentMeasures.measureAt(from));
+    }
+    Set<Measure> res = new HashSet<>(to - from);
+    for (int i = from; i < to; i++) {
+      res.add(componentMeasures.measureAt(i));
+    }
+    return res;
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    ComponentMeasures componentMeasures = get(component);
+    if (componentMeasures == null) {
+      return ImmutableSetMultimap.of();
+    }
+
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (int i = 0; i < componentMeasures.size; i++) {
+      builder.put(metricsById.get(componentMeasures.metricIds[i]).getKey(), componentMeasures.measureAt(i));
+    }
+    return builder.build();
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    int metricId = toMetricId(metric);
+    ComponentMeasures componentMeasures = getOrCreate(component);
+    int index = componentMeasures.indexOf(metricId, measure.getDeveloper());
+    if (index >= 0) {
+      if (overridePolicy == OverridePolicy.OVERRIDE) {
+        componentMeasures.set(index, metric, measure);
+      }
+    } else {
+      componentMeasures.insert(componentMeasures.indexOf(metricId), metricId, metric, measure);
+    }
+  }
+
+  @CheckForNull
+  private Measure find(Component component, Metric metric, @Nullable Developer developer) {
+    ComponentMeasures componentMeasures = get(component);
+    Integer metricId = metricIdsByKey.get(metric.getKey());
+    if (componentMeasures == null || metricId == null) {
+      return null;
+    }
+    int index = componentMeasures.indexOf(metricId, developer);
+    return index < 0 ? null : componentMeasures.measureAt(index);
+  }
+
+  private int toMetricId(Metric metric) {
+    Integer metricId = metricIdsByKey.get(metric.getKey());
+    if (metricId == null) {
+      metricId = metricsById.size();
+      metricsById.add(metric);
+      metricIdsByKey.put(metric.getKey(), metricId);
+    }
+    return metricId;
+  }
+
+  @CheckForNull
+  private ComponentMeasures get(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    return ref < measuresByRef.length ? measuresByRef[ref] : null;
+  }
+
+  private ComponentMeasures getOrCreate(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    if (ref >= measuresByRef.length) {
+      measuresByRef = Arrays.copyOf(measuresByRef, Math.max(ref + 1, measuresByRef.length * 2));
+    }
+    ComponentMeasures res = measuresByRef[ref];
+    if (res == null) {
+      res = new ComponentMeasures();
+      measuresByRef[ref] = res;
+    }
+    return res;
+  }
+
+  private final class ComponentMeasures {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int size = 0;
+    /**
+     * Ordered by ascending metric id. A metric id appears more than once only when there are developer measures.
+     */
+    private int[] metricIds = new int[INITIAL_CAPACITY];
+    /**
+     * Bits of the value of the measure when it is stored as a primitive, meaningless otherwise.
+     */
+    private long[] values = new long[INITIAL_CAPACITY];
+    /**
+     * {@code null} when the measure is stored as a primitive.
+     */
+    private Measure[] measures = new Measure[INITIAL_CAPACITY];
+
+    /**
+     * Index of the first measure of the specified metric or, if there is none, index at which such a measure
+     * must be inserted.
+     */
+    private int indexOf(int metricId) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (metricIds[mid] < metricId) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private int endOf(int from, int metricId) {
+      int i = from;
+      while (i < size && metricIds[i] == metricId) {
+        i++;
+      }
+      return i;
+    }
+
+    /**
+     * Index of the measure of the specified metric and developer, or -1 if there is none.
+     */
+    private int indexOf(int metricId, @Nullable Developer developer) {
+      int from = indexOf(metricId);
+      int to = endOf(from, metricId);
+      for (int i = from; i < to; i++) {
+        Measure measure = measures[i];
+        Developer measureDeveloper = measure == null ? null : measure.getDeveloper();
+        if (measureDeveloper == developer) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private void insert(int index, int metricId, Metric metric, Measure measure) {
+      if (size == metricIds.length) {
+        int capacity = size * 2;
+        metricIds = Arrays.copyOf(metricIds, capacity);
+        values = Arrays.copyOf(values, capacity);
+        measures = Arrays.copyOf(measures, capacity);
+      }
+      int moved = size - index;
+      if (moved > 0) {
+        System.arraycopy(metricIds, index, metricIds, index + 1, moved);
+        System.arraycopy(values, index, values, index + 1, moved);
+        System.arraycopy(measures, index, measures, index + 1, moved);
+      }
+      metricIds[index] = metricId;
+      size++;
+      set(index, metric, measure);
+    }
+
+    private void set(int index, Metric metric, Measure measure) {
+      if (isStorableAsPrimitive(metric, measure)) {
+        values[index] = Double.doubleToRawLongBits(primitiveValue(measure));
+        measures[index] = null;
+      } else {
+        values[index] = 0L;
+        measures[index] = measure;
+      }
+    }
+
+    private Measure measureAt(int index) {
+      Measure measure = measures[index];
+      if (measure != null) {
+        return measure;
+      }
+      Metric metric = metricsById.get(metricIds[index]);
+      double value = Double.longBitsToDouble(values[index]);
+      Measure.NewMeasureBuilder builder = Measure.newMeasureBuilder();
+      switch (metric.getType().getValueType()) {
+        case BOOLEAN:
+          return builder.create(value == 1.0d);
+        case INT:
+          return builder.create((int) value);
+        case LONG:
+          return builder.create((long) value);
+        case DOUBLE:
+          return builder.create(value, metric.getDecimalScale());
+        default:
+          throw new IllegalStateException("Unsupported primitive value type " + metric.getType().getValueType());
+      }
+    }
+  }
+
+  private static boolean isStorableAsPrimitive(Metric metric, Measure measure) {
+    if (measure.getDeveloper() != null || measure.getData() != null || measure.hasVariation() || measure.hasQualityGateStatus()) {
+      return false;
+    }
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+        return true;
+      case DOUBLE:
+        // value is scaled again when the Measure is re-created
+        double value = measure.getDoubleValue();
+        return BigDecimal.valueOf(value).setScale(metric.getDecimalScale(), RoundingMode.HALF_UP).doubleValue() == value;
+      default:
+        return false;
+    }
+  }
+
+  private static double primitiveValue(Measure measure) {
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+        return measure.getBooleanValue() ? 1.0d : 0.0d;
+      case INT:
+        return measure.getIntValue();
+      case LONG:
+        return measure.getLongValue();
+      case DOUBLE:
+        return measure.getDoubleValue();
+      default:
+        throw new IllegalArgumentException("Unsupported primitive value type " + measure.getValueType());
+    }
+  }
+}
@@ -32,6 +32,10 @@ public interface MeasureRepository {
    * Retrieves the base measure (ie. the one currently existing in DB) for the specified {@link Component} for
    * the specified {@link MetricImpl} if it exists.
    * <p>
+   * Measures of files are not historized: the base measure of a file carried over from the previous analysis is its
+   * live measure.
+   * </p>
+   * <p>
    * This method searches for Measure which are specific to the Component and not associated to a rule or a
    * characteristic.
    * </p>
@@ -21,41 +21,62 @@ package org.sonar.server.computation.task.projectanalysis.measure;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.ReportMetricValidator;
 
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
-import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
+  private final ArrayBasedRawMeasureRepository delegate = new ArrayBasedRawMeasureRepository();
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
   private final ReportMetricValidator reportMetricValidator;
+  private final TreeRootHolder treeRootHolder;
 
   private MeasureDtoToMeasure measureTransformer = new MeasureDtoToMeasure();
-  private final Set<Integer> loadedComponents = new HashSet<>();
+  private LiveMeasureDtoToMeasure liveMeasureTransformer = new LiveMeasureDtoToMeasure();
+  private final BitSet loadedComponents = new BitSet();
+  private Map<Integer, Metric> reportMetricsById;
+  /**
+   * Live measures of the files carried over from the previous analysis, by component uuid and metric id. Loaded
+   * at once for all these files, on first access.
+   */
+  private Map<String, Map<Integer, LiveMeasureDto>> previousMeasuresByCarriedOverFileUuid;
 
   public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository,
-    ReportMetricValidator reportMetricValidator) {
+    ReportMetricValidator reportMetricValidator, TreeRootHolder treeRootHolder) {
     this.dbClient = dbClient;
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure();
     this.metricRepository = metricRepository;
+    this.treeRootHolder = treeRootHolder;
   }
 
   @Override
@@ -64,6 +85,11 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     requireNonNull(metric);
 
+    if (FileAttributes.isCarriedOver(component)) {
+      // measures of files are not historized, the live measure is the one of the last analysis
+      LiveMeasureDto liveMeasureDto = getPreviousMeasures(component).get(metric.getId());
+      return liveMeasureTransformer.toMeasure(liveMeasureDto, metric);
+    }
     try (DbSession dbSession = dbClient.openSession(false)) {
       java.util.Optional<MeasureDto> measureDto = dbClient.measureDao().selectLastMeasure(dbSession, component.getUuid(), metric.getKey());
       if (measureDto.isPresent()) {
@@ -108,11 +134,17 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   }
 
   private void loadBatchMeasuresForComponent(Component component) {
-    if (loadedComponents.contains(component.getReportAttributes().getRef())) {
+    int ref = component.getReportAttributes().getRef();
+    if (loadedComponents.get(ref)) {
+      return;
+    }
+    if (FileAttributes.isCarriedOver(component)) {
+      loadPreviousMeasuresForComponent(component);
+      loadedComponents.set(ref);
       return;
     }
 
-    try (CloseableIterator<ScannerReport.Measure> readIt = reportReader.readComponentMeasures(component.getReportAttributes().getRef())) {
+    try (CloseableIterator<ScannerReport.Measure> readIt = reportReader.readComponentMeasures(ref)) {
       while (readIt.hasNext()) {
         ScannerReport.Measure batchMeasure = readIt.next();
         String metricKey = batchMeasure.getMetricKey();
@@ -122,7 +154,76 @@ public class MeasureRepositoryImpl implements MeasureRepository {
         }
       }
     }
-    loadedComponents.add(component.getReportAttributes().getRef());
+    loadedComponents.set(ref);
+  }
+
+  /**
+   * Files carried over from the previous analysis have no measure in the report. The measures previously sent
+   * by the scanner are loaded from DB instead, so that measures computed from them remain unchanged.
+   */
+  private void loadPreviousMeasuresForComponent(Component file) {
+    Map<Integer, Metric> metricsById = getReportMetricsById();
+    for (LiveMeasureDto dto : getPreviousMeasures(file).values()) {
+      Metric metric = metricsById.get(dto.getMetricId());
+      if (metric == null) {
+        continue;
+      }
+      // variations are computed by the Compute Engine, the report never contains them
+      Optional<Measure> measure = liveMeasureTransformer.toMeasure(new LiveMeasureDto()
+        .setComponentUuid(dto.getComponentUuid())
+        .setMetricId(dto.getMetricId())
+        .setValue(dto.getValue())
+        .setData(dto.getDataAsString()), metric);
+      if (measure.isPresent()) {
+        delegate.add(file, metric, measure.get(), OverridePolicy.DO_NOT_OVERRIDE);
+      }
+    }
+  }
+
+  private Map<Integer, LiveMeasureDto> getPreviousMeasures(Component carriedOverFile) {
+    if (previousMeasuresByCarriedOverFileUuid == null) {
+      previousMeasuresByCarriedOverFileUuid = loadPreviousMeasuresOfCarriedOverFiles();
+    }
+    return previousMeasuresByCarriedOverFileUuid.getOrDefault(carriedOverFile.getUuid(), emptyMap());
+  }
+
+  private Map<String, Map<Integer, LiveMeasureDto>> loadPreviousMeasuresOfCarriedOverFiles() {
+    List<String> fileUuids = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+        @Override
+        public void visitFile(Component file) {
+          if (FileAttributes.isCarriedOver(file)) {
+            fileUuids.add(file.getUuid());
+          }
+        }
+      }).visit(treeRootHolder.getRoot());
+    if (fileUuids.isEmpty()) {
+      return emptyMap();
+    }
+
+    Set<Integer> metricIds = new HashSet<>();
+    for (Metric metric : metricRepository.getAll()) {
+      metricIds.add(metric.getId());
+    }
+    Map<String, Map<Integer, LiveMeasureDto>> res = new HashMap<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (LiveMeasureDto dto : dbClient.liveMeasureDao().selectByComponentUuidsAndMetricIds(dbSession, fileUuids, metricIds)) {
+        res.computeIfAbsent(dto.getComponentUuid(), uuid -> new HashMap<>()).put(dto.getMetricId(), dto);
+      }
+    }
+    return res;
   }
 
+  private Map<Integer, Metric> getReportMetricsById() {
+    if (reportMetricsById == null) {
+      reportMetricsById = new HashMap<>();
+      for (Metric metric : metricRepository.getAll()) {
+        if (reportMetricValidator.validate(metric.getKey())) {
+          reportMetricsById.put(metric.getId(), metric);
+        }
+      }
+    }
+    return reportMetricsById;
+  }
 }
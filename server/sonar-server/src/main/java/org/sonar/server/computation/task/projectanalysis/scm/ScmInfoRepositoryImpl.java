@@ -32,6 +32,7 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.Component.Status;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesDiff;
 
@@ -69,6 +70,11 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
   }
 
   private Optional<ScmInfo> getScmInfoForComponent(Component component) {
+    if (FileAttributes.isCarriedOver(component)) {
+      // file is unchanged and was not analyzed, SCM information of previous analysis is still valid
+      return scmInfoDbLoader.getScmInfo(component).map(ScmInfo.class::cast);
+    }
+
     ScannerReport.Changesets changesets = scannerReportReader.readChangesets(component.getReportAttributes().getRef());
 
     if (changesets == null) {
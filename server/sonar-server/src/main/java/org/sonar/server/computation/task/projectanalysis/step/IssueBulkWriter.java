@@ -0,0 +1,200 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.step;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.executor.BatchResult;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.BatchSession;
+import org.sonar.db.DbSession;
+import org.sonar.db.dialect.Dialect;
+import org.sonar.db.dialect.MsSql;
+import org.sonar.db.issue.IssueChangeDto;
+import org.sonar.db.issue.IssueChangeMapper;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.issue.IssueMapper;
+import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Writes issues and their changes with as few round-trips as possible:
+ * <ul>
+ *   <li>new issues and changes are buffered and inserted with multi-row statements, whose size depends on the
+ *   limit of bind parameters of the database</li>
+ *   <li>updates are sent as JDBC batches. The update counts are read when the batch is flushed, so that
+ *   concurrent modifications are given to {@link UpdateConflictResolver}</li>
+ * </ul>
+ * The {@link DbSession} must be a batch session. It is not committed by this class, except by
+ * {@link BatchSession} itself.
+ */
+class IssueBulkWriter {
+
+  private static final Logger LOGGER = Loggers.get(IssueBulkWriter.class);
+
+  static final int ISSUE_COLUMNS = 24;
+  static final int ISSUE_CHANGE_COLUMNS = 8;
+  static final int MAX_ROWS_PER_STATEMENT = 500;
+  /**
+   * SQL Server does not accept more than 2100 parameters per statement
+   */
+  private static final int MSSQL_MAX_PARAMETERS = 2_000;
+  /**
+   * Statements are flushed before {@link BatchSession} flushes them itself, otherwise the update counts are lost
+   */
+  private static final int MAX_PENDING_STATEMENTS = BatchSession.MAX_BATCH_SIZE - 10;
+  private static final String UPDATE_STATEMENT = IssueMapper.class.getName() + ".updateIfBeforeSelectedDate";
+
+  private final DbSession dbSession;
+  private final IssueMapper issueMapper;
+  private final IssueChangeMapper changeMapper;
+  private final UpdateConflictResolver conflictResolver;
+  private final int issuesPerStatement;
+  private final int changesPerStatement;
+
+  private final List<IssueDto> pendingInserts = new ArrayList<>();
+  private final List<IssueChangeDto> pendingChanges = new ArrayList<>();
+  private final Map<String, DefaultIssue> pendingUpdates = new HashMap<>();
+  private int pendingStatements = 0;
+
+  private final long startedAt = System.currentTimeMillis();
+  private long insertCount = 0;
+  private long updateCount = 0;
+  private long changeCount = 0;
+  private long conflictCount = 0;
+
+  IssueBulkWriter(DbSession dbSession, Dialect dialect, UpdateConflictResolver conflictResolver) {
+    this.dbSession = dbSession;
+    this.issueMapper = dbSession.getMapper(IssueMapper.class);
+    this.changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+    this.conflictResolver = conflictResolver;
+    this.issuesPerStatement = rowsPerStatement(dialect, ISSUE_COLUMNS);
+    this.changesPerStatement = rowsPerStatement(dialect, ISSUE_CHANGE_COLUMNS);
+  }
+
+  static int rowsPerStatement(Dialect dialect, int columns) {
+    checkArgument(columns > 0, "Number of columns must be strictly positive");
+    if (MsSql.ID.equals(dialect.getId())) {
+      return Math.min(MAX_ROWS_PER_STATEMENT, MSSQL_MAX_PARAMETERS / columns);
+    }
+    return MAX_ROWS_PER_STATEMENT;
+  }
+
+  void insert(IssueDto issue, List<IssueChangeDto> changes) {
+    pendingInserts.add(issue);
+    if (pendingInserts.size() >= issuesPerStatement) {
+      flushInserts();
+    }
+    addChanges(changes);
+  }
+
+  void update(IssueDto issue, DefaultIssue defaultIssue, List<IssueChangeDto> changes) {
+    issueMapper.updateIfBeforeSelectedDate(issue);
+    pendingUpdates.put(issue.getKey(), defaultIssue);
+    incrementPendingStatements();
+    addChanges(changes);
+  }
+
+  private void addChanges(List<IssueChangeDto> changes) {
+    for (IssueChangeDto change : changes) {
+      pendingChanges.add(change);
+      if (pendingChanges.size() >= changesPerStatement) {
+        flushChanges();
+      }
+    }
+  }
+
+  private void flushInserts() {
+    if (!pendingInserts.isEmpty()) {
+      issueMapper.insertMultiple(new ArrayList<>(pendingInserts));
+      insertCount += pendingInserts.size();
+      pendingInserts.clear();
+      incrementPendingStatements();
+    }
+  }
+
+  private void flushChanges() {
+    if (!pendingChanges.isEmpty()) {
+      changeMapper.insertMultiple(new ArrayList<>(pendingChanges));
+      changeCount += pendingChanges.size();
+      pendingChanges.clear();
+      incrementPendingStatements();
+    }
+  }
+
+  private void incrementPendingStatements() {
+    pendingStatements++;
+    if (pendingStatements >= MAX_PENDING_STATEMENTS) {
+      flushStatements();
+    }
+  }
+
+  private void flushStatements() {
+    List<BatchResult> results = dbSession.flushStatements();
+    pendingStatements = 0;
+    List<DefaultIssue> conflicts = new ArrayList<>();
+    for (BatchResult result : results) {
+      if (UPDATE_STATEMENT.equals(result.getMappedStatement().getId())) {
+        List<Object> parameters = result.getParameterObjects();
+        int[] counts = result.getUpdateCounts();
+        for (int i = 0; i < counts.length; i++) {
+          // drivers may return Statement.SUCCESS_NO_INFO (-2), which is not a conflict
+          if (counts[i] == 0) {
+            conflicts.add(pendingUpdates.get(((IssueDto) parameters.get(i)).getKey()));
+          }
+        }
+      }
+    }
+    updateCount += pendingUpdates.size();
+    pendingUpdates.clear();
+    resolveConflicts(conflicts);
+  }
+
+  private void resolveConflicts(List<DefaultIssue> conflicts) {
+    for (DefaultIssue conflict : conflicts) {
+      // End-user and scan changed the issue at the same time.
+      // See https://jira.sonarsource.com/browse/SONAR-4309
+      conflictResolver.resolve(conflict, issueMapper);
+      conflictCount++;
+    }
+    if (!conflicts.isEmpty()) {
+      dbSession.flushStatements();
+    }
+  }
+
+  /**
+   * Writes all the pending rows and logs throughput. The session still has to be committed by caller.
+   */
+  void finish() {
+    flushInserts();
+    flushChanges();
+    flushStatements();
+
+    long durationMs = Math.max(1L, System.currentTimeMillis() - startedAt);
+    long rows = insertCount + updateCount + changeCount;
+    LOGGER.debug("{} issues inserted, {} issues updated ({} conflicts), {} changes inserted | time={}ms | {} rows/s",
+      insertCount, updateCount, conflictCount, changeCount, durationMs, rows * 1_000L / durationMs);
+  }
+}
@@ -20,13 +20,19 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.sonar.api.utils.System2;
@@ -36,14 +42,19 @@ import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
@@ -60,10 +71,19 @@ import org.sonar.server.computation.task.projectanalysis.source.linereader.ScmLi
 import org.sonar.server.computation.task.projectanalysis.source.linereader.SymbolsLineReader;
 import org.sonar.server.computation.task.step.ComputationStep;
 
+import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 public class PersistFileSourcesStep implements ComputationStep {
 
+  /**
+   * To be incremented when the way {@link DbFileSources.Data} is computed from the report, or stored, changes, so that
+   * the data of all files is computed again.
+   */
+  private static final int INPUTS_HASH_VERSION = 3;
+  private static final FileStructure.Domain[] HASHED_REPORT_DOMAINS = {FileStructure.Domain.SOURCE, FileStructure.Domain.COVERAGES,
+    FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, FileStructure.Domain.SYMBOLS, FileStructure.Domain.SGNIFICANT_CODE};
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
@@ -118,18 +138,81 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
-      try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
-        LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file)) {
-        LineHashesComputer lineHashesComputer = sourceLinesHash.getLineHashesComputerToPersist(file);
-        ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), lineHashesComputer);
-        ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file, lineReaders.getLatestChangeWithRevision());
+      if (FileAttributes.isCarriedOver(file)) {
+        // source was not sent by the scanner, the one of the previous analysis is kept
+        return;
+      }
+      try {
+        String inputsHash = computeInputsHash(file);
+        FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+        if (previousDto != null && inputsHash.equals(previousDto.getInputsHash())) {
+          // nothing the data is computed from has changed since the previous analysis, data can't change either
+          return;
+        }
+        try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
+          LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file)) {
+          LineHashesComputer lineHashesComputer = sourceLinesHash.getLineHashesComputerToPersist(file);
+          ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), lineHashesComputer);
+          ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
+          persistSource(fileSourceData, file, lineReaders.getLatestChangeWithRevision(), inputsHash);
+        }
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, Component file, @Nullable Changeset latestChangeWithRevision) {
+    /**
+     * Hash of everything {@link DbFileSources.Data}, source hash, line hashes and revision of the file are computed from:
+     * source lines, coverage, SCM, highlighting, symbols, duplications and significant code. It is much cheaper to compute
+     * than the data itself, which does not have to be built and encoded when this hash did not change. Data of the report
+     * is hashed as written by the scanner, without being decoded.
+     */
+    private String computeInputsHash(Component file) throws IOException {
+      InputsDigest digest = new InputsDigest();
+      digest.add(INPUTS_HASH_VERSION);
+      digest.add(sourceLinesHash.getLineHashesVersion(file));
+      // expected number of lines, see SourceLinesRepository
+      digest.add(file.getFileAttributes().getLines());
+      int ref = file.getReportAttributes().getRef();
+
+      for (FileStructure.Domain domain : HASHED_REPORT_DOMAINS) {
+        digest.startSection();
+        Optional<InputStream> rawData = reportReader.readRawComponentData(domain, ref);
+        if (rawData.isPresent()) {
+          try (InputStream input = rawData.get()) {
+            digest.add(input);
+          }
+        }
+      }
+      digest.startSection();
+      Optional<ScmInfo> scmInfo = scmInfoRepository.getScmInfo(file);
+      if (scmInfo.isPresent()) {
+        for (Map.Entry<Integer, Changeset> entry : scmInfo.get().getAllChangesets().entrySet()) {
+          Changeset changeset = entry.getValue();
+          digest.add(entry.getKey());
+          digest.add(changeset.getRevision());
+          digest.add(changeset.getAuthor());
+          digest.add(changeset.getDate());
+        }
+      }
+      digest.startSection();
+      // same blocks, in the same order, as the ones indexed by DuplicationLineReader
+      List<TextBlock> duplicatedBlocks = new ArrayList<>();
+      for (Duplication duplication : duplicationRepository.getDuplications(file)) {
+        duplicatedBlocks.add(duplication.getOriginal());
+        for (InnerDuplicate duplicate : from(duplication.getDuplicates()).filter(InnerDuplicate.class)) {
+          duplicatedBlocks.add(duplicate.getTextBlock());
+        }
+      }
+      Collections.sort(duplicatedBlocks);
+      for (TextBlock block : duplicatedBlocks) {
+        digest.add(block.getStart());
+        digest.add(block.getEnd());
+      }
+      return digest.toHex();
+    }
+
+    private void persistSource(ComputeFileSourceData.Data fileSourceData, Component file, @Nullable Changeset latestChangeWithRevision, String inputsHash) {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
@@ -151,7 +234,8 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashesVersion(lineHashesVersion)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChangeWithRevision));
+          .setRevision(computeRevision(latestChangeWithRevision))
+          .setInputsHash(inputsHash);
         dbClient.fileSourceDao().insert(session, dto);
         session.commit();
       } else {
@@ -160,7 +244,7 @@ public class PersistFileSourcesStep implements ComputationStep {
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
         String revision = computeRevision(latestChangeWithRevision);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        boolean lineHashesVersionUpdated = previousDto.getLineHashesVersion() != lineHashesVersion;
+        boolean lineHashesVersionUpdated = !previousDto.getLineHashesVersion().equals(lineHashesVersion);
         if (binaryDataUpdated || srcHashUpdated || revisionUpdated || lineHashesVersionUpdated) {
           previousDto
             .setBinaryData(data)
@@ -169,9 +253,14 @@ public class PersistFileSourcesStep implements ComputationStep {
             .setLineHashes(lineHashes)
             .setLineHashesVersion(lineHashesVersion)
             .setRevision(revision)
+            .setInputsHash(inputsHash)
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(session, previousDto);
           session.commit();
+        } else {
+          // inputs hash is missing (progressive migration) or data is now computed differently from the same inputs
+          dbClient.fileSourceDao().updateInputsHash(session, previousDto.getId(), inputsHash);
+          session.commit();
         }
       }
     }
@@ -185,6 +274,55 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  /**
+   * Length-prefixed MD5 of values, so that different sequences of values can't produce the same hash.
+   */
+  private static class InputsDigest {
+    private static final int BUFFER_SIZE = 8192;
+    private final MessageDigest md5 = DigestUtils.getMd5Digest();
+
+    void startSection() {
+      add(-1);
+    }
+
+    void add(long value) {
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        md5.update((byte) (value >>> shift));
+      }
+    }
+
+    void add(@Nullable String value) {
+      if (value == null) {
+        add(-2);
+      } else {
+        add(value.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    void add(byte[] bytes) {
+      add(bytes.length);
+      md5.update(bytes);
+    }
+
+    /**
+     * Length of the stream is added after its content, which is as unambiguous as before it.
+     */
+    void add(InputStream input) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long length = 0;
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        md5.update(buffer, 0, read);
+        length += read;
+      }
+      add(length);
+    }
+
+    String toHex() {
+      return Hex.encodeHexString(md5.digest());
+    }
+  }
+
   private static class LineReaders implements AutoCloseable {
     private final List<LineReader> readers = new ArrayList<>();
     private final List<CloseableIterator<?>> closeables = new ArrayList<>();
@@ -24,9 +24,7 @@ import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
-import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
@@ -55,46 +53,22 @@ public class PersistIssuesStep implements ComputationStep {
     try (DbSession dbSession = dbClient.openSession(true);
       CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
 
-      IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
-      IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+      IssueBulkWriter writer = new IssueBulkWriter(dbSession, dbClient.getDatabase().getDialect(), conflictResolver);
+      long now = system2.now();
       while (issues.hasNext()) {
-        DefaultIssue issue = issues.next();
-        boolean saved = persistIssueIfRequired(mapper, issue);
-        if (saved) {
-          IssueStorage.insertChanges(changeMapper, issue);
-        }
+        persistIssueIfRequired(writer, issues.next(), now);
       }
-      dbSession.flushStatements();
+      writer.finish();
       dbSession.commit();
     }
   }
 
-  private boolean persistIssueIfRequired(IssueMapper mapper, DefaultIssue issue) {
+  private void persistIssueIfRequired(IssueBulkWriter writer, DefaultIssue issue, long now) {
     if (issue.isNew() || issue.isCopied()) {
-      persistNewIssue(mapper, issue);
-      return true;
-    }
-
-    if (issue.isChanged()) {
-      persistChangedIssue(mapper, issue);
-      return true;
-    }
-    return false;
-  }
-
-  private void persistNewIssue(IssueMapper mapper, DefaultIssue issue) {
-    Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
-    IssueDto dto = IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now());
-    mapper.insert(dto);
-  }
-
-  private void persistChangedIssue(IssueMapper mapper, DefaultIssue issue) {
-    IssueDto dto = IssueDto.toDtoForUpdate(issue, system2.now());
-    int updateCount = mapper.updateIfBeforeSelectedDate(dto);
-    if (updateCount == 0) {
-      // End-user and scan changed the issue at the same time.
-      // See https://jira.sonarsource.com/browse/SONAR-4309
-      conflictResolver.resolve(issue, mapper);
+      Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
+      writer.insert(IssueDto.toDtoForComputationInsert(issue, ruleId, now), IssueStorage.changesToInsert(issue));
+    } else if (issue.isChanged()) {
+      writer.update(IssueDto.toDtoForUpdate(issue, now), issue, IssueStorage.changesToInsert(issue));
     }
   }
 
@@ -0,0 +1,302 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Alternative to {@link BulkProcessor} which adapts the size of bulk requests and the number of concurrent
+ * requests to the load of the Elasticsearch cluster:
+ * <ul>
+ *   <li>size of bulk requests increases while responses are fast, and decreases when they are slow</li>
+ *   <li>number of concurrent requests increases while responses are fast, and is halved when requests are rejected</li>
+ *   <li>items rejected because of a full queue of thread pool (HTTP status 429) are sent again with an exponential backoff</li>
+ * </ul>
+ * Threads calling {@link #add(DocWriteRequest)} are blocked as long as the maximum number of concurrent requests is reached.
+ */
+class AdaptiveBulkProcessor implements BulkIndexer.Processor {
+
+  private static final Logger LOGGER = Loggers.get(AdaptiveBulkProcessor.class);
+
+  static final long MIN_BULK_BYTES = 256L * 1024;
+  static final long INITIAL_BULK_BYTES = 1024L * 1024;
+  static final long MAX_BULK_BYTES = 16L * 1024 * 1024;
+  static final long TARGET_LATENCY_MS = 1_000L;
+  private static final int MAX_RETRIES = 8;
+  private static final long INITIAL_BACKOFF_MS = 50L;
+
+  private final Client client;
+  private final BulkProcessor.Listener listener;
+  private final Runnable retryListener;
+  private final int maxConcurrency;
+  private final ResizableSemaphore permits;
+  private final ScheduledExecutorService retryScheduler;
+  private final AtomicLong executionIds = new AtomicLong(0L);
+  private final Object inFlightLock = new Object();
+  private int inFlight = 0;
+
+  // guarded by this
+  private BulkRequest pending = new BulkRequest();
+
+  // guarded by tuningLock
+  private final Object tuningLock = new Object();
+  private volatile long bulkBytes = INITIAL_BULK_BYTES;
+  private int concurrency;
+
+  AdaptiveBulkProcessor(Client client, BulkProcessor.Listener listener, Runnable retryListener, int initialConcurrency, int maxConcurrency) {
+    this.client = client;
+    this.listener = listener;
+    this.retryListener = retryListener;
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.concurrency = Math.min(Math.max(1, initialConcurrency), this.maxConcurrency);
+    this.permits = new ResizableSemaphore(concurrency);
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("BulkIndexer-retry-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  @Override
+  public synchronized void add(DocWriteRequest request) {
+    pending.add(request);
+    if (pending.estimatedSizeInBytes() >= bulkBytes) {
+      execute();
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (pending.numberOfActions() > 0) {
+      execute();
+    }
+  }
+
+  @Override
+  public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+    flush();
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    try {
+      synchronized (inFlightLock) {
+        while (inFlight > 0) {
+          long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remainingMs <= 0L) {
+            return false;
+          }
+          inFlightLock.wait(remainingMs);
+        }
+      }
+      return true;
+    } finally {
+      retryScheduler.shutdownNow();
+    }
+  }
+
+  @VisibleForTesting
+  long getBulkBytes() {
+    return bulkBytes;
+  }
+
+  @VisibleForTesting
+  int getConcurrency() {
+    synchronized (tuningLock) {
+      return concurrency;
+    }
+  }
+
+  private void execute() {
+    BulkRequest request = pending;
+    pending = new BulkRequest();
+    long executionId = executionIds.incrementAndGet();
+    listener.beforeBulk(executionId, request);
+    try {
+      // backpressure: the producer waits for the completion of a request
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      listener.afterBulk(executionId, request, e);
+      return;
+    }
+    synchronized (inFlightLock) {
+      inFlight++;
+    }
+    new Execution(executionId, request).send();
+  }
+
+  /**
+   * Adjusts size and concurrency with an "additive increase, multiplicative decrease" strategy.
+   */
+  @VisibleForTesting
+  void adjust(long latencyMs, boolean rejected) {
+    synchronized (tuningLock) {
+      if (rejected) {
+        int newConcurrency = Math.max(1, concurrency / 2);
+        permits.reducePermits(concurrency - newConcurrency);
+        concurrency = newConcurrency;
+        bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes / 2);
+        LOGGER.debug("Bulk requests rejected by Elasticsearch. Concurrency: {}, size: {} bytes", concurrency, bulkBytes);
+      } else if (latencyMs > TARGET_LATENCY_MS) {
+        bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes * 3 / 4);
+      } else if (latencyMs < TARGET_LATENCY_MS / 2) {
+        bulkBytes = Math.min(MAX_BULK_BYTES, bulkBytes + INITIAL_BULK_BYTES);
+        if (concurrency < maxConcurrency) {
+          concurrency++;
+          permits.release();
+        }
+      }
+    }
+  }
+
+  private void completed() {
+    permits.release();
+    synchronized (inFlightLock) {
+      inFlight--;
+      inFlightLock.notifyAll();
+    }
+  }
+
+  private static boolean isRejected(BulkItemResponse item) {
+    return item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS;
+  }
+
+  /**
+   * A bulk request, including the retries of its rejected items.
+   */
+  private final class Execution implements ActionListener<BulkResponse> {
+    private final long executionId;
+    private final BulkRequest request;
+    private final BulkItemResponse[] responses;
+    private final long startTime;
+    private BulkRequest attemptRequest;
+    private int[] attemptPositions;
+    private int attempt = 0;
+    private long attemptStartTime;
+
+    private Execution(long executionId, BulkRequest request) {
+      this.executionId = executionId;
+      this.request = request;
+      this.responses = new BulkItemResponse[request.numberOfActions()];
+      this.attemptRequest = request;
+      this.attemptPositions = new int[request.numberOfActions()];
+      for (int i = 0; i < attemptPositions.length; i++) {
+        attemptPositions[i] = i;
+      }
+      this.startTime = System.currentTimeMillis();
+    }
+
+    private void send() {
+      attemptStartTime = System.currentTimeMillis();
+      try {
+        client.bulk(attemptRequest, this);
+      } catch (RuntimeException e) {
+        onFailure(e);
+      }
+    }
+
+    @Override
+    public void onResponse(BulkResponse response) {
+      List<Integer> rejectedPositions = new ArrayList<>();
+      for (BulkItemResponse item : response.getItems()) {
+        int position = attemptPositions[item.getItemId()];
+        if (attempt < MAX_RETRIES && isRejected(item)) {
+          rejectedPositions.add(position);
+        } else {
+          responses[position] = item;
+        }
+      }
+      adjust(System.currentTimeMillis() - attemptStartTime, !rejectedPositions.isEmpty());
+      if (rejectedPositions.isEmpty()) {
+        try {
+          listener.afterBulk(executionId, request, new BulkResponse(responses, System.currentTimeMillis() - startTime));
+        } finally {
+          completed();
+        }
+      } else {
+        retry(rejectedPositions.stream().mapToInt(Integer::intValue).toArray());
+      }
+    }
+
+    @Override
+    public void onFailure(Exception e) {
+      if (attempt < MAX_RETRIES && ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) {
+        adjust(System.currentTimeMillis() - attemptStartTime, true);
+        retry(attemptPositions);
+      } else {
+        try {
+          listener.afterBulk(executionId, request, e);
+        } finally {
+          completed();
+        }
+      }
+    }
+
+    private void retry(int[] positions) {
+      BulkRequest retryRequest = new BulkRequest();
+      for (int position : positions) {
+        retryRequest.add(request.requests().get(position));
+      }
+      attemptRequest = retryRequest;
+      attemptPositions = positions;
+      long backoffMs = INITIAL_BACKOFF_MS << attempt;
+      attempt++;
+      retryListener.run();
+      try {
+        retryScheduler.schedule(this::send, backoffMs, TimeUnit.MILLISECONDS);
+      } catch (RuntimeException e) {
+        // scheduler is shutdown
+        try {
+          listener.afterBulk(executionId, request, e);
+        } finally {
+          completed();
+        }
+      }
+    }
+  }
+
+  private static class ResizableSemaphore extends Semaphore {
+    private ResizableSemaphore(int permits) {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+}
@@ -26,8 +26,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -75,10 +78,17 @@ public class BulkIndexer {
 
   private final EsClient client;
   private final IndexType indexType;
-  private final BulkProcessor bulkProcessor;
+  private final Processor processor;
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  /**
+   * Ids of the bulk requests being executed, see {@link #flush()}
+   */
+  private final NavigableSet<Long> runningExecutionIds = new TreeSet<>();
+  private final AtomicLong lastExecutionId = new AtomicLong(-1L);
+  private final AtomicLong failures = new AtomicLong(0L);
+  private long startTime;
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
@@ -89,13 +99,7 @@ public class BulkIndexer {
     this.indexType = indexType;
     this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
     this.indexingListener = indexingListener;
-    BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
-    this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
-      .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
-      .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
-      .build();
+    this.processor = sizeHandler.createProcessor(client, new BulkProcessorListener(), result::incrementRetries);
   }
 
   public IndexType getIndexType() {
@@ -104,6 +108,8 @@ public class BulkIndexer {
 
   public void start() {
     result.clear();
+    failures.set(0L);
+    startTime = System.currentTimeMillis();
     sizeHandler.beforeStart(this);
   }
 
@@ -112,30 +118,53 @@ public class BulkIndexer {
    */
   public IndexingResult stop() {
     try {
-      bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
+      processor.awaitClose(1, TimeUnit.MINUTES);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute", e);
     }
     client.prepareRefresh(indexType.getIndex()).get();
+    result.setDurationMs(System.currentTimeMillis() - startTime);
     sizeHandler.afterStop(this);
     indexingListener.onFinish(result);
     return result;
   }
 
+  /**
+   * Sends the pending requests and waits for the completion of all the requests added so far, including
+   * the bulk requests being executed by other threads. Requests can still be added concurrently.
+   *
+   * @return {@code true} if no failures occurred since {@link #start()}
+   */
+  public boolean flush() {
+    processor.flush();
+    long barrier = lastExecutionId.get();
+    synchronized (runningExecutionIds) {
+      while (!runningExecutionIds.isEmpty() && runningExecutionIds.first() <= barrier) {
+        try {
+          runningExecutionIds.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for Elasticsearch bulk requests", e);
+        }
+      }
+    }
+    return failures.get() == 0L;
+  }
+
   public void add(IndexRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    processor.add(request);
   }
 
   public void add(DeleteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    processor.add(request);
   }
 
   public void add(DocWriteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    processor.add(request);
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
@@ -202,28 +231,44 @@ public class BulkIndexer {
 
     @Override
     public void beforeBulk(long executionId, BulkRequest request) {
+      synchronized (runningExecutionIds) {
+        runningExecutionIds.add(executionId);
+        lastExecutionId.accumulateAndGet(executionId, Math::max);
+      }
       profiler.start();
     }
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
       stopProfiler(request);
+      result.addBytes(request.estimatedSizeInBytes());
       List<DocId> successDocIds = new ArrayList<>();
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
           LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+          failures.incrementAndGet();
         } else {
           result.incrementSuccess();
           successDocIds.add(new DocId(item.getIndex(), item.getType(), item.getId()));
         }
       }
       indexingListener.onSuccess(successDocIds);
+      completed(executionId);
     }
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, Throwable e) {
       LOGGER.error("Fail to execute bulk index request: " + request, e);
       stopProfiler(request);
+      failures.addAndGet(request.numberOfActions());
+      completed(executionId);
+    }
+
+    private void completed(long executionId) {
+      synchronized (runningExecutionIds) {
+        runningExecutionIds.remove(executionId);
+        runningExecutionIds.notifyAll();
+      }
     }
 
     private void stopProfiler(BulkRequest request) {
@@ -334,9 +379,57 @@ public class BulkIndexer {
       }
     };
 
+    /**
+     * Same as {@link #LARGE}, except that the size of bulk requests and the number of concurrent requests are
+     * not fixed but adapted to the response times and rejections of Elasticsearch.
+     * Use this size when documents are produced by multiple threads.
+     *
+     * @see AdaptiveBulkProcessor
+     */
+    ADAPTIVE {
+      @Override
+      SizeHandler createHandler(Runtime2 runtime2) {
+        return new AdaptiveSizeHandler(runtime2);
+      }
+    };
+
     abstract SizeHandler createHandler(Runtime2 runtime2);
   }
 
+  /**
+   * Sends the requests added to {@link BulkIndexer} and notifies a {@link Listener} of the results.
+   */
+  interface Processor {
+    void add(DocWriteRequest request);
+
+    void flush();
+
+    boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException;
+  }
+
+  private static class DefaultProcessor implements Processor {
+    private final BulkProcessor bulkProcessor;
+
+    private DefaultProcessor(BulkProcessor bulkProcessor) {
+      this.bulkProcessor = bulkProcessor;
+    }
+
+    @Override
+    public void add(DocWriteRequest request) {
+      bulkProcessor.add(request);
+    }
+
+    @Override
+    public void flush() {
+      bulkProcessor.flush();
+    }
+
+    @Override
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+      return bulkProcessor.awaitClose(timeout, unit);
+    }
+  }
+
   @VisibleForTesting
   static class Runtime2 {
     private static final Runtime2 INSTANCE = new Runtime2();
@@ -355,6 +448,15 @@ public class BulkIndexer {
       return 0;
     }
 
+    Processor createProcessor(EsClient client, Listener listener, Runnable retryListener) {
+      return new DefaultProcessor(BulkProcessor.builder(client.nativeClient(), listener)
+        .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
+        .setBulkSize(FLUSH_BYTE_SIZE)
+        .setBulkActions(FLUSH_ACTIONS)
+        .setConcurrentRequests(getConcurrentRequests())
+        .build());
+    }
+
     void beforeStart(BulkIndexer bulkIndexer) {
       // nothing to do, to be overridden if needed
     }
@@ -367,7 +469,7 @@ public class BulkIndexer {
   static class LargeSizeHandler extends SizeHandler {
 
     private final Map<String, Object> initialSettings = new HashMap<>();
-    private final Runtime2 runtime2;
+    final Runtime2 runtime2;
     private ProgressLogger progress;
 
     LargeSizeHandler(Runtime2 runtime2) {
@@ -414,6 +516,9 @@ public class BulkIndexer {
 
       updateSettings(bulkIndexer, initialSettings);
       this.progress.stop();
+      IndexingResult result = bulkIndexer.result;
+      LOGGER.info("Indexing of {} completed: {} requests, {} docs/s, {} bytes/s, {} retries", bulkIndexer.indexType.getIndex(), result.getTotal(),
+        result.getDocsPerSecond(), result.getBytesPerSecond(), result.getRetries());
     }
 
     private static void updateSettings(BulkIndexer bulkIndexer, Map<String, Object> settings) {
@@ -422,4 +527,17 @@ public class BulkIndexer {
       req.get();
     }
   }
+
+  static class AdaptiveSizeHandler extends LargeSizeHandler {
+
+    AdaptiveSizeHandler(Runtime2 runtime2) {
+      super(runtime2);
+    }
+
+    @Override
+    Processor createProcessor(EsClient client, Listener listener, Runnable retryListener) {
+      // starts as LARGE and grows up to one request per core
+      return new AdaptiveBulkProcessor(client.nativeClient(), listener, retryListener, getConcurrentRequests() + 1, runtime2.getCores());
+    }
+  }
 }
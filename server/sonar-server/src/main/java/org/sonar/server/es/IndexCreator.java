@@ -112,7 +112,9 @@ public class IndexCreator implements Startable {
     if (useMetadata) {
       metadataIndex.setHash(index.getName(), IndexDefinitionHash.of(index));
       for (IndexDefinitions.IndexType type : index.getTypes().values()) {
-        metadataIndex.setInitialized(new IndexType(index.getName(), type.getName()), false);
+        IndexType indexType = new IndexType(index.getName(), type.getName());
+        metadataIndex.setInitialized(indexType, false);
+        metadataIndex.resetIndexingCheckpoint(indexType);
       }
     }
     CreateIndexResponse indexResponse = client
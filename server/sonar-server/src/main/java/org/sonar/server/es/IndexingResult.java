@@ -26,10 +26,16 @@ public class IndexingResult {
   // FIXME should be private
   final AtomicLong total = new AtomicLong(0L);
   private final AtomicLong successes = new AtomicLong(0L);
+  private final AtomicLong bytes = new AtomicLong(0L);
+  private final AtomicLong retries = new AtomicLong(0L);
+  private final AtomicLong durationMs = new AtomicLong(0L);
 
   IndexingResult clear() {
     total.set(0L);
     successes.set(0L);
+    bytes.set(0L);
+    retries.set(0L);
+    durationMs.set(0L);
     return this;
   }
 
@@ -42,9 +48,30 @@ public class IndexingResult {
     return this;
   }
 
+  /**
+   * Size of the bulk requests sent to Elasticsearch
+   */
+  public void addBytes(long size) {
+    bytes.addAndGet(size);
+  }
+
+  /**
+   * Requests sent again because they were rejected by Elasticsearch
+   */
+  public void incrementRetries() {
+    retries.incrementAndGet();
+  }
+
+  void setDurationMs(long duration) {
+    durationMs.set(duration);
+  }
+
   public void add(IndexingResult other) {
     total.addAndGet(other.total.get());
     successes.addAndGet(other.successes.get());
+    bytes.addAndGet(other.bytes.get());
+    retries.addAndGet(other.retries.get());
+    durationMs.addAndGet(other.durationMs.get());
   }
 
   public long getFailures() {
@@ -59,6 +86,31 @@ public class IndexingResult {
     return successes.get();
   }
 
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public long getRetries() {
+    return retries.get();
+  }
+
+  public long getDurationMs() {
+    return durationMs.get();
+  }
+
+  public long getDocsPerSecond() {
+    return perSecond(successes.get());
+  }
+
+  public long getBytesPerSecond() {
+    return perSecond(bytes.get());
+  }
+
+  private long perSecond(long value) {
+    long duration = durationMs.get();
+    return duration == 0L ? value : (value * 1_000L / duration);
+  }
+
   public double getSuccessRatio() {
     return total.get() == 0 ? 1.0 : ((1.0 * successes.get()) / total.get());
   }
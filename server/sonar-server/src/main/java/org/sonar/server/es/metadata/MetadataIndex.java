@@ -63,6 +63,26 @@ public class MetadataIndex {
     return indexType.getIndex() + "." + indexType.getType() + ".initialized";
   }
 
+  /**
+   * Position from which the initial indexing of the type must be resumed, if it has been interrupted.
+   * The format of the value depends on the indexer.
+   */
+  public Optional<String> getIndexingCheckpoint(IndexType indexType) {
+    return getMetadata(checkpointId(indexType)).filter(checkpoint -> !checkpoint.isEmpty());
+  }
+
+  public void setIndexingCheckpoint(IndexType indexType, String checkpoint) {
+    setMetadata(checkpointId(indexType), checkpoint);
+  }
+
+  public void resetIndexingCheckpoint(IndexType indexType) {
+    setMetadata(checkpointId(indexType), "");
+  }
+
+  private static String checkpointId(IndexType indexType) {
+    return indexType.getIndex() + "." + indexType.getType() + ".checkpoint";
+  }
+
   public Optional<String> getDbVendor() {
     return getMetadata(DB_VENDOR_KEY);
   }
@@ -152,22 +152,29 @@ public abstract class IssueStorage {
   protected abstract IssueDto doUpdate(DbSession batchSession, long now, DefaultIssue issue);
 
   public static void insertChanges(IssueChangeMapper mapper, DefaultIssue issue) {
+    changesToInsert(issue).forEach(mapper::insert);
+  }
+
+  /**
+   * Changes of the issue which must be inserted once the issue is saved: new comments, and either
+   * all the changes of a copied issue or the current change of an existing one.
+   */
+  public static List<IssueChangeDto> changesToInsert(DefaultIssue issue) {
+    List<IssueChangeDto> changes = new ArrayList<>();
     for (DefaultIssueComment comment : issue.defaultIssueComments()) {
       if (comment.isNew()) {
-        IssueChangeDto changeDto = IssueChangeDto.of(comment);
-        mapper.insert(changeDto);
+        changes.add(IssueChangeDto.of(comment));
       }
     }
     FieldDiffs diffs = issue.currentChange();
     if (issue.isCopied()) {
       for (FieldDiffs d : issue.changes()) {
-        IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), d);
-        mapper.insert(changeDto);
+        changes.add(IssueChangeDto.of(issue.key(), d));
       }
     } else if (!issue.isNew() && diffs != null) {
-      IssueChangeDto changeDto = IssueChangeDto.of(issue.key(), diffs);
-      mapper.insert(changeDto);
+      changes.add(IssueChangeDto.of(issue.key(), diffs));
     }
+    return changes;
   }
 
   protected Rule rule(Issue issue) {
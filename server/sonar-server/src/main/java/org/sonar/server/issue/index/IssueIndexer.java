@@ -27,8 +27,11 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -46,6 +49,7 @@ import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.OneToManyResilientIndexingListener;
 import org.sonar.server.es.OneToOneResilientIndexingListener;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.es.metadata.MetadataIndex;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
@@ -69,14 +73,37 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_TYPE_ISSUE, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
   private static final ImmutableSet<IndexType> INDEX_TYPES = ImmutableSet.of(INDEX_TYPE_ISSUE);
 
+  /**
+   * Number of projects whose issues are read concurrently from database during initial indexing.
+   */
+  public static final String PARALLELISM_PROPERTY = "sonar.search.issues.indexing.parallelism";
+  private static final int DEFAULT_PARALLELISM = 1;
+
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  @CheckForNull
+  private final MetadataIndex metadataIndex;
+  private final int parallelism;
 
+  /**
+   * Constructor used by Pico in Compute Engine, where initial indexing is not executed.
+   */
   public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
+    this(esClient, dbClient, issueIteratorFactory, null, DEFAULT_PARALLELISM);
+  }
+
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, MetadataIndex metadataIndex, Configuration configuration) {
+    this(esClient, dbClient, issueIteratorFactory, metadataIndex, configuration.getInt(PARALLELISM_PROPERTY).orElse(DEFAULT_PARALLELISM));
+  }
+
+  @VisibleForTesting
+  IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, @Nullable MetadataIndex metadataIndex, int parallelism) {
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.metadataIndex = metadataIndex;
+    this.parallelism = parallelism;
   }
 
   @Override
@@ -91,8 +118,13 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
-    try (IssueIterator issues = issueIteratorFactory.createForAll()) {
-      doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    // concurrent producers are slowed down when Elasticsearch can't keep up
+    BulkIndexer bulk = createBulkIndexer(parallelism > 1 ? Size.ADAPTIVE : Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    bulk.start();
+    new StartupIssueIndexing(dbClient, issueIteratorFactory, this::newIndexRequest, metadataIndex, parallelism).execute(bulk);
+    bulk.stop();
+    if (metadataIndex != null) {
+      metadataIndex.resetIndexingCheckpoint(INDEX_TYPE_ISSUE);
     }
   }
 
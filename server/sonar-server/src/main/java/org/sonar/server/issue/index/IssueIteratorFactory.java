@@ -39,6 +39,14 @@ public class IssueIteratorFactory {
     return new IssueIteratorForSingleChunk(dbClient, projectUuid, null);
   }
 
+  /**
+   * Keyset pagination over the issues of a project: at most {@code pageSize} issues, sorted by key,
+   * whose keys are greater than {@code afterKey}.
+   */
+  public IssueIterator createForProject(String projectUuid, @Nullable String afterKey, int pageSize) {
+    return new IssueIteratorForSingleChunk(dbClient, projectUuid, null, afterKey, pageSize);
+  }
+
   public IssueIterator createForIssueKeys(Collection<String> issueKeys) {
     return new IssueIteratorForMultipleChunks(dbClient, issueKeys);
   }
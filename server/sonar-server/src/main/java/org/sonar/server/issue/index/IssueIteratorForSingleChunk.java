@@ -87,6 +87,8 @@ class IssueIteratorForSingleChunk implements IssueIterator {
   private static final String PROJECT_FILTER = " and c.project_uuid = ? and i.project_uuid = ? ";
   private static final String ISSUE_KEY_FILTER_PREFIX = " and i.kee in (";
   private static final String ISSUE_KEY_FILTER_SUFFIX = ")";
+  private static final String AFTER_KEY_FILTER = " and i.kee > ? ";
+  private static final String ORDER_BY_KEY = " order by i.kee";
 
   static final Splitter TAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
   static final Splitter MODULE_PATH_SPLITTER = Splitter.on('.').trimResults().omitEmptyStrings();
@@ -99,19 +101,37 @@ class IssueIteratorForSingleChunk implements IssueIterator {
   @CheckForNull
   private final Collection<String> issueKeys;
 
+  @CheckForNull
+  private final String afterKey;
+
+  private final int pageSize;
+
   private final PreparedStatement stmt;
   private final ResultSetIterator<IssueDoc> iterator;
 
   IssueIteratorForSingleChunk(DbClient dbClient, @Nullable String projectUuid, @Nullable Collection<String> issueKeys) {
+    this(dbClient, projectUuid, issueKeys, null, 0);
+  }
+
+  /**
+   * @param afterKey if not null, only the issues with greater keys are returned
+   * @param pageSize if positive, issues are sorted by key and at most {@code pageSize} issues are returned
+   */
+  IssueIteratorForSingleChunk(DbClient dbClient, @Nullable String projectUuid, @Nullable Collection<String> issueKeys, @Nullable String afterKey, int pageSize) {
     checkArgument(issueKeys == null || issueKeys.size() <= DatabaseUtils.PARTITION_SIZE_FOR_ORACLE,
       "Cannot search for more than " + DatabaseUtils.PARTITION_SIZE_FOR_ORACLE + " issue keys at once. Please provide the keys in smaller chunks.");
     this.projectUuid = projectUuid;
     this.issueKeys = issueKeys;
+    this.afterKey = afterKey;
+    this.pageSize = pageSize;
     this.session = dbClient.openSession(false);
 
     try {
       String sql = createSql();
       stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+      if (pageSize > 0) {
+        stmt.setMaxRows(pageSize);
+      }
       iterator = createIterator();
     } catch (Exception e) {
       session.close();
@@ -147,6 +167,8 @@ class IssueIteratorForSingleChunk implements IssueIterator {
       sql += IntStream.range(0, issueKeys.size()).mapToObj(i -> "?").collect(Collectors.joining(","));
       sql += ISSUE_KEY_FILTER_SUFFIX;
     }
+    sql += afterKey == null ? "" : AFTER_KEY_FILTER;
+    sql += pageSize > 0 ? ORDER_BY_KEY : "";
     return sql;
   }
 
@@ -164,6 +186,9 @@ class IssueIteratorForSingleChunk implements IssueIterator {
         index++;
       }
     }
+    if (afterKey != null) {
+      stmt.setString(index, afterKey);
+    }
   }
 
   @Override
@@ -0,0 +1,215 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.index.IndexRequest;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.metadata.MetadataIndex;
+
+import static java.util.stream.Collectors.toList;
+import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE;
+
+/**
+ * Initial indexing of all the issues. Table ISSUES is partitioned by project (or branch). Partitions
+ * are read concurrently, each one with its own connection, by pages of issues sorted by key. All the documents
+ * are sent to the same {@link BulkIndexer}.
+ * <p>
+ * Partitions are processed in the order of their UUIDs. The UUID of the last partition which is indexed,
+ * as well as all the partitions before it, is regularly saved in {@link MetadataIndex}, so that indexing
+ * is resumed from this partition when the web server is restarted.
+ */
+class StartupIssueIndexing {
+
+  private static final Logger LOGGER = Loggers.get(StartupIssueIndexing.class);
+  static final int PAGE_SIZE = 10_000;
+  private static final long CHECKPOINT_PERIOD_MS = 30_000L;
+
+  private final DbClient dbClient;
+  private final IssueIteratorFactory issueIteratorFactory;
+  private final Function<IssueDoc, IndexRequest> indexRequestFactory;
+  @CheckForNull
+  private final MetadataIndex metadataIndex;
+  private final int parallelism;
+  private final int pageSize;
+  private final long checkpointPeriodMs;
+  private final AtomicLong indexedIssues = new AtomicLong(0L);
+
+  StartupIssueIndexing(DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Function<IssueDoc, IndexRequest> indexRequestFactory,
+    @Nullable MetadataIndex metadataIndex, int parallelism) {
+    this(dbClient, issueIteratorFactory, indexRequestFactory, metadataIndex, parallelism, PAGE_SIZE, CHECKPOINT_PERIOD_MS);
+  }
+
+  StartupIssueIndexing(DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Function<IssueDoc, IndexRequest> indexRequestFactory,
+    @Nullable MetadataIndex metadataIndex, int parallelism, int pageSize, long checkpointPeriodMs) {
+    this.dbClient = dbClient;
+    this.issueIteratorFactory = issueIteratorFactory;
+    this.indexRequestFactory = indexRequestFactory;
+    this.metadataIndex = metadataIndex;
+    this.parallelism = Math.max(1, parallelism);
+    this.pageSize = pageSize;
+    this.checkpointPeriodMs = checkpointPeriodMs;
+  }
+
+  /**
+   * Adds all the issues to the started {@link BulkIndexer}. It's up to the caller to stop it.
+   */
+  void execute(BulkIndexer bulkIndexer) {
+    List<String> partitions = loadPartitions();
+    Checkpoint checkpoint = new Checkpoint(partitions);
+    long startTime = System.currentTimeMillis();
+    long lastCheckpointTime = startTime;
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+      .setNameFormat("IssueIndexer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+      for (int i = 0; i < partitions.size(); i++) {
+        String projectUuid = partitions.get(i);
+        completionService.submit(() -> indexPartition(projectUuid, bulkIndexer), i);
+      }
+
+      int remaining = partitions.size();
+      while (remaining > 0) {
+        Future<Integer> future = completionService.poll(checkpointPeriodMs, TimeUnit.MILLISECONDS);
+        if (future != null) {
+          checkpoint.complete(getPartitionIndex(future));
+          remaining--;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpointTime >= checkpointPeriodMs) {
+          save(checkpoint, bulkIndexer);
+          logProgress(partitions.size() - remaining, partitions.size(), now - startTime);
+          lastCheckpointTime = now;
+        }
+      }
+      logProgress(partitions.size(), partitions.size(), System.currentTimeMillis() - startTime);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing issues", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<String> loadPartitions() {
+    List<String> projectUuids;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      projectUuids = dbClient.issueDao().selectProjectUuidsHavingIssues(dbSession);
+    }
+    String lastIndexed = metadataIndex == null ? null : metadataIndex.getIndexingCheckpoint(INDEX_TYPE_ISSUE).orElse(null);
+    if (lastIndexed != null) {
+      LOGGER.info("Resume indexing of issues after project {}", lastIndexed);
+    }
+    return projectUuids.stream()
+      .filter(uuid -> lastIndexed == null || uuid.compareTo(lastIndexed) > 0)
+      .sorted()
+      .collect(toList());
+  }
+
+  private void indexPartition(String projectUuid, BulkIndexer bulkIndexer) {
+    String afterKey = null;
+    int count;
+    do {
+      count = 0;
+      try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid, afterKey, pageSize)) {
+        while (issues.hasNext()) {
+          IssueDoc issue = issues.next();
+          bulkIndexer.add(indexRequestFactory.apply(issue));
+          afterKey = issue.key();
+          count++;
+        }
+      }
+      indexedIssues.addAndGet(count);
+    } while (count == pageSize && !Thread.currentThread().isInterrupted());
+  }
+
+  private static int getPartitionIndex(Future<Integer> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to index issues", e.getCause());
+    }
+  }
+
+  private void save(Checkpoint checkpoint, BulkIndexer bulkIndexer) {
+    String lastIndexed = checkpoint.getLastCompleted();
+    if (metadataIndex == null || lastIndexed == null || lastIndexed.equals(checkpoint.saved)) {
+      return;
+    }
+    // the issues of the completed partitions may still be in the buffer of the bulk processor
+    if (bulkIndexer.flush()) {
+      metadataIndex.setIndexingCheckpoint(INDEX_TYPE_ISSUE, lastIndexed);
+      checkpoint.saved = lastIndexed;
+    }
+  }
+
+  private void logProgress(int completedPartitions, int totalPartitions, long durationMs) {
+    long issues = indexedIssues.get();
+    LOGGER.info("{}/{} projects processed, {} issues read ({} issues/s)", completedPartitions, totalPartitions, issues,
+      durationMs == 0L ? issues : (issues * 1_000L / durationMs));
+  }
+
+  /**
+   * Keeps track of the last partition that is completed, as well as all the previous ones.
+   */
+  private static class Checkpoint {
+    private final List<String> partitions;
+    private final boolean[] completed;
+    private int lastCompleted = -1;
+    @CheckForNull
+    private String saved;
+
+    private Checkpoint(List<String> partitions) {
+      this.partitions = partitions;
+      this.completed = new boolean[partitions.size()];
+    }
+
+    private void complete(int partitionIndex) {
+      completed[partitionIndex] = true;
+      while (lastCompleted + 1 < completed.length && completed[lastCompleted + 1]) {
+        lastCompleted++;
+      }
+    }
+
+    @CheckForNull
+    private String getLastCompleted() {
+      return lastCompleted < 0 ? null : partitions.get(lastCompleted);
+    }
+  }
+}
@@ -36,6 +36,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.BranchDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.issue.IssueGroupDto;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
@@ -117,8 +118,11 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
 
     MeasureMatrix matrix = new MeasureMatrix(components, metricsPerId.values(), dbMeasures);
     FormulaContextImpl context = new FormulaContextImpl(matrix, debtRatingGrid);
+    // issue groups of all the components are loaded at once, instead of one query per component
+    Map<String, Collection<IssueGroupDto>> issueGroupsByComponentUuid = dbClient.issueDao()
+      .selectIssueGroupsByBaseComponents(dbSession, components, beginningOfLeakPeriod.orElse(Long.MAX_VALUE));
     components.forEach(c -> {
-      IssueCounter issueCounter = new IssueCounter(dbClient.issueDao().selectIssueGroupsByBaseComponent(dbSession, c, beginningOfLeakPeriod.orElse(Long.MAX_VALUE)));
+      IssueCounter issueCounter = new IssueCounter(issueGroupsByComponentUuid.get(c.uuid()));
       for (IssueMetricFormula formula : formulaFactory.getFormulas()) {
         // exclude leak formulas when leak period is not defined
         if (beginningOfLeakPeriod.isPresent() || !formula.isOnLeak()) {
@@ -58,6 +58,7 @@ import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeMeasureSort;
 import org.sonar.db.component.ComponentTreeQuery;
 import org.sonar.db.component.ComponentTreeQuery.Strategy;
 import org.sonar.db.component.SnapshotDto;
@@ -412,17 +413,26 @@ public class ComponentTreeAction implements MeasuresWsAction {
       }
 
       ComponentTreeQuery componentTreeQuery = toComponentTreeQuery(wsRequest, baseComponent);
-      List<ComponentDto> components = searchComponents(dbSession, componentTreeQuery);
       List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
-      Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, componentTreeQuery,
-        components,
-        metrics);
-
-      components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
-      components = sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
-
-      int componentCount = components.size();
-      components = paginateComponents(components, wsRequest);
+      Optional<ComponentTreeMeasureSort> measureSort = toMeasureSort(wsRequest, metrics);
+      List<ComponentDto> components;
+      int componentCount;
+      Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric;
+      if (measureSort.isPresent()) {
+        componentCount = countComponents(dbSession, componentTreeQuery, measureSort.get());
+        components = searchComponents(dbSession, componentTreeQuery, measureSort.get(), wsRequest);
+        measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, componentTreeQuery, components, metrics,
+          components.stream().map(ComponentDto::uuid).collect(MoreCollectors.toList(components.size())));
+      } else {
+        components = searchComponents(dbSession, componentTreeQuery);
+        measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, componentTreeQuery, components, metrics, null);
+
+        components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
+        components = sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
+
+        componentCount = components.size();
+        components = paginateComponents(components, wsRequest);
+      }
 
       return ComponentTreeData.builder()
         .setBaseComponent(baseComponent)
@@ -471,6 +481,53 @@ public class ComponentTreeAction implements MeasuresWsAction {
     return dbClient.componentDao().selectDescendants(dbSession, componentTreeQuery);
   }
 
+  private int countComponents(DbSession dbSession, ComponentTreeQuery componentTreeQuery, ComponentTreeMeasureSort measureSort) {
+    return dbClient.componentDao().countDescendantsSortedByMeasure(dbSession, componentTreeQuery, measureSort);
+  }
+
+  private List<ComponentDto> searchComponents(DbSession dbSession, ComponentTreeQuery componentTreeQuery, ComponentTreeMeasureSort measureSort,
+    ComponentTreeRequest wsRequest) {
+    return dbClient.componentDao().selectDescendantsSortedByMeasure(dbSession, componentTreeQuery, measureSort,
+      offset(wsRequest.getPage(), wsRequest.getPageSize()), wsRequest.getPageSize());
+  }
+
+  /**
+   * Sort on the value or on the variation of a single numerical metric is done by the database, so that only the requested
+   * page of components and their measures are loaded. Other sorts are done in memory on the whole tree.
+   */
+  private static Optional<ComponentTreeMeasureSort> toMeasureSort(ComponentTreeRequest wsRequest, List<MetricDto> metrics) {
+    List<String> sorts = wsRequest.getSort();
+    String metricKeyToSort = wsRequest.getMetricSort();
+    if (sorts == null || sorts.size() != 1 || metricKeyToSort == null) {
+      return Optional.empty();
+    }
+    String sort = sorts.get(0);
+    boolean onVariation = METRIC_PERIOD_SORT.equals(sort);
+    if (!onVariation && !METRIC_SORT.equals(sort)) {
+      return Optional.empty();
+    }
+    // components are filtered on the variation as soon as a period is requested, see HasMeasure
+    if (onVariation != (wsRequest.getMetricPeriodSort() != null)) {
+      return Optional.empty();
+    }
+    Optional<MetricDto> metricToSort = metrics.stream().filter(m -> metricKeyToSort.equals(m.getKey())).findFirst();
+    if (!metricToSort.isPresent() || !ComponentTreeSort.isNumeric(metricToSort.get())) {
+      return Optional.empty();
+    }
+
+    MetricDto metric = metricToSort.get();
+    ComponentTreeMeasureSort.Builder builder = ComponentTreeMeasureSort.builder()
+      .setMetricId(metric.getId())
+      .setOnVariation(onVariation)
+      .setAsc(wsRequest.getAsc())
+      .setWithMeasuresOnly(componentWithMeasuresOnly(wsRequest));
+    if (MetricDtoFunctions.isOptimizedForBestValue().test(metric)) {
+      LiveMeasureDto bestValue = new MetricDtoWithBestValue(metric).getBestValue();
+      builder.setBestValue(onVariation ? bestValue.getVariation() : bestValue.getValue(), QUALIFIERS_ELIGIBLE_FOR_BEST_VALUE);
+    }
+    return Optional.of(builder.build());
+  }
+
   private List<MetricDto> searchMetrics(DbSession dbSession, ComponentTreeRequest request) {
     List<String> metricKeys = requireNonNull(request.getMetricKeys());
     List<MetricDto> metrics = dbClient.metricDao().selectByKeys(dbSession, metricKeys);
@@ -492,7 +549,7 @@ public class ComponentTreeAction implements MeasuresWsAction {
   }
 
   private Table<String, MetricDto, ComponentTreeData.Measure> searchMeasuresByComponentUuidAndMetric(DbSession dbSession, ComponentDto baseComponent,
-    ComponentTreeQuery componentTreeQuery, List<ComponentDto> components, List<MetricDto> metrics) {
+    ComponentTreeQuery componentTreeQuery, List<ComponentDto> components, List<MetricDto> metrics, @Nullable List<String> componentUuids) {
 
     Map<Integer, MetricDto> metricsById = Maps.uniqueIndex(metrics, MetricDto::getId);
     MeasureTreeQuery measureQuery = MeasureTreeQuery.builder()
@@ -500,6 +557,7 @@ public class ComponentTreeAction implements MeasuresWsAction {
       .setNameOrKeyQuery(componentTreeQuery.getNameOrKeyQuery())
       .setQualifiers(componentTreeQuery.getQualifiers())
       .setMetricIds(new ArrayList<>(metricsById.keySet()))
+      .setComponentUuids(componentUuids)
       .build();
 
     Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric = HashBasedTable.create(components.size(), metrics.size());
@@ -50,6 +50,7 @@ import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.qualityprofile.BuiltInQProfile;
 import org.sonar.server.qualityprofile.BuiltInQProfileRepository;
 import org.sonar.server.qualityprofile.QProfileName;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupCreator;
 
@@ -74,10 +75,11 @@ public class OrganizationUpdaterImpl implements OrganizationUpdater {
   private final BuiltInQProfileRepository builtInQProfileRepository;
   private final DefaultGroupCreator defaultGroupCreator;
   private final UserIndexer userIndexer;
+  private final PermissionCache permissionCache;
 
   public OrganizationUpdaterImpl(DbClient dbClient, System2 system2, UuidFactory uuidFactory,
     OrganizationValidation organizationValidation, Configuration config, UserIndexer userIndexer,
-    BuiltInQProfileRepository builtInQProfileRepository, DefaultGroupCreator defaultGroupCreator) {
+    BuiltInQProfileRepository builtInQProfileRepository, DefaultGroupCreator defaultGroupCreator, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.uuidFactory = uuidFactory;
@@ -86,6 +88,7 @@ public class OrganizationUpdaterImpl implements OrganizationUpdater {
     this.userIndexer = userIndexer;
     this.builtInQProfileRepository = builtInQProfileRepository;
     this.defaultGroupCreator = defaultGroupCreator;
+    this.permissionCache = permissionCache;
   }
 
   @Override
@@ -112,6 +115,7 @@ public class OrganizationUpdaterImpl implements OrganizationUpdater {
 
       // Elasticsearch is updated when DB session is committed
       userIndexer.commitAndIndex(dbSession, userCreator);
+      permissionCache.invalidate();
 
       return organization;
     }
@@ -149,6 +153,7 @@ public class OrganizationUpdaterImpl implements OrganizationUpdater {
 
       // Elasticsearch is updated when DB session is committed
       userIndexer.commitAndIndex(dbSession, newUser);
+      permissionCache.invalidate();
 
       return Optional.of(organization);
     }
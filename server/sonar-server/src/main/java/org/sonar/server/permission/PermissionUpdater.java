@@ -26,6 +26,7 @@ import java.util.Optional;
 import org.sonar.db.DbSession;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.es.ProjectIndexers;
+import org.sonar.server.user.PermissionCache;
 
 /**
  * Add or remove global/project permissions to a group. This class
@@ -37,24 +38,31 @@ public class PermissionUpdater {
   private final ProjectIndexers projectIndexers;
   private final UserPermissionChanger userPermissionChanger;
   private final GroupPermissionChanger groupPermissionChanger;
+  private final PermissionCache permissionCache;
 
   public PermissionUpdater(ProjectIndexers projectIndexers,
-    UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger) {
+    UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger, PermissionCache permissionCache) {
     this.projectIndexers = projectIndexers;
     this.userPermissionChanger = userPermissionChanger;
     this.groupPermissionChanger = groupPermissionChanger;
+    this.permissionCache = permissionCache;
   }
 
   public void apply(DbSession dbSession, Collection<PermissionChange> changes) {
     List<String> projectOrViewUuids = new ArrayList<>();
+    boolean changed = false;
     for (PermissionChange change : changes) {
-      boolean changed = doApply(dbSession, change);
+      boolean changeApplied = doApply(dbSession, change);
+      changed |= changeApplied;
       Optional<ProjectId> projectId = change.getProjectId();
-      if (changed && projectId.isPresent()) {
+      if (changeApplied && projectId.isPresent()) {
         projectOrViewUuids.add(projectId.get().getUuid());
       }
     }
     projectIndexers.commitAndIndexByProjectUuids(dbSession, projectOrViewUuids, ProjectIndexer.Cause.PERMISSION_CHANGE);
+    if (changed) {
+      permissionCache.invalidate();
+    }
   }
 
   private boolean doApply(DbSession dbSession, PermissionChange change) {
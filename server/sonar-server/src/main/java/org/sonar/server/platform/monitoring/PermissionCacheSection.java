@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo.Section;
+import org.sonar.server.user.PermissionCache;
+
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Statistics of the cache of user permissions
+ */
+public class PermissionCacheSection extends BaseSectionMBean implements PermissionCacheSectionMBean {
+
+  private final PermissionCache permissionCache;
+
+  public PermissionCacheSection(PermissionCache permissionCache) {
+    this.permissionCache = permissionCache;
+  }
+
+  @Override
+  public String name() {
+    return "PermissionCache";
+  }
+
+  @Override
+  public long getHits() {
+    return permissionCache.getHits();
+  }
+
+  @Override
+  public long getMisses() {
+    return permissionCache.getMisses();
+  }
+
+  @Override
+  public long getInvalidations() {
+    return permissionCache.getInvalidations();
+  }
+
+  @Override
+  public int getSize() {
+    return permissionCache.getSize();
+  }
+
+  @Override
+  public Section toProtobuf() {
+    Section.Builder protobuf = Section.newBuilder();
+    protobuf.setName("Web Permission Cache");
+    setAttribute(protobuf, "Hits", getHits());
+    setAttribute(protobuf, "Misses", getMisses());
+    setAttribute(protobuf, "Invalidations", getInvalidations());
+    setAttribute(protobuf, "Size", getSize());
+    return protobuf.build();
+  }
+}
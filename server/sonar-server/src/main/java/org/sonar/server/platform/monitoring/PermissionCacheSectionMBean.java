@@ -0,0 +1,43 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+public interface PermissionCacheSectionMBean {
+
+  /**
+   * Number of permission lookups answered from cache since startup
+   */
+  long getHits();
+
+  /**
+   * Number of permission lookups that required to query database since startup
+   */
+  long getMisses();
+
+  /**
+   * Number of times the cache has been cleared because of permission changes
+   */
+  long getInvalidations();
+
+  /**
+   * Number of entries currently in cache
+   */
+  int getSize();
+}
@@ -46,6 +46,7 @@ public class WebSystemInfoModule {
       new JvmStateSection("Web JVM State"),
       DbSection.class,
       DbConnectionSection.class,
+      PermissionCacheSection.class,
       EsStateSection.class,
       EsIndexesSection.class,
       LoggingSection.class,
@@ -66,6 +67,7 @@ public class WebSystemInfoModule {
       CeQueueGlobalSection.class,
       DbSection.class,
       DbConnectionSection.class,
+      PermissionCacheSection.class,
       EsIndexesSection.class,
       EsClusterStateSection.class,
       GlobalSystemSection.class,
@@ -19,8 +19,17 @@
  */
 package org.sonar.server.source;
 
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -28,17 +37,35 @@ import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonar.db.source.FileSourceDto.LINES_PER_CHUNK;
 
 public class SourceService {
 
+  /**
+   * Maximum weight in bytes of the chunks of lines kept in memory. The weight of a chunk is the serialized size of its
+   * lines plus the length of their HTML, as the number of lines of a chunk (see {@link FileSourceDto#LINES_PER_CHUNK})
+   * says nothing about their length.
+   */
+  private static final long MAX_CACHE_WEIGHT = 20L * 1024 * 1024;
+  /**
+   * Chunks are not cached when more are read at once, for example to display a whole file, so that they don't evict the
+   * chunks read around issues.
+   */
+  private static final int MAX_CACHED_CHUNKS_PER_READ = 4;
+
+  private final ChunkCache chunkCache;
   private final DbClient dbClient;
   private final HtmlSourceDecorator htmlDecorator;
-  private final Function<DbFileSources.Line, String> lineToHtml;
 
   public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator) {
+    this(dbClient, htmlDecorator, MAX_CACHE_WEIGHT);
+  }
+
+  @VisibleForTesting
+  SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator, long maxCacheWeight) {
     this.dbClient = dbClient;
     this.htmlDecorator = htmlDecorator;
-    this.lineToHtml = lineToHtml();
+    this.chunkCache = new ChunkCache(maxCacheWeight);
   }
 
   /**
@@ -47,7 +74,7 @@ public class SourceService {
    * @param toInclusive starts from 1, must be greater than or equal param {@code from}
    */
   public Optional<Iterable<DbFileSources.Line>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive) {
-    return getLines(dbSession, fileUuid, from, toInclusive, Function.identity());
+    return getLines(dbSession, fileUuid, from, toInclusive, LineChunk::getLine);
   }
 
   /**
@@ -55,33 +82,224 @@ public class SourceService {
    * @see #getLines(DbSession, String, int, int)
    */
   public Optional<Iterable<String>> getLinesAsRawText(DbSession dbSession, String fileUuid, int from, int toInclusive) {
-    return getLines(dbSession, fileUuid, from, toInclusive, DbFileSources.Line::getSource);
+    return getLines(dbSession, fileUuid, from, toInclusive, (chunk, index) -> chunk.getLine(index).getSource());
   }
 
   public Optional<Iterable<String>> getLinesAsHtml(DbSession dbSession, String fileUuid, int from, int toInclusive) {
-    return getLines(dbSession, fileUuid, from, toInclusive, lineToHtml);
+    return getLines(dbSession, fileUuid, from, toInclusive, LineChunk::getHtml);
   }
 
-  private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
+  /**
+   * Returns a range of lines as raw db data, along with their source decorated as HTML.
+   * @see #getLines(DbSession, String, int, int)
+   */
+  public Optional<Iterable<LineWithHtml>> getLinesWithHtml(DbSession dbSession, String fileUuid, int from, int toInclusive) {
+    return getLines(dbSession, fileUuid, from, toInclusive, (chunk, index) -> new LineWithHtml(chunk.getLine(index), chunk.getHtml(index)));
+  }
+
+  private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, LineFunction<E> function) {
     verifyLine(from);
     checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
-    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceWithoutDataByFileUuid(dbSession, fileUuid);
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
-      .filter(line -> line.hasLine() && line.getLine() >= from)
-      .limit((toInclusive - from) + 1L)
-      .map(function)
-      .collect(MoreCollectors.toList()));
+    long maxLines = (toInclusive - from) + 1L;
+    List<E> result = new ArrayList<>();
+    for (LineChunk chunk : getLineChunks(dbSession, dto, (from - 1) / LINES_PER_CHUNK, (toInclusive - 1) / LINES_PER_CHUNK)) {
+      for (int i = 0; i < chunk.size() && result.size() < maxLines; i++) {
+        DbFileSources.Line line = chunk.getLine(i);
+        if (line.hasLine() && line.getLine() >= from) {
+          result.add(function.apply(chunk, i));
+        }
+      }
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * Chunks of lines are cached by hash of the data they are read from, so that they are read again once the file is
+   * analyzed again. Their HTML is decorated on first use and cached along with them.
+   */
+  private List<LineChunk> getLineChunks(DbSession dbSession, FileSourceDto withoutData, int firstChunk, int lastChunk) {
+    String dataHash = withoutData.getDataHash();
+    int lineCount = withoutData.getLineCount();
+    if (dataHash == null || lineCount <= 0) {
+      return loadLineChunks(dbSession, withoutData.getFileUuid(), firstChunk, lastChunk);
+    }
+
+    int lastExistingChunk = Math.min(lastChunk, (lineCount - 1) / LINES_PER_CHUNK);
+    List<LineChunk> chunks = new ArrayList<>();
+    int firstMissing = -1;
+    int lastMissing = -1;
+    for (int i = firstChunk; i <= lastExistingChunk; i++) {
+      LineChunk chunk = chunkCache.get(chunkKey(withoutData.getFileUuid(), dataHash, i));
+      if (chunk == null) {
+        firstMissing = firstMissing < 0 ? i : firstMissing;
+        lastMissing = i;
+      }
+      chunks.add(chunk);
+    }
+    if (firstMissing < 0) {
+      return chunks;
+    }
+
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, withoutData.getFileUuid());
+    if (dto == null || !dataHash.equals(dto.getDataHash())) {
+      // file has been deleted or analyzed again in the meantime
+      return dto == null ? Collections.emptyList() : toLineChunks(dto.getSourceLineChunks(firstChunk, lastChunk));
+    }
+    List<List<DbFileSources.Line>> loaded = dto.getSourceLineChunks(firstMissing, lastMissing);
+    boolean cached = loaded.size() <= MAX_CACHED_CHUNKS_PER_READ;
+    for (int i = 0; i < loaded.size(); i++) {
+      int index = firstMissing - firstChunk + i;
+      if (chunks.get(index) == null) {
+        String key = cached ? chunkKey(dto.getFileUuid(), dataHash, firstMissing + i) : null;
+        LineChunk chunk = new LineChunk(loaded.get(i), key);
+        chunks.set(index, chunk);
+        if (key != null) {
+          chunkCache.put(key, chunk);
+        }
+      }
+    }
+    chunks.removeIf(chunk -> chunk == null);
+    return chunks;
+  }
+
+  private List<LineChunk> loadLineChunks(DbSession dbSession, String fileUuid, int firstChunk, int lastChunk) {
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
+    if (dto == null) {
+      return Collections.emptyList();
+    }
+    return toLineChunks(dto.getSourceLineChunks(firstChunk, lastChunk));
+  }
+
+  private List<LineChunk> toLineChunks(List<List<DbFileSources.Line>> chunks) {
+    return chunks.stream()
+      .map(lines -> new LineChunk(lines, null))
+      .collect(MoreCollectors.toList(chunks.size()));
+  }
+
+  private static String chunkKey(String fileUuid, String dataHash, int chunk) {
+    return fileUuid + ':' + dataHash + ':' + chunk;
   }
 
   private static void verifyLine(int line) {
     checkArgument(line >= 1, String.format("Line number must start at 1, got %d", line));
   }
 
-  private Function<DbFileSources.Line, String> lineToHtml() {
-    return line -> htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols());
+  public static class LineWithHtml {
+    private final DbFileSources.Line line;
+    private final String html;
+
+    private LineWithHtml(DbFileSources.Line line, @Nullable String html) {
+      this.line = line;
+      this.html = html;
+    }
+
+    public DbFileSources.Line getLine() {
+      return line;
+    }
+
+    @CheckForNull
+    public String getHtml() {
+      return html;
+    }
+  }
+
+  @FunctionalInterface
+  private interface LineFunction<E> {
+    E apply(LineChunk chunk, int index);
   }
 
+  /**
+   * Lines of a chunk and their source decorated as HTML. Decoration is done line by line on first access, so that
+   * repeated reads of a cached chunk do not parse highlighting and symbols again. Lines without HTML are decorated
+   * only once too.
+   */
+  private class LineChunk {
+    private final List<DbFileSources.Line> lines;
+    @Nullable
+    private final String cacheKey;
+    private final AtomicReferenceArray<Optional<String>> html;
+    // guarded by the lock of the cache
+    private long weight;
+
+    private LineChunk(List<DbFileSources.Line> lines, @Nullable String cacheKey) {
+      this.lines = Collections.unmodifiableList(lines);
+      this.cacheKey = cacheKey;
+      this.html = new AtomicReferenceArray<>(lines.size());
+      this.weight = lines.stream().mapToLong(DbFileSources.Line::getSerializedSize).sum();
+    }
+
+    private int size() {
+      return lines.size();
+    }
+
+    private DbFileSources.Line getLine(int index) {
+      return lines.get(index);
+    }
+
+    @CheckForNull
+    private String getHtml(int index) {
+      Optional<String> decorated = html.get(index);
+      if (decorated == null) {
+        DbFileSources.Line line = lines.get(index);
+        decorated = Optional.ofNullable(htmlDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols()));
+        // decoration is deterministic, so concurrent reads may both decorate the line without harm, but only one is kept
+        if (html.compareAndSet(index, null, decorated) && cacheKey != null) {
+          chunkCache.increaseWeight(cacheKey, this, decorated.map(String::length).orElse(0));
+        }
+      }
+      return decorated.orElse(null);
+    }
+  }
+
+  /**
+   * Least recently used chunks, evicted once the sum of their weights exceeds the maximum weight. A chunk heavier
+   * than a tenth of the maximum weight, for example of minified code, is not cached. The weight of a chunk increases
+   * as its lines are decorated as HTML.
+   */
+  private static class ChunkCache {
+    private final Map<String, LineChunk> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWeight;
+    private long weight = 0L;
+
+    private ChunkCache(long maxWeight) {
+      this.maxWeight = maxWeight;
+    }
+
+    @CheckForNull
+    private synchronized LineChunk get(String key) {
+      return chunks.get(key);
+    }
+
+    private synchronized void put(String key, LineChunk chunk) {
+      if (chunk.weight > maxWeight / 10) {
+        return;
+      }
+      LineChunk replaced = chunks.put(key, chunk);
+      if (replaced != null) {
+        weight -= replaced.weight;
+      }
+      weight += chunk.weight;
+      evict();
+    }
+
+    private synchronized void increaseWeight(String key, LineChunk chunk, long delta) {
+      chunk.weight += delta;
+      if (chunks.get(key) == chunk) {
+        weight += delta;
+        evict();
+      }
+    }
+
+    private void evict() {
+      Iterator<LineChunk> eldest = chunks.values().iterator();
+      while (weight > maxWeight && eldest.hasNext()) {
+        weight -= eldest.next().weight;
+        eldest.remove();
+      }
+    }
+  }
 }
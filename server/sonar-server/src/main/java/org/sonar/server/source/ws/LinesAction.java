@@ -35,8 +35,8 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.server.component.ComponentFinder;
-import org.sonar.server.source.HtmlSourceDecorator;
 import org.sonar.server.source.SourceService;
+import org.sonar.server.source.SourceService.LineWithHtml;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -58,15 +58,12 @@ public class LinesAction implements SourcesWsAction {
 
   private final ComponentFinder componentFinder;
   private final SourceService sourceService;
-  private final HtmlSourceDecorator htmlSourceDecorator;
   private final DbClient dbClient;
   private final UserSession userSession;
 
-  public LinesAction(ComponentFinder componentFinder, DbClient dbClient, SourceService sourceService,
-    HtmlSourceDecorator htmlSourceDecorator, UserSession userSession) {
+  public LinesAction(ComponentFinder componentFinder, DbClient dbClient, SourceService sourceService, UserSession userSession) {
     this.componentFinder = componentFinder;
     this.sourceService = sourceService;
-    this.htmlSourceDecorator = htmlSourceDecorator;
     this.dbClient = dbClient;
     this.userSession = userSession;
   }
@@ -142,7 +139,8 @@ public class LinesAction implements SourcesWsAction {
       int from = request.mandatoryParamAsInt(PARAM_FROM);
       int to = MoreObjects.firstNonNull(request.paramAsInt(PARAM_TO), Integer.MAX_VALUE);
 
-      Iterable<DbFileSources.Line> lines = checkFoundWithOptional(sourceService.getLines(dbSession, file.uuid(), from, to), "No source found for file '%s'", file.getDbKey());
+      Iterable<LineWithHtml> lines = checkFoundWithOptional(sourceService.getLinesWithHtml(dbSession, file.uuid(), from, to), "No source found for file '%s'",
+        file.getDbKey());
       try (JsonWriter json = response.newJsonWriter()) {
         json.beginObject();
         writeSource(lines, json);
@@ -166,12 +164,13 @@ public class LinesAction implements SourcesWsAction {
     return componentFinder.getByKeyAndOptionalBranchOrPullRequest(dbSession, componentKey, branch, pullRequest);
   }
 
-  private void writeSource(Iterable<DbFileSources.Line> lines, JsonWriter json) {
+  private void writeSource(Iterable<LineWithHtml> lines, JsonWriter json) {
     json.name("sources").beginArray();
-    for (DbFileSources.Line line : lines) {
+    for (LineWithHtml lineWithHtml : lines) {
+      DbFileSources.Line line = lineWithHtml.getLine();
       json.beginObject()
         .prop("line", line.getLine())
-        .prop("code", htmlSourceDecorator.getDecoratedSourceAsHtml(line.getSource(), line.getHighlighting(), line.getSymbols()))
+        .prop("code", lineWithHtml.getHtml())
         .prop("scmAuthor", line.getScmAuthor())
         .prop("scmRevision", line.getScmRevision());
       if (line.hasScmDate()) {
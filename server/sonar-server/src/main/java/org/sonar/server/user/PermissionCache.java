@@ -0,0 +1,228 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.process.ProcessId;
+import org.sonar.process.cluster.hz.DistributedCall;
+import org.sonar.process.cluster.hz.HazelcastMember;
+import org.sonar.process.cluster.hz.HazelcastMemberSelectors;
+
+/**
+ * Permissions resolved by {@link ServerUserSession}, shared by all the sessions of the web server.
+ * <p>
+ * Entries are evicted when the cache is full (least recently used first) or when they are older than
+ * {@link #TTL_MS}. The whole cache must be invalidated with {@link #invalidate()} as soon as
+ * permissions, group memberships or project visibility are changed and committed. In cluster mode,
+ * the invalidation is propagated to all the web nodes.
+ */
+@ServerSide
+public class PermissionCache implements Startable {
+
+  static final int MAX_ENTRIES = 10_000;
+  static final long TTL_MS = 5L * 60 * 1000;
+  private static final long CLUSTER_TIMEOUT_MILLIS = 5000;
+  private static final String ANONYMOUS = "anonymous";
+  private static final Logger LOGGER = Loggers.get(PermissionCache.class);
+
+  /** Used for Hazelcast's distributed queries in cluster mode */
+  private static PermissionCache instance;
+
+  private final System2 system2;
+  @CheckForNull
+  private final HazelcastMember member;
+  private final Map<String, Entry<Set<OrganizationPermission>>> organizationPermissions = newLruMap();
+  private final Map<String, Entry<Set<String>>> projectPermissions = newLruMap();
+  private final Map<String, Entry<String>> projectUuidByComponentUuid = newLruMap();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public PermissionCache(System2 system2, @Nullable HazelcastMember member) {
+    this.system2 = system2;
+    this.member = member;
+  }
+
+  /**
+   * Constructor used by Pico when the web server is not part of a cluster
+   */
+  public PermissionCache(System2 system2) {
+    this(system2, null);
+  }
+
+  @Override
+  public void start() {
+    instance = this;
+  }
+
+  @Override
+  public void stop() {
+    instance = null;
+  }
+
+  public Set<OrganizationPermission> getOrganizationPermissions(@Nullable Integer userId, String organizationUuid,
+    Supplier<Set<OrganizationPermission>> loader) {
+    return get(organizationPermissions, key(userId, organizationUuid), loader);
+  }
+
+  public Set<String> getProjectPermissions(@Nullable Integer userId, String projectUuid, Supplier<Set<String>> loader) {
+    return get(projectPermissions, key(userId, projectUuid), loader);
+  }
+
+  /**
+   * The project of a component never changes, so this mapping does not depend on the user.
+   * Nothing is cached when component does not exist.
+   */
+  public Optional<String> getProjectUuid(String componentUuid, Supplier<Optional<String>> loader) {
+    Entry<String> entry = getEntry(projectUuidByComponentUuid, componentUuid);
+    if (entry != null) {
+      return Optional.of(entry.value);
+    }
+    Optional<String> projectUuid = loader.get();
+    projectUuid.ifPresent(uuid -> projectUuidByComponentUuid.put(componentUuid, new Entry<>(uuid, system2.now())));
+    return projectUuid;
+  }
+
+  /**
+   * Drops all the permissions cached by this node and, in cluster mode, by the other web nodes.
+   * Must be called after the changes are committed, otherwise a concurrent request could cache the
+   * permissions being replaced.
+   */
+  public void invalidate() {
+    if (member == null) {
+      invalidateLocally();
+      return;
+    }
+    try {
+      member.call(invalidateNode(), HazelcastMemberSelectors.selectorForProcessIds(ProcessId.WEB_SERVER), CLUSTER_TIMEOUT_MILLIS)
+        .propagateExceptions();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      invalidateLocally();
+    } catch (RuntimeException e) {
+      // permissions are already changed in db. Other nodes will be up-to-date at the latest when their entries expire.
+      LOGGER.warn("Fail to invalidate permission cache of other cluster nodes", e);
+      invalidateLocally();
+    }
+  }
+
+  public static void invalidateFromHazelcastDistributedQuery() {
+    if (instance != null) {
+      instance.invalidateLocally();
+    }
+  }
+
+  private static DistributedCall<Object> invalidateNode() {
+    return () -> {
+      invalidateFromHazelcastDistributedQuery();
+      return null;
+    };
+  }
+
+  void invalidateLocally() {
+    // generation is changed first, so that values being loaded are not cached once the maps are cleared
+    invalidations.incrementAndGet();
+    organizationPermissions.clear();
+    projectPermissions.clear();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  public int getSize() {
+    return organizationPermissions.size() + projectPermissions.size() + projectUuidByComponentUuid.size();
+  }
+
+  private <V> V get(Map<String, Entry<V>> map, String key, Supplier<V> loader) {
+    Entry<V> entry = getEntry(map, key);
+    if (entry != null) {
+      return entry.value;
+    }
+    // load outside of the lock of the map, so that a slow query does not block the other sessions
+    long loadedAt = system2.now();
+    long generation = invalidations.get();
+    V value = loader.get();
+    // check and put under the lock of the map, so that an invalidation clears the map after the put, if not before the check
+    synchronized (map) {
+      if (generation == invalidations.get()) {
+        // do not cache values that may have been loaded before an invalidation
+        map.put(key, new Entry<>(value, loadedAt));
+      }
+    }
+    return value;
+  }
+
+  @CheckForNull
+  private <V> Entry<V> getEntry(Map<String, Entry<V>> map, String key) {
+    Entry<V> entry = map.get(key);
+    if (entry != null && system2.now() - entry.loadedAt < TTL_MS) {
+      hits.incrementAndGet();
+      return entry;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  private static String key(@Nullable Integer userId, String uuid) {
+    return (userId == null ? ANONYMOUS : String.valueOf(userId)) + ':' + uuid;
+  }
+
+  private static <V> Map<String, V> newLruMap() {
+    return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    });
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long loadedAt;
+
+    private Entry(V value, long loadedAt) {
+      this.value = value;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
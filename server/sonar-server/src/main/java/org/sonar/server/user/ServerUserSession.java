@@ -54,6 +54,7 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final PermissionCache permissionCache;
   private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
@@ -61,10 +62,11 @@ public class ServerUserSession extends AbstractUserSession {
   private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, PermissionCache permissionCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.permissionCache = permissionCache;
     this.userDto = userDto;
   }
 
@@ -121,7 +123,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByOrganizationUuid == null) {
       permissionsByOrganizationUuid = new HashMap<>();
     }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
+    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid,
+      uuid -> permissionCache.getOrganizationPermissions(getUserId(), uuid, () -> loadOrganizationPermissions(uuid)));
     return permissions.contains(permission);
   }
 
@@ -145,6 +148,12 @@ public class ServerUserSession extends AbstractUserSession {
     if (projectUuid != null) {
       return Optional.of(projectUuid);
     }
+    Optional<String> loaded = permissionCache.getProjectUuid(componentUuid, () -> loadProjectUuid(componentUuid));
+    loaded.ifPresent(uuid -> projectUuidByComponentUuid.put(componentUuid, uuid));
+    return loaded;
+  }
+
+  private Optional<String> loadProjectUuid(String componentUuid) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       com.google.common.base.Optional<ComponentDto> component = dbClient.componentDao().selectByUuid(dbSession, componentUuid);
       if (!component.isPresent()) {
@@ -152,9 +161,7 @@ public class ServerUserSession extends AbstractUserSession {
       }
       // if component is part of a branch, then permissions must be
       // checked on the project (represented by its main branch)
-      projectUuid = defaultIfEmpty(component.get().getMainBranchProjectUuid(), component.get().projectUuid());
-      projectUuidByComponentUuid.put(componentUuid, projectUuid);
-      return Optional.of(projectUuid);
+      return Optional.of(defaultIfEmpty(component.get().getMainBranchProjectUuid(), component.get().projectUuid()));
     }
   }
 
@@ -163,7 +170,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByProjectUuid == null) {
       permissionsByProjectUuid = new HashMap<>();
     }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid,
+      uuid -> permissionCache.getProjectPermissions(getUserId(), uuid, () -> loadProjectPermissions(uuid)));
     return permissions.contains(permission);
   }
 
@@ -81,10 +81,11 @@ public class UserUpdater {
   private final DefaultGroupFinder defaultGroupFinder;
   private final Configuration config;
   private final LocalAuthentication localAuthentication;
+  private final PermissionCache permissionCache;
 
   public UserUpdater(NewUserNotifier newUserNotifier, DbClient dbClient, UserIndexer userIndexer, OrganizationFlags organizationFlags,
                      DefaultOrganizationProvider defaultOrganizationProvider, OrganizationUpdater organizationUpdater, DefaultGroupFinder defaultGroupFinder, Configuration config,
-                     LocalAuthentication localAuthentication) {
+                     LocalAuthentication localAuthentication, PermissionCache permissionCache) {
     this.newUserNotifier = newUserNotifier;
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
@@ -94,6 +95,7 @@ public class UserUpdater {
     this.defaultGroupFinder = defaultGroupFinder;
     this.config = config;
     this.localAuthentication = localAuthentication;
+    this.permissionCache = permissionCache;
   }
 
   public UserDto createAndCommit(DbSession dbSession, NewUser newUser, Consumer<UserDto> beforeCommit, UserDto... otherUsersToIndex) {
@@ -104,7 +106,10 @@ public class UserUpdater {
   public UserDto reactivateAndCommit(DbSession dbSession, UserDto disabledUser, NewUser newUser, Consumer<UserDto> beforeCommit, UserDto... otherUsersToIndex) {
     checkArgument(!disabledUser.isActive(), "An active user with login '%s' already exists", disabledUser.getLogin());
     reactivateUser(dbSession, disabledUser, newUser);
-    return commitUser(dbSession, disabledUser, beforeCommit, otherUsersToIndex);
+    UserDto userDto = commitUser(dbSession, disabledUser, beforeCommit, otherUsersToIndex);
+    // membership of default organization and default group are restored
+    permissionCache.invalidate();
+    return userDto;
   }
 
   private void reactivateUser(DbSession dbSession, UserDto disabledUser, NewUser newUser) {
@@ -19,29 +19,66 @@
  */
 package org.sonar.server.util.cache;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.util.ObjectInputStreamIterator;
 
+import static com.google.common.base.Preconditions.checkState;
+
 /**
- * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * Serialize and deserialize objects on disk.
+ * <p>
+ * By default objects are written with Java serialization and the only search capability is traversal (full scan).
+ * When a {@link DiskCacheCodec} is provided, objects are encoded with this codec into LZ4-compressed blocks, which
+ * is much more compact and faster. In this mode an optional index key (for example the component
+ * of an issue) allows to traverse only the blocks containing the objects of a given key.
+ * </p>
  */
 public class DiskCache<O extends Serializable> {
 
+  private static final int BLOCK_SIZE = 64 * 1024;
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
   private final File file;
   private final System2 system2;
+  @CheckForNull
+  private final DiskCacheCodec<O> codec;
+  @CheckForNull
+  private final Function<O, String> indexKeyFunction;
+  private final Map<String, List<Long>> blockOffsetsByIndexKey = new HashMap<>();
 
   public DiskCache(File file, System2 system2) {
     this.system2 = system2;
     this.file = file;
+    this.codec = null;
+    this.indexKeyFunction = null;
     OutputStream output = null;
     boolean threw = true;
     try {
@@ -63,13 +100,51 @@ public class DiskCache<O extends Serializable> {
     }
   }
 
+  /**
+   * @param indexKeyFunction if not null, the offsets of the blocks are indexed by the key returned by this function,
+   *                         so that {@link #traverse(String)} can be used.
+   */
+  public DiskCache(File file, System2 system2, DiskCacheCodec<O> codec, @Nullable Function<O, String> indexKeyFunction) {
+    this.system2 = system2;
+    this.file = file;
+    this.codec = codec;
+    this.indexKeyFunction = indexKeyFunction;
+    try {
+      // truncates the file, if it already exists
+      FileUtils.writeByteArrayToFile(file, new byte[0]);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file: " + file, e);
+    }
+  }
+
   public DiskAppender newAppender() {
     return new DiskAppender();
   }
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      if (codec == null) {
+        return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      }
+      return new BlockIterator(null, null);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to traverse file: " + file, e);
+    }
+  }
+
+  /**
+   * Traverses only the objects associated to the given index key. Order of insertion is kept.
+   *
+   * @throws IllegalStateException if the cache is not indexed
+   */
+  public CloseableIterator<O> traverse(String indexKey) {
+    checkState(indexKeyFunction != null, "Cache %s is not indexed", file);
+    List<Long> offsets = blockOffsetsByIndexKey.getOrDefault(indexKey, Collections.emptyList());
+    if (offsets.isEmpty()) {
+      return CloseableIterator.emptyCloseableIterator();
+    }
+    try {
+      return new BlockIterator(offsets.iterator(), indexKey);
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
@@ -77,15 +152,22 @@ public class DiskCache<O extends Serializable> {
 
   public class DiskAppender implements AutoCloseable {
     private final ObjectOutputStream output;
+    private final BlockWriter blockWriter;
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        if (codec == null) {
+          this.blockWriter = null;
+          this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
+            @Override
+            protected void writeStreamHeader() {
+              // do not write stream headers as it's already done in constructor of DiskCache
+            }
+          };
+        } else {
+          this.output = null;
+          this.blockWriter = new BlockWriter(codec);
+        }
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -93,8 +175,12 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        if (blockWriter == null) {
+          output.writeObject(object);
+          output.reset();
+        } else {
+          blockWriter.append(object);
+        }
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
@@ -103,7 +189,141 @@ public class DiskCache<O extends Serializable> {
 
     @Override
     public void close() {
-      system2.close(output);
+      if (blockWriter == null) {
+        system2.close(output);
+      } else {
+        blockWriter.close();
+      }
+    }
+  }
+
+  /**
+   * Each block is written as: uncompressed size (int), compressed size (int), LZ4 compressed bytes.
+   */
+  private class BlockWriter {
+    private final DiskCacheCodec<O> blockCodec;
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(BLOCK_SIZE + 1024);
+    private final CodedOutputStream codedOutput = CodedOutputStream.newInstance(blockBuffer);
+    private final Set<String> indexKeysOfBlock = new HashSet<>();
+    private final LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+    private long position;
+
+    private BlockWriter(DiskCacheCodec<O> blockCodec) throws IOException {
+      this.blockCodec = blockCodec;
+      this.position = file.length();
+      this.output = new DataOutputStream(new FileOutputStream(file, true));
+    }
+
+    void append(O object) throws IOException {
+      blockCodec.write(object, codedOutput);
+      codedOutput.flush();
+      if (indexKeyFunction != null) {
+        String indexKey = indexKeyFunction.apply(object);
+        if (indexKey != null) {
+          indexKeysOfBlock.add(indexKey);
+        }
+      }
+      if (blockBuffer.size() >= BLOCK_SIZE) {
+        flushBlock();
+      }
+    }
+
+    private void flushBlock() throws IOException {
+      if (blockBuffer.size() == 0) {
+        return;
+      }
+      byte[] raw = blockBuffer.toByteArray();
+      byte[] compressed = new byte[compressor.maxCompressedLength(raw.length)];
+      int compressedLength = compressor.compress(raw, 0, raw.length, compressed, 0, compressed.length);
+      output.writeInt(raw.length);
+      output.writeInt(compressedLength);
+      output.write(compressed, 0, compressedLength);
+
+      for (String indexKey : indexKeysOfBlock) {
+        blockOffsetsByIndexKey.computeIfAbsent(indexKey, k -> new ArrayList<>()).add(position);
+      }
+      position += 8L + compressedLength;
+      indexKeysOfBlock.clear();
+      blockBuffer.reset();
+    }
+
+    void close() {
+      boolean threw = true;
+      try {
+        flushBlock();
+        threw = false;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      } finally {
+        if (threw) {
+          IOUtils.closeQuietly(output);
+        } else {
+          system2.close(output);
+        }
+      }
+    }
+  }
+
+  private class BlockIterator extends CloseableIterator<O> {
+    private final RandomAccessFile input;
+    private final LZ4FastDecompressor decompressor = LZ4_FACTORY.fastDecompressor();
+    @CheckForNull
+    private final Iterator<Long> blockOffsets;
+    @CheckForNull
+    private final String indexKey;
+    private CodedInputStream block = null;
+
+    /**
+     * @param blockOffsets the blocks to be read. If null, then all blocks are read sequentially.
+     * @param indexKey if not null, only the objects with this index key are returned.
+     */
+    private BlockIterator(@Nullable Iterator<Long> blockOffsets, @Nullable String indexKey) throws IOException {
+      this.input = new RandomAccessFile(file, "r");
+      this.blockOffsets = blockOffsets;
+      this.indexKey = indexKey;
+    }
+
+    @Override
+    protected O doNext() {
+      try {
+        while (true) {
+          if ((block == null || block.isAtEnd()) && !readNextBlock()) {
+            return null;
+          }
+          O object = codec.read(block);
+          if (indexKey == null || indexKey.equals(indexKeyFunction.apply(object))) {
+            return object;
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    private boolean readNextBlock() throws IOException {
+      if (blockOffsets == null) {
+        if (input.getFilePointer() >= input.length()) {
+          return false;
+        }
+      } else if (blockOffsets.hasNext()) {
+        input.seek(blockOffsets.next());
+      } else {
+        return false;
+      }
+      int rawLength = input.readInt();
+      int compressedLength = input.readInt();
+      byte[] compressed = new byte[compressedLength];
+      input.readFully(compressed);
+      byte[] raw = new byte[rawLength];
+      decompressor.decompress(compressed, 0, raw, 0, rawLength);
+      block = CodedInputStream.newInstance(raw);
+      return true;
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+      input.close();
     }
   }
 }
@@ -48,6 +48,7 @@ import org.sonar.server.organization.OrganizationValidationImpl;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -93,6 +94,7 @@ public class UserIdentityAuthenticatorImplTest {
   private OrganizationUpdater organizationUpdater = mock(OrganizationUpdater.class);
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private LocalAuthentication localAuthentication = new LocalAuthentication(db.getDbClient());
+  private PermissionCache permissionCache = new PermissionCache(System2.INSTANCE);
   private UserUpdater userUpdater = new UserUpdater(
     mock(NewUserNotifier.class),
     db.getDbClient(),
@@ -102,12 +104,13 @@ public class UserIdentityAuthenticatorImplTest {
     organizationUpdater,
     new DefaultGroupFinder(db.getDbClient()),
     settings.asConfig(),
-    localAuthentication);
+    localAuthentication,
+    permissionCache);
 
   private UserIdentityAuthenticatorImpl underTest = new UserIdentityAuthenticatorImpl(db.getDbClient(), userUpdater, defaultOrganizationProvider, organizationFlags,
     new OrganizationUpdaterImpl(db.getDbClient(), mock(System2.class), UuidFactoryFast.getInstance(),
-      new OrganizationValidationImpl(), settings.asConfig(), null, null, null),
-    new DefaultGroupFinder(db.getDbClient()));
+      new OrganizationValidationImpl(), settings.asConfig(), null, null, null, permissionCache),
+    new DefaultGroupFinder(db.getDbClient()), permissionCache);
 
   @Test
   public void authenticate_new_user() {
@@ -700,6 +703,7 @@ public class UserIdentityAuthenticatorImplTest {
     authenticate(USER_LOGIN, "group1", "group2", "group3");
 
     checkGroupMembership(user, group1, group2);
+    assertThat(permissionCache.getInvalidations()).isEqualTo(1);
   }
 
   @Test
@@ -717,6 +721,23 @@ public class UserIdentityAuthenticatorImplTest {
     authenticate(USER_LOGIN, "group1");
 
     checkGroupMembership(user, group1);
+    assertThat(permissionCache.getInvalidations()).isEqualTo(1);
+  }
+
+  @Test
+  public void authenticate_existing_user_with_unchanged_groups_does_not_invalidate_permission_cache() {
+    organizationFlags.setEnabled(true);
+    UserDto user = db.users().insertUser(newUserDto()
+      .setLogin(USER_LOGIN)
+      .setActive(true)
+      .setName("John"));
+    GroupDto group1 = db.users().insertGroup(db.getDefaultOrganization(), "group1");
+    db.users().insertMember(group1, user);
+
+    authenticate(USER_LOGIN, "group1");
+
+    checkGroupMembership(user, group1);
+    assertThat(permissionCache.getInvalidations()).isZero();
   }
 
   @Test
@@ -288,6 +288,29 @@ public class IssuesActionTest {
     }
   }
 
+  @Test
+  public void return_not_modified_if_issues_did_not_change() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    db.issues().insert(rule, project, file, i -> i.setUpdatedAt(1_000L));
+    addPermissionTo(project);
+
+    TestResponse response = tester.newRequest().setParam("key", project.getKey()).execute();
+    String etag = response.getHeader("ETag");
+    assertThat(etag).isNotEmpty();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    response = tester.newRequest().setParam("key", project.getKey()).setHeader("If-None-Match", etag).execute();
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getInput()).isEmpty();
+
+    db.issues().insert(rule, project, file, i -> i.setUpdatedAt(2_000L));
+    response = tester.newRequest().setParam("key", project.getKey()).setHeader("If-None-Match", etag).execute();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader("ETag")).isNotEqualTo(etag);
+  }
+
   @Test
   public void fail_if_user_does_not_have_permission_on_project() {
     ComponentDto project = db.components().insertPrivateProject();
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.batch;
 
+import java.util.Optional;
+import java.util.function.Predicate;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.sonar.scanner.protocol.input.FileData;
@@ -46,7 +48,7 @@ public class ProjectActionTest {
     when(projectReferentials.toJson()).thenReturn("{\"settingsByModule\": {}}");
 
     ArgumentCaptor<ProjectDataQuery> queryArgumentCaptor = ArgumentCaptor.forClass(ProjectDataQuery.class);
-    when(projectDataLoader.load(queryArgumentCaptor.capture())).thenReturn(projectReferentials);
+    when(projectDataLoader.load(queryArgumentCaptor.capture(), any())).thenReturn(Optional.of(projectReferentials));
 
     TestResponse response = ws.newRequest()
       .setParam("key", projectKey)
@@ -62,6 +64,40 @@ public class ProjectActionTest {
     assertThat(queryArgumentCaptor.getValue().getBranch()).isEqualTo("my_branch");
   }
 
+  @Test
+  public void return_etag_of_project_repository() {
+    when(projectDataLoader.load(any(ProjectDataQuery.class), any())).thenAnswer(invocation -> {
+      Predicate<String> isNotModified = invocation.getArgument(1);
+      return isNotModified.test("\"etag1\"") ? Optional.empty() : Optional.of(new ProjectRepositories());
+    });
+
+    TestResponse response = ws.newRequest()
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader("If-None-Match", "\"etag0\"")
+      .execute();
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader("ETag")).isEqualTo("\"etag1\"");
+  }
+
+  @Test
+  public void return_not_modified_if_project_repository_did_not_change() {
+    when(projectDataLoader.load(any(ProjectDataQuery.class), any())).thenAnswer(invocation -> {
+      Predicate<String> isNotModified = invocation.getArgument(1);
+      assertThat(isNotModified.test("\"etag1\"")).isTrue();
+      return Optional.empty();
+    });
+
+    TestResponse response = ws.newRequest()
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader("If-None-Match", "\"etag1\"")
+      .execute();
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getHeader("ETag")).isEqualTo("\"etag1\"");
+    assertThat(response.getInput()).isEmpty();
+  }
+
   /**
    * SONAR-7084
    */
@@ -70,7 +106,7 @@ public class ProjectActionTest {
     String projectKey = "org.codehaus.sonar:sonar";
 
     ProjectRepositories projectRepositories = new ProjectRepositories().addFileData("module-1", null, new FileData(null, null));
-    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+    when(projectDataLoader.load(any(ProjectDataQuery.class), any())).thenReturn(Optional.of(projectRepositories));
 
     WsProjectResponse wsProjectResponse = ws.newRequest()
       .setParam("key", projectKey)
@@ -21,6 +21,7 @@ package org.sonar.server.batch;
 
 import com.google.common.collect.ImmutableMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -606,6 +607,40 @@ public class ProjectDataLoaderTest {
     assertThat(ref.fileData(moduleBranch.getKey(), moduleFile.path()).hash()).isEqualTo("789456");
   }
 
+  @Test
+  public void etag_changes_when_settings_change_or_project_is_analyzed() {
+    OrganizationDto organizationDto = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organizationDto);
+    userSession.logIn().addProjectPermission(SCAN_EXECUTION, project);
+    ProjectDataQuery query = ProjectDataQuery.create().setModuleKey(project.getKey());
+
+    String etag = loadEtag(query);
+    assertThat(loadEtag(query)).isEqualTo(etag);
+
+    dbClient.propertiesDao().saveProperty(
+      dbSession, new PropertyDto().setKey("sonar.jira.project.key").setValue("SONAR").setResourceId(project.getId()));
+    dbSession.commit();
+    String etagAfterSettingChange = loadEtag(query);
+    assertThat(etagAfterSettingChange).isNotEqualTo(etag);
+
+    db.components().insertSnapshot(project);
+    assertThat(loadEtag(query)).isNotEqualTo(etagAfterSettingChange);
+  }
+
+  @Test
+  public void files_are_not_loaded_if_project_repository_is_not_modified() {
+    OrganizationDto organizationDto = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organizationDto);
+    userSession.logIn().addProjectPermission(SCAN_EXECUTION, project);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    dbClient.fileSourceDao().insert(dbSession, newFileSourceDto(file).setSrcHash("123456"));
+    db.commit();
+    ProjectDataQuery query = ProjectDataQuery.create().setModuleKey(project.getKey());
+
+    assertThat(underTest.load(query, etag -> true)).isEmpty();
+    assertThat(underTest.load(query, etag -> false).get().fileData(project.getKey(), file.path()).hash()).isEqualTo("123456");
+  }
+
   @Test
   public void fails_with_NPE_if_query_is_null() {
     expectedException.expect(NullPointerException.class);
@@ -724,6 +759,15 @@ public class ProjectDataLoaderTest {
     assertThat(repositories).isNotNull();
   }
 
+  private String loadEtag(ProjectDataQuery query) {
+    AtomicReference<String> etag = new AtomicReference<>();
+    underTest.load(query, e -> {
+      etag.set(e);
+      return false;
+    });
+    return etag.get();
+  }
+
   private static FileSourceDto newFileSourceDto(ComponentDto file) {
     return new FileSourceDto()
       .setFileUuid(file.uuid())
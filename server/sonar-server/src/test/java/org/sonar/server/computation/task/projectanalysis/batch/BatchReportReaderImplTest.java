@@ -21,12 +21,17 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
@@ -178,6 +183,30 @@ public class BatchReportReaderImplTest {
     assertThat(underTest.readComponentIssues(COMPONENT_REF)).isNotSameAs(underTest.readComponentIssues(COMPONENT_REF));
   }
 
+  @Test
+  public void read_several_times_a_file_with_too_many_messages_to_be_kept_decoded() {
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    for (int i = 0; i <= BatchReportReaderImpl.MAX_DECODED_MESSAGES_PER_FILE; i++) {
+      issues.add(ScannerReport.Issue.newBuilder().setMsg("message " + i).build());
+    }
+    writer.writeComponentIssues(COMPONENT_REF, issues);
+
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactlyElementsOf(issues);
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactlyElementsOf(issues);
+  }
+
+  @Test
+  public void read_several_times_a_file_too_big_to_be_loaded() {
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      issues.add(ScannerReport.Issue.newBuilder().setRuleKey("S" + i).setMsg("message " + i).build());
+    }
+    writer.writeComponentIssues(COMPONENT_REF, issues);
+
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactlyElementsOf(issues);
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactlyElementsOf(issues);
+  }
+
   @Test
   public void readComponentDuplications_returns_empty_list_if_file_does_not_exist() {
     assertThat(underTest.readComponentDuplications(COMPONENT_REF)).isEmpty();
@@ -287,6 +316,21 @@ public class BatchReportReaderImplTest {
     res.close();
   }
 
+  @Test
+  public void readRawComponentData_returns_absent_optional_when_file_does_not_exist() {
+    assertThat(underTest.readRawComponentData(FileStructure.Domain.COVERAGES, COMPONENT_REF)).isEmpty();
+  }
+
+  @Test
+  public void readRawComponentData_returns_content_of_file_as_written_by_scanner() throws IOException {
+    writer.writeComponentCoverage(COMPONENT_REF, of(COVERAGE_1, COVERAGE_2));
+    File file = writer.getFileStructure().fileFor(FileStructure.Domain.COVERAGES, COMPONENT_REF);
+
+    try (InputStream res = underTest.readRawComponentData(FileStructure.Domain.COVERAGES, COMPONENT_REF).get()) {
+      assertThat(IOUtils.toByteArray(res)).isEqualTo(FileUtils.readFileToByteArray(file));
+    }
+  }
+
   @Test
   public void readTests_returns_empty_CloseableIterator_when_file_does_not_exist() {
     assertThat(underTest.readTests(COMPONENT_REF)).isEmpty();
@@ -20,6 +20,11 @@
 package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Preconditions;
+import com.google.protobuf.Message;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -33,9 +38,12 @@ import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.LineSgnificantCode;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public class BatchReportReaderRule implements TestRule, BatchReportReader {
   private ScannerReport.Metadata metadata;
   private List<String> scannerLogs;
@@ -263,6 +271,40 @@ public class BatchReportReaderRule implements TestRule, BatchReportReader {
     return Optional.of(CloseableIterator.from(lines.iterator()));
   }
 
+  @Override
+  public Optional<InputStream> readRawComponentData(FileStructure.Domain domain, int componentRef) {
+    switch (domain) {
+      case SOURCE:
+        List<String> lines = fileSources.get(componentRef);
+        return lines == null ? Optional.empty() : Optional.of(new ByteArrayInputStream(String.join("\n", lines).getBytes(UTF_8)));
+      case COVERAGES:
+        return toRawData(coverages.get(componentRef));
+      case SYNTAX_HIGHLIGHTINGS:
+        return toRawData(syntaxHighlightings.get(componentRef));
+      case SYMBOLS:
+        return toRawData(symbols.get(componentRef));
+      case SGNIFICANT_CODE:
+        return toRawData(significantCode.get(componentRef));
+      default:
+        throw new UnsupportedOperationException("Raw data of domain " + domain + " is not supported");
+    }
+  }
+
+  private static Optional<InputStream> toRawData(@Nullable List<? extends Message> messages) {
+    if (messages == null) {
+      return Optional.empty();
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      for (Message message : messages) {
+        message.writeDelimitedTo(output);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return Optional.of(new ByteArrayInputStream(output.toByteArray()));
+  }
+
   public BatchReportReaderRule putFileSourceLines(int fileRef, @Nullable String... lines) {
     Preconditions.checkNotNull(lines);
     this.fileSources.put(fileRef, Arrays.asList(lines));
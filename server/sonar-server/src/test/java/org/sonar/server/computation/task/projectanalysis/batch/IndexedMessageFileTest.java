@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexedMessageFileTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void read_messages_of_small_file_in_any_order() throws Exception {
+    File file = writeIssues(3);
+
+    IndexedMessageFile underTest = IndexedMessageFile.load(file);
+
+    assertThat(underTest.count()).isEqualTo(3);
+    assertThat(underTest.get(2, ScannerReport.Issue.parser()).getMsg()).isEqualTo("message 2");
+    assertThat(underTest.get(0, ScannerReport.Issue.parser()).getMsg()).isEqualTo("message 0");
+    assertThat(underTest.get(2, ScannerReport.Issue.parser()).getMsg()).isEqualTo("message 2");
+  }
+
+  @Test
+  public void read_messages_of_file_with_many_messages() throws Exception {
+    File file = writeIssues(10_000);
+
+    IndexedMessageFile underTest = IndexedMessageFile.load(file);
+
+    assertThat(underTest.count()).isEqualTo(10_000);
+    assertThat(underTest.get(9_999, ScannerReport.Issue.parser()).getMsg()).isEqualTo("message 9999");
+    assertThat(underTest.get(0, ScannerReport.Issue.parser()).getMsg()).isEqualTo("message 0");
+  }
+
+  @Test
+  public void fail_to_load_file_bigger_than_max_size() throws Exception {
+    File file = writeIssues(100_000);
+    assertThat(file.length()).isGreaterThan(IndexedMessageFile.MAX_SIZE);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("File is too big to be loaded: " + file);
+
+    IndexedMessageFile.load(file);
+  }
+
+  @Test
+  public void iterators_are_independent() throws Exception {
+    File file = writeIssues(2);
+    IndexedMessageFile underTest = IndexedMessageFile.load(file);
+
+    try (CloseableIterator<ScannerReport.Issue> it1 = underTest.iterator(ScannerReport.Issue.parser());
+      CloseableIterator<ScannerReport.Issue> it2 = underTest.iterator(ScannerReport.Issue.parser())) {
+      assertThat(it1.next().getMsg()).isEqualTo("message 0");
+      assertThat(it1.next().getMsg()).isEqualTo("message 1");
+      assertThat(it1.hasNext()).isFalse();
+      assertThat(it2.next().getMsg()).isEqualTo("message 0");
+    }
+  }
+
+  @Test
+  public void read_empty_messages() throws Exception {
+    File file = temp.newFile();
+    Protobuf.writeStream(asList(ScannerReport.Measure.getDefaultInstance(), ScannerReport.Measure.getDefaultInstance()), file, false);
+
+    IndexedMessageFile underTest = IndexedMessageFile.load(file);
+
+    assertThat(underTest.count()).isEqualTo(2);
+    assertThat(underTest.get(1, ScannerReport.Measure.parser())).isEqualTo(ScannerReport.Measure.getDefaultInstance());
+  }
+
+  @Test
+  public void read_empty_file() throws Exception {
+    File file = temp.newFile();
+    Protobuf.writeStream(Collections.<ScannerReport.Issue>emptyList(), file, false);
+
+    IndexedMessageFile underTest = IndexedMessageFile.load(file);
+
+    assertThat(underTest.count()).isZero();
+    assertThat(underTest.iterator(ScannerReport.Issue.parser()).hasNext()).isFalse();
+  }
+
+  private File writeIssues(int count) throws Exception {
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      issues.add(ScannerReport.Issue.newBuilder().setRuleKey("S" + i).setMsg("message " + i).build());
+    }
+    File file = temp.newFile();
+    Protobuf.writeStream(issues, file, false);
+    return file;
+  }
+}
@@ -32,6 +32,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.ExternalResource;
 import org.mockito.Mockito;
 import org.sonar.core.component.ComponentKeys;
+import org.sonar.db.component.BranchType;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
@@ -776,6 +777,7 @@ public class ComponentTreeBuilderTest {
     assertThat(file.getFileAttributes().getLines()).isEqualTo(1);
     assertThat(file.getFileAttributes().getLanguageKey()).isNull();
     assertThat(file.getFileAttributes().isUnitTest()).isFalse();
+    assertThat(file.getFileAttributes().isCarriedOver()).isFalse();
   }
 
   @Test
@@ -810,13 +812,62 @@ public class ComponentTreeBuilderTest {
       .setPath("src/js/Foo.js")
       .setLines(1)
       .setLanguage("js")
-      .setIsTest(true));
+      .setIsTest(true)
+      .setCarriedOver(true));
 
-    Component root = call(project);
+    Component root = call(project, new SnapshotDto());
     Component file = root.getChildren().iterator().next();
     assertThat(file.getFileAttributes().getLines()).isEqualTo(1);
     assertThat(file.getFileAttributes().getLanguageKey()).isEqualTo("js");
     assertThat(file.getFileAttributes().isUnitTest()).isTrue();
+    assertThat(file.getFileAttributes().isCarriedOver()).isTrue();
+  }
+
+  @Test
+  public void file_is_not_carried_over_on_first_analysis_of_branch() {
+    ScannerReport.Component project = newProjectWithCarriedOverFile();
+
+    Component root = call(project, (SnapshotDto) null);
+
+    assertThat(root.getChildren().iterator().next().getFileAttributes().isCarriedOver()).isFalse();
+  }
+
+  @Test
+  public void file_is_not_carried_over_on_short_living_branch() {
+    ScannerReport.Component project = newProjectWithCarriedOverFile();
+    Branch branch = Mockito.mock(Branch.class);
+    when(branch.getType()).thenReturn(BranchType.SHORT);
+
+    Component root = new ComponentTreeBuilder(KEY_GENERATOR, PUBLIC_KEY_GENERATOR, UUID_SUPPLIER, scannerComponentProvider, projectInDb, branch, new SnapshotDto())
+      .buildProject(project, NO_SCM_BASE_PATH);
+
+    assertThat(root.getChildren().iterator().next().getFileAttributes().isCarriedOver()).isFalse();
+  }
+
+  @Test
+  public void file_is_not_carried_over_on_pull_request() {
+    ScannerReport.Component project = newProjectWithCarriedOverFile();
+    Branch branch = Mockito.mock(Branch.class);
+    when(branch.getType()).thenReturn(BranchType.PULL_REQUEST);
+
+    Component root = new ComponentTreeBuilder(KEY_GENERATOR, PUBLIC_KEY_GENERATOR, UUID_SUPPLIER, scannerComponentProvider, projectInDb, branch, new SnapshotDto())
+      .buildProject(project, NO_SCM_BASE_PATH);
+
+    assertThat(root.getChildren().iterator().next().getFileAttributes().isCarriedOver()).isFalse();
+  }
+
+  private ScannerReport.Component newProjectWithCarriedOverFile() {
+    scannerComponentProvider.add(newBuilder()
+      .setRef(2)
+      .setType(FILE)
+      .setPath("src/js/Foo.js")
+      .setLines(1)
+      .setCarriedOver(true));
+    return newBuilder()
+      .setType(PROJECT)
+      .setRef(1)
+      .addChildRef(2)
+      .build();
   }
 
   @Test
@@ -46,6 +46,14 @@ public class FileAttributesTest {
     assertThat(underTest.isUnitTest()).isTrue();
     assertThat(underTest.getLanguageKey()).isEqualTo("java");
     assertThat(underTest.getLines()).isEqualTo(10);
+    assertThat(underTest.isCarriedOver()).isFalse();
+  }
+
+  @Test
+  public void create_carried_over() {
+    FileAttributes underTest = new FileAttributes(false, "java", 10, true);
+
+    assertThat(underTest.isCarriedOver()).isTrue();
   }
 
   @Test
@@ -73,7 +81,7 @@ public class FileAttributesTest {
 
   @Test
   public void test_toString() {
-    assertThat(new FileAttributes(true, "java", 10).toString()).isEqualTo("FileAttributes{languageKey='java', unitTest=true, lines=10}");
-    assertThat(new FileAttributes(false, null, 1).toString()).isEqualTo("FileAttributes{languageKey='null', unitTest=false, lines=1}");
+    assertThat(new FileAttributes(true, "java", 10).toString()).isEqualTo("FileAttributes{languageKey='java', unitTest=true, lines=10, carriedOver=false}");
+    assertThat(new FileAttributes(false, null, 1).toString()).isEqualTo("FileAttributes{languageKey='null', unitTest=false, lines=1, carriedOver=false}");
   }
 }
@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.duplication;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
@@ -59,6 +60,7 @@ public class ReportDuplicationMeasuresTest {
   private static final int FILE_2_REF = 12342;
   private static final int FILE_3_REF = 1261;
   private static final int FILE_4_REF = 1262;
+  private static final int CARRIED_OVER_FILE_REF = 1263;
   private static final String SOME_FILE_KEY = "some file key";
 
   @Rule
@@ -79,7 +81,8 @@ public class ReportDuplicationMeasuresTest {
               builder(MODULE, SUB_MODULE_2_REF)
                 .addChildren(
                   builder(FILE, FILE_3_REF).build(),
-                  builder(FILE, FILE_4_REF).build())
+                  builder(FILE, FILE_4_REF).build(),
+                  builder(FILE, CARRIED_OVER_FILE_REF).setFileAttributes(new FileAttributes(false, null, 1, true)).build())
                 .build())
             .build())
         .build());
@@ -156,6 +159,23 @@ public class ReportDuplicationMeasuresTest {
     assertRawMeasureValue(ROOT_REF, DUPLICATED_BLOCKS_KEY, 55);
   }
 
+  @Test
+  public void keep_previous_measures_of_carried_over_file() {
+    addDuplicatedBlock(FILE_4_REF, 5);
+    measureRepository.addBaseMeasure(CARRIED_OVER_FILE_REF, DUPLICATED_BLOCKS_KEY, newMeasureBuilder().create(3));
+    measureRepository.addBaseMeasure(CARRIED_OVER_FILE_REF, DUPLICATED_LINES_KEY, newMeasureBuilder().create(12));
+    measureRepository.addBaseMeasure(CARRIED_OVER_FILE_REF, DUPLICATED_FILES_KEY, newMeasureBuilder().create(1));
+
+    underTest.execute();
+
+    assertRawMeasureValue(CARRIED_OVER_FILE_REF, DUPLICATED_BLOCKS_KEY, 3);
+    assertRawMeasureValue(CARRIED_OVER_FILE_REF, DUPLICATED_LINES_KEY, 12);
+    assertRawMeasureValue(CARRIED_OVER_FILE_REF, DUPLICATED_FILES_KEY, 1);
+    assertRawMeasureValue(SUB_MODULE_2_REF, DUPLICATED_BLOCKS_KEY, 8);
+    assertRawMeasureValue(SUB_MODULE_2_REF, DUPLICATED_LINES_KEY, 17);
+    assertRawMeasureValue(SUB_MODULE_2_REF, DUPLICATED_FILES_KEY, 2);
+  }
+
   @Test
   public void compute_and_aggregate_duplicated_blocks_to_zero_when_no_duplication() {
     underTest.execute();
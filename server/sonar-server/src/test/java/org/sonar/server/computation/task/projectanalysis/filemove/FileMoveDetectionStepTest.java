@@ -32,6 +32,8 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.core.hash.SourceLineHashesComputer;
 import org.sonar.core.util.UuidFactoryFast;
@@ -51,6 +53,7 @@ import org.sonar.server.computation.task.projectanalysis.source.SourceLinesHashR
 
 import static java.util.Arrays.stream;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
@@ -216,6 +219,8 @@ public class FileMoveDetectionStepTest {
   public MutableMovedFilesRepositoryRule movedFilesRepository = new MutableMovedFilesRepositoryRule();
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   private DbClient dbClient = dbTester.getDbClient();
   private ComponentDto project;
@@ -223,9 +228,10 @@ public class FileMoveDetectionStepTest {
   private SourceLinesHashRepository sourceLinesHash = mock(SourceLinesHashRepository.class);
   private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
   private CapturingScoreMatrixDumper scoreMatrixDumper = new CapturingScoreMatrixDumper();
+  private MapSettings settings = new MapSettings();
 
   private FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
-    fileSimilarity, movedFilesRepository, sourceLinesHash, scoreMatrixDumper);
+    fileSimilarity, movedFilesRepository, sourceLinesHash, scoreMatrixDumper, settings.asConfig());
 
   @Before
   public void setUp() throws Exception {
@@ -474,6 +480,81 @@ public class FileMoveDetectionStepTest {
     assertThat(scoreMatrixDumper.scoreMatrix.getMaxScore()).isZero();
   }
 
+  @Test
+  public void execute_detects_several_moves_when_scoring_pairs_in_parallel() {
+    settings.setProperty(FileMoveDetectionStep.PARALLELISM_PROPERTY, 4);
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    Component file1 = fileComponent(FILE_1_REF, null);
+    Component file2 = fileComponent(FILE_2_REF, null);
+    Component file3 = fileComponent(FILE_3_REF, CONTENT1);
+    Component file4 = fileComponent(5, LESS_CONTENT2);
+    insertFiles(file1.getKey(), file2.getKey());
+    insertContentOfFileInDb(file1.getKey(), CONTENT1);
+    insertContentOfFileInDb(file2.getKey(), CONTENT2);
+    setFilesInReport(file3, file4);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(file3, file4);
+    assertThat(movedFilesRepository.getOriginalFile(file3).get().getKey()).isEqualTo(file1.getKey());
+    assertThat(movedFilesRepository.getOriginalFile(file4).get().getKey()).isEqualTo(file2.getKey());
+  }
+
+  @Test
+  public void execute_fails_if_scoring_pairs_in_parallel_fails() {
+    settings.setProperty(FileMoveDetectionStep.PARALLELISM_PROPERTY, 4);
+    FileSimilarity failingFileSimilarity = mock(FileSimilarity.class);
+    when(failingFileSimilarity.score(any(), any())).thenThrow(new IllegalStateException("scoring failed"));
+    FileMoveDetectionStep step = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
+      failingFileSimilarity, movedFilesRepository, sourceLinesHash, scoreMatrixDumper, settings.asConfig());
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    Component file1 = fileComponent(FILE_1_REF, null);
+    Component file2 = fileComponent(FILE_2_REF, null);
+    Component file3 = fileComponent(FILE_3_REF, CONTENT1);
+    Component file4 = fileComponent(5, LESS_CONTENT2);
+    insertFiles(file1.getKey(), file2.getKey());
+    insertContentOfFileInDb(file1.getKey(), CONTENT1);
+    insertContentOfFileInDb(file2.getKey(), CONTENT2);
+    setFilesInReport(file3, file4);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("scoring failed");
+
+    step.execute();
+  }
+
+  @Test
+  public void execute_detects_moves_of_many_files_of_same_size() {
+    // 150 removed and 150 added files of the same size: too many pairs to score them all
+    int fileCount = 150;
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    String[] removedFileKeys = new String[fileCount];
+    Component[] addedFiles = new Component[fileCount];
+    for (int i = 0; i < fileCount; i++) {
+      String[] content = contentOfFile(i);
+      removedFileKeys[i] = "removed" + i;
+      // every added file has one line changed
+      content[i % content.length] = "changed";
+      addedFiles[i] = fileComponent(FILE_1_REF + i, content);
+    }
+    insertFiles(removedFileKeys);
+    for (int i = 0; i < fileCount; i++) {
+      insertContentOfFileInDb(removedFileKeys[i], contentOfFile(i));
+    }
+    setFilesInReport(addedFiles);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(addedFiles);
+    for (int i = 0; i < fileCount; i++) {
+      assertThat(movedFilesRepository.getOriginalFile(addedFiles[i]).get().getKey()).isEqualTo(removedFileKeys[i]);
+    }
+  }
+
+  private static String[] contentOfFile(int fileIndex) {
+    return IntStream.range(0, 40).mapToObj(line -> "file " + fileIndex + " line " + line).toArray(String[]::new);
+  }
+
   /**
    * Creates an array of {@code numberOfElements} int values as String, starting with zero.
    */
@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SimilarityCandidatesTest {
+
+  @Test
+  public void signature_is_null_if_there_is_no_line_hash() {
+    assertThat(SimilarityCandidates.signature(Collections.emptyList())).isNull();
+  }
+
+  @Test
+  public void signature_does_not_depend_on_order_of_lines() {
+    List<String> lineHashes = lineHashes("a", 30);
+    List<String> reversed = new ArrayList<>(lineHashes);
+    Collections.reverse(reversed);
+
+    assertThat(SimilarityCandidates.signature(reversed)).isEqualTo(SimilarityCandidates.signature(lineHashes));
+  }
+
+  @Test
+  public void candidatesOf_returns_similar_files_only() {
+    SimilarityCandidates underTest = new SimilarityCandidates(3);
+    underTest.add(0, SimilarityCandidates.signature(lineHashes("a", 50)));
+    underTest.add(1, SimilarityCandidates.signature(lineHashes("b", 50)));
+    underTest.add(2, SimilarityCandidates.signature(lineHashes("c", 50)));
+
+    List<String> modifiedB = lineHashes("b", 50);
+    modifiedB.set(10, "changed");
+    modifiedB.set(20, "changed too");
+
+    assertThat(underTest.candidatesOf(SimilarityCandidates.signature(modifiedB)).stream().boxed().collect(Collectors.toList()))
+      .containsExactly(1);
+  }
+
+  private static List<String> lineHashes(String prefix, int count) {
+    return IntStream.range(0, count).mapToObj(i -> prefix + i).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class DefaultIssueCodecTest {
+
+  private DefaultIssueCodec underTest = new DefaultIssueCodec();
+
+  @Test
+  public void encode_and_decode_all_fields() throws IOException {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(1).setEndLine(3))
+      .build();
+    DefaultIssueComment comment = DefaultIssueComment.create("ABCD", "user_uuid", "a comment");
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ABCD")
+      .setType(RuleType.BUG)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("xoo", "x1"))
+      .setLanguage("xoo")
+      .setSeverity(Severity.BLOCKER)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(10)
+      .setGap(3.5)
+      .setEffort(Duration.create(20L))
+      .setStatus("OPEN")
+      .setResolution("FIXED")
+      .setAssigneeUuid("assignee_uuid")
+      .setChecksum("checksum")
+      .setAttributes(ImmutableMap.of("JIRA", "FOO-123"))
+      .setAuthorLogin("author")
+      .addComment(comment)
+      .setTags(Arrays.asList("tag1", "tag2"))
+      .setLocations(locations)
+      .setIsFromExternalRuleEngine(true)
+      .setCreationDate(new Date(1_500_000_000_000L))
+      .setUpdateDate(new Date(1_500_000_001_000L))
+      .setCloseDate(new Date(1_500_000_002_000L))
+      .setNew(false)
+      .setCopied(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(1_400_000_000_000L);
+    issue.setFieldChange(IssueChangeContext.createUser(new Date(1_500_000_003_000L), "user_uuid"), "severity", Severity.MAJOR, Severity.BLOCKER);
+    issue.setFieldChange(IssueChangeContext.createUser(new Date(1_500_000_003_000L), "user_uuid"), "effort", 10L, 20L);
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.key()).isEqualTo("ABCD");
+    assertThat(decoded.type()).isEqualTo(RuleType.BUG);
+    assertThat(decoded.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(decoded.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(decoded.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(decoded.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(decoded.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(decoded.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(decoded.ruleKey()).isEqualTo(RuleKey.of("xoo", "x1"));
+    assertThat(decoded.language()).isEqualTo("xoo");
+    assertThat(decoded.severity()).isEqualTo(Severity.BLOCKER);
+    assertThat(decoded.manualSeverity()).isTrue();
+    assertThat(decoded.message()).isEqualTo("the message");
+    assertThat(decoded.line()).isEqualTo(10);
+    assertThat(decoded.gap()).isEqualTo(3.5);
+    assertThat(decoded.effort()).isEqualTo(Duration.create(20L));
+    assertThat(decoded.status()).isEqualTo("OPEN");
+    assertThat(decoded.resolution()).isEqualTo("FIXED");
+    assertThat(decoded.assignee()).isEqualTo("assignee_uuid");
+    assertThat(decoded.checksum()).isEqualTo("checksum");
+    assertThat(decoded.attributes()).containsOnly(entry("JIRA", "FOO-123"));
+    assertThat(decoded.authorLogin()).isEqualTo("author");
+    assertThat(decoded.defaultIssueComments()).hasSize(1);
+    DefaultIssueComment decodedComment = decoded.defaultIssueComments().get(0);
+    assertThat(decodedComment.key()).isEqualTo(comment.key());
+    assertThat(decodedComment.markdownText()).isEqualTo("a comment");
+    assertThat(decodedComment.userUuid()).isEqualTo("user_uuid");
+    assertThat(decodedComment.createdAt()).isEqualTo(comment.createdAt());
+    assertThat(decodedComment.isNew()).isTrue();
+    assertThat(decoded.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) decoded.getLocations()).isEqualTo(locations);
+    assertThat(decoded.isFromExternalRuleEngine()).isTrue();
+    assertThat(decoded.creationDate()).isEqualTo(issue.creationDate());
+    assertThat(decoded.updateDate()).isEqualTo(issue.updateDate());
+    assertThat(decoded.closeDate()).isEqualTo(issue.closeDate());
+    assertThat(decoded.isNew()).isFalse();
+    assertThat(decoded.isCopied()).isTrue();
+    assertThat(decoded.isBeingClosed()).isTrue();
+    assertThat(decoded.isOnDisabledRule()).isTrue();
+    assertThat(decoded.isChanged()).isTrue();
+    assertThat(decoded.mustSendNotifications()).isTrue();
+    assertThat(decoded.selectedAt()).isEqualTo(1_400_000_000_000L);
+
+    FieldDiffs currentChange = decoded.currentChange();
+    assertThat(currentChange.userUuid()).isEqualTo("user_uuid");
+    assertThat(currentChange.creationDate()).isEqualTo(new Date(1_500_000_003_000L));
+    assertThat(currentChange.get("severity").oldValue()).isEqualTo(Severity.MAJOR);
+    assertThat(currentChange.get("severity").newValue()).isEqualTo(Severity.BLOCKER);
+    assertThat(currentChange.get("effort").oldValue()).isEqualTo(10L);
+    assertThat(currentChange.get("effort").newValue()).isEqualTo(20L);
+    // same instance is referenced by the list of changes, as before encoding
+    assertThat(decoded.changes()).hasSize(issue.changes().size());
+    assertThat(decoded.changes()).allMatch(c -> c == currentChange);
+  }
+
+  @Test
+  public void encode_and_decode_issue_with_only_mandatory_fields() throws IOException {
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ABCD")
+      .setComponentUuid("FILE_UUID")
+      .setRuleKey(RuleKey.of("xoo", "x1"))
+      .setStatus("OPEN");
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.key()).isEqualTo("ABCD");
+    assertThat(decoded.type()).isNull();
+    assertThat(decoded.line()).isNull();
+    assertThat(decoded.gap()).isNull();
+    assertThat(decoded.effort()).isNull();
+    assertThat(decoded.resolution()).isNull();
+    assertThat(decoded.creationDate()).isNull();
+    assertThat(decoded.attributes()).isEmpty();
+    assertThat(decoded.tags()).isEmpty();
+    assertThat(decoded.defaultIssueComments()).isEmpty();
+    assertThat((Object) decoded.getLocations()).isNull();
+    assertThat(decoded.currentChange()).isNull();
+    assertThat(decoded.changes()).isEmpty();
+    assertThat(decoded.isNew()).isTrue();
+    assertThat(decoded.selectedAt()).isNull();
+  }
+
+  @Test
+  public void encode_and_decode_sequence_of_issues() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+    underTest.write(new DefaultIssue().setKey("A").setStatus("OPEN"), output);
+    underTest.write(new DefaultIssue().setKey("B").setStatus("CLOSED"), output);
+    output.flush();
+
+    CodedInputStream input = CodedInputStream.newInstance(bytes.toByteArray());
+    assertThat(underTest.read(input).key()).isEqualTo("A");
+    assertThat(underTest.read(input).key()).isEqualTo("B");
+    assertThat(input.isAtEnd()).isTrue();
+  }
+
+  private DefaultIssue encodeAndDecode(DefaultIssue issue) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+    underTest.write(issue, output);
+    output.flush();
+    return underTest.read(CodedInputStream.newInstance(bytes.toByteArray()));
+  }
+}
@@ -29,8 +29,12 @@ import org.sonar.db.component.BranchType;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -115,4 +119,36 @@ public class IssueTrackingDelegatorTest {
     verifyZeroInteractions(tracker);
     verifyZeroInteractions(mergeBranchTracker);
   }
+
+  @Test
+  public void keep_base_issues_of_carried_over_file() {
+    DefaultIssue baseIssue = new DefaultIssue();
+    when(component.getType()).thenReturn(Component.Type.FILE);
+    when(component.getFileAttributes()).thenReturn(new FileAttributes(false, "java", 1, true));
+    when(analysisMetadataHolder.getBranch()).thenReturn(mock(Branch.class));
+    when(tracker.loadBaseIssues(component)).thenReturn(singletonList(baseIssue));
+
+    TrackingResult result = underTest.track(component);
+
+    assertThat(result.issuesToKeep()).containsOnly(baseIssue);
+    assertThat(result.newIssues()).isEmpty();
+    assertThat(result.issuesToClose()).isEmpty();
+    verify(tracker, never()).track(component);
+    verifyZeroInteractions(shortBranchTracker);
+    verifyZeroInteractions(mergeBranchTracker);
+  }
+
+  @Test
+  public void no_tracker_is_executed_on_carried_over_file() {
+    when(component.getType()).thenReturn(Component.Type.FILE);
+    when(component.getFileAttributes()).thenReturn(new FileAttributes(false, "java", 1, true));
+    when(analysisMetadataHolder.isShortLivingBranch()).thenReturn(true);
+
+    TrackingResult result = underTest.track(component);
+
+    assertThat(result.issuesToClose()).isEmpty();
+    verify(tracker, never()).track(component);
+    verifyZeroInteractions(shortBranchTracker);
+    verifyZeroInteractions(mergeBranchTracker);
+  }
 }
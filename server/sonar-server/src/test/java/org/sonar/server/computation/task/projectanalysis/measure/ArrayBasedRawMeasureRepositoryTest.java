@@ -0,0 +1,175 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.SetMultimap;
+import java.util.Set;
+import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.component.DumbDeveloper;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.guava.api.Assertions.assertThat;
+
+public class ArrayBasedRawMeasureRepositoryTest {
+  private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey("file cpt key").build();
+  private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 2).setKey("some other key").build();
+  private static final ReportComponent FAR_COMPONENT = ReportComponent.builder(Component.Type.FILE, 5_000).setKey("far key").build();
+
+  private static final Metric INT_METRIC = new MetricImpl(1, "int", "int", Metric.MetricType.INT);
+  private static final Metric LONG_METRIC = new MetricImpl(2, "long", "long", Metric.MetricType.WORK_DUR);
+  private static final Metric DOUBLE_METRIC = new MetricImpl(3, "double", "double", Metric.MetricType.FLOAT, 2, null, false);
+  private static final Metric BOOLEAN_METRIC = new MetricImpl(4, "boolean", "boolean", Metric.MetricType.BOOL);
+  private static final Metric STRING_METRIC = new MetricImpl(5, "string", "string", Metric.MetricType.STRING);
+
+  private static final Developer SOME_DEVELOPER = new DumbDeveloper("DEV1");
+
+  private ArrayBasedRawMeasureRepository underTest = new ArrayBasedRawMeasureRepository();
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void getBaseMeasure_is_not_supported() {
+    underTest.getBaseMeasure(FILE_COMPONENT, INT_METRIC);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void add_throws_NPE_if_Component_argument_is_null() {
+    underTest.add(null, INT_METRIC, Measure.newMeasureBuilder().create(1));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void add_throws_NPE_if_Component_measure_is_null() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, null);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void add_throws_UOE_if_measure_already_exists() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(2));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void update_throws_UOE_if_measure_does_not_exists() {
+    underTest.update(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void add_throws_IAE_if_valueType_of_Measure_is_not_the_same_as_the_Metric_valueType() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create("foo"));
+  }
+
+  @Test
+  public void getRawMeasure_returns_values_of_measures_stored_as_primitives() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(12));
+    underTest.add(FILE_COMPONENT, LONG_METRIC, Measure.newMeasureBuilder().create(1L << 40));
+    underTest.add(FILE_COMPONENT, DOUBLE_METRIC, Measure.newMeasureBuilder().create(0.25d, 2));
+    underTest.add(FILE_COMPONENT, BOOLEAN_METRIC, Measure.newMeasureBuilder().create(true));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(12);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, LONG_METRIC).get().getLongValue()).isEqualTo(1L << 40);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, DOUBLE_METRIC).get().getDoubleValue()).isEqualTo(0.25d);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, BOOLEAN_METRIC).get().getBooleanValue()).isTrue();
+  }
+
+  @Test
+  public void getRawMeasure_returns_measure_added_through_add_method_when_it_can_not_be_stored_as_primitive() {
+    Measure stringMeasure = Measure.newMeasureBuilder().create("some value");
+    Measure withVariation = Measure.newMeasureBuilder().setVariation(2d).create(1);
+    Measure withData = Measure.newMeasureBuilder().create(true, "data");
+    Measure withMoreDecimals = Measure.newMeasureBuilder().create(0.125d, 3);
+    underTest.add(FILE_COMPONENT, STRING_METRIC, stringMeasure);
+    underTest.add(FILE_COMPONENT, INT_METRIC, withVariation);
+    underTest.add(FILE_COMPONENT, BOOLEAN_METRIC, withData);
+    underTest.add(FILE_COMPONENT, DOUBLE_METRIC, withMoreDecimals);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, STRING_METRIC).get()).isSameAs(stringMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get()).isSameAs(withVariation);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, BOOLEAN_METRIC).get()).isSameAs(withData);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, DOUBLE_METRIC).get()).isSameAs(withMoreDecimals);
+  }
+
+  @Test
+  public void getRawMeasure_matches_on_component_and_metric() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+    underTest.add(FAR_COMPONENT, LONG_METRIC, Measure.newMeasureBuilder().create(2L));
+
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, INT_METRIC)).isAbsent();
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, LONG_METRIC)).isAbsent();
+    assertThat(underTest.getRawMeasure(FAR_COMPONENT, INT_METRIC)).isAbsent();
+    assertThat(underTest.getRawMeasure(FAR_COMPONENT, LONG_METRIC).get().getLongValue()).isEqualTo(2L);
+  }
+
+  @Test
+  public void update_updates_the_stored_value() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+    underTest.update(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(2));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(2);
+
+    Measure noValue = Measure.newMeasureBuilder().createNoValue();
+    underTest.update(FILE_COMPONENT, INT_METRIC, noValue);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get()).isSameAs(noValue);
+  }
+
+  @Test
+  public void add_with_DO_NOT_OVERRIDE_policy_keeps_existing_measure() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(2), OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(1);
+  }
+
+  @Test
+  public void getRawMeasures_for_metric_returns_empty_if_repository_is_empty() {
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT, INT_METRIC)).isEmpty();
+  }
+
+  @Test
+  public void getRawMeasures_for_metric_returns_developer_measures() {
+    Measure devMeasure = Measure.newMeasureBuilder().forDeveloper(SOME_DEVELOPER).create(3);
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, INT_METRIC, devMeasure);
+
+    Set<Measure> measures = underTest.getRawMeasures(FILE_COMPONENT, INT_METRIC);
+    assertThat(measures).hasSize(2);
+    assertThat(measures).contains(devMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(1);
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_component_by_metric_key() {
+    underTest.add(FILE_COMPONENT, STRING_METRIC, Measure.newMeasureBuilder().create("foo"));
+    underTest.add(FILE_COMPONENT, INT_METRIC, Measure.newMeasureBuilder().create(1));
+    underTest.add(OTHER_COMPONENT, LONG_METRIC, Measure.newMeasureBuilder().create(2L));
+
+    SetMultimap<String, Measure> measures = underTest.getRawMeasures(FILE_COMPONENT);
+
+    assertThat(measures.keySet()).containsOnly("string", "int");
+    assertThat(measures.get("string").iterator().next().getStringValue()).isEqualTo("foo");
+    assertThat(measures.get("int").iterator().next().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasures(FAR_COMPONENT).isEmpty()).isTrue();
+  }
+}
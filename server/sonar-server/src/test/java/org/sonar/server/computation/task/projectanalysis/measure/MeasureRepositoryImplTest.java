@@ -38,13 +38,16 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.measure.MeasureDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
@@ -70,6 +73,8 @@ public class MeasureRepositoryImplTest {
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey(FILE_COMPONENT_KEY).build();
@@ -89,11 +94,12 @@ public class MeasureRepositoryImplTest {
 
   private DbClient dbClient = dbTester.getDbClient();
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator, treeRootHolder);
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator,
+    treeRootHolder);
 
   private DbSession dbSession = dbTester.getSession();
 
@@ -415,6 +421,84 @@ public class MeasureRepositoryImplTest {
     assertThat(rawMeasures.get(METRIC_KEY_2)).containsOnly(Measure.newMeasureBuilder().create("some value"));
   }
 
+  @Test
+  public void getRawMeasure_loads_previous_measures_of_validated_metrics_for_carried_over_file() {
+    ReportComponent carriedOverFile = newCarriedOverFile(3);
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(carriedOverFile).build());
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
+    when(metric2.getId()).thenReturn(METRIC_ID_2);
+    when(metricRepository.getAll()).thenReturn(ImmutableList.of(metric1, metric2));
+    when(reportMetricValidator.validate(METRIC_KEY_1)).thenReturn(true);
+    when(reportMetricValidator.validate(METRIC_KEY_2)).thenReturn(false);
+    dbClient.liveMeasureDao().insert(dbSession, createLiveMeasureDto(METRIC_ID_1, carriedOverFile.getUuid()));
+    dbClient.liveMeasureDao().insert(dbSession, createLiveMeasureDto(METRIC_ID_2, carriedOverFile.getUuid()));
+    dbSession.commit();
+
+    Optional<Measure> res = underTest.getRawMeasure(carriedOverFile, metric1);
+
+    assertThat(res).isPresent();
+    assertThat(res.get().getStringValue()).isEqualTo(SOME_DATA);
+    assertThat(res.get().hasVariation()).isFalse();
+    // not sent by the scanner, so recomputed by the Compute Engine
+    assertThat(underTest.getRawMeasure(carriedOverFile, metric2)).isAbsent();
+  }
+
+  @Test
+  public void getBaseMeasure_of_carried_over_file_is_its_live_measure() {
+    ReportComponent carriedOverFile = newCarriedOverFile(3);
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(carriedOverFile).build());
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
+    when(metricRepository.getAll()).thenReturn(ImmutableList.of(metric1));
+    dbClient.liveMeasureDao().insert(dbSession, createLiveMeasureDto(METRIC_ID_1, carriedOverFile.getUuid()));
+    dbSession.commit();
+
+    Optional<Measure> res = underTest.getBaseMeasure(carriedOverFile, metric1);
+
+    assertThat(res).isPresent();
+    assertThat(res.get().getStringValue()).isEqualTo(SOME_DATA);
+  }
+
+  @Test
+  public void previous_measures_of_all_carried_over_files_are_loaded_at_once() {
+    ReportComponent carriedOverFile1 = newCarriedOverFile(3);
+    ReportComponent carriedOverFile2 = newCarriedOverFile(4);
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).addChildren(carriedOverFile1, carriedOverFile2, FILE_COMPONENT).build());
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
+    when(metricRepository.getAll()).thenReturn(ImmutableList.of(metric1));
+    dbClient.liveMeasureDao().insert(dbSession, createLiveMeasureDto(METRIC_ID_1, carriedOverFile1.getUuid()));
+    dbClient.liveMeasureDao().insert(dbSession, createLiveMeasureDto(METRIC_ID_1, carriedOverFile2.getUuid()));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(carriedOverFile1, metric1)).isPresent();
+    // loaded along with the measures of the first file
+    dbTester.executeUpdateSql("delete from live_measures");
+
+    assertThat(underTest.getBaseMeasure(carriedOverFile2, metric1)).isPresent();
+  }
+
+  @Test
+  public void getBaseMeasure_of_file_not_carried_over_ignores_live_measure() {
+    dbClient.liveMeasureDao().insert(dbSession, createLiveMeasureDto(METRIC_ID_1, FILE_COMPONENT.getUuid()));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metric1)).isAbsent();
+  }
+
+  private static ReportComponent newCarriedOverFile(int ref) {
+    return ReportComponent.builder(Component.Type.FILE, ref).setKey("carried over file " + ref)
+      .setFileAttributes(new FileAttributes(false, "java", 1, true))
+      .build();
+  }
+
+  private static LiveMeasureDto createLiveMeasureDto(int metricId, String componentUuid) {
+    return new LiveMeasureDto()
+      .setComponentUuid(componentUuid)
+      .setProjectUuid("project uuid")
+      .setMetricId(metricId)
+      .setData(SOME_DATA)
+      .setVariation(1d);
+  }
+
   private static MeasureDto createMeasureDto(int metricId, String componentUuid, String analysisUuid) {
     return new MeasureDto()
       .setComponentUuid(componentUuid)
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.Before;
@@ -58,6 +59,8 @@ import static com.google.common.collect.ImmutableList.of;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PersistFileSourcesStepTest extends BaseStepTest {
@@ -323,6 +326,53 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getRevision()).isNull();
   }
 
+  @Test
+  public void not_compute_data_when_inputs_have_not_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputsHash();
+    assertThat(inputsHash).isNotNull();
+
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    verify(sourceLinesHashRepository, times(1)).getLineHashesComputerToPersist(Mockito.any(Component.class));
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void compute_data_when_inputs_have_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputsHash();
+
+    reportReader.putCoverage(FILE1_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setHits(true)
+      .build()));
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getLineHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void inputs_hash_is_computed_from_source_of_report() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputsHash();
+
+    reportReader.putFileSourceLines(FILE1_REF, "other line1");
+    underTest.execute();
+
+    assertThat(dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputsHash()).isNotEqualTo(inputsHash);
+  }
+
   @Test
   public void not_update_sources_when_nothing_has_changed() {
     // Existing sources
@@ -360,6 +410,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    // only missing inputs hash is stored
+    assertThat(fileSourceDto.getInputsHash()).isNotNull();
   }
 
   @Test
@@ -529,8 +581,11 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
       .setLines(numberOfLines)
       .build());
 
+    List<String> lines = new ArrayList<>();
     for (int i = 1; i <= numberOfLines; i++) {
       fileSourceRepository.addLine(FILE1_REF, "line" + i);
+      lines.add("line" + i);
     }
+    reportReader.putFileSourceLines(FILE1_REF, lines);
   }
 }
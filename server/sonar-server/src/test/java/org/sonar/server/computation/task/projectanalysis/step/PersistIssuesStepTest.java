@@ -38,6 +38,8 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.dialect.MsSql;
+import org.sonar.db.dialect.PostgreSql;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.organization.OrganizationDto;
@@ -338,4 +340,78 @@ public class PersistIssuesStepTest extends BaseStepTest {
       .containsOnly(IssueChangeDto.TYPE_FIELD_CHANGE, "john_uuid", "technicalDebt=1", issue.getKey(), NOW);
   }
 
+  @Test
+  public void insert_new_issues_with_multi_row_statements() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    int issueCount = 2 * IssueBulkWriter.MAX_ROWS_PER_STATEMENT + 7;
+    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    for (int i = 0; i < issueCount; i++) {
+      issueCacheAppender.append(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setRuleKey(rule.getKey())
+        .setComponentUuid(file.uuid())
+        .setProjectUuid(project.uuid())
+        .setSeverity(BLOCKER)
+        .setStatus(STATUS_OPEN)
+        .setNew(true)
+        .addComment(new DefaultIssueComment()
+          .setKey("COMMENT_" + i)
+          .setIssueKey("ISSUE_" + i)
+          .setUserUuid("john_uuid")
+          .setMarkdownText("Some text")
+          .setCreatedAt(new Date(NOW))
+          .setNew(true)));
+    }
+    issueCacheAppender.close();
+
+    step.execute();
+
+    assertThat(db.countRowsOfTable("issues")).isEqualTo(issueCount);
+    assertThat(db.countRowsOfTable("issue_changes")).isEqualTo(issueCount);
+    IssueDto last = dbClient.issueDao().selectOrFailByKey(session, "ISSUE_" + (issueCount - 1));
+    assertThat(last.getComponentUuid()).isEqualTo(file.uuid());
+    assertThat(last.getCreatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void resolve_conflict_when_issue_has_been_updated_since_selection() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    IssueDto issue = db.issues().insert(rule, project, file,
+      i -> i.setStatus(STATUS_OPEN)
+        .setResolution(null)
+        .setMessage("old message")
+        .setCreatedAt(NOW - 1_000_000_000L)
+        .setUpdatedAt(NOW));
+    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+
+    issueCacheAppender.append(
+      issue.toDefaultIssue()
+        .setStatus(STATUS_CLOSED)
+        .setResolution(RESOLUTION_FIXED)
+        .setMessage("new message")
+        .setSelectedAt(NOW - 1_000L)
+        .setNew(false)
+        .setChanged(true))
+      .close();
+    step.execute();
+
+    IssueDto issueReloaded = db.getDbClient().issueDao().selectByKey(db.getSession(), issue.getKey()).get();
+    // status is kept from database, other fields are updated by analysis
+    assertThat(issueReloaded.getStatus()).isEqualTo(STATUS_OPEN);
+    assertThat(issueReloaded.getResolution()).isNull();
+    assertThat(issueReloaded.getMessage()).isEqualTo("new message");
+  }
+
+  @Test
+  public void rows_per_statement_are_bounded_by_parameters_limit_of_mssql() {
+    assertThat(IssueBulkWriter.rowsPerStatement(new MsSql(), IssueBulkWriter.ISSUE_COLUMNS)).isEqualTo(83);
+    assertThat(IssueBulkWriter.rowsPerStatement(new MsSql(), IssueBulkWriter.ISSUE_CHANGE_COLUMNS)).isEqualTo(250);
+    assertThat(IssueBulkWriter.rowsPerStatement(new PostgreSql(), IssueBulkWriter.ISSUE_COLUMNS)).isEqualTo(IssueBulkWriter.MAX_ROWS_PER_STATEMENT);
+  }
+
 }
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.AdaptiveBulkProcessor.INITIAL_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.MAX_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.MIN_BULK_BYTES;
+import static org.sonar.server.es.AdaptiveBulkProcessor.TARGET_LATENCY_MS;
+import static org.sonar.server.es.FakeIndexDefinition.INDEX;
+import static org.sonar.server.es.FakeIndexDefinition.INDEX_TYPE_FAKE;
+
+public class AdaptiveBulkProcessorTest {
+
+  @Rule
+  public EsTester es = EsTester.createCustom(new FakeIndexDefinition());
+
+  private RecordingListener listener = new RecordingListener();
+  private AtomicInteger retries = new AtomicInteger();
+
+  @Test
+  public void send_requests_on_flush() throws InterruptedException {
+    AdaptiveBulkProcessor underTest = newProcessor(1, 4);
+    underTest.add(newIndexRequest("foo"));
+    underTest.add(newIndexRequest("bar"));
+
+    assertThat(listener.successes).isEmpty();
+
+    assertThat(underTest.awaitClose(1, TimeUnit.MINUTES)).isTrue();
+    assertThat(listener.successes).containsExactlyInAnyOrder("foo", "bar");
+    assertThat(retries.get()).isZero();
+  }
+
+  @Test
+  public void increase_size_and_concurrency_when_responses_are_fast() {
+    AdaptiveBulkProcessor underTest = newProcessor(1, 2);
+
+    underTest.adjust(TARGET_LATENCY_MS / 10, false);
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+    assertThat(underTest.getBulkBytes()).isEqualTo(2 * INITIAL_BULK_BYTES);
+
+    // concurrency is limited
+    for (int i = 0; i < 100; i++) {
+      underTest.adjust(TARGET_LATENCY_MS / 10, false);
+    }
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+    assertThat(underTest.getBulkBytes()).isEqualTo(MAX_BULK_BYTES);
+  }
+
+  @Test
+  public void decrease_size_when_responses_are_slow() {
+    AdaptiveBulkProcessor underTest = newProcessor(2, 2);
+
+    underTest.adjust(TARGET_LATENCY_MS * 2, false);
+
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES * 3 / 4);
+  }
+
+  @Test
+  public void halve_size_and_concurrency_when_requests_are_rejected() {
+    AdaptiveBulkProcessor underTest = newProcessor(4, 8);
+
+    underTest.adjust(TARGET_LATENCY_MS / 10, true);
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+    assertThat(underTest.getBulkBytes()).isEqualTo(INITIAL_BULK_BYTES / 2);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.adjust(TARGET_LATENCY_MS / 10, true);
+    }
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+    assertThat(underTest.getBulkBytes()).isEqualTo(MIN_BULK_BYTES);
+  }
+
+  private AdaptiveBulkProcessor newProcessor(int initialConcurrency, int maxConcurrency) {
+    return new AdaptiveBulkProcessor(es.client().nativeClient(), listener, retries::incrementAndGet, initialConcurrency, maxConcurrency);
+  }
+
+  private static IndexRequest newIndexRequest(String id) {
+    return new IndexRequest(INDEX, INDEX_TYPE_FAKE.getType())
+      .id(id)
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, 42));
+  }
+
+  private static class RecordingListener implements BulkProcessor.Listener {
+    private final List<String> successes = new ArrayList<>();
+
+    @Override
+    public void beforeBulk(long executionId, BulkRequest request) {
+      // nothing to do
+    }
+
+    @Override
+    public synchronized void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+      for (BulkItemResponse item : response.getItems()) {
+        if (!item.isFailed()) {
+          successes.add(item.getId());
+        }
+      }
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+      // nothing to do
+    }
+  }
+}
@@ -75,6 +75,33 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test
+  public void flush_sends_pending_requests() {
+    FakeListener listener = new FakeListener();
+    BulkIndexer indexer = new BulkIndexer(es.client(), INDEX_TYPE_FAKE, Size.REGULAR, listener);
+    indexer.start();
+    indexer.add(newIndexRequestWithDocId("foo"));
+    indexer.add(newIndexRequestWithDocId("bar"));
+
+    assertThat(indexer.flush()).isTrue();
+    assertThat(listener.calledDocIds)
+      .containsExactlyInAnyOrder(new DocId(INDEX_TYPE_FAKE, "foo"), new DocId(INDEX_TYPE_FAKE, "bar"));
+
+    indexer.stop();
+    assertThat(count()).isEqualTo(2);
+  }
+
+  @Test
+  public void flush_returns_false_if_some_requests_failed() {
+    BulkIndexer indexer = new BulkIndexer(es.client(), INDEX_TYPE_FAKE, Size.REGULAR, new FakeListener());
+    indexer.start();
+    indexer.add(newIndexRequestWithDocId("foo"));
+    indexer.add(new IndexRequest("index_does_not_exist", "index_does_not_exist", "bar").source(emptyMap()));
+
+    assertThat(indexer.flush()).isFalse();
+    indexer.stop();
+  }
+
   @Test
   public void large_indexing() {
     // index has one replica
@@ -100,6 +127,29 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void adaptive_indexing() {
+    assertThat(replicas()).isEqualTo(1);
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), INDEX_TYPE_FAKE, Size.ADAPTIVE);
+    indexer.start();
+
+    // replicas are temporarily disabled, as in large indexing
+    assertThat(replicas()).isEqualTo(0);
+
+    for (int i = 0; i < 10; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    IndexingResult result = indexer.stop();
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getSuccess()).isEqualTo(10);
+    assertThat(result.getBytes()).isGreaterThan(0L);
+    assertThat(result.getRetries()).isEqualTo(0L);
+    assertThat(count()).isEqualTo(10);
+    assertThat(replicas()).isEqualTo(1);
+  }
+
   @Test
   public void bulk_delete() {
     int max = 500;
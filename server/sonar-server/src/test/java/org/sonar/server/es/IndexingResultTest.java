@@ -80,6 +80,41 @@ public class IndexingResultTest {
     assertThat(underTest.isSuccess()).isFalse();
   }
 
+  @Test
+  public void test_throughput() {
+    underTest.incrementRequests();
+    underTest.incrementRequests();
+    underTest.incrementSuccess();
+    underTest.incrementSuccess();
+    underTest.addBytes(3_000L);
+    underTest.incrementRetries();
+    underTest.setDurationMs(500L);
+
+    assertThat(underTest.getBytes()).isEqualTo(3_000L);
+    assertThat(underTest.getRetries()).isEqualTo(1L);
+    assertThat(underTest.getDocsPerSecond()).isEqualTo(4L);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(6_000L);
+  }
+
+  @Test
+  public void add_results() {
+    IndexingResult other = new IndexingResult();
+    other.incrementRequests();
+    other.incrementSuccess();
+    other.addBytes(10L);
+    other.incrementRetries();
+    other.setDurationMs(20L);
+
+    underTest.add(other);
+    underTest.add(other);
+
+    assertThat(underTest.getTotal()).isEqualTo(2L);
+    assertThat(underTest.getSuccess()).isEqualTo(2L);
+    assertThat(underTest.getBytes()).isEqualTo(20L);
+    assertThat(underTest.getRetries()).isEqualTo(2L);
+    assertThat(underTest.getDurationMs()).isEqualTo(40L);
+  }
+
   @Test
   public void correctness_even_with_no_data() {
     assertThat(underTest.getFailures()).isEqualTo(0);
@@ -48,6 +48,22 @@ public class MetadataIndexTest {
     assertThat(underTest.getInitialized(indexType)).isTrue();
   }
 
+  @Test
+  public void indexing_checkpoint_should_be_empty_by_default() {
+    IndexType indexType = new IndexType("examples", "example");
+    assertThat(underTest.getIndexingCheckpoint(indexType)).isEmpty();
+  }
+
+  @Test
+  public void indexing_checkpoint_should_be_empty_after_reset() {
+    IndexType indexType = new IndexType("examples", "example");
+    underTest.setIndexingCheckpoint(indexType, "P1");
+    assertThat(underTest.getIndexingCheckpoint(indexType)).hasValue("P1");
+
+    underTest.resetIndexingCheckpoint(indexType);
+    assertThat(underTest.getIndexingCheckpoint(indexType)).isEmpty();
+  }
+
   @Test
   public void hash_should_be_empty_by_default() {
     assertThat(underTest.getHash(index)).isEmpty();
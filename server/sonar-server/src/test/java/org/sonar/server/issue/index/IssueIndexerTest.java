@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.elasticsearch.search.SearchHit;
@@ -45,6 +46,7 @@ import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.es.metadata.MetadataIndex;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.PermissionIndexerDao;
 
@@ -53,6 +55,9 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.rules.ExpectedException.none;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.server.issue.IssueDocTesting.newDoc;
 import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE;
@@ -105,6 +110,21 @@ public class IssueIndexerTest {
     assertThatIndexHasOnly(issue1, issue2);
   }
 
+  @Test
+  public void indexOnStartup_reads_projects_concurrently_and_resets_checkpoint() {
+    MetadataIndex metadataIndex = mock(MetadataIndex.class);
+    when(metadataIndex.getIndexingCheckpoint(INDEX_TYPE_ISSUE)).thenReturn(Optional.empty());
+    IssueDto issue1 = db.issues().insertIssue(organization);
+    IssueDto issue2 = db.issues().insertIssue(organization);
+    IssueDto issue3 = db.issues().insertIssue(organization);
+    underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), metadataIndex, 2);
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issue1, issue2, issue3);
+    verify(metadataIndex).resetIndexingCheckpoint(INDEX_TYPE_ISSUE);
+  }
+
   @Test
   public void verify_indexed_fields() {
     RuleDefinitionDto rule = db.rules().insert();
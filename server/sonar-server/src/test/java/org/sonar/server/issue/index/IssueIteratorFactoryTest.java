@@ -21,6 +21,8 @@ package org.sonar.server.issue.index;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.Rule;
 import org.junit.Test;
@@ -129,6 +131,15 @@ public class IssueIteratorFactoryTest {
     assertThat(issuesByKey).hasSize(2);
   }
 
+  @Test
+  public void iterator_over_page_of_issues_from_project() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(issueKeys(factory -> factory.createForProject("PROJECT1", null, 3))).containsExactly("ABC", "BCD", "DEF");
+    assertThat(issueKeys(factory -> factory.createForProject("PROJECT1", "DEF", 3))).containsExactly("EFG");
+    assertThat(issueKeys(factory -> factory.createForProject("PROJECT1", "EFG", 3))).isEmpty();
+  }
+
   @Test
   public void extract_directory_path() {
     dbTester.prepareDbUnit(getClass(), "extract_directory_path.xml");
@@ -173,6 +184,14 @@ public class IssueIteratorFactoryTest {
     return issuesByKey(IssueIteratorFactory::createForAll);
   }
 
+  private List<String> issueKeys(Function<IssueIteratorFactory, IssueIterator> function) {
+    List<String> keys = new ArrayList<>();
+    try (IssueIterator it = function.apply(new IssueIteratorFactory(dbTester.getDbClient()))) {
+      it.forEachRemaining(doc -> keys.add(doc.key()));
+    }
+    return keys;
+  }
+
   private Map<String, IssueDoc> issuesByKey(Function<IssueIteratorFactory, IssueIterator> function) {
     try (IssueIterator it = function.apply(new IssueIteratorFactory(dbTester.getDbClient()))) {
       return Maps.uniqueIndex(it, IssueDoc::key);
@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.search.SearchHit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.BulkIndexer.Size;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.metadata.MetadataIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE;
+
+public class StartupIssueIndexingTest {
+
+  @Rule
+  public EsTester es = EsTester.create();
+  @Rule
+  public DbTester db = DbTester.create();
+
+  private MetadataIndex metadataIndex = mock(MetadataIndex.class);
+
+  @Test
+  public void index_issues_of_all_projects_by_pages() {
+    IssueDto[] issues = Stream.of(insertProjectWithIssues(3), insertProjectWithIssues(1), insertProjectWithIssues(4))
+      .flatMap(Arrays::stream)
+      .toArray(IssueDto[]::new);
+    when(metadataIndex.getIndexingCheckpoint(INDEX_TYPE_ISSUE)).thenReturn(Optional.empty());
+
+    execute(new StartupIssueIndexing(db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), this::newIndexRequest, metadataIndex, 2, 2, 0L));
+
+    assertThatIndexHasOnly(issues);
+  }
+
+  @Test
+  public void save_last_indexed_project_as_checkpoint() {
+    String[] projectUuids = Stream.of(insertProjectWithIssues(1), insertProjectWithIssues(2))
+      .map(issues -> issues[0].getProjectUuid())
+      .sorted()
+      .toArray(String[]::new);
+    when(metadataIndex.getIndexingCheckpoint(INDEX_TYPE_ISSUE)).thenReturn(Optional.empty());
+
+    execute(new StartupIssueIndexing(db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), this::newIndexRequest, metadataIndex, 1, 1, 0L));
+
+    verify(metadataIndex).setIndexingCheckpoint(INDEX_TYPE_ISSUE, projectUuids[1]);
+  }
+
+  @Test
+  public void resume_indexing_after_checkpoint() {
+    IssueDto[] issues1 = insertProjectWithIssues(2);
+    IssueDto[] issues2 = insertProjectWithIssues(2);
+    IssueDto[] first = issues1[0].getProjectUuid().compareTo(issues2[0].getProjectUuid()) < 0 ? issues1 : issues2;
+    IssueDto[] second = first == issues1 ? issues2 : issues1;
+    when(metadataIndex.getIndexingCheckpoint(INDEX_TYPE_ISSUE)).thenReturn(Optional.of(first[0].getProjectUuid()));
+
+    execute(new StartupIssueIndexing(db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), this::newIndexRequest, metadataIndex, 2));
+
+    assertThatIndexHasOnly(second);
+  }
+
+  @Test
+  public void index_issues_without_checkpoint() {
+    IssueDto[] issues = insertProjectWithIssues(3);
+
+    execute(new StartupIssueIndexing(db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), this::newIndexRequest, null, 1, 2, 0L));
+
+    assertThatIndexHasOnly(issues);
+  }
+
+  private void execute(StartupIssueIndexing underTest) {
+    BulkIndexer bulkIndexer = new BulkIndexer(es.client(), INDEX_TYPE_ISSUE, Size.REGULAR);
+    bulkIndexer.start();
+    underTest.execute(bulkIndexer);
+    bulkIndexer.stop();
+  }
+
+  private IssueDto[] insertProjectWithIssues(int count) {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    IssueDto[] issues = new IssueDto[count];
+    for (int i = 0; i < count; i++) {
+      issues[i] = db.issues().insert(rule, project, project);
+    }
+    return issues;
+  }
+
+  private IndexRequest newIndexRequest(IssueDoc issue) {
+    return es.client().prepareIndex(INDEX_TYPE_ISSUE)
+      .setId(issue.key())
+      .setRouting(issue.projectUuid())
+      .setParent(issue.projectUuid())
+      .setSource(issue.getFields())
+      .request();
+  }
+
+  private void assertThatIndexHasOnly(IssueDto... expectedIssues) {
+    assertThat(es.getDocuments(INDEX_TYPE_ISSUE))
+      .extracting(SearchHit::getId)
+      .containsExactlyInAnyOrder(Arrays.stream(expectedIssues).map(IssueDto::getKey).toArray(String[]::new));
+  }
+}
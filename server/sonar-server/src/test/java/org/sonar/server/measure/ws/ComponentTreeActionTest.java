@@ -403,6 +403,34 @@ public class ComponentTreeActionTest {
     assertThat(response.getPaging().getTotal()).isEqualTo(4);
   }
 
+  @Test
+  public void sort_by_metric_value_and_paginate() {
+    ComponentDto project = db.components().insertPrivateProject();
+    db.components().insertSnapshot(project);
+    MetricDto coverage = insertCoverageMetric();
+    db.commit();
+    IntStream.rangeClosed(1, 9).forEach(i -> {
+      ComponentDto file = componentDb.insertComponent(newFileDto(project, null, "file-uuid-" + i));
+      db.measures().insertLiveMeasure(file, coverage, m -> m.setValue((double) i));
+    });
+
+    ComponentTreeWsResponse response = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(SORT, METRIC_SORT)
+      .setParam(PARAM_METRIC_SORT, "coverage")
+      .setParam(PARAM_METRIC_KEYS, "coverage")
+      .setParam(Param.ASCENDING, "false")
+      .setParam(Param.PAGE, "2")
+      .setParam(Param.PAGE_SIZE, "3")
+      .executeProtobuf(ComponentTreeWsResponse.class);
+
+    assertThat(response.getComponentsList()).extracting("id").containsExactly("file-uuid-6", "file-uuid-5", "file-uuid-4");
+    assertThat(response.getComponentsList()).extracting(c -> c.getMeasures(0).getValue()).containsExactly("6.0", "5.0", "4.0");
+    assertThat(response.getPaging().getPageIndex()).isEqualTo(2);
+    assertThat(response.getPaging().getPageSize()).isEqualTo(3);
+    assertThat(response.getPaging().getTotal()).isEqualTo(9);
+  }
+
   @Test
   public void remove_components_without_measure_on_the_metric_sort() {
     ComponentDto project = db.components().insertPrivateProject();
@@ -77,6 +77,18 @@ public class AddUserActionTest extends BasePermissionWsTest<AddUserAction> {
     assertThat(db.users().selectPermissionsOfUser(user, db.getDefaultOrganization())).containsOnly(ADMINISTER);
   }
 
+  @Test
+  public void adding_permission_invalidates_permission_cache() {
+    loginAsAdmin(db.getDefaultOrganization());
+
+    newRequest()
+      .setParam(PARAM_USER_LOGIN, user.getLogin())
+      .setParam(PARAM_PERMISSION, SYSTEM_ADMIN)
+      .execute();
+
+    assertThat(permissionCache.getInvalidations()).isEqualTo(1);
+  }
+
   @Test
   public void add_permission_to_user_on_specified_organization() {
     OrganizationDto organization = db.organizations().insert();
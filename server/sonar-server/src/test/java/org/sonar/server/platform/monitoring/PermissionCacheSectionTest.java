@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.user.PermissionCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+
+public class PermissionCacheSectionTest {
+
+  private PermissionCache permissionCache = new PermissionCache(System2.INSTANCE);
+  private PermissionCacheSection underTest = new PermissionCacheSection(permissionCache);
+
+  @Test
+  public void jmx_name_is_not_empty() {
+    assertThat(underTest.name()).isEqualTo("PermissionCache");
+  }
+
+  @Test
+  public void cache_statistics() {
+    permissionCache.getProjectPermissions(10, "P1", () -> ImmutableSet.of("user"));
+    permissionCache.getProjectPermissions(10, "P1", () -> ImmutableSet.of("user"));
+    permissionCache.getProjectPermissions(11, "P1", () -> ImmutableSet.of("user"));
+    permissionCache.invalidate();
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Web Permission Cache");
+    assertThat(attribute(section, "Hits").getLongValue()).isEqualTo(1L);
+    assertThat(attribute(section, "Misses").getLongValue()).isEqualTo(2L);
+    assertThat(attribute(section, "Invalidations").getLongValue()).isEqualTo(1L);
+    assertThat(attribute(section, "Size").getLongValue()).isEqualTo(0L);
+  }
+}
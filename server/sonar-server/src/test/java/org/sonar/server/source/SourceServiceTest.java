@@ -19,10 +19,13 @@
  */
 package org.sonar.server.source;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -31,10 +34,14 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.source.SourceService.LineWithHtml;
 import org.sonar.server.source.index.FileSourceTesting;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class SourceServiceTest {
@@ -91,6 +98,60 @@ public class SourceServiceTest {
     assertThat(lines).containsExactly("HTML_5", "HTML_6", "HTML_7");
   }
 
+  @Test
+  public void get_range_of_lines_with_html() {
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5")).thenReturn("HTML_5");
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_6", "HIGHLIGHTING_6", "SYMBOLS_6")).thenReturn("HTML_6");
+
+    Optional<Iterable<LineWithHtml>> linesOpt = underTest.getLinesWithHtml(dbTester.getSession(), FILE_UUID, 5, 6);
+    assertThat(linesOpt.isPresent()).isTrue();
+    List<LineWithHtml> lines = Lists.newArrayList(linesOpt.get());
+    assertThat(lines).extracting(l -> l.getLine().getLine()).containsExactly(5, 6);
+    assertThat(lines).extracting(LineWithHtml::getHtml).containsExactly("HTML_5", "HTML_6");
+  }
+
+  @Test
+  public void html_of_cached_lines_is_decorated_only_once() {
+    insertSource("CACHED_FILE_UUID", "HASH_1", FileSourceTesting.newFakeData(10).build(), 10);
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5")).thenReturn("HTML_5");
+
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).containsExactly("HTML_5");
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).containsExactly("HTML_5");
+    assertThat(underTest.getLinesWithHtml(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).extracting(LineWithHtml::getHtml).containsExactly("HTML_5");
+
+    verify(htmlDecorator, times(1)).getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5");
+    verifyNoMoreInteractions(htmlDecorator);
+  }
+
+  @Test
+  public void cached_lines_without_html_are_decorated_only_once() {
+    insertSource("CACHED_FILE_UUID", "HASH_1", FileSourceTesting.newFakeData(10).build(), 10);
+
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).containsExactly((String) null);
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).containsExactly((String) null);
+
+    verify(htmlDecorator, times(1)).getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5");
+    verifyNoMoreInteractions(htmlDecorator);
+  }
+
+  @Test
+  public void html_is_weighed_with_its_cached_chunk() {
+    DbFileSources.Data data = FileSourceTesting.newFakeData(10).build();
+    long linesWeight = data.getLinesList().stream().mapToLong(DbFileSources.Line::getSerializedSize).sum();
+    underTest = new SourceService(dbTester.getDbClient(), htmlDecorator, 10 * linesWeight);
+    FileSourceDto dto = insertSource("CACHED_FILE_UUID", "HASH_1", data, 10);
+    when(htmlDecorator.getDecoratedSourceAsHtml("SOURCE_5", "HIGHLIGHTING_5", "SYMBOLS_5")).thenReturn(Strings.repeat("X", (int) (10 * linesWeight)));
+    assertThat(underTest.getLinesAsHtml(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).hasSize(1);
+
+    // the chunk is evicted once decorated, so new data is read although its hash did not change
+    DbFileSources.Data.Builder newData = FileSourceTesting.newFakeData(10);
+    newData.getLinesBuilder(4).setSource("NEW_SOURCE_5");
+    dto.setSourceData(newData.build());
+    dbTester.getDbClient().fileSourceDao().update(dbTester.getSession(), dto);
+    dbTester.commit();
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "CACHED_FILE_UUID", 5, 5).get()).containsExactly("NEW_SOURCE_5");
+  }
+
   @Test
   public void getLines_fails_if_range_starts_at_zero() {
     expectedException.expect(IllegalArgumentException.class);
@@ -114,10 +175,69 @@ public class SourceServiceTest {
     assertThat(lines.get()).isEmpty();
   }
 
+  @Test
+  public void get_range_of_lines_over_several_chunks() {
+    int lineCount = 2 * FileSourceDto.LINES_PER_CHUNK + 10;
+    insertSource("BIG_FILE_UUID", "HASH", FileSourceTesting.newFakeData(lineCount).build(), lineCount);
+
+    Optional<Iterable<String>> linesOpt = underTest.getLinesAsRawText(dbTester.getSession(), "BIG_FILE_UUID",
+      FileSourceDto.LINES_PER_CHUNK - 1, 2 * FileSourceDto.LINES_PER_CHUNK + 2);
+
+    assertThat(linesOpt.get()).containsExactlyElementsOf(IntStream.rangeClosed(FileSourceDto.LINES_PER_CHUNK - 1, 2 * FileSourceDto.LINES_PER_CHUNK + 2)
+      .mapToObj(i -> "SOURCE_" + i)
+      .collect(Collectors.toList()));
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "BIG_FILE_UUID", lineCount - 1, lineCount + 1000).get())
+      .containsExactly("SOURCE_" + (lineCount - 1), "SOURCE_" + lineCount);
+  }
+
+  @Test
+  public void lines_are_cached_until_data_changes() {
+    FileSourceDto dto = insertSource("CACHED_FILE_UUID", "HASH_1", FileSourceTesting.newFakeData(10).build(), 10);
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "CACHED_FILE_UUID", 5, 6).get()).containsExactly("SOURCE_5", "SOURCE_6");
+
+    // data is not read again as long as its hash did not change
+    DbFileSources.Data.Builder newData = FileSourceTesting.newFakeData(10);
+    newData.getLinesBuilder(4).setSource("NEW_SOURCE_5");
+    dto.setSourceData(newData.build());
+    dbTester.getDbClient().fileSourceDao().update(dbTester.getSession(), dto);
+    dbTester.commit();
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "CACHED_FILE_UUID", 5, 6).get()).containsExactly("SOURCE_5", "SOURCE_6");
+
+    dto.setDataHash("HASH_2");
+    dbTester.getDbClient().fileSourceDao().update(dbTester.getSession(), dto);
+    dbTester.commit();
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "CACHED_FILE_UUID", 5, 6).get()).containsExactly("NEW_SOURCE_5", "SOURCE_6");
+  }
+
+  @Test
+  public void chunks_heavier_than_a_tenth_of_the_cache_are_not_cached() {
+    underTest = new SourceService(dbTester.getDbClient(), htmlDecorator, 100L);
+    FileSourceDto dto = insertSource("CACHED_FILE_UUID", "HASH_1", FileSourceTesting.newFakeData(10).build(), 10);
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "CACHED_FILE_UUID", 5, 6).get()).containsExactly("SOURCE_5", "SOURCE_6");
+
+    DbFileSources.Data.Builder newData = FileSourceTesting.newFakeData(10);
+    newData.getLinesBuilder(4).setSource("NEW_SOURCE_5");
+    dto.setSourceData(newData.build());
+    dbTester.getDbClient().fileSourceDao().update(dbTester.getSession(), dto);
+    dbTester.commit();
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), "CACHED_FILE_UUID", 5, 6).get()).containsExactly("NEW_SOURCE_5", "SOURCE_6");
+  }
+
   @Test
   public void getLines_file_does_not_exist() {
     Optional<Iterable<DbFileSources.Line>> lines = underTest.getLines(dbTester.getSession(), "FILE_DOES_NOT_EXIST", 1, 10);
     assertThat(lines.isPresent()).isFalse();
   }
 
+  private FileSourceDto insertSource(String fileUuid, String dataHash, DbFileSources.Data data, int lineCount) {
+    FileSourceDto dto = new FileSourceDto()
+      .setFileUuid(fileUuid)
+      .setProjectUuid("PROJECT_UUID")
+      .setSourceData(data)
+      .setDataHash(dataHash)
+      .setLineHashes(IntStream.rangeClosed(1, lineCount).mapToObj(i -> "HASH_" + i).collect(Collectors.toList()));
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), dto);
+    dbTester.commit();
+    return dbTester.getDbClient().fileSourceDao().selectSourceByFileUuid(dbTester.getSession(), fileUuid);
+  }
 }
@@ -86,7 +86,7 @@ public class LinesActionTest {
     sourceService = new SourceService(db.getDbClient(), htmlSourceDecorator);
     componentDao = new ComponentDao();
     wsTester = new WsTester(new SourcesWs(
-      new LinesAction(TestComponentFinder.from(db), db.getDbClient(), sourceService, htmlSourceDecorator, userSession)));
+      new LinesAction(TestComponentFinder.from(db), db.getDbClient(), sourceService, userSession)));
     project = ComponentTesting.newPrivateProjectDto(db.organizations().insert(), PROJECT_UUID);
     file = newFileDto(project, null, FILE_UUID).setDbKey(FILE_KEY);
   }
@@ -0,0 +1,170 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.process.cluster.hz.DistributedAnswer;
+import org.sonar.process.cluster.hz.DistributedCall;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
+import static org.sonar.db.permission.OrganizationPermission.SCAN;
+
+public class PermissionCacheTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private PermissionCache underTest = new PermissionCache(system2);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void load_permissions_only_once() {
+    AtomicInteger loads = new AtomicInteger();
+
+    Set<OrganizationPermission> permissions = underTest.getOrganizationPermissions(10, "org1", () -> {
+      loads.incrementAndGet();
+      return of(ADMINISTER);
+    });
+    Set<OrganizationPermission> cached = underTest.getOrganizationPermissions(10, "org1", () -> {
+      loads.incrementAndGet();
+      return of(SCAN);
+    });
+
+    assertThat(permissions).containsOnly(ADMINISTER);
+    assertThat(cached).containsOnly(ADMINISTER);
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(underTest.getMisses()).isEqualTo(1);
+    assertThat(underTest.getHits()).isEqualTo(1);
+    assertThat(underTest.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void permissions_are_cached_by_user_and_by_organization_or_project() {
+    underTest.getProjectPermissions(10, "P1", () -> of("user"));
+    underTest.getProjectPermissions(null, "P1", () -> of("codeviewer"));
+    underTest.getProjectPermissions(10, "P2", () -> of("admin"));
+
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of())).containsOnly("user");
+    assertThat(underTest.getProjectPermissions(null, "P1", () -> of())).containsOnly("codeviewer");
+    assertThat(underTest.getProjectPermissions(10, "P2", () -> of())).containsOnly("admin");
+    assertThat(underTest.getProjectPermissions(11, "P1", () -> of())).isEmpty();
+    assertThat(underTest.getSize()).isEqualTo(4);
+  }
+
+  @Test
+  public void entries_expire_after_ttl() {
+    underTest.getProjectPermissions(10, "P1", () -> of("user"));
+
+    system2.setNow(1_000L + PermissionCache.TTL_MS - 1);
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of("admin"))).containsOnly("user");
+
+    system2.setNow(1_000L + PermissionCache.TTL_MS);
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of("admin"))).containsOnly("admin");
+  }
+
+  @Test
+  public void least_recently_used_entries_are_evicted_when_cache_is_full() {
+    for (int i = 0; i <= PermissionCache.MAX_ENTRIES; i++) {
+      underTest.getProjectPermissions(i, "P1", () -> of("user"));
+    }
+
+    assertThat(underTest.getSize()).isEqualTo(PermissionCache.MAX_ENTRIES);
+    assertThat(underTest.getProjectPermissions(0, "P1", () -> of("admin"))).containsOnly("admin");
+    assertThat(underTest.getProjectPermissions(PermissionCache.MAX_ENTRIES, "P1", () -> of("admin"))).containsOnly("user");
+  }
+
+  @Test
+  public void invalidate_drops_permissions_but_not_projects_of_components() {
+    underTest.getOrganizationPermissions(10, "org1", () -> of(ADMINISTER));
+    underTest.getProjectPermissions(10, "P1", () -> of("user"));
+    underTest.getProjectUuid("FILE1", () -> Optional.of("P1"));
+
+    underTest.invalidate();
+
+    assertThat(underTest.getInvalidations()).isEqualTo(1);
+    assertThat(underTest.getOrganizationPermissions(10, "org1", () -> of(SCAN))).containsOnly(SCAN);
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of("admin"))).containsOnly("admin");
+    assertThat(underTest.getProjectUuid("FILE1", Optional::empty)).contains("P1");
+  }
+
+  @Test
+  public void do_not_cache_missing_components() {
+    assertThat(underTest.getProjectUuid("FILE1", Optional::empty)).isEmpty();
+    assertThat(underTest.getProjectUuid("FILE1", () -> Optional.of("P1"))).contains("P1");
+  }
+
+  @Test
+  public void do_not_cache_permissions_loaded_during_invalidation() {
+    Set<String> permissions = underTest.getProjectPermissions(10, "P1", () -> {
+      underTest.invalidate();
+      return of("user");
+    });
+
+    assertThat(permissions).containsOnly("user");
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of("admin"))).containsOnly("admin");
+  }
+
+  @Test
+  public void invalidate_all_web_nodes_in_cluster_mode() throws Exception {
+    HazelcastMember member = mock(HazelcastMember.class);
+    when(member.call(any(), any(), anyLong())).thenAnswer(invocation -> {
+      ((DistributedCall<?>) invocation.getArgument(0)).call();
+      return new DistributedAnswer<>();
+    });
+    underTest = new PermissionCache(system2, member);
+    underTest.start();
+    underTest.getProjectPermissions(10, "P1", () -> of("user"));
+
+    underTest.invalidate();
+
+    verify(member).call(any(), any(), anyLong());
+    assertThat(underTest.getInvalidations()).isEqualTo(1);
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of("admin"))).containsOnly("admin");
+  }
+
+  @Test
+  public void invalidate_local_node_if_cluster_call_fails() throws Exception {
+    HazelcastMember member = mock(HazelcastMember.class);
+    when(member.call(any(), any(), anyLong())).thenThrow(new IllegalStateException("BOOM"));
+    underTest = new PermissionCache(system2, member);
+    underTest.start();
+    underTest.getProjectPermissions(10, "P1", () -> of("user"));
+
+    underTest.invalidate();
+
+    assertThat(underTest.getProjectPermissions(10, "P1", () -> of("admin"))).containsOnly("admin");
+  }
+}
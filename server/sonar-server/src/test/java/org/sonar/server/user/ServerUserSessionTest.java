@@ -57,6 +57,7 @@ public class ServerUserSessionTest {
   private DbClient dbClient = db.getDbClient();
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
+  private PermissionCache permissionCache = new PermissionCache(System2.INSTANCE);
 
   @Test
   public void anonymous_is_not_logged_in_and_does_not_have_login() {
@@ -639,8 +640,38 @@ public class ServerUserSessionTest {
     assertThat(hasComponentPermissionByDtoOrUuid(underTest, "p1", fileInBranch)).isTrue();
   }
 
+  @Test
+  public void permissions_are_shared_by_sessions_until_cache_is_invalidated() {
+    OrganizationDto org = db.organizations().insert();
+    UserDto user = db.users().insertUser();
+    ComponentDto project = db.components().insertPrivateProject(org);
+
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isFalse();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.USER, project)).isFalse();
+
+    db.users().insertPermissionOnUser(org, user, PROVISION_PROJECTS);
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isFalse();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.USER, project)).isFalse();
+
+    permissionCache.invalidate();
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isTrue();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.USER, project)).isTrue();
+  }
+
+  @Test
+  public void permissions_of_anonymous_and_users_are_cached_separately() {
+    ComponentDto project = db.components().insertPublicProject();
+    UserDto user = db.users().insertUser();
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, project);
+
+    assertThat(newAnonymousSession().hasComponentPermission(UserRole.ADMIN, project)).isFalse();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.ADMIN, project)).isTrue();
+    assertThat(newAnonymousSession().hasComponentPermission(UserRole.ADMIN, project)).isFalse();
+  }
+
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
@@ -70,8 +70,9 @@ public class UserUpdaterReactivateTest {
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private MapSettings settings = new MapSettings();
   private LocalAuthentication localAuthentication = new LocalAuthentication(db.getDbClient());
+  private PermissionCache permissionCache = new PermissionCache(System2.INSTANCE);
   private UserUpdater underTest = new UserUpdater(newUserNotifier, dbClient, userIndexer, organizationFlags, defaultOrganizationProvider, organizationUpdater,
-    new DefaultGroupFinder(dbClient), settings.asConfig(), localAuthentication);
+    new DefaultGroupFinder(dbClient), settings.asConfig(), localAuthentication, permissionCache);
 
   @Test
   public void reactivate_user() {
@@ -97,6 +98,7 @@ public class UserUpdaterReactivateTest {
     assertThat(reloaded.getSalt()).isNull();
     assertThat(reloaded.getHashMethod()).isEqualTo(HashMethod.BCRYPT.name());
     assertThat(reloaded.getCryptedPassword()).isNotNull().isNotEqualTo("650d2261c98361e2f67f90ce5c65a95e7d8ea2fg");
+    assertThat(permissionCache.getInvalidations()).isEqualTo(1);
     assertThat(reloaded.getCreatedAt()).isEqualTo(user.getCreatedAt());
     assertThat(reloaded.getUpdatedAt()).isGreaterThan(user.getCreatedAt());
   }
@@ -24,6 +24,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.server.authentication.LocalAuthentication;
 import org.sonar.server.es.EsTester;
@@ -36,6 +37,7 @@ import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.user.NewUser;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -66,7 +68,8 @@ public class ChangePasswordActionTest {
     mock(OrganizationUpdater.class),
     new DefaultGroupFinder(db.getDbClient()),
     new MapSettings().asConfig(),
-    localAuthentication);
+    localAuthentication,
+    new PermissionCache(System2.INSTANCE));
 
   private WsActionTester tester = new WsActionTester(new ChangePasswordAction(db.getDbClient(), userUpdater, userSessionRule, localAuthentication));
 
@@ -46,6 +46,7 @@ import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.ws.TestResponse;
@@ -88,8 +89,9 @@ public class DeactivateActionTest {
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
   private DbSession dbSession = db.getSession();
 
+  private PermissionCache permissionCache = new PermissionCache(System2.INSTANCE);
   private WsActionTester ws = new WsActionTester(new DeactivateAction(
-    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider));
+    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider, permissionCache));
 
   @Test
   public void deactivate_user_and_delete_his_related_data() {
@@ -121,6 +123,7 @@ public class DeactivateActionTest {
     deactivate(user.getLogin()).getInput();
 
     assertThat(db.getDbClient().groupMembershipDao().selectGroupIdsByUserId(dbSession, user.getId())).isEmpty();
+    assertThat(permissionCache.getInvalidations()).isEqualTo(1);
   }
 
   @Test
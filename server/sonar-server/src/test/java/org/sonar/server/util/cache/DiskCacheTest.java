@@ -19,15 +19,18 @@
  */
 package org.sonar.server.util.cache;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
@@ -35,6 +38,8 @@ public class DiskCacheTest {
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   @Test
   public void write_and_read() throws Exception {
@@ -77,4 +82,86 @@ public class DiskCacheTest {
       assertThat(e).hasMessage("expected error");
     }
   }
+
+  @Test
+  public void write_and_read_with_codec() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), null);
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+
+    cache.newAppender()
+      .append("foo")
+      .append("bar")
+      .close();
+    cache.newAppender()
+      .append("baz")
+      .close();
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar", "baz");
+    }
+  }
+
+  @Test
+  public void write_and_read_many_blocks_with_codec() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), null);
+    try (DiskCache<String>.DiskAppender appender = cache.newAppender()) {
+      for (int i = 0; i < 100_000; i++) {
+        appender.append("value_" + i);
+      }
+    }
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      int count = 0;
+      while (traverse.hasNext()) {
+        assertThat(traverse.next()).isEqualTo("value_" + count);
+        count++;
+      }
+      assertThat(count).isEqualTo(100_000);
+    }
+  }
+
+  @Test
+  public void traverse_by_index_key() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), s -> s.substring(0, 1));
+    try (DiskCache<String>.DiskAppender appender = cache.newAppender()) {
+      for (int i = 0; i < 50_000; i++) {
+        appender.append("a" + i);
+      }
+      appender.append("b1").append("c1").append("b2");
+    }
+    cache.newAppender().append("b3").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse("b")) {
+      assertThat(traverse).containsExactly("b1", "b2", "b3");
+    }
+    try (CloseableIterator<String> traverse = cache.traverse("c")) {
+      assertThat(traverse).containsExactly("c1");
+    }
+    try (CloseableIterator<String> traverse = cache.traverse("d")) {
+      assertThat(traverse).isEmpty();
+    }
+  }
+
+  @Test
+  public void traverse_by_index_key_fails_if_cache_is_not_indexed() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new StringCodec(), null);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("is not indexed");
+
+    cache.traverse("a");
+  }
+
+  private static class StringCodec implements DiskCacheCodec<String> {
+    @Override
+    public void write(String object, CodedOutputStream output) throws IOException {
+      output.writeStringNoTag(object);
+    }
+
+    @Override
+    public String read(CodedInputStream input) throws IOException {
+      return input.readString();
+    }
+  }
 }
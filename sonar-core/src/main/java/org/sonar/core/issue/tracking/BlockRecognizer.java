@@ -19,18 +19,25 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
 
+  /**
+   * Maximum number of raw lines sharing the hash of a base line that are compared to this base line. When a line
+   * is more frequent (blank lines, generated code, ...), only the nearest raw lines are compared, so that the number
+   * of evaluated pairs grows linearly with the number of lines.
+   */
+  static final int MAX_CANDIDATES_PER_LINE = 64;
+
   /**
    * If base source code is available, then detect code moves through block hashes.
    * Only the issues associated to a line can be matched here.
@@ -39,88 +46,128 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     BlockHashSequence rawHashSequence = rawInput.getBlockHashSequence();
     BlockHashSequence baseHashSequence = baseInput.getBlockHashSequence();
 
-    Multimap<Integer, RAW> rawsByLine = groupByLine(tracking.getUnmatchedRaws(), rawHashSequence);
-    Multimap<Integer, BASE> basesByLine = groupByLine(tracking.getUnmatchedBases(), baseHashSequence);
-    Map<Integer, HashOccurrence> occurrencesByHash = new HashMap<>();
-
-    for (Integer line : basesByLine.keySet()) {
-      int hash = baseHashSequence.getBlockHashForLine(line);
-      HashOccurrence hashOccurrence = occurrencesByHash.get(hash);
-      if (hashOccurrence == null) {
-        // first occurrence in base
-        hashOccurrence = new HashOccurrence();
-        hashOccurrence.baseLine = line;
-        hashOccurrence.baseCount = 1;
-        occurrencesByHash.put(hash, hashOccurrence);
-      } else {
-        hashOccurrence.baseCount++;
-      }
+    LinesWithIssues<RAW> raws = LinesWithIssues.of(tracking.getUnmatchedRaws(), rawHashSequence);
+    LinesWithIssues<BASE> bases = LinesWithIssues.of(tracking.getUnmatchedBases(), baseHashSequence);
+
+    matchUniqueBlocks(raws, rawHashSequence, bases, baseHashSequence, tracking);
+
+    if (raws.isEmpty() || bases.isEmpty()) {
+      return;
     }
+    Map<String, Integer> lineHashIds = new HashMap<>();
+    int[] baseLineHashIds = toIds(baseInput.getLineHashSequence(), lineHashIds);
+    int[] rawLineHashIds = toIds(rawInput.getLineHashSequence(), lineHashIds);
 
-    for (Integer line : rawsByLine.keySet()) {
-      int hash = rawHashSequence.getBlockHashForLine(line);
-      HashOccurrence hashOccurrence = occurrencesByHash.get(hash);
-      if (hashOccurrence != null) {
-        hashOccurrence.rawLine = line;
-        hashOccurrence.rawCount++;
-      }
+    List<LinePair> possibleLinePairs = findPossibleLinePairs(raws, rawLineHashIds, bases, baseLineHashIds);
+    possibleLinePairs.sort(LinePairComparator.INSTANCE);
+    for (LinePair linePair : possibleLinePairs) {
+      // High probability that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
+      map(raws.trackablesAt(linePair.rawIndex), bases.trackablesAt(linePair.baseIndex), tracking);
     }
+  }
 
-    for (HashOccurrence hashOccurrence : occurrencesByHash.values()) {
-      if (hashOccurrence.baseCount == 1 && hashOccurrence.rawCount == 1) {
+  /**
+   * Lines whose block hash is unique in both base and raw are guaranteed to be moved.
+   */
+  private void matchUniqueBlocks(LinesWithIssues<RAW> raws, BlockHashSequence rawHashSequence,
+    LinesWithIssues<BASE> bases, BlockHashSequence baseHashSequence, Tracking<RAW, BASE> tracking) {
+    long[] baseKeys = bases.sortedKeys(baseHashSequence::getBlockHashForLine);
+    long[] rawKeys = raws.sortedKeys(rawHashSequence::getBlockHashForLine);
+
+    int r = 0;
+    for (int b = 0; b < baseKeys.length;) {
+      int hash = hashOf(baseKeys[b]);
+      int baseEnd = endOfGroup(baseKeys, b);
+      while (r < rawKeys.length && hashOf(rawKeys[r]) < hash) {
+        r++;
+      }
+      int rawEnd = r < rawKeys.length && hashOf(rawKeys[r]) == hash ? endOfGroup(rawKeys, r) : r;
+      if (baseEnd - b == 1 && rawEnd - r == 1) {
         // Guaranteed that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-        map(rawsByLine.get(hashOccurrence.rawLine), basesByLine.get(hashOccurrence.baseLine), tracking);
-        basesByLine.removeAll(hashOccurrence.baseLine);
-        rawsByLine.removeAll(hashOccurrence.rawLine);
+        int rawIndex = indexOf(rawKeys[r]);
+        int baseIndex = indexOf(baseKeys[b]);
+        map(raws.trackablesAt(rawIndex), bases.trackablesAt(baseIndex), tracking);
+        raws.remove(rawIndex);
+        bases.remove(baseIndex);
       }
+      b = baseEnd;
+      r = rawEnd;
     }
+  }
 
-    // Check if remaining number of lines exceeds threshold. It avoids processing too many combinations.
-    if (basesByLine.keySet().size() * rawsByLine.keySet().size() >= 250_000) {
-      return;
-    }
+  /**
+   * Pairs of lines with the same hash, weighted by the length of the maximal block of similar lines around them.
+   * Pairs of lines with different hashes have no weight, so they are never evaluated.
+   */
+  private static List<LinePair> findPossibleLinePairs(LinesWithIssues<?> raws, int[] rawLineHashIds, LinesWithIssues<?> bases, int[] baseLineHashIds) {
+    long[] baseKeys = bases.sortedKeys(line -> baseLineHashIds[line]);
+    long[] rawKeys = raws.sortedKeys(line -> rawLineHashIds[line]);
+    MaximalBlocks maximalBlocks = new MaximalBlocks(baseLineHashIds, rawLineHashIds);
 
-    List<LinePair> possibleLinePairs = Lists.newArrayList();
-    for (Integer baseLine : basesByLine.keySet()) {
-      for (Integer rawLine : rawsByLine.keySet()) {
-        int weight = lengthOfMaximalBlock(baseInput.getLineHashSequence(), baseLine, rawInput.getLineHashSequence(), rawLine);
-        if (weight > 0) {
-          possibleLinePairs.add(new LinePair(baseLine, rawLine, weight));
+    List<LinePair> result = new ArrayList<>();
+    int r = 0;
+    for (int b = 0; b < baseKeys.length;) {
+      int hash = hashOf(baseKeys[b]);
+      int baseEnd = endOfGroup(baseKeys, b);
+      while (r < rawKeys.length && hashOf(rawKeys[r]) < hash) {
+        r++;
+      }
+      int rawEnd = r < rawKeys.length && hashOf(rawKeys[r]) == hash ? endOfGroup(rawKeys, r) : r;
+      for (int i = b; i < baseEnd; i++) {
+        int baseIndex = indexOf(baseKeys[i]);
+        int baseLine = bases.lineAt(baseIndex);
+        int from = r;
+        int to = rawEnd;
+        if (to - from > MAX_CANDIDATES_PER_LINE) {
+          // raw keys of a group are sorted by line, so the nearest raw lines surround the position of base line
+          int position = Arrays.binarySearch(rawKeys, r, rawEnd, key(hash, raws.indexOfFirstLineAfter(baseLine)));
+          position = position >= 0 ? position : (-position - 1);
+          to = Math.min(rawEnd, Math.max(r, position - MAX_CANDIDATES_PER_LINE / 2) + MAX_CANDIDATES_PER_LINE);
+          from = to - MAX_CANDIDATES_PER_LINE;
+        }
+        for (int j = from; j < to; j++) {
+          int rawIndex = indexOf(rawKeys[j]);
+          int rawLine = raws.lineAt(rawIndex);
+          result.add(new LinePair(baseIndex, baseLine, rawIndex, rawLine, maximalBlocks.lengthAt(baseLine, rawLine)));
         }
       }
+      b = baseEnd;
+      r = rawEnd;
     }
-    Collections.sort(possibleLinePairs, LinePairComparator.INSTANCE);
-    for (LinePair linePair : possibleLinePairs) {
-      // High probability that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-      map(rawsByLine.get(linePair.rawLine), basesByLine.get(linePair.baseLine), tracking);
-    }
+    return result;
   }
 
   /**
-   * @param startLineA number of line from first version of text (numbering starts from 1)
-   * @param startLineB number of line from second version of text (numbering starts from 1)
+   * Identifiers of the hashes of lines, indexed by line. Lines with equal hashes have the same identifier.
    */
-  static int lengthOfMaximalBlock(LineHashSequence hashesA, int startLineA, LineHashSequence hashesB, int startLineB) {
-    if (!hashesA.getHashForLine(startLineA).equals(hashesB.getHashForLine(startLineB))) {
-      return 0;
-    }
-    int length = 0;
-    int ai = startLineA;
-    int bi = startLineB;
-    while (ai <= hashesA.length() && bi <= hashesB.length() && hashesA.getHashForLine(ai).equals(hashesB.getHashForLine(bi))) {
-      ai++;
-      bi++;
-      length++;
-    }
-    ai = startLineA;
-    bi = startLineB;
-    while (ai > 0 && bi > 0 && hashesA.getHashForLine(ai).equals(hashesB.getHashForLine(bi))) {
-      ai--;
-      bi--;
-      length++;
-    }
-    // Note that position (startA, startB) was counted twice
-    return length - 1;
+  static int[] toIds(LineHashSequence lineHashSequence, Map<String, Integer> ids) {
+    // line 1 is at index 1
+    int[] result = new int[lineHashSequence.length() + 1];
+    for (int line = 1; line <= lineHashSequence.length(); line++) {
+      result[line] = ids.computeIfAbsent(lineHashSequence.getHashForLine(line), hash -> ids.size());
+    }
+    return result;
+  }
+
+  private static long key(int hash, int index) {
+    return ((long) hash << 32) | index;
+  }
+
+  private static int hashOf(long key) {
+    return (int) (key >> 32);
+  }
+
+  private static int indexOf(long key) {
+    return (int) key;
+  }
+
+  private static int endOfGroup(long[] sortedKeys, int start) {
+    int hash = hashOf(sortedKeys[start]);
+    int end = start + 1;
+    while (end < sortedKeys.length && hashOf(sortedKeys[end]) == hash) {
+      end++;
+    }
+    return end;
   }
 
   private void map(Collection<RAW> raws, Collection<BASE> bases, Tracking<RAW, BASE> result) {
@@ -134,36 +181,144 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private static <T extends Trackable> Multimap<Integer, T> groupByLine(Iterable<T> trackables, BlockHashSequence hashSequence) {
-    Multimap<Integer, T> result = LinkedHashMultimap.create();
-    for (T trackable : trackables) {
-      Integer line = trackable.getLine();
-      if (hashSequence.hasLine(line)) {
-        result.put(line, trackable);
+  /**
+   * Length of the maximal block of similar lines around a pair of lines, 0 if the lines are not similar.
+   * All the pairs of lines of a block are on the same diagonal (baseLine - rawLine), so the last block found on each
+   * diagonal is kept: a block is scanned only once, whatever the number of pairs of lines it contains.
+   */
+  static class MaximalBlocks {
+    private final int[] baseIds;
+    private final int[] rawIds;
+    private final int[] blockStarts;
+    private final int[] blockEnds;
+
+    MaximalBlocks(int[] baseIds, int[] rawIds) {
+      this.baseIds = baseIds;
+      this.rawIds = rawIds;
+      this.blockStarts = new int[baseIds.length + rawIds.length];
+      this.blockEnds = new int[baseIds.length + rawIds.length];
+    }
+
+    /**
+     * @param baseLine number of line from base version of text (numbering starts from 1)
+     * @param rawLine number of line from raw version of text (numbering starts from 1)
+     */
+    int lengthAt(int baseLine, int rawLine) {
+      if (baseIds[baseLine] != rawIds[rawLine]) {
+        return 0;
+      }
+      int shift = baseLine - rawLine;
+      int diagonal = shift + rawIds.length;
+      if (blockStarts[diagonal] > baseLine || baseLine > blockEnds[diagonal]) {
+        int start = baseLine;
+        while (start > 1 && start - shift > 1 && baseIds[start - 1] == rawIds[start - 1 - shift]) {
+          start--;
+        }
+        int end = baseLine;
+        while (end + 1 < baseIds.length && end + 1 - shift < rawIds.length && baseIds[end + 1] == rawIds[end + 1 - shift]) {
+          end++;
+        }
+        blockStarts[diagonal] = start;
+        blockEnds[diagonal] = end;
       }
+      return blockEnds[diagonal] - blockStarts[diagonal] + 1;
+    }
+  }
+
+  /**
+   * Distinct lines of trackables, in ascending order, and the trackables on each of them.
+   */
+  private static class LinesWithIssues<T extends Trackable> {
+    private final int[] lines;
+    private final List<List<T>> trackablesByLine;
+    private final BitSet removed;
+
+    private LinesWithIssues(int[] lines, List<List<T>> trackablesByLine) {
+      this.lines = lines;
+      this.trackablesByLine = trackablesByLine;
+      this.removed = new BitSet(lines.length);
+    }
+
+    static <T extends Trackable> LinesWithIssues<T> of(Iterable<T> trackables, BlockHashSequence hashSequence) {
+      List<T> withLine = new ArrayList<>();
+      for (T trackable : trackables) {
+        if (hashSequence.hasLine(trackable.getLine())) {
+          withLine.add(trackable);
+        }
+      }
+      // stable sort, so that trackables of a line are kept in order
+      withLine.sort(Comparator.comparingInt(Trackable::getLine));
+
+      int[] lines = new int[withLine.size()];
+      List<List<T>> trackablesByLine = new ArrayList<>();
+      int count = 0;
+      for (T trackable : withLine) {
+        int line = trackable.getLine();
+        if (count == 0 || lines[count - 1] != line) {
+          lines[count] = line;
+          count++;
+          trackablesByLine.add(new ArrayList<>());
+        }
+        trackablesByLine.get(count - 1).add(trackable);
+      }
+      return new LinesWithIssues<>(Arrays.copyOf(lines, count), trackablesByLine);
+    }
+
+    boolean isEmpty() {
+      return removed.cardinality() == lines.length;
+    }
+
+    int lineAt(int index) {
+      return lines[index];
+    }
+
+    List<T> trackablesAt(int index) {
+      return trackablesByLine.get(index);
+    }
+
+    void remove(int index) {
+      removed.set(index);
+    }
+
+    /**
+     * Index of the first line which is greater than or equal to the given line
+     */
+    int indexOfFirstLineAfter(int line) {
+      int index = Arrays.binarySearch(lines, line);
+      return index >= 0 ? index : (-index - 1);
+    }
+
+    /**
+     * Keys of the remaining lines, made of the hash of the line and of the index of the line, sorted by hash then line.
+     */
+    long[] sortedKeys(IntUnaryOperator lineHasher) {
+      long[] keys = new long[lines.length - removed.cardinality()];
+      int count = 0;
+      for (int index = removed.nextClearBit(0); index < lines.length; index = removed.nextClearBit(index + 1)) {
+        keys[count] = key(lineHasher.applyAsInt(lines[index]), index);
+        count++;
+      }
+      Arrays.sort(keys);
+      return keys;
     }
-    return result;
   }
 
   private static class LinePair {
-    int baseLine;
-    int rawLine;
-    int weight;
+    final int baseIndex;
+    final int baseLine;
+    final int rawIndex;
+    final int rawLine;
+    final int weight;
 
-    public LinePair(int baseLine, int rawLine, int weight) {
+    LinePair(int baseIndex, int baseLine, int rawIndex, int rawLine, int weight) {
+      this.baseIndex = baseIndex;
       this.baseLine = baseLine;
+      this.rawIndex = rawIndex;
       this.rawLine = rawLine;
       this.weight = weight;
     }
   }
 
-  private static class HashOccurrence {
-    int baseLine;
-    int rawLine;
-    int baseCount;
-    int rawCount;
-  }
-
   private enum LinePairComparator implements Comparator<LinePair> {
     INSTANCE;
 
@@ -172,9 +327,13 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
       int weightDiff = o2.weight - o1.weight;
       if (weightDiff != 0) {
         return weightDiff;
-      } else {
-        return Math.abs(o1.baseLine - o1.rawLine) - Math.abs(o2.baseLine - o2.rawLine);
       }
+      int distanceDiff = Math.abs(o1.baseLine - o1.rawLine) - Math.abs(o2.baseLine - o2.rawLine);
+      if (distanceDiff != 0) {
+        return distanceDiff;
+      }
+      int baseDiff = Integer.compare(o1.baseLine, o2.baseLine);
+      return baseDiff != 0 ? baseDiff : Integer.compare(o1.rawLine, o2.rawLine);
     }
   }
 }
@@ -20,9 +20,15 @@
 package org.sonar.core.issue.tracking;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.DefaultIssue;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BlockRecognizerTest {
@@ -41,8 +47,47 @@ public class BlockRecognizerTest {
     assertThat(compute(seq("bcde"), seq("abcde"), 3, 4)).isEqualTo(4);
   }
 
+  @Test
+  public void lengthOfMaximalBlock_reuses_block_of_same_diagonal() {
+    Map<String, Integer> lineHashIds = new HashMap<>();
+    BlockRecognizer.MaximalBlocks underTest = new BlockRecognizer.MaximalBlocks(
+      BlockRecognizer.toIds(seq("abcxde"), lineHashIds), BlockRecognizer.toIds(seq("zabcyde"), lineHashIds));
+
+    assertThat(underTest.lengthAt(1, 2)).isEqualTo(3);
+    assertThat(underTest.lengthAt(3, 4)).isEqualTo(3);
+    assertThat(underTest.lengthAt(5, 6)).isEqualTo(2);
+    assertThat(underTest.lengthAt(2, 3)).isEqualTo(3);
+    assertThat(underTest.lengthAt(4, 5)).isEqualTo(0);
+  }
+
+  @Test
+  public void match_moved_lines_of_huge_file_with_repeated_blocks() {
+    // every block of lines appears 100 times, so no block hash is unique, and lines are shifted by 2
+    List<String> baseHashes = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      baseHashes.add("H" + (i % 10));
+    }
+    List<String> rawHashes = new ArrayList<>(asList("new1", "new2"));
+    rawHashes.addAll(baseHashes);
+    FakeInput baseInput = new FakeInput("BASE", baseHashes);
+    FakeInput rawInput = new FakeInput("RAW", rawHashes);
+    for (int line = 1; line <= 1_000; line++) {
+      baseInput.createIssueOnLine(line);
+      rawInput.createIssueOnLine(line + 2);
+    }
+    Tracking<DefaultIssue, DefaultIssue> tracking = new Tracking<>(rawInput.getIssues(), baseInput.getIssues());
+
+    new BlockRecognizer<DefaultIssue, DefaultIssue>().match(rawInput, baseInput, tracking);
+
+    assertThat(tracking.getUnmatchedRaws()).isEmpty();
+    for (DefaultIssue raw : rawInput.getIssues()) {
+      assertThat(tracking.baseFor(raw).getLine()).isEqualTo(raw.getLine() - 2);
+    }
+  }
+
   private int compute(LineHashSequence seqA, LineHashSequence seqB, int ai, int bi) {
-    return BlockRecognizer.lengthOfMaximalBlock(seqA, ai, seqB, bi);
+    Map<String, Integer> lineHashIds = new HashMap<>();
+    return new BlockRecognizer.MaximalBlocks(BlockRecognizer.toIds(seqA, lineHashIds), BlockRecognizer.toIds(seqB, lineHashIds)).lengthAt(ai, bi);
   }
 
   private static LineHashSequence seq(String text) {
@@ -53,4 +98,34 @@ public class BlockRecognizerTest {
     return new LineHashSequence(hashes);
   }
 
+  private static class FakeInput implements Input<DefaultIssue> {
+    private final List<DefaultIssue> issues = new ArrayList<>();
+    private final String keyPrefix;
+    private final List<String> lineHashes;
+
+    FakeInput(String keyPrefix, List<String> lineHashes) {
+      this.keyPrefix = keyPrefix;
+      this.lineHashes = lineHashes;
+    }
+
+    void createIssueOnLine(int line) {
+      issues.add(new DefaultIssue().setKey(keyPrefix + "_" + line).setLine(line).setRuleKey(RuleKey.of("java", "S1")));
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return new LineHashSequence(lineHashes);
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return new BlockHashSequence(getLineHashSequence(), 2);
+    }
+
+    @Override
+    public Collection<DefaultIssue> getIssues() {
+      return issues;
+    }
+  }
+
 }
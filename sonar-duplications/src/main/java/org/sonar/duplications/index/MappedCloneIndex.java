@@ -0,0 +1,692 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Provides an index whose blocks are stored out of the heap, in a memory-mapped file which is kept between analyses.
+ * <p>
+ * Only resource ids are kept on the heap, with the fingerprint and the position of their blocks: heap usage depends on
+ * the number of resources, not on the number of blocks.
+ * </p>
+ * <p>
+ * Blocks should be inserted by resource with {@link #insert(String, Collection)}. When blocks of a resource are the same
+ * as in the file written by the previous analysis, they are reused as they are. Other blocks are buffered out of the heap.
+ * When the index is sealed, only these blocks are sorted, then they are merged with the blocks reused from the previous
+ * analysis, which are already sorted. Resources which are not inserted again are removed from the index.
+ * </p>
+ * <p>
+ * The index is sealed, and its file written, by the first query. Queries can then be executed concurrently without
+ * locking. Insertions must not be done concurrently with other insertions or queries.
+ * </p>
+ */
+public class MappedCloneIndex extends AbstractCloneIndex {
+
+  private static final int MAGIC = 0x43504449;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 5 * Integer.BYTES;
+  private static final int FINGERPRINT_BYTES = 16;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * Resource, index in file, first and last lines, start and end units.
+   */
+  private static final int BLOCK_INTS = 6;
+
+  private final Path file;
+  private final int hashInts;
+  private final int entryBytes;
+
+  private final Layout previous;
+  private final BitSet reusedPreviousResources;
+  private final Map<String, DeltaResource> deltaResourcesById = new HashMap<>();
+  private final List<DeltaResource> deltaResources = new ArrayList<>();
+  private ByteBuffer delta;
+  private int deltaSize;
+
+  private volatile boolean sealed;
+  private Layout current;
+  private ByteBuffer data;
+
+  /**
+   * @param file file of the index, which blocks of the previous analysis are read from, if it exists
+   */
+  public MappedCloneIndex(Path file) {
+    this(file, 8);
+  }
+
+  /**
+   * @param file file of the index, which blocks of the previous analysis are read from, if it exists
+   * @param hashBytes size of hash in bytes
+   */
+  public MappedCloneIndex(Path file, int hashBytes) {
+    this.file = file;
+    this.hashInts = hashBytes / 4;
+    this.entryBytes = (hashInts + BLOCK_INTS) * Integer.BYTES;
+    this.previous = Layout.read(file, hashInts);
+    this.reusedPreviousResources = new BitSet(previous.resources.length);
+    this.delta = ByteBuffer.allocateDirect(INITIAL_CAPACITY * entryBytes);
+  }
+
+  /**
+   * Inserts all the blocks of a resource. If they are the same as in the previous analysis, blocks of the previous
+   * analysis are reused.
+   */
+  public void insert(String resourceId, Collection<Block> blocks) {
+    checkNotSealed();
+    if (blocks.isEmpty()) {
+      return;
+    }
+    int previousIndex = previous.indexOf(resourceId);
+    if (previousIndex >= 0 && !deltaResourcesById.containsKey(resourceId)) {
+      checkNotReused(previousIndex, resourceId);
+      MessageDigest digest = newDigest();
+      blocks.forEach(block -> updateDigest(digest, block));
+      if (Arrays.equals(digest.digest(), previous.fingerprints[previousIndex])) {
+        reusedPreviousResources.set(previousIndex);
+        return;
+      }
+    }
+    for (Block block : blocks) {
+      insertInDelta(resourceId, block);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Blocks inserted one by one are never reused from the previous analysis.
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    checkNotSealed();
+    String resourceId = block.getResourceId();
+    int previousIndex = previous.indexOf(resourceId);
+    if (previousIndex >= 0) {
+      checkNotReused(previousIndex, resourceId);
+    }
+    insertInDelta(resourceId, block);
+  }
+
+  private void checkNotSealed() {
+    if (sealed) {
+      throw new IllegalStateException("Blocks can't be inserted once index is queried");
+    }
+  }
+
+  private void checkNotReused(int previousIndex, String resourceId) {
+    if (reusedPreviousResources.get(previousIndex)) {
+      throw new IllegalStateException("Blocks of resource " + resourceId + " are already inserted");
+    }
+  }
+
+  private void insertInDelta(String resourceId, Block block) {
+    int[] hash = block.getBlockHash().toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    DeltaResource resource = deltaResourcesById.computeIfAbsent(resourceId, id -> {
+      DeltaResource r = new DeltaResource(id, deltaResources.size());
+      deltaResources.add(r);
+      return r;
+    });
+    ensureDeltaCapacity();
+    int offset = deltaSize * entryBytes;
+    for (int h : hash) {
+      delta.putInt(offset, h);
+      offset += Integer.BYTES;
+    }
+    putBlockInts(delta, offset, resource.index, block);
+    updateDigest(resource.digest, block);
+    resource.blocks++;
+    deltaSize++;
+  }
+
+  private void ensureDeltaCapacity() {
+    if ((deltaSize + 1) * entryBytes <= delta.capacity()) {
+      return;
+    }
+    long newCapacity = ((long) delta.capacity() * 3) / 2 + entryBytes;
+    checkSize(newCapacity);
+    ByteBuffer newDelta = ByteBuffer.allocateDirect((int) newCapacity);
+    ByteBuffer old = delta.duplicate();
+    old.position(0).limit(deltaSize * entryBytes);
+    newDelta.put(old);
+    delta = newDelta;
+  }
+
+  private static void putBlockInts(ByteBuffer buffer, int offset, int resourceIndex, Block block) {
+    buffer.putInt(offset, resourceIndex);
+    buffer.putInt(offset + 4, block.getIndexInFile());
+    buffer.putInt(offset + 8, block.getStartLine());
+    buffer.putInt(offset + 12, block.getEndLine());
+    buffer.putInt(offset + 16, block.getStartUnit());
+    buffer.putInt(offset + 20, block.getEndUnit());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is not supported", e);
+    }
+  }
+
+  private static void updateDigest(MessageDigest digest, Block block) {
+    digest.update(block.getBlockHash().getBytes());
+    ByteBuffer ints = ByteBuffer.allocate(5 * Integer.BYTES)
+      .putInt(block.getIndexInFile())
+      .putInt(block.getStartLine())
+      .putInt(block.getEndLine())
+      .putInt(block.getStartUnit())
+      .putInt(block.getEndUnit());
+    digest.update(ints.array());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureSealed();
+    int resourceIndex = current.indexOf(resourceId);
+    if (resourceIndex < 0) {
+      return Collections.emptyList();
+    }
+    return blocksOfResource(resourceIndex);
+  }
+
+  private List<Block> blocksOfResource(int resourceIndex) {
+    Block.Builder blockBuilder = Block.builder();
+    int from = current.starts[resourceIndex];
+    int to = current.starts[resourceIndex + 1];
+    List<Block> result = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      int entry = data.getInt(current.byResourceOffset + i * Integer.BYTES);
+      result.add(createBlock(blockBuilder, entry, null));
+    }
+    return result;
+  }
+
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureSealed();
+    int[] hash = sequenceHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+
+    int lower = 0;
+    int upper = current.blockCount;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+
+    Block.Builder blockBuilder = Block.builder();
+    List<Block> result = new ArrayList<>();
+    for (int index = lower; index < current.blockCount && compareHash(index, hash) == 0; index++) {
+      result.add(createBlock(blockBuilder, index, sequenceHash));
+    }
+    return result;
+  }
+
+  private int compareHash(int entry, int[] hash) {
+    int offset = current.blocksOffset + entry * entryBytes;
+    for (int k = 0; k < hashInts; k++, offset += Integer.BYTES) {
+      int value = data.getInt(offset);
+      if (value != hash[k]) {
+        return value < hash[k] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private Block createBlock(Block.Builder blockBuilder, int entry, @Nullable ByteArray byteHash) {
+    int offset = current.blocksOffset + entry * entryBytes;
+    ByteArray blockHash;
+    if (byteHash == null) {
+      int[] hash = new int[hashInts];
+      for (int j = 0; j < hashInts; j++, offset += Integer.BYTES) {
+        hash[j] = data.getInt(offset);
+      }
+      blockHash = new ByteArray(hash);
+    } else {
+      blockHash = byteHash;
+      offset += hashInts * Integer.BYTES;
+    }
+    return blockBuilder
+      .setResourceId(current.resources[data.getInt(offset)])
+      .setBlockHash(blockHash)
+      .setIndexInFile(data.getInt(offset + 4))
+      .setLines(data.getInt(offset + 8), data.getInt(offset + 12))
+      .setUnit(data.getInt(offset + 16), data.getInt(offset + 20))
+      .build();
+  }
+
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureSealed();
+    return new Iterator<ResourceBlocks>() {
+      private int resourceIndex = 0;
+
+      @Override
+      public boolean hasNext() {
+        return resourceIndex < current.resources.length;
+      }
+
+      @Override
+      public ResourceBlocks next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        ResourceBlocks resourceBlocks = new ResourceBlocks(current.resources[resourceIndex], blocksOfResource(resourceIndex));
+        resourceIndex++;
+        return resourceBlocks;
+      }
+    };
+  }
+
+  /**
+   * Resources without blocks are not part of the index.
+   */
+  @Override
+  public int noResources() {
+    ensureSealed();
+    return current.resources.length;
+  }
+
+  /**
+   * Performs sealing, if necessary. Once sealed, queries only read the volatile flag.
+   */
+  private void ensureSealed() {
+    if (!sealed) {
+      seal();
+    }
+  }
+
+  private synchronized void seal() {
+    if (sealed) {
+      return;
+    }
+    try {
+      write();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write clone index " + file, e);
+    }
+    // buffered blocks are released with the buffer
+    delta = null;
+    sealed = true;
+  }
+
+  private void write() throws IOException {
+    DataUtils.sort(byDeltaHash);
+
+    // resources of the index, sorted by id, and the matching indexes of previous and new resources
+    List<ResourceRef> refs = new ArrayList<>();
+    for (int i = reusedPreviousResources.nextSetBit(0); i >= 0; i = reusedPreviousResources.nextSetBit(i + 1)) {
+      refs.add(new ResourceRef(previous.resources[i], previous.fingerprints[i], previous.starts[i + 1] - previous.starts[i], i, -1));
+    }
+    for (DeltaResource resource : deltaResources) {
+      refs.add(new ResourceRef(resource.id, resource.digest.digest(), resource.blocks, -1, resource.index));
+    }
+    refs.sort((r1, r2) -> FastStringComparator.INSTANCE.compare(r1.id, r2.id));
+    int[] previousToCurrent = new int[previous.resources.length];
+    int[] deltaToCurrent = new int[deltaResources.size()];
+    String[] resources = new String[refs.size()];
+    byte[][] fingerprints = new byte[refs.size()][];
+    int[] starts = new int[refs.size() + 1];
+    for (int i = 0; i < refs.size(); i++) {
+      ResourceRef ref = refs.get(i);
+      if (ref.previousIndex >= 0) {
+        previousToCurrent[ref.previousIndex] = i;
+      } else {
+        deltaToCurrent[ref.deltaIndex] = i;
+      }
+      resources[i] = ref.id;
+      fingerprints[i] = ref.fingerprint;
+      starts[i + 1] = starts[i] + ref.blocks;
+    }
+    Layout layout = new Layout(resources, fingerprints, starts, hashInts);
+    checkSize(layout.size);
+
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+      StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, layout.size);
+      layout.writeHeader(out);
+      merge(layout, out, previousToCurrent, deltaToCurrent);
+      out.force();
+    }
+
+    Path indexFile = tmp;
+    try {
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      indexFile = file;
+    } catch (IOException e) {
+      // file of the previous analysis can't be replaced, index is used but not kept for the next analysis
+    }
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, layout.size);
+    }
+    this.current = layout;
+  }
+
+  /**
+   * Merges blocks reused from the previous analysis, read in the order of their hash from the previous file, with new
+   * blocks, already sorted by hash.
+   */
+  private void merge(Layout layout, ByteBuffer out, int[] previousToCurrent, int[] deltaToCurrent) throws IOException {
+    int[] nextOfResource = Arrays.copyOf(layout.starts, layout.starts.length - 1);
+    int[] previousEntry = new int[hashInts + BLOCK_INTS];
+    try (PreviousBlocks previousBlocks = new PreviousBlocks()) {
+      boolean hasPrevious = previousBlocks.next(previousEntry);
+      int deltaIndex = 0;
+      int entry = 0;
+      while (hasPrevious || deltaIndex < deltaSize) {
+        int outOffset = layout.blocksOffset + entry * entryBytes;
+        int resource;
+        if (hasPrevious && (deltaIndex == deltaSize || compareDeltaHash(deltaIndex, previousEntry) >= 0)) {
+          resource = previousToCurrent[previousEntry[hashInts]];
+          for (int k = 0; k < previousEntry.length; k++) {
+            out.putInt(outOffset + k * Integer.BYTES, previousEntry[k]);
+          }
+          hasPrevious = previousBlocks.next(previousEntry);
+        } else {
+          int deltaOffset = deltaIndex * entryBytes;
+          resource = deltaToCurrent[delta.getInt(deltaOffset + hashInts * Integer.BYTES)];
+          for (int k = 0; k < hashInts + BLOCK_INTS; k++) {
+            out.putInt(outOffset + k * Integer.BYTES, delta.getInt(deltaOffset + k * Integer.BYTES));
+          }
+          deltaIndex++;
+        }
+        out.putInt(outOffset + hashInts * Integer.BYTES, resource);
+        out.putInt(layout.byResourceOffset + nextOfResource[resource] * Integer.BYTES, entry);
+        nextOfResource[resource]++;
+        entry++;
+      }
+    }
+  }
+
+  private int compareDeltaHash(int deltaIndex, int[] hash) {
+    int offset = deltaIndex * entryBytes;
+    for (int k = 0; k < hashInts; k++, offset += Integer.BYTES) {
+      int value = delta.getInt(offset);
+      if (value != hash[k]) {
+        return value < hash[k] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private static void checkSize(long size) {
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Clone index is too big: " + size + " bytes");
+    }
+  }
+
+  private final DataUtils.Sortable byDeltaHash = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      int offsetI = i * entryBytes;
+      int offsetJ = j * entryBytes;
+      for (int k = 0; k < entryBytes; k += Integer.BYTES) {
+        int tmp = delta.getInt(offsetI + k);
+        delta.putInt(offsetI + k, delta.getInt(offsetJ + k));
+        delta.putInt(offsetJ + k, tmp);
+      }
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      int offsetI = i * entryBytes;
+      int offsetJ = j * entryBytes;
+      for (int k = 0; k < hashInts; k++, offsetI += Integer.BYTES, offsetJ += Integer.BYTES) {
+        int valueI = delta.getInt(offsetI);
+        int valueJ = delta.getInt(offsetJ);
+        if (valueI != valueJ) {
+          return valueI < valueJ;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return deltaSize;
+    }
+  };
+
+  /**
+   * Sequential reader of the blocks of the previous file which are reused, skipping the other ones.
+   */
+  private class PreviousBlocks implements AutoCloseable {
+    private final DataInputStream input;
+    private int remaining;
+
+    PreviousBlocks() throws IOException {
+      this.remaining = reusedPreviousResources.isEmpty() ? 0 : previous.blockCount;
+      if (remaining == 0) {
+        this.input = null;
+      } else {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(previous.blocksOffset);
+        this.input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+      }
+    }
+
+    boolean next(int[] entry) throws IOException {
+      while (remaining > 0) {
+        remaining--;
+        for (int k = 0; k < entry.length; k++) {
+          entry[k] = input.readInt();
+        }
+        if (reusedPreviousResources.get(entry[hashInts])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (input != null) {
+        input.close();
+      }
+    }
+  }
+
+  private static class DeltaResource {
+    private final String id;
+    private final int index;
+    private final MessageDigest digest = newDigest();
+    private int blocks = 0;
+
+    private DeltaResource(String id, int index) {
+      this.id = id;
+      this.index = index;
+    }
+  }
+
+  private static class ResourceRef {
+    private final String id;
+    private final byte[] fingerprint;
+    private final int blocks;
+    private final int previousIndex;
+    private final int deltaIndex;
+
+    private ResourceRef(String id, byte[] fingerprint, int blocks, int previousIndex, int deltaIndex) {
+      this.id = id;
+      this.fingerprint = fingerprint;
+      this.blocks = blocks;
+      this.previousIndex = previousIndex;
+      this.deltaIndex = deltaIndex;
+    }
+  }
+
+  /**
+   * Content of the file, except blocks: header, resources sorted by id with the fingerprint of their blocks, and
+   * start of the blocks of each resource in the section of blocks sorted by resource. Then come blocks sorted by hash,
+   * and positions of blocks sorted by resource.
+   */
+  private static class Layout {
+    private static final Layout EMPTY = new Layout(new String[0], new byte[0][], new int[] {0}, 0);
+
+    private final String[] resources;
+    private final byte[][] fingerprints;
+    private final int[] starts;
+    private final int hashInts;
+    private final int blockCount;
+    private final int blocksOffset;
+    private final int byResourceOffset;
+    private final long size;
+
+    private Layout(String[] resources, byte[][] fingerprints, int[] starts, int hashInts) {
+      this.resources = resources;
+      this.fingerprints = fingerprints;
+      this.starts = starts;
+      this.hashInts = hashInts;
+      this.blockCount = starts[starts.length - 1];
+      long resourcesBytes = 0;
+      for (String resource : resources) {
+        resourcesBytes += Integer.BYTES + resource.getBytes(StandardCharsets.UTF_8).length + FINGERPRINT_BYTES;
+      }
+      long blocksStart = HEADER_BYTES + resourcesBytes + (long) starts.length * Integer.BYTES;
+      long byResourceStart = blocksStart + (long) blockCount * (hashInts + BLOCK_INTS) * Integer.BYTES;
+      this.size = byResourceStart + (long) blockCount * Integer.BYTES;
+      checkSize(size);
+      this.blocksOffset = (int) blocksStart;
+      this.byResourceOffset = (int) byResourceStart;
+    }
+
+    int indexOf(String resourceId) {
+      int lower = 0;
+      int upper = resources.length - 1;
+      while (lower <= upper) {
+        int mid = (lower + upper) >>> 1;
+        int cmp = FastStringComparator.INSTANCE.compare(resources[mid], resourceId);
+        if (cmp < 0) {
+          lower = mid + 1;
+        } else if (cmp > 0) {
+          upper = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+
+    void writeHeader(ByteBuffer out) {
+      out.putInt(MAGIC).putInt(VERSION).putInt(hashInts).putInt(blockCount).putInt(resources.length);
+      for (int i = 0; i < resources.length; i++) {
+        byte[] id = resources[i].getBytes(StandardCharsets.UTF_8);
+        out.putInt(id.length).put(id).put(fingerprints[i]);
+      }
+      for (int start : starts) {
+        out.putInt(start);
+      }
+    }
+
+    /**
+     * Reads the layout of the file of the previous analysis. The file is ignored if it does not exist or is not valid.
+     */
+    static Layout read(Path file, int hashInts) {
+      if (!Files.isRegularFile(file)) {
+        return EMPTY;
+      }
+      try (InputStream fileInput = Files.newInputStream(file);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(fileInput))) {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+          return EMPTY;
+        }
+        int fileHashInts = input.readInt();
+        int blockCount = input.readInt();
+        int resourceCount = input.readInt();
+        if (fileHashInts != hashInts || blockCount < 0 || resourceCount < 0) {
+          return EMPTY;
+        }
+        String[] resources = new String[resourceCount];
+        byte[][] fingerprints = new byte[resourceCount][];
+        for (int i = 0; i < resourceCount; i++) {
+          byte[] id = new byte[input.readInt()];
+          input.readFully(id);
+          resources[i] = new String(id, StandardCharsets.UTF_8);
+          fingerprints[i] = new byte[FINGERPRINT_BYTES];
+          input.readFully(fingerprints[i]);
+        }
+        int[] starts = new int[resourceCount + 1];
+        for (int i = 0; i < starts.length; i++) {
+          starts[i] = input.readInt();
+          if (i == 0 ? starts[i] != 0 : starts[i] < starts[i - 1]) {
+            return EMPTY;
+          }
+        }
+        Layout layout = new Layout(resources, fingerprints, starts, hashInts);
+        return layout.blockCount == blockCount && layout.size == Files.size(file) ? layout : EMPTY;
+      } catch (EOFException | IllegalStateException | NegativeArraySizeException e) {
+        return EMPTY;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read clone index " + file, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedCloneIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private Path file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = new File(temp.newFolder(), "cpd.idx").toPath();
+  }
+
+  @Test
+  public void query_blocks_by_hash_and_by_resource() {
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    index.insert(newBlock("a", 1, 0));
+    index.insert(newBlock("a", 2, 1));
+    index.insert(newBlock("b", 1, 0));
+    index.insert("c", Arrays.asList(newBlock("c", 1, 0)));
+    index.insert("e", Arrays.asList(newBlock("e", 1, 0), newBlock("e", 2, 1), newBlock("e", 3, 2)));
+
+    assertThat(index.noResources()).isEqualTo(4);
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(4);
+    assertThat(index.getBySequenceHash(new ByteArray(2L))).hasSize(2);
+    assertThat(index.getBySequenceHash(new ByteArray(3L))).hasSize(1);
+    assertThat(index.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(index.getByResourceId("a")).hasSize(2);
+    assertThat(index.getByResourceId("e")).extracting(Block::getIndexInFile).containsOnly(0, 1, 2);
+    assertThat(index.getByResourceId("does not exist")).isEmpty();
+    assertThat(file).exists();
+  }
+
+  @Test
+  public void restore_all_fields_of_blocks() {
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    Block block = Block.builder()
+      .setResourceId("a")
+      .setBlockHash(new ByteArray(7L))
+      .setIndexInFile(3)
+      .setLines(10, 20)
+      .setUnit(100, 200)
+      .build();
+    index.insert("a", Arrays.asList(block));
+
+    Block result = index.getByResourceId("a").iterator().next();
+    assertThat(result).isEqualTo(block);
+    assertThat(result.getStartLine()).isEqualTo(10);
+    assertThat(result.getEndLine()).isEqualTo(20);
+    assertThat(result.getStartUnit()).isEqualTo(100);
+    assertThat(result.getEndUnit()).isEqualTo(200);
+  }
+
+  @Test
+  public void iterate_resources_sorted_by_id() {
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    index.insert(newBlock("a", 1, 0));
+    index.insert(newBlock("c", 1, 0));
+    index.insert(newBlock("b", 1, 0));
+    index.insert(newBlock("c", 2, 1));
+    index.insert(newBlock("a", 2, 1));
+
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    index.iterator().forEachRemaining(resourcesBlocks::add);
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("a", "b", "c");
+    assertThat(resourcesBlocks.get(0).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(1);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(2);
+  }
+
+  @Test
+  public void reuse_blocks_of_unchanged_resources_from_previous_analysis() {
+    MappedCloneIndex previous = new MappedCloneIndex(file);
+    previous.insert("a", Arrays.asList(newBlock("a", 1, 0), newBlock("a", 2, 1)));
+    previous.insert("b", Arrays.asList(newBlock("b", 1, 0)));
+    previous.insert("c", Arrays.asList(newBlock("c", 2, 0)));
+    assertThat(previous.noResources()).isEqualTo(3);
+
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    // unchanged
+    index.insert("a", Arrays.asList(newBlock("a", 1, 0), newBlock("a", 2, 1)));
+    // changed
+    index.insert("b", Arrays.asList(newBlock("b", 2, 0), newBlock("b", 3, 1)));
+    // added, while "c" is removed
+    index.insert("d", Arrays.asList(newBlock("d", 1, 0)));
+
+    assertThat(index.noResources()).isEqualTo(3);
+    assertThat(index.getByResourceId("a")).extracting(Block::getBlockHash).containsOnly(new ByteArray(1L), new ByteArray(2L));
+    assertThat(index.getByResourceId("b")).extracting(Block::getBlockHash).containsOnly(new ByteArray(2L), new ByteArray(3L));
+    assertThat(index.getByResourceId("c")).isEmpty();
+    assertThat(index.getByResourceId("d")).hasSize(1);
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).extracting(Block::getResourceId).containsOnly("a", "d");
+    assertThat(index.getBySequenceHash(new ByteArray(2L))).extracting(Block::getResourceId).containsOnly("a", "b");
+    assertThat(index.getBySequenceHash(new ByteArray(3L))).extracting(Block::getResourceId).containsOnly("b");
+
+    // the file is updated again by the next analysis
+    MappedCloneIndex next = new MappedCloneIndex(file);
+    next.insert("a", Arrays.asList(newBlock("a", 1, 0), newBlock("a", 2, 1)));
+    next.insert("b", Arrays.asList(newBlock("b", 2, 0), newBlock("b", 3, 1)));
+    assertThat(next.noResources()).isEqualTo(2);
+    assertThat(next.getBySequenceHash(new ByteArray(2L))).extracting(Block::getResourceId).containsOnly("a", "b");
+  }
+
+  @Test
+  public void fail_to_insert_blocks_of_resource_already_reused_from_previous_analysis() {
+    MappedCloneIndex previous = new MappedCloneIndex(file);
+    previous.insert("a", Arrays.asList(newBlock("a", 1, 0)));
+    previous.noResources();
+
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    index.insert("a", Arrays.asList(newBlock("a", 1, 0)));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Blocks of resource a are already inserted");
+    index.insert(newBlock("a", 2, 1));
+  }
+
+  @Test
+  public void fail_to_insert_once_queried() {
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    index.insert(newBlock("a", 1, 0));
+    index.noResources();
+
+    expectedException.expect(IllegalStateException.class);
+    index.insert(newBlock("a", 2, 1));
+  }
+
+  @Test
+  public void ignore_invalid_file_of_previous_analysis() throws Exception {
+    Files.write(file, new byte[] {1, 2, 3});
+
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    index.insert("a", Arrays.asList(newBlock("a", 1, 0)));
+
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(1);
+  }
+
+  @Test
+  public void ignore_file_of_previous_analysis_with_other_size_of_hash() {
+    MappedCloneIndex previous = new MappedCloneIndex(file, 4);
+    previous.insert("a", Arrays.asList(newBlock("a", 1)));
+    previous.noResources();
+
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    index.insert("b", Arrays.asList(newBlock("b", 1, 0)));
+
+    assertThat(index.noResources()).isEqualTo(1);
+    assertThat(index.getByResourceId("a")).isEmpty();
+  }
+
+  @Test
+  public void increase_capacity_of_buffer() {
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    for (int i = 0; i < 5000; i++) {
+      index.insert(newBlock("r" + (i % 10), i % 100, i));
+    }
+
+    assertThat(index.getBySequenceHash(new ByteArray(42L))).hasSize(50);
+    assertThat(index.getByResourceId("r3")).hasSize(500);
+  }
+
+  @Test
+  public void concurrent_queries() throws Exception {
+    MappedCloneIndex index = new MappedCloneIndex(file);
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("r" + (i % 10), i % 100, i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(() -> {
+          boolean ok = true;
+          for (int i = 0; i < 100; i++) {
+            ok &= index.getBySequenceHash(new ByteArray((long) i)).size() == 10;
+            ok &= index.getByResourceId("r" + (i % 10)).size() == 100;
+          }
+          return ok;
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void fail_to_find_hash_of_incorrect_size() {
+    MappedCloneIndex index = new MappedCloneIndex(file, 4);
+
+    expectedException.expect(IllegalArgumentException.class);
+    index.getBySequenceHash(new ByteArray(1L));
+  }
+
+  private static Block newBlock(String resourceId, long hash, int indexInFile) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(1, 2)
+      .build();
+  }
+
+  private static Block newBlock(String resourceId, int hash) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(0)
+      .setLines(1, 2)
+      .build();
+  }
+}
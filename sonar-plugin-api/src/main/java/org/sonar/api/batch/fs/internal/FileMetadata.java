@@ -33,10 +33,6 @@ import javax.annotation.concurrent.Immutable;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
-import org.sonar.api.batch.fs.internal.charhandler.FileHashComputer;
-import org.sonar.api.batch.fs.internal.charhandler.LineCounter;
-import org.sonar.api.batch.fs.internal.charhandler.LineHashComputer;
-import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 
 /**
  * Computes hash of files. Ends of Lines are ignored, so files with
@@ -53,19 +49,9 @@ public class FileMetadata {
    * Maximum performance is needed.
    */
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath, @Nullable CharHandler otherHandler) {
-    LineCounter lineCounter = new LineCounter(filePath, encoding);
-    FileHashComputer fileHashComputer = new FileHashComputer(filePath);
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-
-    if (otherHandler != null) {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter, otherHandler};
-      readFile(stream, encoding, filePath, handlers);
-    } else {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
-      readFile(stream, encoding, filePath, handlers);
-    }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    FileMetadataReader reader = FileMetadataReader.forMetadata(filePath, encoding, otherHandler);
+    reader.read(stream);
+    return reader.toMetadata();
   }
 
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath) {
@@ -76,20 +62,19 @@ public class FileMetadata {
    * For testing purpose
    */
   public Metadata readMetadata(Reader reader) {
-    LineCounter lineCounter = new LineCounter("fromString", StandardCharsets.UTF_16);
-    FileHashComputer fileHashComputer = new FileHashComputer("fromString");
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
-
+    FileMetadataReader metadataReader = FileMetadataReader.forMetadata("fromString", StandardCharsets.UTF_16, null);
     try {
-      read(reader, handlers);
+      metadataReader.read(reader);
     } catch (IOException e) {
       throw new IllegalStateException("Should never occur", e);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return metadataReader.toMetadata();
   }
 
+  /**
+   * Reads the file and dispatches each char to the given handlers. {@link #readMetadata(InputStream, Charset, String, CharHandler)}
+   * is much faster to compute metadata of files.
+   */
   public static void readFile(InputStream stream, Charset encoding, String filePath, CharHandler[] handlers) {
     try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
       read(reader, handlers);
@@ -155,7 +140,7 @@ public class FileMetadata {
    */
   public static void computeLineHashesForIssueTracking(InputFile f, LineHashConsumer consumer) {
     try {
-      readFile(f.inputStream(), f.charset(), f.absolutePath(), new CharHandler[] {new LineHashComputer(consumer, f.file())});
+      FileMetadataReader.forLineHashes(f.absolutePath(), f.charset(), consumer).read(f.inputStream());
     } catch (IOException e) {
       throw new IllegalStateException("Failed to compute line hashes for " + f.absolutePath(), e);
     }
@@ -0,0 +1,358 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Reads a file in a single pass to compute its number of lines, its line offsets, its hash and optionally the hashes
+ * of its lines. Values are exactly the same as the ones computed by the handlers
+ * {@link org.sonar.api.batch.fs.internal.charhandler.LineCounter}, {@link org.sonar.api.batch.fs.internal.charhandler.FileHashComputer},
+ * {@link org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter} and {@link org.sonar.api.batch.fs.internal.charhandler.LineHashComputer},
+ * but the file is decoded by blocks, bytes of ASCII encoded content are handled without being decoded, and chars are
+ * not dispatched to a list of handlers.
+ */
+class FileMetadataReader {
+
+  private static final Logger LOG = Loggers.get(FileMetadataReader.class);
+  private static final int BUFFER_SIZE = 8192;
+  private static final char LINE_FEED = '\n';
+  private static final char CARRIAGE_RETURN = '\r';
+  private static final char REPLACEMENT_CHARACTER = '\ufffd';
+
+  private final String filePath;
+  private final Charset encoding;
+  @Nullable
+  private final Utf8Md5 fileHash;
+  @Nullable
+  private final Utf8Md5 lineHash;
+  @Nullable
+  private final LineHashConsumer lineHashConsumer;
+  @Nullable
+  private final CharHandler otherHandler;
+
+  private boolean afterCR = false;
+  private int lines = 1;
+  private int nonBlankLines = 0;
+  private boolean blankLine = true;
+  private boolean alreadyLoggedInvalidCharacter = false;
+  private long currentOffset = 0;
+  private int[] lineOffsets = new int[16];
+  private int lineOffsetsSize = 1;
+  private long lastValidOffset = 0;
+
+  private FileMetadataReader(String filePath, Charset encoding, boolean computeFileHash, @Nullable LineHashConsumer lineHashConsumer,
+    @Nullable CharHandler otherHandler) {
+    this.filePath = filePath;
+    this.encoding = encoding;
+    this.fileHash = computeFileHash ? new Utf8Md5() : null;
+    this.lineHash = lineHashConsumer != null ? new Utf8Md5() : null;
+    this.lineHashConsumer = lineHashConsumer;
+    this.otherHandler = otherHandler;
+  }
+
+  static FileMetadataReader forMetadata(String filePath, Charset encoding, @Nullable CharHandler otherHandler) {
+    return new FileMetadataReader(filePath, encoding, true, null, otherHandler);
+  }
+
+  static FileMetadataReader forLineHashes(String filePath, Charset encoding, LineHashConsumer lineHashConsumer) {
+    return new FileMetadataReader(filePath, encoding, false, lineHashConsumer, null);
+  }
+
+  void read(InputStream stream) {
+    try (InputStream is = stream) {
+      decode(is);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
+    }
+  }
+
+  void read(Reader reader) throws IOException {
+    char[] chars = new char[BUFFER_SIZE];
+    int read;
+    while ((read = reader.read(chars)) != -1) {
+      for (int i = 0; i < read; i++) {
+        handle(chars[i]);
+      }
+    }
+    end();
+  }
+
+  /**
+   * Decodes the stream the same way as {@link java.io.InputStreamReader}: malformed input and unmappable characters
+   * are replaced by the replacement character.
+   */
+  private void decode(InputStream stream) throws IOException {
+    CharsetDecoder decoder = encoding.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    boolean asciiCompatible = isAsciiCompatible(encoding);
+    byte[] bytes = new byte[BUFFER_SIZE];
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    char[] chars = new char[BUFFER_SIZE];
+    CharBuffer out = CharBuffer.wrap(chars);
+
+    boolean endOfInput = false;
+    while (!endOfInput) {
+      int read = stream.read(bytes, in.position(), in.remaining());
+      if (read < 0) {
+        endOfInput = true;
+      } else {
+        in.position(in.position() + read);
+      }
+      in.flip();
+      if (asciiCompatible) {
+        // bytes of an incomplete multi-bytes sequence kept from previous block are never ASCII, so decoder state is preserved
+        int position = in.position();
+        int limit = in.limit();
+        while (position < limit && bytes[position] >= 0) {
+          handle((char) bytes[position]);
+          position++;
+        }
+        in.position(position);
+      }
+      CoderResult result;
+      do {
+        result = decoder.decode(in, out, endOfInput);
+        drain(out, chars);
+      } while (result.isOverflow());
+      in.compact();
+    }
+    CoderResult result;
+    do {
+      result = decoder.flush(out);
+      drain(out, chars);
+    } while (result.isOverflow());
+    end();
+  }
+
+  private static boolean isAsciiCompatible(Charset encoding) {
+    return StandardCharsets.UTF_8.equals(encoding) || StandardCharsets.US_ASCII.equals(encoding) || StandardCharsets.ISO_8859_1.equals(encoding);
+  }
+
+  private void drain(CharBuffer out, char[] chars) {
+    int length = out.position();
+    for (int i = 0; i < length; i++) {
+      handle(chars[i]);
+    }
+    out.clear();
+  }
+
+  private void handle(char c) {
+    if (afterCR) {
+      if (c == CARRIAGE_RETURN) {
+        newLine();
+        handleAll(c);
+      } else if (c == LINE_FEED) {
+        handleAll(c);
+        newLine();
+      } else {
+        newLine();
+        handleIgnoreEoL(c);
+        handleAll(c);
+      }
+      afterCR = c == CARRIAGE_RETURN;
+    } else if (c == LINE_FEED) {
+      handleAll(c);
+      newLine();
+    } else if (c == CARRIAGE_RETURN) {
+      afterCR = true;
+      handleAll(c);
+    } else {
+      handleIgnoreEoL(c);
+      handleAll(c);
+    }
+  }
+
+  private void handleAll(char c) {
+    currentOffset++;
+    if (c == REPLACEMENT_CHARACTER && !alreadyLoggedInvalidCharacter) {
+      LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.",
+        filePath, lines, encoding, CoreProperties.ENCODING_PROPERTY);
+      alreadyLoggedInvalidCharacter = true;
+    }
+    if (otherHandler != null) {
+      otherHandler.handleAll(c);
+    }
+  }
+
+  private void handleIgnoreEoL(char c) {
+    if (!Character.isWhitespace(c)) {
+      blankLine = false;
+      if (lineHash != null) {
+        lineHash.update(c);
+      }
+    }
+    if (fileHash != null) {
+      fileHash.update(c);
+    }
+    if (otherHandler != null) {
+      otherHandler.handleIgnoreEoL(c);
+    }
+  }
+
+  private void newLine() {
+    if (lineHash != null) {
+      consumeLineHash();
+    }
+    lines++;
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    blankLine = true;
+    if (currentOffset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + currentOffset);
+    }
+    if (lineOffsetsSize == lineOffsets.length) {
+      lineOffsets = Arrays.copyOf(lineOffsets, lineOffsetsSize + (lineOffsetsSize >> 1));
+    }
+    lineOffsets[lineOffsetsSize] = (int) currentOffset;
+    lineOffsetsSize++;
+    if (fileHash != null) {
+      fileHash.update(LINE_FEED);
+      fileHash.endOfChars();
+    }
+    if (otherHandler != null) {
+      otherHandler.newLine();
+    }
+  }
+
+  private void end() {
+    if (afterCR) {
+      newLine();
+    }
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    lastValidOffset = currentOffset;
+    if (lineHash != null) {
+      consumeLineHash();
+    }
+    if (otherHandler != null) {
+      otherHandler.eof();
+    }
+  }
+
+  private void consumeLineHash() {
+    if (lineHash.hasChars()) {
+      lineHashConsumer.consume(lines, lineHash.digest());
+    }
+  }
+
+  Metadata toMetadata() {
+    if (lastValidOffset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + lastValidOffset);
+    }
+    String hash = Hex.encodeHexString(fileHash.digest());
+    return new Metadata(lines, nonBlankLines, hash, Arrays.copyOf(lineOffsets, lineOffsetsSize), (int) lastValidOffset);
+  }
+
+  /**
+   * MD5 digest of chars encoded in UTF-8. Encoding is done like {@link java.nio.charset.CharsetEncoder#encode(CharBuffer)}
+   * applied to the sequences of chars delimited by calls to {@link #endOfChars()}: a surrogate that is not part
+   * of a pair is replaced by '?'.
+   */
+  private static final class Utf8Md5 {
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private final MessageDigest md5 = DigestUtils.getMd5Digest();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int size = 0;
+    private boolean hasChars = false;
+    private char highSurrogate = 0;
+
+    void update(char c) {
+      if (size > BUFFER_SIZE - 4) {
+        md5.update(buffer, 0, size);
+        size = 0;
+      }
+      hasChars = true;
+      if (highSurrogate != 0) {
+        char high = highSurrogate;
+        highSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          int codePoint = Character.toCodePoint(high, c);
+          buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+          buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+          return;
+        }
+        buffer[size++] = REPLACEMENT;
+      }
+      if (c < 0x80) {
+        buffer[size++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[size++] = (byte) (0xC0 | (c >> 6));
+        buffer[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)) {
+        highSurrogate = c;
+      } else if (Character.isLowSurrogate(c)) {
+        buffer[size++] = REPLACEMENT;
+      } else {
+        buffer[size++] = (byte) (0xE0 | (c >> 12));
+        buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+
+    void endOfChars() {
+      if (highSurrogate != 0) {
+        highSurrogate = 0;
+        if (size == BUFFER_SIZE) {
+          md5.update(buffer, 0, size);
+          size = 0;
+        }
+        buffer[size++] = REPLACEMENT;
+      }
+    }
+
+    boolean hasChars() {
+      return hasChars;
+    }
+
+    byte[] digest() {
+      endOfChars();
+      md5.update(buffer, 0, size);
+      size = 0;
+      hasChars = false;
+      return md5.digest();
+    }
+  }
+}
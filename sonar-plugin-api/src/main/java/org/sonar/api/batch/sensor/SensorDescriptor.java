@@ -96,4 +96,12 @@ public interface SensorDescriptor {
    * @since 6.5
    */
   SensorDescriptor onlyWhenConfiguration(Predicate<Configuration> predicate);
+
+  /**
+   * This sensor neither reads data saved by other sensors nor saves data read by other sensors. When parallel
+   * execution of sensors is enabled, the platform may execute it concurrently with other sensors, so its
+   * implementation must be thread-safe.
+   * @since 7.2
+   */
+  SensorDescriptor independent();
 }
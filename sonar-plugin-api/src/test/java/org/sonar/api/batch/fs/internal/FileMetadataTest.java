@@ -19,10 +19,13 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
@@ -32,6 +35,11 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
+import org.sonar.api.batch.fs.internal.charhandler.FileHashComputer;
+import org.sonar.api.batch.fs.internal.charhandler.LineCounter;
+import org.sonar.api.batch.fs.internal.charhandler.LineHashComputer;
+import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 
@@ -299,4 +307,79 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void same_metadata_and_line_hashes_as_char_handlers() throws Exception {
+    StringBuilder longLine = new StringBuilder();
+    for (int i = 0; i < 9000; i++) {
+      longLine.append(i % 100 == 0 ? "\u00e9" : "a");
+    }
+    String[] contents = {
+      "",
+      "foo\r\n\r\rbar\n\r",
+      " \t\n\u20ac \ud83d\ude00\n",
+      // surrogates which are not part of a pair
+      "a\ud83d\nb\ude00\r\ud83d \ude00\r\n\ud83d",
+      longLine.toString() + "\r\n" + longLine.toString()};
+
+    for (String content : contents) {
+      for (Charset charset : new Charset[] {StandardCharsets.UTF_8, StandardCharsets.UTF_16, StandardCharsets.ISO_8859_1}) {
+        assertSameAsCharHandlers(content.getBytes(charset), charset);
+      }
+    }
+    // malformed UTF-8 sequence split between two blocks
+    byte[] malformed = new byte[8200];
+    for (int i = 0; i < malformed.length; i++) {
+      malformed[i] = (byte) (i % 50 == 0 ? '\n' : 'a');
+    }
+    malformed[8191] = (byte) 0xE2;
+    malformed[8192] = (byte) 0x82;
+    malformed[8193] = (byte) 'b';
+    assertSameAsCharHandlers(malformed, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void other_char_handler_receives_all_chars() throws Exception {
+    StringBuilder handled = new StringBuilder();
+    CharHandler otherHandler = new CharHandler() {
+      @Override
+      public void handleAll(char c) {
+        handled.append(c);
+      }
+
+      @Override
+      public void newLine() {
+        handled.append('|');
+      }
+    };
+
+    new FileMetadata().readMetadata(new ByteArrayInputStream("foo\r\nbar\rbaz".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, "foo", otherHandler);
+
+    assertThat(handled.toString()).isEqualTo("foo\r\n|bar\r|baz");
+  }
+
+  private void assertSameAsCharHandlers(byte[] content, Charset charset) throws Exception {
+    File file = temp.newFile();
+    FileUtils.writeByteArrayToFile(file, content);
+    LineCounter lineCounter = new LineCounter(file.getName(), charset);
+    FileHashComputer fileHashComputer = new FileHashComputer(file.getName());
+    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    List<String> expectedLineHashes = new ArrayList<>();
+    LineHashComputer lineHashComputer = new LineHashComputer((line, hash) -> expectedLineHashes.add(line + ":" + Hex.encodeHexString(hash)), file);
+    FileMetadata.readFile(new FileInputStream(file), charset, file.getName(), new CharHandler[] {lineCounter, fileHashComputer, lineOffsetCounter, lineHashComputer});
+
+    Metadata metadata = new FileMetadata().readMetadata(new FileInputStream(file), charset, file.getName());
+    assertThat(metadata.lines()).isEqualTo(lineCounter.lines());
+    assertThat(metadata.nonBlankLines()).isEqualTo(lineCounter.nonBlankLines());
+    assertThat(metadata.hash()).isEqualTo(fileHashComputer.getHash());
+    assertThat(metadata.originalLineOffsets()).isEqualTo(lineOffsetCounter.getOriginalLineOffsets());
+    assertThat(metadata.lastValidOffset()).isEqualTo(lineOffsetCounter.getLastValidOffset());
+
+    DefaultInputFile f = new TestInputFileBuilder("foo", file.getName())
+      .setModuleBaseDir(file.getParentFile().toPath())
+      .setCharset(charset)
+      .build();
+    List<String> lineHashes = new ArrayList<>();
+    FileMetadata.computeLineHashesForIssueTracking(f, (line, hash) -> lineHashes.add(line + ":" + Hex.encodeHexString(hash)));
+    assertThat(lineHashes).isEqualTo(expectedLineHashes);
+  }
 }
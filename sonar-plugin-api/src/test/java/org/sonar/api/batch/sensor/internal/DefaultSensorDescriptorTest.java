@@ -46,6 +46,18 @@ public class DefaultSensorDescriptorTest {
     settings.setProperty("sonar.foo.reportPath2", "foo");
     assertThat(descriptor.configurationPredicate().test(settings.asConfig())).isTrue();
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isGlobal()).isFalse();
+    assertThat(descriptor.isIndependent()).isFalse();
+  }
+
+  @Test
+  public void describe_independent_sensor() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+    descriptor
+      .name("Foo")
+      .independent();
+
+    assertThat(descriptor.isIndependent()).isTrue();
   }
 
 }
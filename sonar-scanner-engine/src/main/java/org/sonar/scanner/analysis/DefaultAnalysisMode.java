@@ -19,26 +19,45 @@
  */
 package org.sonar.scanner.analysis;
 
+import java.util.Date;
 import java.util.Map;
 import javax.annotation.concurrent.Immutable;
 import org.sonar.api.batch.AnalysisMode;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.bootstrap.ScannerPlugin;
+import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.repository.ProjectRepositories;
+import org.sonar.scanner.rule.ModuleQProfiles;
+import org.sonar.scanner.rule.QProfile;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
 
 @Immutable
 public class DefaultAnalysisMode implements AnalysisMode {
   private static final Logger LOG = Loggers.get(DefaultAnalysisMode.class);
   private static final String KEY_SCAN_ALL = "sonar.scanAllFiles";
+  private static final String KEY_INCREMENTAL = "sonar.scanner.incremental";
 
   private final Map<String, String> analysisProps;
   private final GlobalAnalysisMode analysisMode;
 
   private boolean scanAllFiles;
+  private boolean incremental;
 
-  public DefaultAnalysisMode(AnalysisProperties props, GlobalAnalysisMode analysisMode) {
+  private final ProjectRepositories projectRepositories;
+  private final ModuleQProfiles qProfiles;
+  private final ScannerPluginRepository pluginRepository;
+  private final BranchConfiguration branchConfig;
+
+  public DefaultAnalysisMode(AnalysisProperties props, GlobalAnalysisMode analysisMode, ProjectRepositories projectRepositories, ModuleQProfiles qProfiles,
+    ScannerPluginRepository pluginRepository, BranchConfiguration branchConfig) {
     this.analysisMode = analysisMode;
     this.analysisProps = props.properties();
+    this.projectRepositories = projectRepositories;
+    this.qProfiles = qProfiles;
+    this.pluginRepository = pluginRepository;
+    this.branchConfig = branchConfig;
     load();
     printFlags();
   }
@@ -47,15 +66,64 @@ public class DefaultAnalysisMode implements AnalysisMode {
     return scanAllFiles;
   }
 
+  /**
+   * In incremental mode, files whose hash is unchanged since the previous analysis are not given to sensors. They are published
+   * without data and marked as carried over, so that the Compute Engine reuses the results of the previous analysis.
+   * See {@link org.sonar.scanner.scan.filesystem.CarriedOverFiles}
+   */
+  public boolean isIncremental() {
+    return incremental;
+  }
+
   private void printFlags() {
     if (!scanAllFiles) {
       LOG.info("Scanning only changed files");
     }
+    if (incremental) {
+      LOG.info("Incremental analysis: unchanged files are carried over from the previous analysis");
+    }
   }
 
   private void load() {
-    String scanAllStr = analysisProps.get(KEY_SCAN_ALL);
-    scanAllFiles = !analysisMode.isIssues() || "true".equals(scanAllStr);
+    boolean scanAllRequested = "true".equals(analysisProps.get(KEY_SCAN_ALL));
+    incremental = analysisMode.isPublish() && !scanAllRequested && "true".equals(analysisProps.get(KEY_INCREMENTAL)) && isPreviousAnalysisReusable();
+    scanAllFiles = scanAllRequested || !(analysisMode.isIssues() || incremental);
+  }
+
+  /**
+   * Results of the previous analysis can't be carried over if they are not the ones of the analyzed branch, i.e. on
+   * short-living branches, pull requests and first analysis of long-living branches, which load the project repositories
+   * of another branch. Neither if issues could be raised differently, i.e. if rules of a quality profile or plugins
+   * were updated since then.
+   */
+  private boolean isPreviousAnalysisReusable() {
+    if (branchConfig.isShortOrPullRequest()) {
+      LOG.info("Incremental analysis disabled: not supported on short-living branches and pull requests");
+      return false;
+    }
+    String branchBase = branchConfig.branchBase();
+    if (branchBase != null && !branchBase.equals(branchConfig.branchName())) {
+      LOG.info("Incremental analysis disabled: no previous analysis of branch '{}'", branchConfig.branchName());
+      return false;
+    }
+    Date lastAnalysisDate = projectRepositories.lastAnalysisDate();
+    if (lastAnalysisDate == null) {
+      LOG.info("Incremental analysis disabled: no previous analysis");
+      return false;
+    }
+    for (QProfile qProfile : qProfiles.findAll()) {
+      if (qProfile.getRulesUpdatedAt().after(lastAnalysisDate)) {
+        LOG.info("Incremental analysis disabled: quality profile '{}' changed since previous analysis", qProfile.getName());
+        return false;
+      }
+    }
+    for (ScannerPlugin plugin : pluginRepository.getPluginsByKey().values()) {
+      if (plugin.getUpdatedAt() > lastAnalysisDate.getTime()) {
+        LOG.info("Incremental analysis disabled: plugin '{}' changed since previous analysis", plugin.getKey());
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
@@ -22,14 +22,19 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
@@ -62,6 +67,7 @@ public class CpdExecutor {
   private static final int TIMEOUT = 5 * 60 * 1000;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
+  private static final int MAX_PENDING_TASKS_PER_THREAD = 4;
 
   private final SonarCpdBlockIndex index;
   private final ReportPublisher publisher;
@@ -97,22 +103,37 @@ public class CpdExecutor {
     if (filesWithoutBlocks > 0) {
       LOG.info("{} {} had no CPD blocks", filesWithoutBlocks, pluralize(filesWithoutBlocks));
     }
+    int parallelism = settings.getParallelism();
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
     try {
       Iterator<ResourceBlocks> it = index.iterator();
+      // Files are detected concurrently but published in the order of the index (sorted by resource key), so that
+      // the report does not depend on scheduling. The number of pending files is bounded to limit retained results.
+      Deque<CpdTask> pending = new ArrayDeque<>();
+      int maxPending = parallelism * MAX_PENDING_TASKS_PER_THREAD;
 
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
-        count++;
+        CpdTask task = submit(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks());
+        if (task == null) {
+          count++;
+        } else {
+          pending.add(task);
+        }
+        while (pending.size() >= maxPending) {
+          publish(pending.remove(), timeout);
+        }
+      }
+      while (!pending.isEmpty()) {
+        publish(pending.remove(), timeout);
       }
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
     } finally {
-      executorService.shutdown();
+      executorService.shutdownNow();
     }
   }
 
@@ -120,26 +141,42 @@ public class CpdExecutor {
     return files == 1 ? "file" : "files";
   }
 
+  /**
+   * Schedules the detection of duplications of a file. Returns {@code null} if the component is unknown.
+   */
   @VisibleForTesting
-  void runCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks, long timeout) {
+  @CheckForNull
+  CpdTask submit(ExecutorService executorService, String componentKey, Collection<Block> fileBlocks) {
     DefaultInputComponent component = (DefaultInputComponent) componentStore.getByKey(componentKey);
     if (component == null) {
       LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
-      return;
+      return null;
     }
+    CpdTask task = new CpdTask(component, fileBlocks);
+    task.future = executorService.submit(task);
+    return task;
+  }
 
-    InputFile inputFile = (InputFile) component;
-    LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
+  /**
+   * Waits for the result of a task and writes it to the report. The timeout applies to the detection itself,
+   * time spent waiting for a free thread is not accounted.
+   */
+  @VisibleForTesting
+  void publish(CpdTask task, long timeout) {
+    InputFile inputFile = (InputFile) task.component;
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+    count++;
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = awaitResult(task, timeout);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+      task.future.cancel(true);
       return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplication for " + inputFile.absolutePath(), e);
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
@@ -153,7 +190,41 @@ public class CpdExecutor {
       filtered = duplications;
     }
 
-    saveDuplications(component, filtered);
+    saveDuplications(task.component, filtered);
+  }
+
+  private static List<CloneGroup> awaitResult(CpdTask task, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+    while (!task.started) {
+      try {
+        return task.future.get(timeout, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // still queued or started in the meantime, check again
+      }
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.startNanos);
+    return task.future.get(Math.max(0L, timeout - elapsed), TimeUnit.MILLISECONDS);
+  }
+
+  @VisibleForTesting
+  class CpdTask implements Callable<List<CloneGroup>> {
+    private final DefaultInputComponent component;
+    private final Collection<Block> fileBlocks;
+    private Future<List<CloneGroup>> future;
+    private long startNanos;
+    private volatile boolean started;
+
+    private CpdTask(DefaultInputComponent component, Collection<Block> fileBlocks) {
+      this.component = component;
+      this.fileBlocks = fileBlocks;
+    }
+
+    @Override
+    public List<CloneGroup> call() {
+      startNanos = System.nanoTime();
+      started = true;
+      LOG.debug("Detection of duplications for {}", ((InputFile) component).absolutePath());
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+    }
   }
 
   @VisibleForTesting
@@ -19,6 +19,8 @@
  */
 package org.sonar.scanner.cpd;
 
+import java.nio.file.Path;
+import java.util.Optional;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
@@ -26,12 +28,17 @@ import org.sonar.api.config.Configuration;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  static final String PARALLELISM_PROPERTY = "sonar.cpd.parallelism";
+  static final String INDEX_PATH_PROPERTY = "sonar.cpd.index.path";
+
   private final Configuration settings;
   private final String branch;
+  private final Path baseDir;
 
   public CpdSettings(Configuration settings, InputModuleHierarchy hierarchy) {
     this.settings = settings;
     this.branch = hierarchy.root().getBranch();
+    this.baseDir = hierarchy.root().getBaseDir();
   }
 
   public boolean isCrossProjectDuplicationEnabled() {
@@ -49,4 +56,21 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  /**
+   * Number of threads used to detect duplications. Defaults to 1.
+   */
+  int getParallelism() {
+    return Math.max(1, settings.getInt(PARALLELISM_PROPERTY).orElse(1));
+  }
+
+  /**
+   * File where the index of blocks is kept between analyses, so that blocks of unchanged files are reused. A relative path
+   * is resolved against the base directory of the project. Not set by default: the index is only kept in memory.
+   */
+  public Optional<Path> getIndexPath() {
+    return settings.get(INDEX_PATH_PROPERTY)
+      .filter(StringUtils::isNotBlank)
+      .map(path -> baseDir.resolve(path.trim()));
+  }
 }
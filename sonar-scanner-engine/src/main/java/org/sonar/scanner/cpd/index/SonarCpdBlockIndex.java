@@ -33,6 +33,7 @@ import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
 import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.MappedCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.cpd.CpdSettings;
@@ -42,7 +43,7 @@ import org.sonar.scanner.report.ReportPublisher;
 
 public class SonarCpdBlockIndex extends AbstractCloneIndex {
   private static final Logger LOG = Loggers.get(SonarCpdBlockIndex.class);
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final CloneIndex mem;
   private final ReportPublisher publisher;
   // Files already tokenized
   private final Set<InputFile> indexedFiles = new HashSet<>();
@@ -51,9 +52,15 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
   public SonarCpdBlockIndex(ReportPublisher publisher, CpdSettings settings) {
     this.publisher = publisher;
     this.settings = settings;
+    this.mem = settings.getIndexPath()
+      .<CloneIndex>map(MappedCloneIndex::new)
+      .orElseGet(PackedMemoryCloneIndex::new);
   }
 
-  public void insert(InputFile inputFile, Collection<Block> blocks) {
+  /**
+   * Sensors of different languages may be executed concurrently, so insertions are synchronized.
+   */
+  public synchronized void insert(InputFile inputFile, Collection<Block> blocks) {
     if (settings.isCrossProjectDuplicationEnabled()) {
       int id = ((DefaultInputFile) inputFile).batchId();
       if (publisher.getWriter().hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, id)) {
@@ -70,8 +77,12 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
         return builder.build();
       }).collect(Collectors.toList()));
     }
-    for (Block block : blocks) {
-      mem.insert(block);
+    if (mem instanceof MappedCloneIndex) {
+      ((MappedCloneIndex) mem).insert(((DefaultInputFile) inputFile).key(), blocks);
+    } else {
+      for (Block block : blocks) {
+        mem.insert(block);
+      }
     }
     if (blocks.isEmpty()) {
       LOG.debug("Not enough content in '{}' to have CPD blocks, it will not be part of the duplication detection", inputFile.relativePath());
@@ -79,11 +90,11 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     indexedFiles.add(inputFile);
   }
 
-  public int noIndexedFiles() {
+  public synchronized int noIndexedFiles() {
     return indexedFiles.size();
   }
 
-  public boolean isIndexed(InputFile inputFile) {
+  public synchronized boolean isIndexed(InputFile inputFile) {
     return indexedFiles.contains(inputFile);
   }
 
@@ -188,11 +188,11 @@ public class ModuleIssues {
     return rule;
   }
 
-  public void write(int batchId, ScannerReport.Issue rawIssue) {
+  public synchronized void write(int batchId, ScannerReport.Issue rawIssue) {
     reportPublisher.getWriter().appendComponentIssue(batchId, rawIssue);
   }
 
-  public void write(int batchId, ScannerReport.ExternalIssue rawIssue) {
+  public synchronized void write(int batchId, ScannerReport.ExternalIssue rawIssue) {
     reportPublisher.getWriter().appendComponentExternalIssue(batchId, rawIssue);
   }
 }
@@ -23,30 +23,52 @@ import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 @ScannerSide
 public class SensorsExecutor {
+
+  /**
+   * Maximum number of sensors executed concurrently. Only sensors declared as
+   * {@link org.sonar.api.batch.sensor.SensorDescriptor#independent() independent} are executed in parallel,
+   * the others are still executed one after the other, in the order defined by their dependencies.
+   * Default value is 1, meaning that all sensors are executed sequentially.
+   */
+  static final String PARALLELISM_PROPERTY = "sonar.scanner.sensors.parallelism";
+  private static final int DEFAULT_PARALLELISM = 1;
+
+  private static final Logger LOG = Loggers.get(SensorsExecutor.class);
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
   private final boolean isRoot;
+  private final int parallelism;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy,
+    Configuration configuration) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
     this.isRoot = hierarchy.isRoot(module);
+    this.parallelism = Math.max(DEFAULT_PARALLELISM, configuration.getInt(PARALLELISM_PROPERTY).orElse(DEFAULT_PARALLELISM));
   }
 
   public void execute(SensorContext context) {
@@ -78,9 +100,43 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
+    List<Sensor> independentSensors = new ArrayList<>();
+    List<Sensor> otherSensors = new ArrayList<>();
     for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+      if (parallelism > 1 && isIndependent(sensor)) {
+        independentSensors.add(sensor);
+      } else {
+        otherSensors.add(sensor);
+      }
+    }
+
+    if (independentSensors.size() <= 1) {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
+      return;
     }
+
+    LOG.debug("Execute {} independent sensors on {} threads", independentSensors.size(), parallelism);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>(independentSensors.size());
+      for (Sensor sensor : independentSensors) {
+        tasks.add(pool.submit(() -> executeSensor(context, sensor)));
+      }
+      // independent sensors neither read nor produce data of the other ones, so
+      // dependent sensors are executed in order meanwhile
+      for (Sensor sensor : otherSensors) {
+        executeSensor(context, sensor);
+      }
+      tasks.forEach(ForkJoinTask::join);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static boolean isIndependent(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isIndependent();
   }
 
   private void executeSensor(SensorContext context, Sensor sensor) {
@@ -46,6 +46,7 @@ import org.sonar.scanner.protocol.output.ScannerReport.Issue;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.CarriedOverFiles;
 
 /**
  * Adds components and analysis metadata to output report
@@ -55,14 +56,17 @@ public class ComponentsPublisher implements ReportPublisherStep {
   private final InputComponentTree componentTree;
   private final InputModuleHierarchy moduleHierarchy;
   private final BranchConfiguration branchConfiguration;
+  private final CarriedOverFiles carriedOverFiles;
 
   private ScannerReportReader reader;
   private ScannerReportWriter writer;
 
-  public ComponentsPublisher(InputModuleHierarchy moduleHierarchy, InputComponentTree inputComponentTree, BranchConfiguration branchConfiguration) {
+  public ComponentsPublisher(InputModuleHierarchy moduleHierarchy, InputComponentTree inputComponentTree, BranchConfiguration branchConfiguration,
+    CarriedOverFiles carriedOverFiles) {
     this.moduleHierarchy = moduleHierarchy;
     this.componentTree = inputComponentTree;
     this.branchConfiguration = branchConfiguration;
+    this.carriedOverFiles = carriedOverFiles;
   }
 
   @Override
@@ -113,6 +117,9 @@ public class ComponentsPublisher implements ReportPublisherStep {
       builder.setIsTest(file.type() == InputFile.Type.TEST);
       builder.setLines(file.lines());
       builder.setStatus(convert(file.status()));
+      if (carriedOverFiles.isCarriedOver(file)) {
+        builder.setCarriedOver(true);
+      }
 
       String lang = getLanguageKey(file);
       if (lang != null) {
@@ -32,19 +32,26 @@ import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.scan.filesystem.CarriedOverFiles;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 public class SourcePublisher implements ReportPublisherStep {
 
   private final InputComponentStore componentCache;
+  private final CarriedOverFiles carriedOverFiles;
 
-  public SourcePublisher(InputComponentStore componentStore) {
+  public SourcePublisher(InputComponentStore componentStore, CarriedOverFiles carriedOverFiles) {
     this.componentCache = componentStore;
+    this.carriedOverFiles = carriedOverFiles;
   }
 
   @Override
   public void publish(ScannerReportWriter writer) {
     for (final DefaultInputFile inputFile : componentCache.allFilesToPublish()) {
+      if (carriedOverFiles.isCarriedOver(inputFile)) {
+        // source is already known by the server
+        continue;
+      }
       File iofile = writer.getSourceFile(inputFile.batchId());
 
       try (OutputStream output = new BufferedOutputStream(new FileOutputStream(iofile));
@@ -95,6 +95,7 @@ import org.sonar.scanner.scan.branch.BranchType;
 import org.sonar.scanner.scan.branch.ProjectBranchesProvider;
 import org.sonar.scanner.scan.branch.ProjectPullRequestsProvider;
 import org.sonar.scanner.scan.filesystem.BatchIdGenerator;
+import org.sonar.scanner.scan.filesystem.CarriedOverFiles;
 import org.sonar.scanner.scan.filesystem.InputComponentStoreProvider;
 import org.sonar.scanner.scan.filesystem.StatusDetection;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
@@ -165,6 +166,7 @@ public class ProjectScanContainer extends ComponentContainer {
       BatchIdGenerator.class,
       new ScmChangedFilesProvider(),
       StatusDetection.class,
+      CarriedOverFiles.class,
 
       // rules
       new ActiveRulesProvider(),
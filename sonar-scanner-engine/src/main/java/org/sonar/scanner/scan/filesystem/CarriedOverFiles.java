@@ -0,0 +1,63 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
+import org.sonar.scanner.repository.FileData;
+import org.sonar.scanner.repository.ProjectRepositories;
+
+/**
+ * Files whose data is carried over from the previous analysis by the Compute Engine in incremental mode.
+ * A file is carried over only if the server knows its hash and this hash did not change. Status
+ * {@link org.sonar.api.batch.fs.InputFile.Status#SAME} is not enough, as SCM can report as unchanged a file unknown by the server.
+ */
+public class CarriedOverFiles {
+  private final ProjectRepositories projectRepositories;
+  private final boolean incremental;
+  private final Set<Integer> batchIds = ConcurrentHashMap.newKeySet();
+
+  public CarriedOverFiles(DefaultAnalysisMode analysisMode, ProjectRepositories projectRepositories) {
+    this.projectRepositories = projectRepositories;
+    this.incremental = analysisMode.isIncremental();
+  }
+
+  void record(String moduleKeyWithBranch, DefaultInputFile inputFile, String hash) {
+    if (!incremental) {
+      return;
+    }
+    FileData fileData = projectRepositories.fileData(moduleKeyWithBranch, inputFile.relativePath());
+    if (fileData != null && StringUtils.isNotEmpty(fileData.hash()) && fileData.hash().equals(hash)) {
+      batchIds.add(inputFile.batchId());
+    }
+  }
+
+  public boolean isCarriedOver(DefaultInputFile inputFile) {
+    if (!incremental) {
+      return false;
+    }
+    // hash is known once metadata is generated
+    inputFile.checkMetadata();
+    return batchIds.contains(inputFile.batchId());
+  }
+}
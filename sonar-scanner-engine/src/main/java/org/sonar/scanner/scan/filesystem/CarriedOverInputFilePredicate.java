@@ -0,0 +1,48 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.util.function.Predicate;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+
+/**
+ * In incremental mode, sensors are given all the files except the ones carried over from the previous analysis.
+ */
+public class CarriedOverInputFilePredicate implements Predicate<InputFile> {
+  private final CarriedOverFiles carriedOverFiles;
+  private final FilePredicate currentPredicate;
+
+  public CarriedOverInputFilePredicate(FilePredicate currentPredicate, CarriedOverFiles carriedOverFiles) {
+    this.currentPredicate = currentPredicate;
+    this.carriedOverFiles = carriedOverFiles;
+  }
+
+  @Override
+  public boolean test(InputFile inputFile) {
+    if (SameInputFilePredicate.hasExplicitFilterOnStatus(currentPredicate)) {
+      // If user explicitly requested a given status, don't change the result
+      return true;
+    }
+    return !carriedOverFiles.isCarriedOver((DefaultInputFile) inputFile);
+  }
+
+}
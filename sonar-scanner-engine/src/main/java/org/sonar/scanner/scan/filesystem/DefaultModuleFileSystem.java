@@ -27,23 +27,27 @@ import org.sonar.scanner.analysis.DefaultAnalysisMode;
 public class DefaultModuleFileSystem extends DefaultFileSystem {
 
   public DefaultModuleFileSystem(ModuleInputComponentStore moduleInputFileCache, DefaultInputModule module, ModuleFileSystemInitializer initializer, DefaultAnalysisMode mode,
-    StatusDetection statusDetection) {
+    StatusDetection statusDetection, CarriedOverFiles carriedOverFiles) {
     super(module.getBaseDir(), moduleInputFileCache);
-    setFields(module, initializer, mode, statusDetection);
+    setFields(module, initializer, mode, statusDetection, carriedOverFiles);
   }
 
   @VisibleForTesting
-  public DefaultModuleFileSystem(DefaultInputModule module, ModuleFileSystemInitializer initializer, DefaultAnalysisMode mode, StatusDetection statusDetection) {
+  public DefaultModuleFileSystem(DefaultInputModule module, ModuleFileSystemInitializer initializer, DefaultAnalysisMode mode, StatusDetection statusDetection,
+    CarriedOverFiles carriedOverFiles) {
     super(module.getBaseDir());
-    setFields(module, initializer, mode, statusDetection);
+    setFields(module, initializer, mode, statusDetection, carriedOverFiles);
   }
 
-  private void setFields(DefaultInputModule module, ModuleFileSystemInitializer initializer, DefaultAnalysisMode mode, StatusDetection statusDetection) {
+  private void setFields(DefaultInputModule module, ModuleFileSystemInitializer initializer, DefaultAnalysisMode mode, StatusDetection statusDetection,
+    CarriedOverFiles carriedOverFiles) {
     setWorkDir(module.getWorkDir());
     setEncoding(initializer.defaultEncoding());
 
     // filter the files sensors have access to
-    if (!mode.scanAllFiles()) {
+    if (mode.isIncremental()) {
+      setDefaultPredicate(p -> new CarriedOverInputFilePredicate(p, carriedOverFiles));
+    } else if (!mode.scanAllFiles()) {
       setDefaultPredicate(p -> new SameInputFilePredicate(p, statusDetection, module.definition().getKeyWithBranch()));
     }
   }
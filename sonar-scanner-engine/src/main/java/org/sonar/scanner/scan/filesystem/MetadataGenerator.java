@@ -43,12 +43,15 @@ public class MetadataGenerator {
   private final FileMetadata fileMetadata;
   private final DefaultInputModule inputModule;
   private final IssueExclusionsLoader exclusionsScanner;
+  private final CarriedOverFiles carriedOverFiles;
 
-  public MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner) {
+  public MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner,
+    CarriedOverFiles carriedOverFiles) {
     this.inputModule = inputModule;
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
     this.exclusionsScanner = exclusionsScanner;
+    this.carriedOverFiles = carriedOverFiles;
   }
 
   /**
@@ -69,7 +72,9 @@ public class MetadataGenerator {
       inputFile.setCharset(charset);
       Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile.key()));
       inputFile.setMetadata(metadata);
-      inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile, metadata.hash()));
+      String moduleKeyWithBranch = inputModule.definition().getKeyWithBranch();
+      inputFile.setStatus(statusDetection.status(moduleKeyWithBranch, inputFile, metadata.hash()));
+      carriedOverFiles.record(moduleKeyWithBranch, inputFile, metadata.hash());
       LOG.debug("'{}' generated metadata {} with charset '{}'", inputFile, inputFile.type() == Type.TEST ? "as test " : "", charset);
     } catch (Exception e) {
       throw new IllegalStateException(e);
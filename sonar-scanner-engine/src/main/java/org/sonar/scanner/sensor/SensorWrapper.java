@@ -65,4 +65,8 @@ public class SensorWrapper implements org.sonar.api.batch.Sensor {
   public boolean isGlobal() {
     return descriptor.isGlobal();
   }
+
+  public boolean isIndependent() {
+    return descriptor.isIndependent();
+  }
 }
@@ -0,0 +1,239 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Append-only store of byte arrays, kept out of the heap in memory-mapped files. Records are written in segments
+ * of {@link #SEGMENT_SIZE} bytes, a record bigger than that getting a segment of its own. A record is identified by its
+ * address, made of the index of its segment and of its offset in this segment.
+ * <p>
+ * Writes and reads can be done concurrently. Space of records which are not referenced anymore is only
+ * released when closing the store.
+ * </p>
+ * <p>
+ * Segments are unmapped when closing the store, so that their files can be deleted even on Windows. Store
+ * can't be accessed anymore once closed.
+ * </p>
+ */
+class MappedSegments {
+
+  static final int SEGMENT_SIZE = 32 * 1024 * 1024;
+  private static final int LENGTH_SIZE = Integer.BYTES;
+  private static final Logger LOG = Loggers.get(MappedSegments.class);
+  private static final Unmapper UNMAPPER = Unmapper.lookup();
+
+  private final File dir;
+  private final int segmentSize;
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+  private final AtomicLong usedBytes = new AtomicLong();
+  private volatile Segment current;
+  private volatile boolean closed = false;
+
+  MappedSegments(File dir) {
+    this(dir, SEGMENT_SIZE);
+  }
+
+  MappedSegments(File dir, int segmentSize) {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    this.current = newSegment(segmentSize);
+  }
+
+  /**
+   * @return the address of the record
+   */
+  long write(byte[] bytes) {
+    checkNotClosed();
+    int recordSize = LENGTH_SIZE + bytes.length;
+    Segment segment = current;
+    int offset = segment.allocate(recordSize);
+    while (offset < 0) {
+      segment = nextSegment(segment, recordSize);
+      offset = segment.allocate(recordSize);
+    }
+    ByteBuffer buffer = segment.buffer.duplicate();
+    buffer.position(offset);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+    usedBytes.addAndGet(recordSize);
+    return ((long) segment.index << 32) | offset;
+  }
+
+  byte[] read(long address) {
+    checkNotClosed();
+    Segment segment = segments.get((int) (address >>> 32));
+    int offset = (int) address;
+    ByteBuffer buffer = segment.buffer.duplicate();
+    buffer.position(offset);
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  long usedBytes() {
+    return usedBytes.get();
+  }
+
+  long mappedBytes() {
+    long mapped = 0;
+    for (Segment segment : segments) {
+      mapped += segment.buffer.capacity();
+    }
+    return mapped;
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("Storage segments are closed");
+    }
+  }
+
+  private synchronized Segment nextSegment(Segment full, int recordSize) {
+    checkNotClosed();
+    if (current != full) {
+      // another thread already created a new segment
+      return current;
+    }
+    Segment segment = newSegment(Math.max(segmentSize, recordSize));
+    if (recordSize <= segmentSize) {
+      current = segment;
+    }
+    return segment;
+  }
+
+  private synchronized Segment newSegment(int size) {
+    int index = segments.size();
+    File file = new File(dir, "segment-" + index);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      FileChannel channel = raf.getChannel()) {
+      // mapping stays valid once the channel is closed
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      Segment segment = new Segment(index, buffer);
+      segments.add(segment);
+      return segment;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create storage segment " + file, e);
+    }
+  }
+
+  /**
+   * Releases the segments and unmaps them. If the JVM does not allow to unmap buffers, mapped memory is given back
+   * to the system, and files are unlocked, once buffers are garbage collected.
+   */
+  synchronized void close() {
+    closed = true;
+    for (Segment segment : segments) {
+      UNMAPPER.unmap(segment.buffer);
+    }
+    segments.clear();
+    usedBytes.set(0);
+  }
+
+  /**
+   * Unmaps a buffer without waiting for it to be garbage collected. Buffer must not be accessed anymore.
+   */
+  @FunctionalInterface
+  private interface Unmapper {
+    void unmap(MappedByteBuffer buffer);
+
+    static Unmapper lookup() {
+      try {
+        // Java 9+
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        Object unsafe = theUnsafe.get(null);
+        return buffer -> invoke(() -> invokeCleaner.invoke(unsafe, buffer));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // not available before Java 9
+      }
+      try {
+        // Java 8
+        Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+        Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+        return buffer -> invoke(() -> clean.invoke(cleaner.invoke(buffer)));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        LOG.debug("Storage segments can't be unmapped, they will be released once garbage collected", e);
+        return buffer -> {
+          // released by garbage collector
+        };
+      }
+    }
+
+    static void invoke(ReflectiveCall call) {
+      try {
+        call.invoke();
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        LOG.debug("Fail to unmap storage segment, it will be released once garbage collected", e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ReflectiveCall {
+    void invoke() throws ReflectiveOperationException;
+  }
+
+  private static class Segment {
+    private final int index;
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger position = new AtomicInteger();
+
+    private Segment(int index, MappedByteBuffer buffer) {
+      this.index = index;
+      this.buffer = buffer;
+    }
+
+    /**
+     * @return offset of the allocated space, or -1 if segment is full
+     */
+    private int allocate(int size) {
+      while (true) {
+        int offset = position.get();
+        if (size > buffer.capacity() - offset) {
+          return -1;
+        }
+        if (position.compareAndSet(offset, offset + size)) {
+          return offset;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Key of a {@link Storage} entry, made of one or several parts. Keys are sorted part by part, so that all the keys
+ * starting with the same parts are contiguous, a key being sorted before the keys it is a prefix of.
+ * <p>
+ * Parts must be of one of the {@link #SUPPORTED_TYPES}, so that their natural ordering is consistent with equals.
+ * Parts of different types are sorted by type, in the order of {@link #SUPPORTED_TYPES}.
+ * </p>
+ */
+final class StorageKey implements Comparable<StorageKey> {
+
+  private static final List<Class<?>> SUPPORTED_TYPES = Arrays.asList(Integer.class, Long.class, String.class);
+
+  /**
+   * Part greater than any other one, used to build the upper bound of the keys starting with given parts
+   */
+  private static final Object AFTER = new Object();
+
+  private final Object[] parts;
+
+  private StorageKey(Object[] parts) {
+    this.parts = parts;
+  }
+
+  static StorageKey of(Object... parts) {
+    for (Object part : parts) {
+      if (part == null) {
+        throw new IllegalArgumentException("Storage keys can't contain null parts: " + Arrays.toString(parts));
+      }
+      if (!SUPPORTED_TYPES.contains(part.getClass())) {
+        throw new IllegalArgumentException("Storage keys only support parts of types " + SUPPORTED_TYPES + ", got " + part.getClass() + ": "
+          + Arrays.toString(parts));
+      }
+    }
+    return new StorageKey(parts.clone());
+  }
+
+  /**
+   * Upper bound of the keys starting with the parts of this key
+   */
+  StorageKey after() {
+    Object[] afterParts = Arrays.copyOf(parts, parts.length + 1);
+    afterParts[parts.length] = AFTER;
+    return new StorageKey(afterParts);
+  }
+
+  int depth() {
+    return parts.length;
+  }
+
+  Object part(int index) {
+    return parts[index];
+  }
+
+  Object[] parts() {
+    return parts.clone();
+  }
+
+  @Override
+  public int compareTo(StorageKey other) {
+    int length = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < length; i++) {
+      int cmp = comparePart(parts[i], other.parts[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return Integer.compare(parts.length, other.parts.length);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int comparePart(Object part, Object otherPart) {
+    if (part == otherPart) {
+      return 0;
+    }
+    if (part == AFTER) {
+      return 1;
+    }
+    if (otherPart == AFTER) {
+      return -1;
+    }
+    if (part.getClass() == otherPart.getClass()) {
+      return ((Comparable<Object>) part).compareTo(otherPart);
+    }
+    return Integer.compare(SUPPORTED_TYPES.indexOf(part.getClass()), SUPPORTED_TYPES.indexOf(otherPart.getClass()));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.equals(parts, ((StorageKey) o).parts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(parts);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
@@ -20,27 +20,50 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Persistit;
-import com.persistit.Value;
-import com.persistit.Volume;
-import com.persistit.encoding.CoderManager;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-import java.util.HashMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Creates the {@link Storage}s of an analysis. Values of all the storages are serialized in the same
+ * {@link MappedSegments}, out of the heap.
+ */
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
-  private Persistit persistit;
-  private Volume volume;
+
+  private static final Logger LOG = Loggers.get(Storages.class);
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+  private static final byte JAVA_SERIALIZATION = 0;
+  private static final byte STRING = 1;
+
+  private final Map<String, Storage<?>> cacheMap = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Integer> coderIdsByClass = new ConcurrentHashMap<>();
+  private final List<StorageValueCoder<Object>> coders = new CopyOnWriteArrayList<>();
+  private final File dir;
+  private MappedSegments segments;
 
   public Storages(StoragesManager storagesManager) {
-    persistit = storagesManager.persistit();
+    dir = new File(storagesManager.tempDir(), "storages-" + COUNTER.incrementAndGet());
     doStart();
   }
 
@@ -51,48 +74,104 @@ public class Storages implements Startable {
 
   private void doStart() {
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
+      Files.createDirectories(dir.toPath());
+      segments = new MappedSegments(dir);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create a cache volume", e);
     }
   }
 
-  public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+  @SuppressWarnings("unchecked")
+  public synchronized void registerValueCoder(Class<?> clazz, StorageValueCoder<?> coder) {
+    Integer coderId = coderIdsByClass.get(clazz);
+    if (coderId != null) {
+      coders.set(coderId - 2, (StorageValueCoder<Object>) coder);
+    } else {
+      coders.add((StorageValueCoder<Object>) coder);
+      // ids 0 and 1 are reserved to Java serialization and strings
+      coderIdsByClass.put(clazz, coders.size() + 1);
+    }
   }
 
   public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
-    Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
+    Preconditions.checkState(segments != null, "Caches are not initialized");
+    Storage<V> cache = new Storage<>(cacheName, this);
+    Preconditions.checkState(cacheMap.putIfAbsent(cacheName, cache) == null, "Cache is already created: %s", cacheName);
+    return cache;
+  }
+
+  long write(String cacheName, Object value) {
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      Integer coderId = coderIdsByClass.get(value.getClass());
+      if (coderId != null) {
+        output.writeByte(coderId);
+        coders.get(coderId - 2).write(output, value);
+      } else if (value instanceof String) {
+        output.writeByte(STRING);
+        writeString(output, (String) value);
+      } else {
+        output.writeByte(JAVA_SERIALIZATION);
+        ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+        objectOutput.writeObject(value);
+        objectOutput.flush();
+      }
+      output.flush();
+      return segments.write(bytes.toByteArray());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to put element in the storage '" + cacheName + "'", e);
+    }
+  }
+
+  Object read(String cacheName, long address) {
+    try {
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(segments.read(address)));
+      int coderId = input.readUnsignedByte();
+      switch (coderId) {
+        case JAVA_SERIALIZATION:
+          return new ObjectInputStream(input).readObject();
+        case STRING:
+          return readString(input);
+        default:
+          return coders.get(coderId - 2).read(input);
+      }
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to get element from cache " + cacheName, e);
     }
   }
 
+  /**
+   * Unlike {@link DataOutputStream#writeUTF(String)}, the length of the string is not limited
+   */
+  public static void writeString(DataOutput output, String s) throws IOException {
+    byte[] bytes = s.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  public static String readString(DataInput input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    if (LOG.isDebugEnabled()) {
+      for (Storage<?> cache : cacheMap.values()) {
+        LOG.debug("Storage '{}': {} entries, {} puts, {} hits, {} misses", cache.name(), cache.size(), cache.puts(), cache.hits(), cache.misses());
+      }
+      if (segments != null) {
+        LOG.debug("Storages: {} bytes used in {} segments of {} mapped bytes", segments.usedBytes(), segments.segmentCount(), segments.mappedBytes());
+      }
     }
-
     cacheMap.clear();
 
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
+    if (segments != null) {
+      segments.close();
+      segments = null;
+      deleteQuietly(dir);
     }
   }
 }
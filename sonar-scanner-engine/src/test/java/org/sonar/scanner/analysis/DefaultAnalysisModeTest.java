@@ -20,22 +20,44 @@
 package org.sonar.scanner.analysis;
 
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.bootstrap.ScannerPlugin;
+import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.repository.ProjectRepositories;
+import org.sonar.scanner.rule.ModuleQProfiles;
+import org.sonar.scanner.rule.QProfile;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.branch.BranchType;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DefaultAnalysisModeTest {
+  private static final Date LAST_ANALYSIS_DATE = new Date(1_500_000_000_000L);
+
   private GlobalAnalysisMode globalMode;
+  private ProjectRepositories projectRepositories;
+  private ModuleQProfiles qProfiles;
+  private ScannerPluginRepository pluginRepository;
+  private BranchConfiguration branchConfig;
 
   @Before
   public void setUp() {
     globalMode = mock(GlobalAnalysisMode.class);
+    projectRepositories = mock(ProjectRepositories.class);
+    when(projectRepositories.lastAnalysisDate()).thenReturn(LAST_ANALYSIS_DATE);
+    qProfiles = mock(ModuleQProfiles.class);
+    pluginRepository = mock(ScannerPluginRepository.class);
+    branchConfig = mock(BranchConfiguration.class);
+    when(branchConfig.branchType()).thenReturn(BranchType.LONG);
   }
 
   @Rule
@@ -85,8 +107,109 @@ public class DefaultAnalysisModeTest {
     assertThat(mode.scanAllFiles()).isFalse();
   }
 
+  @Test
+  public void incremental_if_publish_and_property_set() {
+    when(globalMode.isPublish()).thenReturn(true);
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isTrue();
+    assertThat(mode.scanAllFiles()).isFalse();
+  }
+
+  @Test
+  public void not_incremental_by_default() {
+    when(globalMode.isPublish()).thenReturn(true);
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.emptyMap()));
+
+    assertThat(mode.isIncremental()).isFalse();
+    assertThat(mode.scanAllFiles()).isTrue();
+  }
+
+  @Test
+  public void scan_all_files_disables_incremental() {
+    when(globalMode.isPublish()).thenReturn(true);
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.scanner.incremental", "true");
+    props.put("sonar.scanAllFiles", "true");
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(props));
+
+    assertThat(mode.isIncremental()).isFalse();
+    assertThat(mode.scanAllFiles()).isTrue();
+  }
+
+  @Test
+  public void not_incremental_without_previous_analysis() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(projectRepositories.lastAnalysisDate()).thenReturn(null);
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isFalse();
+    assertThat(mode.scanAllFiles()).isTrue();
+  }
+
+  @Test
+  public void not_incremental_if_quality_profile_changed_since_previous_analysis() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(qProfiles.findAll()).thenReturn(Collections.singletonList(
+      new QProfile("p1", "Sonar way", "java", new Date(LAST_ANALYSIS_DATE.getTime() + 1))));
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isFalse();
+  }
+
+  @Test
+  public void not_incremental_if_plugin_changed_since_previous_analysis() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(pluginRepository.getPluginsByKey()).thenReturn(Collections.singletonMap("java",
+      new ScannerPlugin("java", LAST_ANALYSIS_DATE.getTime() + 1, null)));
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isFalse();
+  }
+
+  @Test
+  public void incremental_if_quality_profiles_and_plugins_unchanged() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(qProfiles.findAll()).thenReturn(Collections.singletonList(new QProfile("p1", "Sonar way", "java", LAST_ANALYSIS_DATE)));
+    when(pluginRepository.getPluginsByKey()).thenReturn(Collections.singletonMap("java",
+      new ScannerPlugin("java", LAST_ANALYSIS_DATE.getTime() - 1, null)));
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isTrue();
+  }
+
+  @Test
+  public void not_incremental_on_short_living_branch() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(branchConfig.isShortOrPullRequest()).thenReturn(true);
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isFalse();
+    assertThat(mode.scanAllFiles()).isTrue();
+  }
+
+  @Test
+  public void not_incremental_if_project_repositories_are_loaded_from_another_branch() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(branchConfig.branchName()).thenReturn("feature");
+    when(branchConfig.branchBase()).thenReturn("master");
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isFalse();
+  }
+
+  @Test
+  public void incremental_on_long_living_branch_already_analyzed() {
+    when(globalMode.isPublish()).thenReturn(true);
+    when(branchConfig.branchName()).thenReturn("release-1.0");
+    when(branchConfig.branchBase()).thenReturn("release-1.0");
+    DefaultAnalysisMode mode = createmode(new AnalysisProperties(Collections.singletonMap("sonar.scanner.incremental", "true")));
+
+    assertThat(mode.isIncremental()).isTrue();
+  }
+
   private DefaultAnalysisMode createmode(AnalysisProperties analysisProps) {
-    return new DefaultAnalysisMode(analysisProps, globalMode);
+    return new DefaultAnalysisMode(analysisProps, globalMode, projectRepositories, qProfiles, pluginRepository, branchConfig);
   }
 
 }
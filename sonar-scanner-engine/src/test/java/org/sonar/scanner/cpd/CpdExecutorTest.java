@@ -84,6 +84,7 @@ public class CpdExecutorTest {
 
     branchConfig = mock(BranchConfiguration.class);
     settings = mock(CpdSettings.class);
+    when(settings.getParallelism()).thenReturn(1);
     publisher = mock(ReportPublisher.class);
     when(publisher.getWriter()).thenReturn(new ScannerReportWriter(outputDir));
 
@@ -215,11 +216,34 @@ public class CpdExecutorTest {
 
   @Test
   public void failOnMissingComponent() {
-    executor.runCpdAnalysis(null, "unknown", Collections.emptyList(), 1);
+    assertThat(executor.submit(null, "unknown", Collections.emptyList())).isNull();
     readDuplications(0);
     assertThat(logTester.logs(LoggerLevel.ERROR)).contains("Resource not found in component store: unknown. Skipping CPD computation for it");
   }
 
+  @Test
+  public void detect_duplications_concurrently() {
+    when(settings.getParallelism()).thenReturn(2);
+    for (DefaultInputFile component : Arrays.asList(batchComponent1, batchComponent2)) {
+      List<Block> blocks = new ArrayList<>();
+      for (int j = 1; j <= 3; j++) {
+        blocks.add(Block.builder()
+          .setResourceId(component.key())
+          .setIndexInFile(j)
+          .setLines(j, j + 1)
+          .setUnit(j, j + 1)
+          .setBlockHash(new ByteArray(("abcd000" + j).getBytes()))
+          .build());
+      }
+      index.insert((InputFile) component, blocks);
+    }
+    executor.execute(60_000);
+
+    Duplication[] dups = readDuplications(1);
+    assertThat(dups[0].getDuplicateList()).extracting(Duplicate::getOtherFileRef).containsOnly(batchComponent2.batchId());
+    assertThat(reader.readComponentDuplications(batchComponent2.batchId())).hasSize(1);
+  }
+
   @Test
   public void timeout() {
     for (int i = 1; i <= 2; i++) {
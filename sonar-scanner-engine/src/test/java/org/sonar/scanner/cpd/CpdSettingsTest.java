@@ -19,6 +19,8 @@
  */
 package org.sonar.scanner.cpd;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,12 +37,14 @@ public class CpdSettingsTest {
   private CpdSettings cpdSettings;
   private Configuration configuration;
   private DefaultInputModule module;
+  private Path baseDir = Paths.get("project").toAbsolutePath();
 
   @Before
   public void setUp() {
     module = mock(DefaultInputModule.class);
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.root()).thenReturn(module);
+    when(module.getBaseDir()).thenReturn(baseDir);
     configuration = mock(Configuration.class);
     cpdSettings = new CpdSettings(configuration, hierarchy);
   }
@@ -59,4 +63,32 @@ public class CpdSettingsTest {
     assertThat(cpdSettings.getMinimumTokens("java")).isEqualTo(42);
     assertThat(cpdSettings.getMinimumTokens("php")).isEqualTo(33);
   }
+
+  @Test
+  public void parallelism() {
+    when(configuration.getInt("sonar.cpd.parallelism")).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getParallelism()).isEqualTo(1);
+
+    when(configuration.getInt("sonar.cpd.parallelism")).thenReturn(Optional.of(4));
+    assertThat(cpdSettings.getParallelism()).isEqualTo(4);
+
+    when(configuration.getInt("sonar.cpd.parallelism")).thenReturn(Optional.of(0));
+    assertThat(cpdSettings.getParallelism()).isEqualTo(1);
+  }
+
+  @Test
+  public void index_path() {
+    when(configuration.get("sonar.cpd.index.path")).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getIndexPath()).isEmpty();
+
+    when(configuration.get("sonar.cpd.index.path")).thenReturn(Optional.of(" "));
+    assertThat(cpdSettings.getIndexPath()).isEmpty();
+
+    when(configuration.get("sonar.cpd.index.path")).thenReturn(Optional.of(".cache/cpd.idx"));
+    assertThat(cpdSettings.getIndexPath()).contains(baseDir.resolve(".cache/cpd.idx"));
+
+    Path absolute = Paths.get("cpd.idx").toAbsolutePath();
+    when(configuration.get("sonar.cpd.index.path")).thenReturn(Optional.of(absolute.toString()));
+    assertThat(cpdSettings.getIndexPath()).contains(absolute);
+  }
 }
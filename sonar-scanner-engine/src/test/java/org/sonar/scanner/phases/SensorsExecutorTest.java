@@ -20,7 +20,10 @@
 package org.sonar.scanner.phases;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,9 +35,13 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -49,6 +56,9 @@ public class SensorsExecutorTest {
   private SensorsExecutor rootModuleExecutor;
   private SensorsExecutor subModuleExecutor;
   private SensorContext context;
+  private ScannerExtensionDictionnary selector;
+  private DefaultInputModule rootModule;
+  private InputModuleHierarchy hierarchy;
 
   private SensorStrategy strategy = new SensorStrategy();
 
@@ -81,21 +91,21 @@ public class SensorsExecutorTest {
   public void setUp() throws IOException {
     context = mock(SensorContext.class);
 
-    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+    selector = mock(ScannerExtensionDictionnary.class);
     when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
     ProjectDefinition childDef = ProjectDefinition.create().setKey("sub").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder());
     ProjectDefinition rootDef = ProjectDefinition.create().setKey("root").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder());
 
-    DefaultInputModule rootModule = TestInputFileBuilder.newDefaultInputModule(rootDef);
+    rootModule = TestInputFileBuilder.newDefaultInputModule(rootDef);
     DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule(childDef);
 
-    InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
+    hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy);
-    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy);
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, new MapSettings().asConfig());
+    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy, new MapSettings().asConfig());
   }
 
   @Test
@@ -116,4 +126,65 @@ public class SensorsExecutorTest {
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
   }
+
+  @Test
+  public void should_execute_independent_sensors_concurrently_when_parallelism_is_enabled() {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    LatchSensor firstSensor = new LatchSensor(bothStarted, true);
+    LatchSensor secondSensor = new LatchSensor(bothStarted, true);
+    SensorWrapper first = new SensorWrapper(firstSensor, null, mock(SensorOptimizer.class));
+    SensorWrapper second = new SensorWrapper(secondSensor, null, mock(SensorOptimizer.class));
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(first, second));
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.emptyList());
+
+    MapSettings settings = new MapSettings().setProperty("sonar.scanner.sensors.parallelism", 2);
+    new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, settings.asConfig()).execute(context);
+
+    // each sensor waits for the other one to be started, which times out if they are executed sequentially
+    assertThat(firstSensor.released).isTrue();
+    assertThat(secondSensor.released).isTrue();
+  }
+
+  @Test
+  public void should_execute_sensors_sequentially_by_default() {
+    CountDownLatch latch = new CountDownLatch(1);
+    LatchSensor independent = new LatchSensor(latch, false);
+    SensorWrapper first = new SensorWrapper(independent, null, mock(SensorOptimizer.class));
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(first, perModuleSensor));
+
+    rootModuleExecutor.execute(context);
+
+    assertThat(independent.thread).isSameAs(Thread.currentThread());
+    assertThat(perModuleSensor.called).isTrue();
+  }
+
+  private static class LatchSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final CountDownLatch latch;
+    private final boolean await;
+    private volatile Thread thread;
+    private volatile boolean released;
+
+    LatchSensor(CountDownLatch latch, boolean await) {
+      this.latch = latch;
+      this.await = await;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("latch").independent();
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      thread = Thread.currentThread();
+      latch.countDown();
+      if (await) {
+        try {
+          released = latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
 }
@@ -52,6 +52,7 @@ import org.sonar.scanner.scan.DefaultComponentTree;
 import org.sonar.scanner.scan.DefaultInputModuleHierarchy;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.branch.BranchType;
+import org.sonar.scanner.scan.filesystem.CarriedOverFiles;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -70,10 +71,12 @@ public class ComponentsPublisherTest {
   private ScannerReportWriter writer;
   private ScannerReportReader reader;
   private BranchConfiguration branchConfiguration;
+  private CarriedOverFiles carriedOverFiles;
 
   @Before
   public void setUp() throws IOException {
     branchConfiguration = mock(BranchConfiguration.class);
+    carriedOverFiles = mock(CarriedOverFiles.class);
     tree = new DefaultComponentTree();
     outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
@@ -138,7 +141,7 @@ public class ComponentsPublisherTest {
     DefaultInputFile testFile = new TestInputFileBuilder("module1", "test/FooTest.java", 7).setType(Type.TEST).setStatus(InputFile.Status.ADDED).setLines(4).build();
     tree.index(testFile, dir);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
@@ -187,7 +190,7 @@ public class ComponentsPublisherTest {
     moduleHierarchy = mock(InputModuleHierarchy.class);
     when(moduleHierarchy.root()).thenReturn(root);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
     Component rootProtobuf = reader.readComponent(1);
     assertThat(rootProtobuf.getKey()).isEqualTo("foo");
@@ -238,7 +241,7 @@ public class ComponentsPublisherTest {
     DefaultInputFile file3 = new TestInputFileBuilder("module1", "src2/Foo3.java", 7).setPublish(false).setLines(2).build();
     tree.index(file3, dir3);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
@@ -252,6 +255,36 @@ public class ComponentsPublisherTest {
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 7)).isFalse();
   }
 
+  @Test
+  public void should_mark_carried_over_files() throws IOException {
+    ProjectDefinition rootDef = ProjectDefinition.create()
+      .setKey("foo")
+      .setProperty(CoreProperties.PROJECT_VERSION_PROPERTY, "1.0")
+      .setName("Root project")
+      .setBaseDir(temp.newFolder())
+      .setWorkDir(temp.newFolder());
+    DefaultInputModule root = new DefaultInputModule(rootDef, 1);
+
+    moduleHierarchy = mock(InputModuleHierarchy.class);
+    when(moduleHierarchy.root()).thenReturn(root);
+    when(moduleHierarchy.children(root)).thenReturn(Collections.emptyList());
+
+    DefaultInputDir dir = new DefaultInputDir("foo", "src", 2);
+    tree.index(dir, root);
+    DefaultInputFile unchanged = new TestInputFileBuilder("foo", "src/Foo.java", 3).setLines(2).setStatus(InputFile.Status.SAME).build();
+    tree.index(unchanged, dir);
+    DefaultInputFile changed = new TestInputFileBuilder("foo", "src/Bar.java", 4).setLines(2).setStatus(InputFile.Status.CHANGED).build();
+    tree.index(changed, dir);
+    when(carriedOverFiles.isCarriedOver(unchanged)).thenReturn(true);
+
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
+    publisher.publish(writer);
+
+    assertThat(reader.readComponent(3).getCarriedOver()).isTrue();
+    assertThat(reader.readComponent(3).getStatus()).isEqualTo(FileStatus.SAME);
+    assertThat(reader.readComponent(4).getCarriedOver()).isFalse();
+  }
+
   @Test
   public void should_skip_empty_modules_for_short_living_branches() throws IOException {
     ProjectAnalysisInfo projectAnalysisInfo = mock(ProjectAnalysisInfo.class);
@@ -300,7 +333,7 @@ public class ComponentsPublisherTest {
     DefaultInputFile file = new TestInputFileBuilder("modNotEmpty", "src/Foo.java", 5).setLines(2).setStatus(InputFile.Status.SAME).build();
     tree.index(file, dir);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
@@ -365,7 +398,7 @@ public class ComponentsPublisherTest {
       .build();
     tree.index(file3, dir3);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
@@ -435,7 +468,7 @@ public class ComponentsPublisherTest {
       .build();
     tree.index(file3, dir3);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
@@ -487,7 +520,7 @@ public class ComponentsPublisherTest {
     DefaultInputFile testFile = new TestInputFileBuilder("module1", "test/FooTest.java", 6).setType(Type.TEST).setStatus(InputFile.Status.SAME).setLines(4).build();
     tree.index(testFile, dir);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
@@ -555,7 +588,7 @@ public class ComponentsPublisherTest {
     DefaultInputFile file = new TestInputFileBuilder("module1", "src/Foo.java", 4).setLines(2).setStatus(InputFile.Status.SAME).build();
     tree.index(file, dir);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     ScannerReportReader reader = new ScannerReportReader(outputDir);
@@ -625,7 +658,7 @@ public class ComponentsPublisherTest {
 
     moduleHierarchy = new DefaultInputModuleHierarchy(parents);
 
-    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration);
+    ComponentsPublisher publisher = new ComponentsPublisher(moduleHierarchy, tree, branchConfiguration, carriedOverFiles);
     publisher.publish(writer);
 
     ScannerReportReader reader = new ScannerReportReader(outputDir);
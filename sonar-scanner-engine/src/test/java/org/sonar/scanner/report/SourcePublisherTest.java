@@ -32,10 +32,12 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.CarriedOverFiles;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class SourcePublisherTest {
 
@@ -45,6 +47,7 @@ public class SourcePublisherTest {
   private File sourceFile;
   private ScannerReportWriter writer;
   private DefaultInputFile inputFile;
+  private CarriedOverFiles carriedOverFiles;
 
   @Before
   public void prepare() throws IOException {
@@ -61,7 +64,8 @@ public class SourcePublisherTest {
     InputComponentStore componentStore = new InputComponentStore(rootModule, mock(BranchConfiguration.class));
     componentStore.put(inputFile);
 
-    publisher = new SourcePublisher(componentStore);
+    carriedOverFiles = mock(CarriedOverFiles.class);
+    publisher = new SourcePublisher(componentStore, carriedOverFiles);
     File outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
   }
@@ -117,4 +121,14 @@ public class SourcePublisherTest {
     assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("\n2\n3\n4\n5");
   }
 
+  @Test
+  public void skip_carried_over_files() throws Exception {
+    FileUtils.write(sourceFile, "1\n2\n3\n4\n5", StandardCharsets.ISO_8859_1);
+    when(carriedOverFiles.isCarriedOver(inputFile)).thenReturn(true);
+
+    publisher.publish(writer);
+
+    assertThat(writer.getSourceFile(inputFile.batchId())).doesNotExist();
+  }
+
 }
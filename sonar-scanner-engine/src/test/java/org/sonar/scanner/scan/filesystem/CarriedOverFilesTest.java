@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
+import org.sonar.scanner.repository.FileData;
+import org.sonar.scanner.repository.ProjectRepositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CarriedOverFilesTest {
+
+  private DefaultAnalysisMode analysisMode = mock(DefaultAnalysisMode.class);
+  private ProjectRepositories projectRepositories;
+
+  @Before
+  public void setUp() {
+    Table<String, String, FileData> fileData = HashBasedTable.create();
+    fileData.put("foo", "src/Foo.java", new FileData("ABCDE", "12345789"));
+    fileData.put("foo", "src/NoHash.java", new FileData("", "12345789"));
+    projectRepositories = new ProjectRepositories(ImmutableTable.of(), fileData, null);
+  }
+
+  @Test
+  public void carry_over_file_if_hash_known_by_server_is_unchanged() {
+    when(analysisMode.isIncremental()).thenReturn(true);
+    CarriedOverFiles underTest = new CarriedOverFiles(analysisMode, projectRepositories);
+    DefaultInputFile file = createFile("src/Foo.java", 1);
+
+    underTest.record("foo", file, "ABCDE");
+
+    assertThat(underTest.isCarriedOver(file)).isTrue();
+  }
+
+  @Test
+  public void do_not_carry_over_changed_file() {
+    when(analysisMode.isIncremental()).thenReturn(true);
+    CarriedOverFiles underTest = new CarriedOverFiles(analysisMode, projectRepositories);
+    DefaultInputFile file = createFile("src/Foo.java", 1);
+
+    underTest.record("foo", file, "XXXXX");
+
+    assertThat(underTest.isCarriedOver(file)).isFalse();
+  }
+
+  @Test
+  public void do_not_carry_over_file_unknown_by_server_even_if_unchanged_according_to_scm() {
+    when(analysisMode.isIncremental()).thenReturn(true);
+    CarriedOverFiles underTest = new CarriedOverFiles(analysisMode, projectRepositories);
+    DefaultInputFile unknown = createFile("src/Other.java", 1);
+    DefaultInputFile withoutHash = createFile("src/NoHash.java", 2);
+
+    underTest.record("foo", unknown, "QWERT");
+    underTest.record("foo", withoutHash, "");
+
+    assertThat(underTest.isCarriedOver(unknown)).isFalse();
+    assertThat(underTest.isCarriedOver(withoutHash)).isFalse();
+  }
+
+  @Test
+  public void do_not_carry_over_files_if_not_incremental() {
+    when(analysisMode.isIncremental()).thenReturn(false);
+    CarriedOverFiles underTest = new CarriedOverFiles(analysisMode, projectRepositories);
+    DefaultInputFile file = createFile("src/Foo.java", 1);
+
+    underTest.record("foo", file, "ABCDE");
+
+    assertThat(underTest.isCarriedOver(file)).isFalse();
+  }
+
+  private static DefaultInputFile createFile(String relativePath, int batchId) {
+    return new TestInputFileBuilder("foo", relativePath, batchId).setStatus(InputFile.Status.SAME).build();
+  }
+}
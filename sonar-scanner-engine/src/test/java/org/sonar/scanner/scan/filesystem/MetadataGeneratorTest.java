@@ -65,7 +65,7 @@ public class MetadataGeneratorTest {
     metadata = new FileMetadata();
     IssueExclusionsLoader issueExclusionsLoader = new IssueExclusionsLoader(mock(IssueExclusionPatternInitializer.class), mock(PatternMatcher.class));
     generator = new MetadataGenerator(new DefaultInputModule(ProjectDefinition.create().setKey("module").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder())),
-      statusDetection, metadata, issueExclusionsLoader);
+      statusDetection, metadata, issueExclusionsLoader, mock(CarriedOverFiles.class));
   }
 
   @Test
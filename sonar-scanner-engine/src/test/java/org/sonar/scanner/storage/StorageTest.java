@@ -20,7 +20,14 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage.Entry;
 
@@ -28,6 +35,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class StorageTest extends AbstractCachesTest {
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   @Test
   public void one_part_key() {
     Storage<String> cache = caches.createCache("capitals");
@@ -248,4 +258,55 @@ public class StorageTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void keys_with_parts_of_different_types() {
+    Storage<String> cache = caches.createCache("mixed");
+
+    cache.put("b", "string b");
+    cache.put(2L, "long 2");
+    cache.put("a", "string a");
+    cache.put(2, "integer 2");
+    cache.put(1, "integer 1");
+
+    assertThat(cache.keySet()).containsExactly(1, 2, 2L, "a", "b");
+    assertThat(cache.get(2)).isEqualTo("integer 2");
+    assertThat(cache.get(2L)).isEqualTo("long 2");
+  }
+
+  @Test
+  public void fail_if_key_part_has_unsupported_type() {
+    Storage<String> cache = caches.createCache("unsupported");
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Storage keys only support parts of types");
+
+    cache.put("component", new StringBuilder("metric"), "value");
+  }
+
+  @Test
+  public void concurrent_puts() throws Exception {
+    Storage<String> cache = caches.createCache("concurrent");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        String component = "component" + thread;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 10_000; i++) {
+            cache.put(component, i, component + ":" + i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(cache.keySet()).containsOnly("component0", "component1", "component2", "component3");
+    assertThat(cache.values("component2")).hasSize(10_000);
+    assertThat(cache.get("component3", 9_999)).isEqualTo("component3:9999");
+  }
 }
@@ -19,15 +19,23 @@
  */
 package org.sonar.scanner.storage;
 
-import com.persistit.exception.PersistitException;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.sonar.scanner.index.AbstractCachesTest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
 public class StoragesTest extends AbstractCachesTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   @Test
   public void should_create_cache() {
     Storage<Element> cache = caches.createCache("foo");
@@ -55,7 +63,7 @@ public class StoragesTest extends AbstractCachesTest {
     caches.stop();
 
     // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.tempDir()).isDirectory();
 
     caches = new Storages(cachesManager);
     caches.start();
@@ -63,7 +71,7 @@ public class StoragesTest extends AbstractCachesTest {
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -77,12 +85,68 @@ public class StoragesTest extends AbstractCachesTest {
       caches.start();
       Storage<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
 
       caches.stop();
     }
   }
 
+  @Test
+  public void should_use_registered_value_coder() {
+    caches.registerValueCoder(Element.class, new StorageValueCoder<Element>() {
+      @Override
+      public void write(DataOutput output, Element value) throws IOException {
+        output.writeUTF("coded");
+      }
+
+      @Override
+      public Element read(DataInput input) throws IOException {
+        assertThat(input.readUTF()).isEqualTo("coded");
+        return new Element();
+      }
+    });
+    Storage<Element> cache = caches.createCache("foo");
+    cache.put("key", new Element());
+
+    assertThat(cache.get("key")).isInstanceOf(Element.class);
+  }
+
+  @Test
+  public void should_store_values_bigger_than_segments() {
+    Storage<String> cache = caches.createCache("foo");
+    StringBuilder sb = new StringBuilder(MappedSegments.SEGMENT_SIZE + 1);
+    for (int i = 0; i <= MappedSegments.SEGMENT_SIZE; i++) {
+      sb.append('a');
+    }
+    cache.put("small", "value");
+    cache.put("big", sb.toString());
+
+    assertThat(cache.get("big")).hasSize(MappedSegments.SEGMENT_SIZE + 1);
+    assertThat(cache.get("small")).isEqualTo("value");
+  }
+
+  @Test
+  public void should_delete_segments_on_stop() {
+    Storage<String> cache = caches.createCache("foo");
+    cache.put("key", "value");
+
+    caches.stop();
+
+    assertThat(cachesManager.tempDir().listFiles()).isEmpty();
+  }
+
+  @Test
+  public void segments_can_not_be_read_once_closed() throws Exception {
+    MappedSegments segments = new MappedSegments(temp.newFolder(), 1024);
+    long address = segments.write(new byte[] {1, 2, 3});
+    assertThat(segments.read(address)).containsExactly(1, 2, 3);
+
+    segments.close();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Storage segments are closed");
+    segments.read(address);
+  }
+
   private static class Element implements Serializable {
     private static final long serialVersionUID = 1L;
 